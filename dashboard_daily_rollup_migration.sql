@@ -0,0 +1,132 @@
+-- Migration script for the dashboard_daily_rollup table
+-- Holds daily ledger totals per (broker, financial year, date, product, seller city, buyer city, seller type,
+-- buyer type) so that the dashboard analytics no longer join daily_ledger, ledger_details, ledger_record,
+-- product and user for the whole financial year.
+-- dashboard_city_seller counts the records each seller sold to the buyers of a city per month, for the distinct
+-- seller count of the city analytics.
+-- Hibernate (ddl-auto=update) creates the tables; this script backfills them from the existing ledger.
+-- AnalyticsScheduler also verifies and rebuilds every broker financial year nightly.
+
+CREATE SEQUENCE IF NOT EXISTS dashboard_daily_rollup_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS dashboard_daily_rollup (
+    rollup_id BIGINT PRIMARY KEY,
+    broker_id BIGINT NOT NULL,
+    financial_year_id BIGINT NOT NULL,
+    ledger_date DATE,
+    product_id BIGINT,
+    seller_city VARCHAR(255),
+    buyer_city VARCHAR(255),
+    seller_type VARCHAR(255),
+    buyer_type VARCHAR(255),
+    records BIGINT,
+    quantity BIGINT,
+    transaction_value BIGINT,
+    brokerage BIGINT,
+    product_cost_sum BIGINT,
+    brokerage_per_unit_sum BIGINT,
+    version BIGINT,
+    CONSTRAINT uk_dashboard_daily_rollup_key
+        UNIQUE (broker_id, financial_year_id, ledger_date, product_id, seller_city, buyer_city, seller_type, buyer_type)
+);
+
+CREATE INDEX IF NOT EXISTS idx_dashboard_daily_rollup_broker_fy_date
+ON dashboard_daily_rollup (broker_id, financial_year_id, ledger_date);
+
+-- Each ledger record keeps the cities and merchant types it is counted under, so a later change of a user does
+-- not move its records between cells. Records written before these columns existed take the users' current values.
+ALTER TABLE ledger_record ADD COLUMN IF NOT EXISTS seller_city VARCHAR(255);
+ALTER TABLE ledger_record ADD COLUMN IF NOT EXISTS buyer_city VARCHAR(255);
+ALTER TABLE ledger_record ADD COLUMN IF NOT EXISTS seller_type VARCHAR(255);
+ALTER TABLE ledger_record ADD COLUMN IF NOT EXISTS buyer_type VARCHAR(255);
+
+UPDATE ledger_record lr
+SET seller_city = seller_address.city,
+    seller_type = seller.user_type,
+    buyer_city = buyer_address.city,
+    buyer_type = buyer.user_type
+FROM ledger_details ld
+JOIN "user" seller ON seller.user_id = ld.user_id
+LEFT JOIN address seller_address ON seller_address.address_id = seller.address_id,
+"user" buyer
+LEFT JOIN address buyer_address ON buyer_address.address_id = buyer.address_id
+WHERE ld.ledger_details_id = lr.ledger_details_ledger_details_id
+  AND buyer.user_id = lr.to_buyer_user_id
+  AND lr.seller_type IS NULL;
+
+-- Backfill from the raw ledger
+DELETE FROM dashboard_daily_rollup;
+
+INSERT INTO dashboard_daily_rollup (
+    rollup_id, broker_id, financial_year_id, ledger_date, product_id, seller_city, buyer_city, seller_type, buyer_type,
+    records, quantity, transaction_value, brokerage, product_cost_sum, brokerage_per_unit_sum, version)
+SELECT
+    nextval('dashboard_daily_rollup_seq'), cells.*, 0
+FROM (
+    SELECT lr.broker_id, ld.financial_year_id, dl.date, lr.product_product_id,
+           seller_address.city, buyer_address.city, seller.user_type, buyer.user_type,
+           COUNT(*),
+           COALESCE(SUM(lr.quantity), 0),
+           COALESCE(SUM(lr.total_products_cost), 0),
+           COALESCE(SUM(lr.total_brokerage), 0),
+           COALESCE(SUM(lr.product_cost), 0),
+           COALESCE(SUM(lr.brokerage), 0)
+    FROM ledger_record lr
+    JOIN ledger_details ld ON ld.ledger_details_id = lr.ledger_details_ledger_details_id
+    JOIN "user" seller ON seller.user_id = ld.user_id
+    LEFT JOIN address seller_address ON seller_address.address_id = seller.address_id
+    JOIN "user" buyer ON buyer.user_id = lr.to_buyer_user_id
+    LEFT JOIN address buyer_address ON buyer_address.address_id = buyer.address_id
+    LEFT JOIN daily_ledger dl ON dl.daily_ledger_id = ld.daily_ledger_daily_ledger_id
+    GROUP BY lr.broker_id, ld.financial_year_id, dl.date, lr.product_product_id,
+             seller_address.city, buyer_address.city, seller.user_type, buyer.user_type
+) cells;
+
+CREATE SEQUENCE IF NOT EXISTS dashboard_city_seller_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS dashboard_city_seller (
+    city_seller_id BIGINT PRIMARY KEY,
+    broker_id BIGINT NOT NULL,
+    financial_year_id BIGINT NOT NULL,
+    month_start DATE,
+    buyer_city VARCHAR(255),
+    seller_id BIGINT NOT NULL,
+    records BIGINT,
+    version BIGINT,
+    CONSTRAINT uk_dashboard_city_seller_key
+        UNIQUE (broker_id, financial_year_id, month_start, buyer_city, seller_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_dashboard_city_seller_broker_fy
+ON dashboard_city_seller (broker_id, financial_year_id);
+
+DELETE FROM dashboard_city_seller;
+
+INSERT INTO dashboard_city_seller (
+    city_seller_id, broker_id, financial_year_id, month_start, buyer_city, seller_id, records, version)
+SELECT
+    nextval('dashboard_city_seller_seq'), cells.*, 0
+FROM (
+    SELECT lr.broker_id, ld.financial_year_id, CAST(DATE_TRUNC('month', dl.date) AS DATE), buyer_address.city, ld.user_id,
+           COUNT(*)
+    FROM ledger_record lr
+    JOIN ledger_details ld ON ld.ledger_details_id = lr.ledger_details_ledger_details_id
+    JOIN "user" buyer ON buyer.user_id = lr.to_buyer_user_id
+    LEFT JOIN address buyer_address ON buyer_address.address_id = buyer.address_id
+    LEFT JOIN daily_ledger dl ON dl.daily_ledger_id = ld.daily_ledger_daily_ledger_id
+    WHERE ld.user_id IS NOT NULL
+    GROUP BY lr.broker_id, ld.financial_year_id, CAST(DATE_TRUNC('month', dl.date) AS DATE), buyer_address.city, ld.user_id
+) cells;
+
+-- Verify the backfill: both totals should match per broker and financial year
+SELECT
+    r.broker_id,
+    r.financial_year_id,
+    SUM(r.brokerage) AS rollup_brokerage,
+    (SELECT COALESCE(SUM(lr.total_brokerage), 0)
+     FROM ledger_record lr
+     JOIN ledger_details ld ON ld.ledger_details_id = lr.ledger_details_ledger_details_id
+     WHERE lr.broker_id = r.broker_id AND ld.financial_year_id = r.financial_year_id) AS ledger_brokerage
+FROM dashboard_daily_rollup r
+GROUP BY r.broker_id, r.financial_year_id
+ORDER BY r.broker_id, r.financial_year_id;
@@ -0,0 +1,55 @@
+-- Migration script for sequence-generated IDs of the high-volume entities
+-- LedgerDetails, DailyLedger, User, Address, Product and the payment tables now use pooled sequences
+-- (allocation size 50) instead of IDENTITY, like ledger_record already does. With IDENTITY Hibernate has to
+-- run every INSERT on its own to read the generated key, which disables hibernate.jdbc.batch_size.
+-- Hibernate creates the sequences with ddl-auto=update starting at 1; run this once afterwards so new IDs
+-- start above the existing rows. The existing id column defaults stay in place and are no longer used.
+-- Until it has run the application refuses to start (EntitySequenceCheck, app.jpa.verify-sequences-on-startup),
+-- so on an existing database start once with ddl-auto=update and the check disabled, or create the sequences
+-- below first, then run the script and start normally.
+
+-- PostgreSQL (prod profile)
+CREATE SEQUENCE IF NOT EXISTS ledger_details_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS daily_ledger_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS user_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS address_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS product_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS brokerage_payment_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS part_payment_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS pending_payment_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS receivable_payment_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS receivable_transaction_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS payment_transaction_seq START WITH 1 INCREMENT BY 50;
+
+SELECT setval('ledger_details_seq', COALESCE(MAX(ledger_details_id), 0) + 50) FROM ledger_details;
+SELECT setval('daily_ledger_seq', COALESCE(MAX(daily_ledger_id), 0) + 50) FROM daily_ledger;
+SELECT setval('user_seq', COALESCE(MAX(user_id), 0) + 50) FROM "user";
+SELECT setval('address_seq', COALESCE(MAX(address_id), 0) + 50) FROM address;
+SELECT setval('product_seq', COALESCE(MAX(product_id), 0) + 50) FROM product;
+SELECT setval('brokerage_payment_seq', COALESCE(MAX(id), 0) + 50) FROM brokerage_payment;
+SELECT setval('part_payment_seq', COALESCE(MAX(id), 0) + 50) FROM part_payment;
+SELECT setval('pending_payment_seq', COALESCE(MAX(id), 0) + 50) FROM pending_payment;
+SELECT setval('receivable_payment_seq', COALESCE(MAX(id), 0) + 50) FROM receivable_payment;
+SELECT setval('receivable_transaction_seq', COALESCE(MAX(id), 0) + 50) FROM receivable_transaction;
+SELECT setval('payment_transaction_seq', COALESCE(MAX(id), 0) + 50) FROM payment_transaction;
+
+-- MySQL (default profile): Hibernate emulates each sequence with a single-row table (next_val) and creates
+-- it with ddl-auto=update. Move every table above its current maximum, e.g. for ledger_details:
+-- CREATE TABLE IF NOT EXISTS ledger_details_seq (next_val BIGINT);
+-- INSERT INTO ledger_details_seq (next_val) SELECT 1 WHERE NOT EXISTS (SELECT 1 FROM ledger_details_seq);
+-- UPDATE ledger_details_seq SET next_val = (SELECT COALESCE(MAX(ledger_details_id), 0) + 50 FROM ledger_details);
+-- and the same for daily_ledger_seq (daily_ledger_id), user_seq (user_id), address_seq (address_id),
+-- product_seq (product_id) and the payment *_seq tables (id).
+
+-- Verify: the next allocated block must start above the current maximum ID
+SELECT 'ledger_details' AS table_name, MAX(ledger_details_id) AS max_id FROM ledger_details
+UNION ALL SELECT 'daily_ledger', MAX(daily_ledger_id) FROM daily_ledger
+UNION ALL SELECT 'user', MAX(user_id) FROM "user"
+UNION ALL SELECT 'address', MAX(address_id) FROM address
+UNION ALL SELECT 'product', MAX(product_id) FROM product
+UNION ALL SELECT 'brokerage_payment', MAX(id) FROM brokerage_payment
+UNION ALL SELECT 'part_payment', MAX(id) FROM part_payment
+UNION ALL SELECT 'pending_payment', MAX(id) FROM pending_payment
+UNION ALL SELECT 'receivable_payment', MAX(id) FROM receivable_payment
+UNION ALL SELECT 'receivable_transaction', MAX(id) FROM receivable_transaction
+UNION ALL SELECT 'payment_transaction', MAX(id) FROM payment_transaction;
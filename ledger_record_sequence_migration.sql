@@ -0,0 +1,16 @@
+-- Migration script for sequence-generated ledger_record IDs
+-- LedgerRecord now uses a pooled sequence (allocation size 50) instead of IDENTITY so that
+-- Hibernate can batch record inserts (hibernate.jdbc.batch_size). Hibernate creates the sequence
+-- with ddl-auto=update starting at 1; run this once afterwards so new IDs start above the existing rows.
+
+-- PostgreSQL (prod profile)
+CREATE SEQUENCE IF NOT EXISTS ledger_record_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('ledger_record_seq', COALESCE(MAX(ledger_record_id), 0) + 50) FROM ledger_record;
+
+-- MySQL (default profile): Hibernate emulates the sequence with a single-row table
+-- CREATE TABLE IF NOT EXISTS ledger_record_seq (next_val BIGINT);
+-- INSERT INTO ledger_record_seq (next_val) SELECT 1 WHERE NOT EXISTS (SELECT 1 FROM ledger_record_seq);
+-- UPDATE ledger_record_seq SET next_val = (SELECT COALESCE(MAX(ledger_record_id), 0) + 50 FROM ledger_record);
+
+-- Verify: the next allocated block must start above the current maximum ID
+SELECT MAX(ledger_record_id) AS max_ledger_record_id FROM ledger_record;
@@ -0,0 +1,82 @@
+-- Migration script for the merchant_brokerage_aggregate table
+-- Holds running brokerage totals per (broker, financial year, user, product, month) so that
+-- brokerage totals, city-wise and product-wise reads no longer scan ledger_record.
+-- Hibernate (ddl-auto=update) creates the table; this script backfills it from the existing ledger.
+-- Alternatively call POST /BrokerHub/Brokerage/aggregate/rebuild/{financialYearId} per broker.
+-- PostgreSQL (prod profile); for MySQL (default profile) run merchant_brokerage_aggregate_migration_mysql.sql.
+
+CREATE SEQUENCE IF NOT EXISTS merchant_brokerage_aggregate_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS merchant_brokerage_aggregate (
+    aggregate_id BIGINT PRIMARY KEY,
+    broker_id BIGINT NOT NULL,
+    financial_year_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    product_id BIGINT,
+    month_start DATE,
+    purchase_records BIGINT,
+    bags_bought BIGINT,
+    purchase_amount BIGINT,
+    purchase_brokerage BIGINT,
+    sale_records BIGINT,
+    bags_sold BIGINT,
+    sale_amount BIGINT,
+    sale_brokerage BIGINT,
+    version BIGINT,
+    CONSTRAINT uk_merchant_brokerage_aggregate_key
+        UNIQUE (broker_id, financial_year_id, user_id, product_id, month_start)
+);
+
+CREATE INDEX IF NOT EXISTS idx_merchant_brokerage_aggregate_broker_fy
+ON merchant_brokerage_aggregate (broker_id, financial_year_id);
+
+-- Backfill from the raw ledger (purchases by buyer, sales by seller)
+DELETE FROM merchant_brokerage_aggregate;
+
+INSERT INTO merchant_brokerage_aggregate (
+    aggregate_id, broker_id, financial_year_id, user_id, product_id, month_start,
+    purchase_records, bags_bought, purchase_amount, purchase_brokerage,
+    sale_records, bags_sold, sale_amount, sale_brokerage, version)
+SELECT
+    nextval('merchant_brokerage_aggregate_seq'), cells.broker_id, cells.financial_year_id, cells.user_id, cells.product_id, cells.month_start,
+    SUM(cells.purchase_records), SUM(cells.bags_bought), SUM(cells.purchase_amount), SUM(cells.purchase_brokerage),
+    SUM(cells.sale_records), SUM(cells.bags_sold), SUM(cells.sale_amount), SUM(cells.sale_brokerage), 0
+FROM (
+    SELECT lr.broker_id, ld.financial_year_id, lr.to_buyer_user_id AS user_id, lr.product_product_id AS product_id,
+           CAST(DATE_TRUNC('month', dl.date) AS DATE) AS month_start,
+           COUNT(*) AS purchase_records,
+           COALESCE(SUM(lr.quantity), 0) AS bags_bought,
+           COALESCE(SUM(lr.total_products_cost), 0) AS purchase_amount,
+           COALESCE(SUM(lr.total_brokerage), 0) AS purchase_brokerage,
+           0 AS sale_records, 0 AS bags_sold, 0 AS sale_amount, 0 AS sale_brokerage
+    FROM ledger_record lr
+    JOIN ledger_details ld ON ld.ledger_details_id = lr.ledger_details_ledger_details_id
+    LEFT JOIN daily_ledger dl ON dl.daily_ledger_id = ld.daily_ledger_daily_ledger_id
+    GROUP BY lr.broker_id, ld.financial_year_id, lr.to_buyer_user_id, lr.product_product_id, DATE_TRUNC('month', dl.date)
+    UNION ALL
+    SELECT lr.broker_id, ld.financial_year_id, ld.user_id AS user_id, lr.product_product_id AS product_id,
+           CAST(DATE_TRUNC('month', dl.date) AS DATE) AS month_start,
+           0, 0, 0, 0,
+           COUNT(*),
+           COALESCE(SUM(lr.quantity), 0),
+           COALESCE(SUM(lr.total_products_cost), 0),
+           COALESCE(SUM(lr.total_brokerage), 0)
+    FROM ledger_record lr
+    JOIN ledger_details ld ON ld.ledger_details_id = lr.ledger_details_ledger_details_id
+    LEFT JOIN daily_ledger dl ON dl.daily_ledger_id = ld.daily_ledger_daily_ledger_id
+    GROUP BY lr.broker_id, ld.financial_year_id, ld.user_id, lr.product_product_id, DATE_TRUNC('month', dl.date)
+) cells
+GROUP BY cells.broker_id, cells.financial_year_id, cells.user_id, cells.product_id, cells.month_start;
+
+-- Verify the backfill: both totals should match per broker and financial year
+SELECT
+    a.broker_id,
+    a.financial_year_id,
+    SUM(a.purchase_brokerage) AS aggregate_brokerage,
+    (SELECT COALESCE(SUM(lr.total_brokerage), 0)
+     FROM ledger_record lr
+     JOIN ledger_details ld ON ld.ledger_details_id = lr.ledger_details_ledger_details_id
+     WHERE lr.broker_id = a.broker_id AND ld.financial_year_id = a.financial_year_id) AS ledger_brokerage
+FROM merchant_brokerage_aggregate a
+GROUP BY a.broker_id, a.financial_year_id
+ORDER BY a.broker_id, a.financial_year_id;
@@ -0,0 +1,35 @@
+-- Migration script for the scheduled overdue payment sweep
+-- PaymentScheduler marks payments of every broker OVERDUE once they pass their due date. Each run reads only the
+-- due dates since the previous run, in (due_date, id) order, and records how far it got in sweep_watermark.
+-- The node running the sweep claims the watermark row (running_since), so other nodes skip the run.
+-- Hibernate (ddl-auto=update) creates the indexes and the table from the entities; run this script where DDL is
+-- managed by hand.
+
+-- PostgreSQL (prod profile)
+CREATE INDEX IF NOT EXISTS idx_brokerage_payment_due_id ON brokerage_payment (due_date, id);
+CREATE INDEX IF NOT EXISTS idx_pending_payment_due_id ON pending_payment (due_date, id);
+CREATE INDEX IF NOT EXISTS idx_receivable_payment_due_id ON receivable_payment (due_date, id);
+
+CREATE TABLE IF NOT EXISTS sweep_watermark (
+    sweep_name VARCHAR(50) PRIMARY KEY,
+    swept_before DATE NOT NULL,
+    last_run_at TIMESTAMP,
+    last_run_count INTEGER,
+    running_since TIMESTAMP,
+    version BIGINT
+);
+-- Claim of the node running the sweep, added after the table was first created
+ALTER TABLE sweep_watermark ADD COLUMN IF NOT EXISTS running_since TIMESTAMP;
+
+-- Without a watermark the first run sweeps every due date. To start from today instead (when the per-broker
+-- overdue update has been run recently), seed it:
+-- INSERT INTO sweep_watermark (sweep_name, swept_before, version) VALUES ('payment-overdue', CURRENT_DATE, 0);
+
+-- MySQL (default profile): same statements without IF NOT EXISTS, e.g.
+-- CREATE INDEX idx_brokerage_payment_due_id ON brokerage_payment (due_date, id);
+-- ALTER TABLE sweep_watermark ADD COLUMN running_since DATETIME(6);
+
+-- Verify
+SELECT tablename, indexname FROM pg_indexes
+WHERE indexname LIKE 'idx_%_payment_due_id'
+ORDER BY tablename, indexname;
@@ -0,0 +1,72 @@
+-- Migration script for the payment_daily_trend table
+-- Holds daily payment totals per (broker, date, payment method) so that GET /BrokerHub/payments/{brokerId}/trends
+-- merges at most one row per day and method instead of scanning part_payment and payment_transaction.
+-- Hibernate (ddl-auto=update) creates the table; this script backfills it from the existing payments.
+-- Overdue transitions are not stored anywhere else, so they start counting from the first overdue update after this.
+-- AnalyticsScheduler rebuilds the recent days of every active broker nightly.
+
+-- PostgreSQL (prod profile)
+CREATE SEQUENCE IF NOT EXISTS payment_daily_trend_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS payment_daily_trend (
+    trend_id BIGINT PRIMARY KEY,
+    broker_id BIGINT NOT NULL,
+    trend_date DATE NOT NULL,
+    payment_method VARCHAR(20) NOT NULL,
+    payments_count BIGINT,
+    payments_amount NUMERIC(38, 2),
+    new_due_count BIGINT,
+    new_due_amount NUMERIC(38, 2),
+    overdue_count BIGINT,
+    overdue_amount NUMERIC(38, 2),
+    version BIGINT,
+    CONSTRAINT uk_payment_daily_trend_key UNIQUE (broker_id, trend_date, payment_method)
+);
+
+CREATE INDEX IF NOT EXISTS idx_payment_daily_trend_broker_date
+ON payment_daily_trend (broker_id, trend_date);
+
+-- Backfill payments received per method and new dues (payment transactions, method NONE)
+DELETE FROM payment_daily_trend;
+
+INSERT INTO payment_daily_trend (
+    trend_id, broker_id, trend_date, payment_method, payments_count, payments_amount,
+    new_due_count, new_due_amount, overdue_count, overdue_amount, version)
+SELECT
+    nextval('payment_daily_trend_seq'), buckets.broker_id, buckets.trend_date, buckets.payment_method,
+    SUM(buckets.payments_count), SUM(buckets.payments_amount), SUM(buckets.new_due_count), SUM(buckets.new_due_amount),
+    0, 0, 0
+FROM (
+    SELECT bp.broker_id, pp.payment_date AS trend_date, pp.method AS payment_method,
+           COUNT(*) AS payments_count, COALESCE(SUM(pp.amount), 0) AS payments_amount,
+           0 AS new_due_count, 0 AS new_due_amount
+    FROM part_payment pp
+    JOIN brokerage_payment bp ON bp.id = pp.brokerage_payment_id
+    GROUP BY bp.broker_id, pp.payment_date, pp.method
+    UNION ALL
+    SELECT pt.broker_id, pt.transaction_date, 'NONE',
+           0, 0, COUNT(*), COALESCE(SUM(pt.total_amount), 0)
+    FROM payment_transaction pt
+    GROUP BY pt.broker_id, pt.transaction_date
+) buckets
+GROUP BY buckets.broker_id, buckets.trend_date, buckets.payment_method;
+
+-- MySQL (default profile): Hibernate creates the table and emulates payment_daily_trend_seq with a single-row
+-- table (next_val), which has no nextval(). Backfill with the same query numbering the rows itself (MySQL 8),
+-- i.e. replace nextval('payment_daily_trend_seq') with
+--     ROW_NUMBER() OVER (ORDER BY buckets.broker_id, buckets.trend_date, buckets.payment_method)
+-- and then move the emulation table above the backfilled IDs:
+-- UPDATE payment_daily_trend_seq SET next_val = (SELECT COALESCE(MAX(trend_id), 0) + 50 FROM payment_daily_trend);
+-- Or skip the backfill and let the nightly rebuild fill the recent days.
+
+-- Verify the backfill: both totals should match per broker
+SELECT
+    t.broker_id,
+    SUM(t.payments_amount) AS trend_payments,
+    (SELECT COALESCE(SUM(pp.amount), 0)
+     FROM part_payment pp
+     JOIN brokerage_payment bp ON bp.id = pp.brokerage_payment_id
+     WHERE bp.broker_id = t.broker_id) AS part_payments
+FROM payment_daily_trend t
+GROUP BY t.broker_id
+ORDER BY t.broker_id;
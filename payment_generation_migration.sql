@@ -0,0 +1,12 @@
+-- Migration script for payment generation from ledger records
+-- POST /BrokerHub/payments/{brokerId}/generate/{financialYearId} stores per-buyer totals on receivable_transaction
+-- rows without individual payment transactions, so the count and trade dates become columns. Hibernate
+-- (ddl-auto=update) adds them from the entity; run this script where DDL is managed by hand.
+
+-- PostgreSQL (prod profile)
+ALTER TABLE receivable_transaction ADD COLUMN IF NOT EXISTS transaction_count INTEGER;
+ALTER TABLE receivable_transaction ADD COLUMN IF NOT EXISTS oldest_transaction_date DATE;
+ALTER TABLE receivable_transaction ADD COLUMN IF NOT EXISTS most_recent_transaction_date DATE;
+
+-- MySQL (default profile): same statements without IF NOT EXISTS, e.g.
+-- ALTER TABLE receivable_transaction ADD COLUMN transaction_count INT;
@@ -0,0 +1,24 @@
+-- Migration script for the keyset-paginated payment listings
+-- GET /BrokerHub/payments/{brokerId}/{brokerage|pending|receivable}/page reads payments in (due_date, id)
+-- order per broker, optionally filtered by status. These indexes let each page start at the cursor
+-- position instead of sorting all of the broker's payments. Hibernate (ddl-auto=update) creates them
+-- from the entity @Table definitions; run this script where DDL is managed by hand.
+
+-- PostgreSQL (prod profile)
+CREATE INDEX IF NOT EXISTS idx_brokerage_payment_broker_due_id ON brokerage_payment (broker_id, due_date, id);
+CREATE INDEX IF NOT EXISTS idx_brokerage_payment_broker_status_due_id ON brokerage_payment (broker_id, status, due_date, id);
+CREATE INDEX IF NOT EXISTS idx_pending_payment_broker_due_id ON pending_payment (broker_id, due_date, id);
+CREATE INDEX IF NOT EXISTS idx_pending_payment_broker_status_due_id ON pending_payment (broker_id, status, due_date, id);
+CREATE INDEX IF NOT EXISTS idx_receivable_payment_broker_due_id ON receivable_payment (broker_id, due_date, id);
+CREATE INDEX IF NOT EXISTS idx_receivable_payment_broker_status_due_id ON receivable_payment (broker_id, status, due_date, id);
+
+-- The (broker_id, due_date) indexes from database_optimization_indexes.sql are prefixes of the new ones:
+-- DROP INDEX IF EXISTS idx_brokerage_payment_broker_due_date;
+
+-- MySQL (default profile): same statements without IF NOT EXISTS, e.g.
+-- CREATE INDEX idx_brokerage_payment_broker_due_id ON brokerage_payment (broker_id, due_date, id);
+
+-- Verify
+SELECT tablename, indexname FROM pg_indexes
+WHERE indexname LIKE 'idx_%_payment_broker_%due_id'
+ORDER BY tablename, indexname;
@@ -0,0 +1,24 @@
+-- Migration script for shared JWT revocation
+-- Logouts, password changes and broker deletion revoke tokens in revoked_token, which every node loads on startup
+-- and reads again every app.jwt.revocation.sync-interval. A row without a token_id revokes all tokens of the broker
+-- issued up to revoked_at. Rows are purged hourly once expires_at has passed.
+-- Hibernate (ddl-auto=update) creates the table from the entity; run this script where DDL is managed by hand.
+
+-- PostgreSQL (prod profile)
+CREATE TABLE IF NOT EXISTS revoked_token (
+    id BIGSERIAL PRIMARY KEY,
+    token_id VARCHAR(64),
+    user_name VARCHAR(255),
+    revoked_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    expires_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_revoked_token_revoked_at ON revoked_token (revoked_at);
+CREATE INDEX IF NOT EXISTS idx_revoked_token_expires_at ON revoked_token (expires_at);
+
+-- MySQL (default profile): BIGINT AUTO_INCREMENT for the id, DATETIME(6) for the timestamps, and the indexes
+-- without IF NOT EXISTS, e.g.
+-- CREATE INDEX idx_revoked_token_revoked_at ON revoked_token (revoked_at);
+
+-- Verify
+SELECT COUNT(*) AS active_revocations FROM revoked_token WHERE expires_at > CURRENT_TIMESTAMP;
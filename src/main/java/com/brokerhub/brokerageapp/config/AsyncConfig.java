@@ -1,8 +1,12 @@
 package com.brokerhub.brokerageapp.config;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
@@ -12,18 +16,47 @@ import java.util.concurrent.ThreadPoolExecutor;
 /**
  * Configuration for asynchronous processing to improve application performance
  * through parallel execution of non-blocking operations.
+ * With spring.threads.virtual.enabled=true on Java 21+ every executor starts a virtual thread per task
+ * (and Spring Boot moves Tomcat request handling onto virtual threads too); otherwise the bounded pools below are used.
+ * JDBC concurrency is bounded separately by {@link JdbcConcurrencyLimiter} in either mode.
  */
 @Configuration
 @EnableAsync
 @Slf4j
 public class AsyncConfig {
 
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private ExecutorMetrics executorMetrics;
+
+    private boolean virtualThreadsEnabled() {
+        return Threading.VIRTUAL.isActive(environment);
+    }
+
+    private Executor virtualThreadExecutor(String name, String threadNamePrefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        executor.setTaskDecorator(executorMetrics.decorator(name));
+        // Let running tasks finish on shutdown, like the pools' waitForTasksToCompleteOnShutdown
+        executor.setTaskTerminationTimeout(30_000);
+        executorMetrics.pool(name).setVirtualThreads(true);
+
+        log.info("{} runs tasks on virtual threads", name);
+
+        return executor;
+    }
+
     /**
      * Thread pool for analytics processing
      * Optimized for CPU-intensive analytics calculations
      */
     @Bean(name = "analyticsTaskExecutor")
     public Executor analyticsTaskExecutor() {
+        if (virtualThreadsEnabled()) {
+            return virtualThreadExecutor("analyticsTaskExecutor", "Analytics-");
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         
         // Core pool size - number of threads to keep alive
@@ -51,6 +84,7 @@ public class AsyncConfig {
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(30);
         
+        executor.setTaskDecorator(executorMetrics.decorator("analyticsTaskExecutor"));
         executor.initialize();
         
         log.info("Analytics task executor initialized with core pool size: {}, max pool size: {}", 
@@ -65,6 +99,9 @@ public class AsyncConfig {
      */
     @Bean(name = "databaseTaskExecutor")
     public Executor databaseTaskExecutor() {
+        if (virtualThreadsEnabled()) {
+            return virtualThreadExecutor("databaseTaskExecutor", "Database-");
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         
         // Higher core pool size for I/O operations
@@ -78,6 +115,7 @@ public class AsyncConfig {
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(60);
         
+        executor.setTaskDecorator(executorMetrics.decorator("databaseTaskExecutor"));
         executor.initialize();
         
         log.info("Database task executor initialized with core pool size: {}, max pool size: {}", 
@@ -92,6 +130,9 @@ public class AsyncConfig {
      */
     @Bean(name = "cacheTaskExecutor")
     public Executor cacheTaskExecutor() {
+        if (virtualThreadsEnabled()) {
+            return virtualThreadExecutor("cacheTaskExecutor", "Cache-");
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         
         // Smaller pool for cache operations
@@ -105,6 +146,7 @@ public class AsyncConfig {
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(30);
         
+        executor.setTaskDecorator(executorMetrics.decorator("cacheTaskExecutor"));
         executor.initialize();
         
         log.info("Cache task executor initialized with core pool size: {}, max pool size: {}", 
@@ -119,6 +161,9 @@ public class AsyncConfig {
      */
     @Bean(name = "paymentTaskExecutor")
     public Executor paymentTaskExecutor() {
+        if (virtualThreadsEnabled()) {
+            return virtualThreadExecutor("paymentTaskExecutor", "Payment-");
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         
         // Medium pool size for payment operations
@@ -132,6 +177,7 @@ public class AsyncConfig {
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(45);
         
+        executor.setTaskDecorator(executorMetrics.decorator("paymentTaskExecutor"));
         executor.initialize();
         
         log.info("Payment task executor initialized with core pool size: {}, max pool size: {}", 
@@ -140,12 +186,45 @@ public class AsyncConfig {
         return executor;
     }
 
+    /**
+     * Thread pool for payment Excel exports
+     * Bounded and aborting: each export holds a workbook and a response stream for its whole run, so a full pool
+     * rejects further exports (503) instead of running them on the request thread. Kept on platform threads when
+     * virtual threads are enabled, since a virtual-thread executor never rejects.
+     */
+    @Bean(name = "exportTaskExecutor")
+    public Executor exportTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        
+        // Small pool, short queue for long-running exports
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(10);
+        executor.setThreadNamePrefix("Export-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setKeepAliveSeconds(180);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        
+        executor.setTaskDecorator(executorMetrics.decorator("exportTaskExecutor"));
+        executor.initialize();
+        
+        log.info("Export task executor initialized with core pool size: {}, max pool size: {}", 
+                executor.getCorePoolSize(), executor.getMaxPoolSize());
+        
+        return executor;
+    }
+
     /**
      * Thread pool for bulk operations
      * Optimized for large batch processing operations
      */
     @Bean(name = "bulkOperationTaskExecutor")
     public Executor bulkOperationTaskExecutor() {
+        if (virtualThreadsEnabled()) {
+            return virtualThreadExecutor("bulkOperationTaskExecutor", "BulkOp-");
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         
         // Larger pool for bulk operations
@@ -159,6 +238,7 @@ public class AsyncConfig {
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(120);
         
+        executor.setTaskDecorator(executorMetrics.decorator("bulkOperationTaskExecutor"));
         executor.initialize();
         
         log.info("Bulk operation task executor initialized with core pool size: {}, max pool size: {}", 
@@ -172,6 +252,9 @@ public class AsyncConfig {
      */
     @Bean(name = "taskExecutor")
     public Executor taskExecutor() {
+        if (virtualThreadsEnabled()) {
+            return virtualThreadExecutor("taskExecutor", "Async-");
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         
         // General purpose configuration
@@ -185,6 +268,7 @@ public class AsyncConfig {
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(30);
         
+        executor.setTaskDecorator(executorMetrics.decorator("taskExecutor"));
         executor.initialize();
         
         log.info("Default task executor initialized with core pool size: {}, max pool size: {}", 
@@ -2,6 +2,7 @@ package com.brokerhub.brokerageapp.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -18,7 +19,7 @@ import java.time.Duration;
 public class BrokerageCacheConfig {
     
     @Bean
-    public RedisCacheManager brokerageCacheManager(RedisConnectionFactory connectionFactory) {
+    public CacheManager brokerageCacheManager(RedisConnectionFactory connectionFactory, CacheStatistics cacheStatistics) {
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
         objectMapper.disable(com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
@@ -30,8 +31,10 @@ public class BrokerageCacheConfig {
                 .entryTtl(Duration.ofMinutes(30))
                 .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(jsonSerializer));
         
-        return RedisCacheManager.builder(connectionFactory)
+        RedisCacheManager cacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(config)
                 .build();
+        cacheManager.initializeCaches();
+        return new InstrumentedCacheManager(cacheManager, cacheStatistics);
     }
 }
\ No newline at end of file
@@ -2,32 +2,48 @@ package com.brokerhub.brokerageapp.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    @Bean
+    @ConditionalOnProperty(name = "spring.cache.type", havingValue = "redis")
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
+
     @Bean
     @Primary
     @ConditionalOnProperty(name = "spring.cache.type", havingValue = "redis")
-    public CacheManager redisCacheManager(RedisConnectionFactory redisConnectionFactory) {
+    public CacheManager redisCacheManager(RedisConnectionFactory redisConnectionFactory, CacheStatistics cacheStatistics,
+                                          TieredCacheProperties tieredCacheProperties,
+                                          RedisMessageListenerContainer cacheInvalidationListenerContainer,
+                                          StringRedisTemplate stringRedisTemplate) {
         // Configure ObjectMapper with JSR310 module for Java 8 time support
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
@@ -63,17 +79,29 @@ public class CacheConfig {
         cacheConfigurations.put("dailyLedger", defaultConfig.entryTtl(Duration.ofMinutes(15)));
         cacheConfigurations.put("paymentDashboard", defaultConfig.entryTtl(Duration.ofMinutes(10)));
 
-        return RedisCacheManager.builder(redisConnectionFactory)
+        RedisCacheManager cacheManager = RedisCacheManager.builder(redisConnectionFactory)
                 .cacheDefaults(defaultConfig)
                 .withInitialCacheConfigurations(cacheConfigurations)
                 .build();
+        // Not a bean itself once wrapped, so the configured caches are created here
+        cacheManager.initializeCaches();
+        if (!tieredCacheProperties.isEnabled()) {
+            return new InstrumentedCacheManager(cacheManager, cacheStatistics);
+        }
+        TieredCacheManager tieredCacheManager = new TieredCacheManager(cacheManager, tieredCacheProperties,
+                cacheStatistics, stringRedisTemplate);
+        cacheInvalidationListenerContainer.addMessageListener(tieredCacheManager,
+                new ChannelTopic(tieredCacheProperties.getInvalidationChannel()));
+        return new InstrumentedCacheManager(tieredCacheManager, cacheStatistics);
     }
 
     @Bean
     @ConditionalOnProperty(name = "spring.cache.type", havingValue = "simple", matchIfMissing = true)
-    public CacheManager fallbackCacheManager() {
-        // Fallback to in-memory cache when Redis is not available
-        return new ConcurrentMapCacheManager(
+    public CacheManager fallbackCacheManager(CacheStatistics cacheStatistics, TieredCacheProperties tieredCacheProperties) {
+        // Fallback to in-memory cache when Redis is not available, bounded by the same specs as the local tier
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheSpecification(tieredCacheProperties.getDefaultSpec());
+        cacheManager.setCacheNames(List.of(
                 "financialYearAnalytics",
                 "topPerformers",
                 "topBuyers",
@@ -104,7 +132,18 @@ public class CacheConfig {
                 "dailyLedger",
                 "ledgerDetails",
                 // Financial year cache
-                "financialYear"
-        );
+                "financialYear",
+                // Brokerage caches, keyed per broker and financial year
+                "totalBrokerage",
+                "brokerageSummary",
+                "userBrokerage",
+                "cityBrokerage",
+                "userBrokerageDetail",
+                "brokerageQuery"
+        ));
+        // After setCacheNames, which would otherwise replace these with default-spec caches
+        tieredCacheProperties.getSpecs().forEach((name, spec) ->
+                cacheManager.registerCustomCache(name, Caffeine.from(spec).build()));
+        return new InstrumentedCacheManager(cacheManager, cacheStatistics);
     }
 }
@@ -0,0 +1,95 @@
+package com.brokerhub.brokerageapp.config;
+
+import com.brokerhub.brokerageapp.dto.CacheRegionStatsDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Hit, miss, put and eviction counters per cache region, fed by {@link InstrumentedCacheManager}.
+ * Tiered regions also report how many lookups the in-process tier answered without going to Redis.
+ * Counters live for the lifetime of the JVM and are per node.
+ */
+@Component
+public class CacheStatistics {
+
+    private final Map<String, Region> regions = new ConcurrentHashMap<>();
+
+    public Region region(String name) {
+        return regions.computeIfAbsent(name, Region::new);
+    }
+
+    public Map<String, CacheRegionStatsDTO> snapshot() {
+        Map<String, CacheRegionStatsDTO> snapshot = new TreeMap<>();
+        regions.values().forEach(region -> snapshot.put(region.name, region.toDTO()));
+        return snapshot;
+    }
+
+    public static final class Region {
+
+        private final String name;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder puts = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder localHits = new LongAdder();
+        private final LongAdder localMisses = new LongAdder();
+        private volatile LongSupplier localSize;
+
+        private Region(String name) {
+            this.name = name;
+        }
+
+        public void recordHit() {
+            hits.increment();
+        }
+
+        public void recordMiss() {
+            misses.increment();
+        }
+
+        public void recordPut() {
+            puts.increment();
+        }
+
+        public void recordEviction() {
+            evictions.increment();
+        }
+
+        public void recordLocalHit() {
+            localHits.increment();
+        }
+
+        public void recordLocalMiss() {
+            localMisses.increment();
+        }
+
+        public void setLocalSize(LongSupplier localSize) {
+            this.localSize = localSize;
+        }
+
+        CacheRegionStatsDTO toDTO() {
+            long hitCount = hits.sum();
+            long lookups = hitCount + misses.sum();
+            long localHitCount = localHits.sum();
+            long localLookups = localHitCount + localMisses.sum();
+            LongSupplier size = localSize;
+            return CacheRegionStatsDTO.builder()
+                    .region(name)
+                    .hits(hitCount)
+                    .misses(lookups - hitCount)
+                    .puts(puts.sum())
+                    .evictions(evictions.sum())
+                    .hitRatio(lookups == 0 ? 0d : (double) hitCount / lookups)
+                    .localHits(localHitCount)
+                    .localMisses(localLookups - localHitCount)
+                    .localHitRatio(localLookups == 0 ? 0d : (double) localHitCount / localLookups)
+                    .localSize(size != null ? size.getAsLong() : 0L)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.brokerhub.brokerageapp.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Refuses to start when an entity's pooled sequence would hand out IDs that already exist, which is the state of a
+ * database that moved from IDENTITY keys to sequences without entity_sequence_migration.sql: ddl-auto=update
+ * creates the sequences at 1 and the first batch of inserts fails on the primary key. Runs before the web server
+ * starts and covers every entity mapped with a @SequenceGenerator, on PostgreSQL sequences and on the
+ * single-row tables MySQL emulates them with.
+ */
+@Component
+@Slf4j
+public class EntitySequenceCheck {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.jpa.verify-sequences-on-startup:true}")
+    private boolean enabled;
+
+    @PostConstruct
+    void verifyOnStartup() {
+        if (enabled) {
+            verify(sequences());
+        }
+    }
+
+    /**
+     * @throws IllegalStateException naming every sequence that is behind the IDs of its table
+     */
+    public void verify(List<EntitySequence> sequences) {
+        List<String> behind = new ArrayList<>();
+        for (EntitySequence sequence : sequences) {
+            Long maxId;
+            Long value;
+            try {
+                maxId = jdbcTemplate.queryForObject(
+                        "SELECT MAX(" + sequence.idColumn() + ") FROM " + sequence.table(), Long.class);
+                value = jdbcTemplate.queryForObject(sequence.physical()
+                        ? "SELECT last_value FROM " + sequence.name()
+                        : "SELECT next_val FROM " + sequence.name(), Long.class);
+            } catch (DataAccessException e) {
+                log.warn("Could not verify sequence {} of table {}: {}", sequence.name(), sequence.table(), e.getMessage());
+                continue;
+            }
+            if (maxId == null || value == null) {
+                continue;
+            }
+            // A sequence returns the upper end of its next block, the emulating table hands out the block below next_val
+            long highestAllocated = sequence.physical() ? value : value - sequence.incrementSize();
+            if (highestAllocated < maxId) {
+                behind.add(sequence.name() + " at " + value + " below " + sequence.table() + "." + sequence.idColumn() + " " + maxId);
+            }
+        }
+        if (!behind.isEmpty()) {
+            throw new IllegalStateException("Entity sequences are behind their tables, run entity_sequence_migration.sql "
+                    + "before starting the application (or set app.jpa.verify-sequences-on-startup=false): "
+                    + String.join("; ", behind));
+        }
+        log.info("Verified {} entity sequences", sequences.size());
+    }
+
+    private List<EntitySequence> sequences() {
+        // Subclasses of a single-table hierarchy share their root's generator
+        Map<String, EntitySequence> sequences = new LinkedHashMap<>();
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel().forEachEntityDescriptor(persister -> {
+            if (persister.getGenerator() instanceof SequenceStyleGenerator generator
+                    && persister instanceof AbstractEntityPersister entityPersister) {
+                DatabaseStructure structure = generator.getDatabaseStructure();
+                String name = structure.getPhysicalName().render();
+                sequences.putIfAbsent(name, new EntitySequence(name, structure.isPhysicalSequence(),
+                        structure.getIncrementSize(), entityPersister.getIdentifierTableName(),
+                        entityPersister.getIdentifierColumnNames()[0]));
+            }
+        });
+        return new ArrayList<>(sequences.values());
+    }
+
+    /**
+     * @param physical a database sequence, otherwise a table emulating one
+     */
+    public record EntitySequence(String name, boolean physical, int incrementSize, String table, String idColumn) {
+    }
+}
@@ -0,0 +1,108 @@
+package com.brokerhub.brokerageapp.config;
+
+import com.brokerhub.brokerageapp.dto.ExecutorStatsDTO;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Queue depth and wait time per executor, fed by the task decorator each executor in {@link AsyncConfig} uses,
+ * and for JDBC permits by {@link JdbcConcurrencyLimiter}. Counters live for the lifetime of the JVM and are per node.
+ */
+@Component
+public class ExecutorMetrics {
+
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    public Pool pool(String name) {
+        return pools.computeIfAbsent(name, Pool::new);
+    }
+
+    public TaskDecorator decorator(String name) {
+        Pool pool = pool(name);
+        return task -> {
+            long submittedAt = pool.recordSubmitted();
+            return () -> {
+                pool.recordStarted(submittedAt);
+                boolean succeeded = false;
+                try {
+                    task.run();
+                    succeeded = true;
+                } finally {
+                    pool.recordFinished(succeeded);
+                }
+            };
+        };
+    }
+
+    public Map<String, ExecutorStatsDTO> snapshot() {
+        Map<String, ExecutorStatsDTO> snapshot = new TreeMap<>();
+        pools.values().forEach(pool -> snapshot.put(pool.name, pool.toDTO()));
+        return snapshot;
+    }
+
+    public static final class Pool {
+
+        private final String name;
+        private volatile boolean virtualThreads;
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder started = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0L);
+
+        private Pool(String name) {
+            this.name = name;
+        }
+
+        public void setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+        }
+
+        /**
+         * @return the submission timestamp to pass to {@link #recordStarted(long)}
+         */
+        public long recordSubmitted() {
+            submitted.increment();
+            return System.nanoTime();
+        }
+
+        public void recordStarted(long submittedAt) {
+            long waited = System.nanoTime() - submittedAt;
+            started.increment();
+            waitNanos.add(waited);
+            maxWaitNanos.accumulate(waited);
+        }
+
+        public void recordFinished(boolean succeeded) {
+            (succeeded ? completed : failed).increment();
+        }
+
+        ExecutorStatsDTO toDTO() {
+            long finished = completed.sum() + failed.sum();
+            long startedCount = started.sum();
+            return ExecutorStatsDTO.builder()
+                    .executor(name)
+                    .virtualThreads(virtualThreads)
+                    .submitted(submitted.sum())
+                    .completed(completed.sum())
+                    .failed(failed.sum())
+                    .queued(Math.max(0, submitted.sum() - startedCount))
+                    .active(Math.max(0, startedCount - finished))
+                    .averageWaitMillis(startedCount == 0 ? 0d : toMillis(waitNanos.sum()) / startedCount)
+                    .maxWaitMillis(toMillis(maxWaitNanos.get()))
+                    .build();
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.brokerhub.brokerageapp.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Wraps a cache manager so every region reports lookups to {@link CacheStatistics}.
+ * The caches themselves are untouched; {@link InstrumentedCache#getTarget()} gives the real one back.
+ */
+public class InstrumentedCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+    private final CacheStatistics cacheStatistics;
+    private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public InstrumentedCacheManager(CacheManager delegate, CacheStatistics cacheStatistics) {
+        this.delegate = delegate;
+        this.cacheStatistics = cacheStatistics;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = caches.get(name);
+        if (cache == null) {
+            Cache target = delegate.getCache(name);
+            if (target == null) {
+                return null;
+            }
+            cache = caches.computeIfAbsent(name, key -> new InstrumentedCache(target, cacheStatistics.region(key)));
+        }
+        return cache;
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    public static Cache unwrap(Cache cache) {
+        return cache instanceof InstrumentedCache ? ((InstrumentedCache) cache).getTarget() : cache;
+    }
+
+    public static final class InstrumentedCache implements Cache {
+
+        private final Cache target;
+        private final CacheStatistics.Region region;
+
+        private InstrumentedCache(Cache target, CacheStatistics.Region region) {
+            this.target = target;
+            this.region = region;
+        }
+
+        public Cache getTarget() {
+            return target;
+        }
+
+        @Override
+        public String getName() {
+            return target.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return target.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            ValueWrapper value = target.get(key);
+            record(value != null);
+            return value;
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            T value = target.get(key, type);
+            record(value != null);
+            return value;
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            boolean[] loaded = new boolean[1];
+            T value = target.get(key, () -> {
+                loaded[0] = true;
+                return valueLoader.call();
+            });
+            record(!loaded[0]);
+            return value;
+        }
+
+        @Override
+        public CompletableFuture<?> retrieve(Object key) {
+            CompletableFuture<?> value = target.retrieve(key);
+            if (value == null) {
+                region.recordMiss();
+                return null;
+            }
+            return value.whenComplete((result, error) -> record(result != null));
+        }
+
+        @Override
+        public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+            boolean[] loaded = new boolean[1];
+            return target.retrieve(key, () -> {
+                loaded[0] = true;
+                return valueLoader.get();
+            }).whenComplete((result, error) -> record(!loaded[0]));
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            target.put(key, value);
+            region.recordPut();
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            ValueWrapper existing = target.putIfAbsent(key, value);
+            if (existing == null) {
+                region.recordPut();
+            }
+            return existing;
+        }
+
+        @Override
+        public void evict(Object key) {
+            target.evict(key);
+            region.recordEviction();
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            boolean evicted = target.evictIfPresent(key);
+            if (evicted) {
+                region.recordEviction();
+            }
+            return evicted;
+        }
+
+        @Override
+        public void clear() {
+            target.clear();
+            region.recordEviction();
+        }
+
+        @Override
+        public boolean invalidate() {
+            boolean invalidated = target.invalidate();
+            region.recordEviction();
+            return invalidated;
+        }
+
+        private void record(boolean hit) {
+            if (hit) {
+                region.recordHit();
+            } else {
+                region.recordMiss();
+            }
+        }
+    }
+}
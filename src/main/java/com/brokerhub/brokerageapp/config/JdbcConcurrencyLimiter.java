@@ -0,0 +1,65 @@
+package com.brokerhub.brokerageapp.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bounds how many fan-out tasks run JDBC work at once, sized to the Hikari pool by default.
+ * With virtual threads an executor no longer caps concurrency, so without this a dashboard fan-out for many
+ * brokers would pile onto the connection pool and fail with connection timeouts instead of queueing.
+ * Waiting callers show up as queue depth of the "jdbc" pool in {@link ExecutorMetrics}.
+ */
+@Component
+@Slf4j
+public class JdbcConcurrencyLimiter {
+
+    private final Semaphore permits;
+    private final long timeoutMillis;
+    private final ExecutorMetrics.Pool metrics;
+
+    public JdbcConcurrencyLimiter(@Value("${app.execution.jdbc-permits:${spring.datasource.hikari.maximum-pool-size:10}}") int permits,
+                                  @Value("${spring.datasource.hikari.connection-timeout:30000}") long timeoutMillis,
+                                  ExecutorMetrics executorMetrics) {
+        this.permits = new Semaphore(permits, true);
+        this.timeoutMillis = timeoutMillis;
+        this.metrics = executorMetrics.pool("jdbc");
+        log.info("JDBC concurrency limited to {} permits", permits);
+    }
+
+    /**
+     * Runs the query once a permit is free.
+     *
+     * @throws IllegalStateException if no permit frees up within the Hikari connection timeout
+     */
+    public <T> T call(Supplier<T> query) {
+        long submittedAt = metrics.recordSubmitted();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            metrics.recordStarted(submittedAt);
+            metrics.recordFinished(false);
+            throw new IllegalStateException("Interrupted while waiting for a JDBC permit", e);
+        }
+        metrics.recordStarted(submittedAt);
+        if (!acquired) {
+            metrics.recordFinished(false);
+            throw new IllegalStateException("No JDBC permit available within " + timeoutMillis + " ms");
+        }
+        boolean succeeded = false;
+        try {
+            T result = query.get();
+            succeeded = true;
+            return result;
+        } finally {
+            permits.release();
+            metrics.recordFinished(succeeded);
+        }
+    }
+}
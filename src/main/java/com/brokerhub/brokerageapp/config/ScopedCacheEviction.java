@@ -0,0 +1,54 @@
+package com.brokerhub.brokerageapp.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.cache.RedisCache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Evicts the keys of a cache that match a glob where only '*' is special.
+ * The Spring Cache API has no partial eviction, so this goes to the native store of each cache type we run on.
+ */
+public final class ScopedCacheEviction {
+
+    private ScopedCacheEviction() {
+    }
+
+    /**
+     * @return false when the cache type cannot evict by pattern and the caller has to fall back to clearing it
+     */
+    public static boolean evictMatching(Cache cache, String glob) {
+        Cache target = InstrumentedCacheManager.unwrap(cache);
+        if (target instanceof TieredCacheManager.TieredCache) {
+            ((TieredCacheManager.TieredCache) target).evictMatching(glob);
+        } else if (target instanceof ConcurrentMapCache) {
+            Pattern pattern = toRegex(glob);
+            ((ConcurrentMapCache) target).getNativeCache().keySet()
+                    .removeIf(key -> pattern.matcher(Objects.toString(key)).matches());
+        } else if (target instanceof CaffeineCache) {
+            Pattern pattern = toRegex(glob);
+            ((CaffeineCache) target).getNativeCache().asMap().keySet()
+                    .removeIf(key -> pattern.matcher(Objects.toString(key)).matches());
+        } else if (target instanceof RedisCache) {
+            RedisCache redisCache = (RedisCache) target;
+            String redisPattern = redisCache.getCacheConfiguration().getKeyPrefixFor(redisCache.getName())
+                    + glob.replaceAll("([?\\[\\]\\\\])", "\\\\$1");
+            redisCache.getNativeCache().clean(redisCache.getName(), redisPattern.getBytes(StandardCharsets.UTF_8));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    static Pattern toRegex(String glob) {
+        return Pattern.compile(Arrays.stream(glob.split("\\*", -1))
+                .map(Pattern::quote)
+                .collect(Collectors.joining(".*")));
+    }
+}
@@ -0,0 +1,252 @@
+package com.brokerhub.brokerageapp.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Two-level cache: a bounded Caffeine map per region in front of the Redis cache manager.
+ * Hits on the local tier skip the network hop and the JSON deserialization. Every write and
+ * eviction goes to Redis first and is then broadcast on a pub/sub channel, so the other
+ * instances drop their local copy. A lost message or a read racing a write can leave a stale local
+ * entry, but only until its expireAfterWrite, so keep local TTLs short for data that changes often.
+ * Local entries are shared object instances; callers must not mutate what they get from the cache.
+ */
+@Slf4j
+public class TieredCacheManager implements CacheManager, MessageListener {
+
+    private static final String EVICT = "evict";
+    private static final String CLEAR = "clear";
+    private static final String PATTERN = "pattern";
+
+    private final CacheManager remote;
+    private final TieredCacheProperties properties;
+    private final CacheStatistics cacheStatistics;
+    private final StringRedisTemplate redisTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TieredCache> caches = new ConcurrentHashMap<>();
+
+    public TieredCacheManager(CacheManager remote, TieredCacheProperties properties, CacheStatistics cacheStatistics,
+                              StringRedisTemplate redisTemplate) {
+        this.remote = remote;
+        this.properties = properties;
+        this.cacheStatistics = cacheStatistics;
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TieredCache cache = caches.get(name);
+        if (cache == null) {
+            Cache remoteCache = remote.getCache(name);
+            if (remoteCache == null) {
+                return null;
+            }
+            cache = caches.computeIfAbsent(name, key -> new TieredCache(key, remoteCache));
+        }
+        return cache;
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remote.getCacheNames();
+    }
+
+    /**
+     * Applies an invalidation published by another instance to the local tier only.
+     * Messages are "nodeId|cacheName|operation|key"; the key goes last because it may contain '|'.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 4);
+        if (parts.length < 4 || nodeId.equals(parts[0])) {
+            return;
+        }
+        TieredCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            return;
+        }
+        switch (parts[2]) {
+            case EVICT:
+                cache.local.invalidate(parts[3]);
+                break;
+            case PATTERN:
+                cache.evictLocalMatching(parts[3]);
+                break;
+            default:
+                cache.local.invalidateAll();
+        }
+    }
+
+    private void publish(String cacheName, String operation, String key) {
+        try {
+            redisTemplate.convertAndSend(properties.getInvalidationChannel(),
+                    nodeId + "|" + cacheName + "|" + operation + "|" + key);
+        } catch (Exception e) {
+            // Other instances fall back to their local TTL for this entry
+            log.warn("Failed to publish {} invalidation for cache {}: {}", operation, cacheName, e.getMessage());
+        }
+    }
+
+    public final class TieredCache implements Cache {
+
+        private final String name;
+        private final Cache remoteCache;
+        private final com.github.benmanes.caffeine.cache.Cache<String, ValueWrapper> local;
+        private final CacheStatistics.Region region;
+
+        private TieredCache(String name, Cache remoteCache) {
+            this.name = name;
+            this.remoteCache = remoteCache;
+            this.local = Caffeine.from(properties.specFor(name)).build();
+            this.region = cacheStatistics.region(name);
+            region.setLocalSize(local::estimatedSize);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return local;
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            String localKey = localKey(key);
+            ValueWrapper value = local.getIfPresent(localKey);
+            if (value != null) {
+                region.recordLocalHit();
+                return value;
+            }
+            region.recordLocalMiss();
+            value = remoteCache.get(key);
+            if (value != null) {
+                local.put(localKey, value);
+            }
+            return value;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Class<T> type) {
+            ValueWrapper wrapper = get(key);
+            Object value = wrapper != null ? wrapper.get() : null;
+            if (value != null && type != null && !type.isInstance(value)) {
+                throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+            }
+            return (T) value;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            String localKey = localKey(key);
+            ValueWrapper value = local.getIfPresent(localKey);
+            if (value != null) {
+                region.recordLocalHit();
+                return (T) value.get();
+            }
+            region.recordLocalMiss();
+            T loaded = remoteCache.get(key, valueLoader);
+            local.put(localKey, new SimpleValueWrapper(loaded));
+            return loaded;
+        }
+
+        @Override
+        public CompletableFuture<?> retrieve(Object key) {
+            return remoteCache.retrieve(key);
+        }
+
+        @Override
+        public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+            return remoteCache.retrieve(key, valueLoader);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            remoteCache.put(key, value);
+            local.put(localKey(key), new SimpleValueWrapper(value));
+            publish(name, EVICT, localKey(key));
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            ValueWrapper existing = remoteCache.putIfAbsent(key, value);
+            local.put(localKey(key), existing != null ? existing : new SimpleValueWrapper(value));
+            if (existing == null) {
+                publish(name, EVICT, localKey(key));
+            }
+            return existing;
+        }
+
+        @Override
+        public void evict(Object key) {
+            remoteCache.evict(key);
+            local.invalidate(localKey(key));
+            publish(name, EVICT, localKey(key));
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            boolean evicted = remoteCache.evictIfPresent(key);
+            local.invalidate(localKey(key));
+            publish(name, EVICT, localKey(key));
+            return evicted;
+        }
+
+        @Override
+        public void clear() {
+            remoteCache.clear();
+            local.invalidateAll();
+            publish(name, CLEAR, "");
+        }
+
+        @Override
+        public boolean invalidate() {
+            boolean invalidated = remoteCache.invalidate();
+            local.invalidateAll();
+            publish(name, CLEAR, "");
+            return invalidated;
+        }
+
+        public void evictMatching(String glob) {
+            if (!ScopedCacheEviction.evictMatching(remoteCache, glob)) {
+                remoteCache.clear();
+            }
+            evictLocalMatching(glob);
+            publish(name, PATTERN, glob);
+        }
+
+        private void evictLocalMatching(String glob) {
+            Pattern pattern = ScopedCacheEviction.toRegex(glob);
+            local.asMap().keySet().removeIf(key -> pattern.matcher(key).matches());
+        }
+
+        /**
+         * Redis keys are the string form of the cache key, so the local tier uses the same form and
+         * invalidation messages can name keys as plain text.
+         */
+        private String localKey(Object key) {
+            return Objects.toString(key);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.brokerhub.brokerageapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-process cache tier settings. Specs use Caffeine's spec syntax, e.g.
+ * {@code maximumSize=500,expireAfterWrite=10m}; caches without their own spec use the default.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.cache.tiered")
+public class TieredCacheProperties {
+
+    /**
+     * Put the in-process tier in front of Redis; when false Redis is used on its own.
+     */
+    private boolean enabled = true;
+
+    private String defaultSpec = "maximumSize=1000,expireAfterWrite=60s";
+
+    private Map<String, String> specs = new HashMap<>();
+
+    /**
+     * Redis pub/sub channel that carries evictions to the other instances.
+     */
+    private String invalidationChannel = "brokerhub:cache-invalidation";
+
+    public String specFor(String cacheName) {
+        return specs.getOrDefault(cacheName, defaultSpec);
+    }
+}
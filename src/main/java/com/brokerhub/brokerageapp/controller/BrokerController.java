@@ -28,6 +28,14 @@ public class BrokerController {
         return brokerService.login(brokerLoginDTO);
     }
 
+    @PostMapping("/logout")
+    public ResponseEntity<String> logout(@RequestHeader(value = "Authorization", required = false) String authHeader){
+        if(null == authHeader || !authHeader.startsWith("Bearer ")){
+            return new ResponseEntity<>("Authorization token is missing",HttpStatus.BAD_REQUEST);
+        }
+        return brokerService.logout(authHeader.substring(7));
+    }
+
     @GetMapping("/")
     public String home(){
         return "Welcome to home public home page - this page does not have security";
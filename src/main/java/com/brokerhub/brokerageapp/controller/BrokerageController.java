@@ -1,9 +1,12 @@
 package com.brokerhub.brokerageapp.controller;
 
 import com.brokerhub.brokerageapp.dto.ApiResponse;
+import com.brokerhub.brokerageapp.dto.BrokerageAggregateVerificationDTO;
 import com.brokerhub.brokerageapp.dto.BrokerageSummaryDTO;
 import com.brokerhub.brokerageapp.dto.UserBrokerageDetailDTO;
 import com.brokerhub.brokerageapp.service.BrokerageService;
+import com.brokerhub.brokerageapp.service.BulkBillGenerationService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -70,6 +73,31 @@ public class BrokerageController {
         }
     }
     
+    @GetMapping("/aggregate/verify/{financialYearId}")
+    public ResponseEntity<ApiResponse<BrokerageAggregateVerificationDTO>> verifyBrokerageAggregate(
+            @PathVariable Long financialYearId,
+            @RequestParam(defaultValue = "false") boolean repair) {
+        try {
+            BrokerageAggregateVerificationDTO result = brokerageService.verifyBrokerageAggregate(null, financialYearId, repair);
+            return ResponseEntity.ok(ApiResponse.success(result, "Brokerage aggregate verified successfully"));
+        } catch (Exception e) {
+            log.error("Error verifying brokerage aggregate", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to verify brokerage aggregate: " + e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/aggregate/rebuild/{financialYearId}")
+    public ResponseEntity<ApiResponse<Integer>> rebuildBrokerageAggregate(
+            @PathVariable Long financialYearId) {
+        try {
+            int rows = brokerageService.rebuildBrokerageAggregate(null, financialYearId);
+            return ResponseEntity.ok(ApiResponse.success(rows, "Brokerage aggregate rebuilt successfully"));
+        } catch (Exception e) {
+            log.error("Error rebuilding brokerage aggregate", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to rebuild brokerage aggregate: " + e.getMessage()));
+        }
+    }
+    
     @GetMapping("/user-detail/{userId}/{financialYearId}")
     public ResponseEntity<ApiResponse<UserBrokerageDetailDTO>> getUserBrokerageDetailInFinancialYear(
             @PathVariable Long userId,
@@ -143,118 +171,145 @@ public class BrokerageController {
     }
     
     @GetMapping("/excel/user/{userId}/{financialYearId}")
-    public ResponseEntity<?> generateUserBrokerageExcel(
-            @PathVariable String userId,
-            @PathVariable String financialYearId,
-            @RequestParam(required = false) BigDecimal customBrokerage) {
+    public void generateUserBrokerageExcel(
+            @PathVariable Long userId,
+            @PathVariable Long financialYearId,
+            @RequestParam(required = false) BigDecimal customBrokerage,
+            HttpServletResponse response) {
         try {
-            Long userIdLong = Long.parseLong(userId);
-            Long financialYearIdLong = Long.parseLong(financialYearId);
-            
-            byte[] excelData = brokerageService.generateUserBrokerageExcel(userIdLong, null, financialYearIdLong, customBrokerage);
-            
-            String filename = brokerageService.generateExcelFilename(userIdLong, financialYearIdLong);
-            
-            return ResponseEntity.ok()
-                    .header("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
-                    .header("Content-Disposition", "attachment; filename=" + filename)
-                    .body(excelData);
-        } catch (NumberFormatException e) {
-            log.error("Invalid number format - userId: {}, financialYearId: {}", userId, financialYearId);
-            return ResponseEntity.badRequest().body(ApiResponse.error("Invalid userId or financialYearId format. Must be numeric values."));
+            String filename = brokerageService.generateExcelFilename(userId, financialYearId);
+            prepareExcelResponse(filename, response);
+            brokerageService.streamUserBrokerageExcel(userId, null, financialYearId, customBrokerage, response.getOutputStream());
+            response.flushBuffer();
         } catch (Exception e) {
             log.error("Error generating user brokerage Excel", e);
-            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to generate Excel: " + e.getMessage()));
+            resetFailedDownload(response);
         }
     }
     
     @GetMapping("/excel/summary/{financialYearId}")
-    public ResponseEntity<byte[]> generateBrokerageSummaryExcel(
-            @PathVariable Long financialYearId) {
+    public void generateBrokerageSummaryExcel(
+            @PathVariable Long financialYearId,
+            HttpServletResponse response) {
         try {
-            byte[] excelData = brokerageService.generateBrokerageSummaryExcel(null, financialYearId);
-            return ResponseEntity.ok()
-                    .header("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
-                    .header("Content-Disposition", "attachment; filename=brokerage-summary-" + financialYearId + ".xlsx")
-                    .body(excelData);
+            prepareExcelResponse("brokerage-summary-" + financialYearId + ".xlsx", response);
+            brokerageService.streamBrokerageSummaryExcel(null, financialYearId, response.getOutputStream());
+            response.flushBuffer();
         } catch (Exception e) {
             log.error("Error generating brokerage summary Excel", e);
-            return ResponseEntity.badRequest().build();
+            resetFailedDownload(response);
         }
     }
     
     @GetMapping("/excel/city/{city}/{financialYearId}")
-    public ResponseEntity<byte[]> generateCityBrokerageExcel(
+    public void generateCityBrokerageExcel(
             @PathVariable String city,
-            @PathVariable Long financialYearId) {
+            @PathVariable Long financialYearId,
+            HttpServletResponse response) {
         try {
-            byte[] excelData = brokerageService.generateCityBrokerageExcel(city, null, financialYearId);
-            return ResponseEntity.ok()
-                    .header("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
-                    .header("Content-Disposition", "attachment; filename=city-brokerage-" + city + "-" + financialYearId + ".xlsx")
-                    .body(excelData);
+            prepareExcelResponse("city-brokerage-" + city + "-" + financialYearId + ".xlsx", response);
+            brokerageService.streamCityBrokerageExcel(city, null, financialYearId, response.getOutputStream());
+            response.flushBuffer();
         } catch (Exception e) {
             log.error("Error generating city brokerage Excel", e);
-            return ResponseEntity.badRequest().build();
+            resetFailedDownload(response);
+        }
+    }
+    
+    private void prepareExcelResponse(String filename, HttpServletResponse response) {
+        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        response.setHeader("Content-Disposition", "attachment; filename=" + filename);
+    }
+    
+    /**
+     * Streamed downloads can only report a failure while nothing has reached the client yet.
+     */
+    private void resetFailedDownload(HttpServletResponse response) {
+        if (!response.isCommitted()) {
+            response.reset();
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
         }
     }
     
 
     
     @PostMapping("/bulk-bills/html/{financialYearId}")
-    public ResponseEntity<byte[]> downloadBulkBillsHtml(
+    public void downloadBulkBillsHtml(
             @RequestBody List<Long> userIds,
             @PathVariable Long financialYearId,
-            @RequestParam(required = false) BigDecimal customBrokerage) {
-        try {
-            byte[] zipData = brokerageService.generateBulkBillsHtml(userIds, null, financialYearId, customBrokerage);
-            String filename = "bulk-bills-html-FY" + financialYearId + ".zip";
-            
-            return ResponseEntity.ok()
-                    .header("Content-Type", "application/zip")
-                    .header("Content-Disposition", "attachment; filename=" + filename)
-                    .body(zipData);
-        } catch (Exception e) {
-            log.error("Error generating bulk HTML bills", e);
-            return ResponseEntity.badRequest().build();
-        }
+            @RequestParam(required = false) BigDecimal customBrokerage,
+            HttpServletResponse response) {
+        streamBulkBills(BulkBillGenerationService.BillFormat.HTML, userIds, financialYearId, customBrokerage,
+                "bulk-bills-html-FY" + financialYearId + ".zip", response);
     }
     
     @PostMapping("/bulk-bills/excel/{financialYearId}")
-    public ResponseEntity<byte[]> downloadBulkBillsExcel(
+    public void downloadBulkBillsExcel(
             @RequestBody List<Long> userIds,
             @PathVariable Long financialYearId,
-            @RequestParam(required = false) BigDecimal customBrokerage) {
+            @RequestParam(required = false) BigDecimal customBrokerage,
+            HttpServletResponse response) {
+        streamBulkBills(BulkBillGenerationService.BillFormat.EXCEL, userIds, financialYearId, customBrokerage,
+                "bulk-bills-excel-FY" + financialYearId + ".zip", response);
+    }
+    
+    @PostMapping("/bulk-print-bills/{financialYearId}")
+    public void downloadBulkPrintBills(
+            @RequestBody List<Long> userIds,
+            @PathVariable Long financialYearId,
+            @RequestParam(required = false) BigDecimal customBrokerage,
+            HttpServletResponse response) {
+        streamBulkBills(BulkBillGenerationService.BillFormat.PRINT, userIds, financialYearId, customBrokerage,
+                "bulk-print-bills-FY" + financialYearId + ".zip", response);
+    }
+    
+    @PostMapping("/bulk-bills/pdf/{financialYearId}")
+    public void downloadMergedBillsPdf(
+            @RequestBody List<Long> userIds,
+            @PathVariable Long financialYearId,
+            @RequestParam(required = false) BigDecimal customBrokerage,
+            HttpServletResponse response) {
         try {
-            byte[] zipData = brokerageService.generateBulkBillsExcel(userIds, null, financialYearId, customBrokerage);
-            String filename = "bulk-bills-excel-FY" + financialYearId + ".zip";
-            
-            return ResponseEntity.ok()
-                    .header("Content-Type", "application/zip")
-                    .header("Content-Disposition", "attachment; filename=" + filename)
-                    .body(zipData);
+            response.setContentType("application/pdf");
+            response.setHeader("Content-Disposition", "attachment; filename=bulk-bills-FY" + financialYearId + ".pdf");
+            brokerageService.streamMergedBillsPdf(userIds, null, financialYearId, customBrokerage, response.getOutputStream());
+            response.flushBuffer();
         } catch (Exception e) {
-            log.error("Error generating bulk Excel bills", e);
-            return ResponseEntity.badRequest().build();
+            log.error("Error generating merged PDF bills", e);
+            resetFailedDownload(response);
         }
     }
     
-    @PostMapping("/bulk-print-bills/{financialYearId}")
-    public ResponseEntity<byte[]> downloadBulkPrintBills(
-            @RequestBody List<Long> userIds,
+    @GetMapping("/bulk-bills/pdf/city/{city}/{financialYearId}")
+    public void downloadCityBillsPdf(
+            @PathVariable String city,
             @PathVariable Long financialYearId,
-            @RequestParam(required = false) BigDecimal customBrokerage) {
+            @RequestParam(required = false) BigDecimal customBrokerage,
+            HttpServletResponse response) {
         try {
-            byte[] zipData = brokerageService.generateBulkPrintBills(userIds, null, financialYearId, customBrokerage);
-            String filename = "bulk-print-bills-FY" + financialYearId + ".zip";
-            
-            return ResponseEntity.ok()
-                    .header("Content-Type", "application/zip")
-                    .header("Content-Disposition", "attachment; filename=" + filename)
-                    .body(zipData);
+            response.setContentType("application/pdf");
+            response.setHeader("Content-Disposition", "attachment; filename=city-bills-" + city + "-FY" + financialYearId + ".pdf");
+            brokerageService.streamCityBillsPdf(city, null, financialYearId, customBrokerage, response.getOutputStream());
+            response.flushBuffer();
         } catch (Exception e) {
-            log.error("Error generating bulk print bills", e);
-            return ResponseEntity.badRequest().build();
+            log.error("Error generating city PDF bills for {}", city, e);
+            resetFailedDownload(response);
+        }
+    }
+    
+    /**
+     * Streams the bulk ZIP straight to the client; bills are written as they finish rendering.
+     */
+    private void streamBulkBills(BulkBillGenerationService.BillFormat format, List<Long> userIds, Long financialYearId,
+                                 BigDecimal customBrokerage, String filename, HttpServletResponse response) {
+        try {
+            response.setContentType("application/zip");
+            response.setHeader("Content-Disposition", "attachment; filename=" + filename);
+            brokerageService.streamBulkBills(format, userIds, null, financialYearId, customBrokerage, response.getOutputStream());
+            response.flushBuffer();
+        } catch (Exception e) {
+            log.error("Error generating bulk {} bills", format, e);
+            resetFailedDownload(response);
         }
     }
     
@@ -1,12 +1,16 @@
 package com.brokerhub.brokerageapp.controller;
 
+import com.brokerhub.brokerageapp.config.CacheStatistics;
 import com.brokerhub.brokerageapp.dto.ApiResponse;
+import com.brokerhub.brokerageapp.dto.CacheRegionStatsDTO;
 import com.brokerhub.brokerageapp.service.BrokerageCacheService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/BrokerHub/Cache")
 @Slf4j
@@ -15,6 +19,19 @@ public class CacheController {
     @Autowired
     private BrokerageCacheService brokerageCacheService;
     
+    @Autowired
+    private CacheStatistics cacheStatistics;
+    
+    @GetMapping("/stats")
+    public ResponseEntity<ApiResponse<Map<String, CacheRegionStatsDTO>>> getCacheStatistics() {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(cacheStatistics.snapshot(), "Cache statistics retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error getting cache statistics", e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to get cache statistics: " + e.getMessage()));
+        }
+    }
+    
     @DeleteMapping("/brokerage")
     public ResponseEntity<ApiResponse<String>> clearBrokerageCache() {
         try {
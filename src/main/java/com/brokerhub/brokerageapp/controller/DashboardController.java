@@ -1,9 +1,13 @@
 package com.brokerhub.brokerageapp.controller;
 
+import com.brokerhub.brokerageapp.config.ExecutorMetrics;
+import com.brokerhub.brokerageapp.dto.ExecutorStatsDTO;
 import com.brokerhub.brokerageapp.dto.analytics.*;
 import com.brokerhub.brokerageapp.service.DashboardService;
+import com.brokerhub.brokerageapp.service.TenantContextService;
 
 import java.util.List;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -18,6 +22,12 @@ public class DashboardController {
     @Autowired
     private DashboardService dashboardService;
 
+    @Autowired
+    private ExecutorMetrics executorMetrics;
+
+    @Autowired
+    private TenantContextService tenantContextService;
+
     /**
      * Get comprehensive analytics for a financial year
      * This single API provides all the analytics data including:
@@ -55,8 +65,9 @@ public class DashboardController {
     @PostMapping("/refreshCache/{financialYearId}")
     public ResponseEntity<String> refreshAnalyticsCache(@PathVariable Long financialYearId) {
         try {
-            log.info("Refreshing cache for financial year: {}", financialYearId);
-            dashboardService.refreshAnalyticsCache(financialYearId);
+            Long brokerId = tenantContextService.getCurrentBrokerId();
+            log.info("Refreshing cache for broker: {} and financial year: {}", brokerId, financialYearId);
+            dashboardService.refreshAnalyticsCache(brokerId, financialYearId);
             return ResponseEntity.ok("Analytics cache refreshed successfully for financial year: " + financialYearId);
         } catch (Exception e) {
             log.error("Error refreshing cache for financial year: {}", financialYearId, e);
@@ -71,8 +82,9 @@ public class DashboardController {
     @PostMapping("/refreshAllCache")
     public ResponseEntity<String> refreshAllAnalyticsCache() {
         try {
-            log.info("Refreshing all analytics cache");
-            dashboardService.refreshAllAnalyticsCache();
+            Long brokerId = tenantContextService.getCurrentBrokerId();
+            log.info("Refreshing all analytics cache for broker: {}", brokerId);
+            dashboardService.refreshAllAnalyticsCache(brokerId);
             return ResponseEntity.ok("All analytics cache refreshed successfully");
         } catch (Exception e) {
             log.error("Error refreshing all analytics cache", e);
@@ -81,6 +93,14 @@ public class DashboardController {
         }
     }
 
+    /**
+     * Queue depth, wait time and thread mode of the async executors and of the JDBC permits on this node
+     */
+    @GetMapping("/executorStats")
+    public ResponseEntity<Map<String, ExecutorStatsDTO>> getExecutorStats() {
+        return ResponseEntity.ok(executorMetrics.snapshot());
+    }
+
     /**
      * Get all top performers (buyers, sellers, merchants) for a financial year
      */
@@ -1,14 +1,24 @@
 package com.brokerhub.brokerageapp.controller;
 
 import com.brokerhub.brokerageapp.dto.payments.*;
+import com.brokerhub.brokerageapp.exception.ResourceNotFoundException;
 import com.brokerhub.brokerageapp.service.PaymentService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/BrokerHub/payments")
@@ -56,6 +66,25 @@ public class PaymentController {
         }
     }
 
+    @GetMapping("/{brokerId}/brokerage/page")
+    public ResponseEntity<ApiResponseDTO<PaymentPageDTO<BrokeragePaymentDTO>>> getBrokeragePaymentsPage(
+            @PathVariable Long brokerId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDateTo,
+            @RequestParam(required = false) String firmName,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return paymentService.getBrokeragePaymentsPage(brokerId,
+                    pageRequest(status, dueDateFrom, dueDateTo, firmName, cursor, limit));
+        } catch (Exception e) {
+            log.error("Error in getBrokeragePaymentsPage for broker: {}", brokerId, e);
+            return ResponseEntity.status(500)
+                    .body(ApiResponseDTO.error("Failed to retrieve brokerage payments", "Internal server error"));
+        }
+    }
+
     @PostMapping("/{brokerId}/brokerage/{paymentId}/part-payment")
     public ResponseEntity<ApiResponseDTO<AddPartPaymentResponseDTO>> addPartPayment(
             @PathVariable Long brokerId,
@@ -96,6 +125,25 @@ public class PaymentController {
         }
     }
 
+    @GetMapping("/{brokerId}/pending/page")
+    public ResponseEntity<ApiResponseDTO<PaymentPageDTO<PendingPaymentDTO>>> getPendingPaymentsPage(
+            @PathVariable Long brokerId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDateTo,
+            @RequestParam(required = false) String firmName,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return paymentService.getPendingPaymentsPage(brokerId,
+                    pageRequest(status, dueDateFrom, dueDateTo, firmName, cursor, limit));
+        } catch (Exception e) {
+            log.error("Error in getPendingPaymentsPage for broker: {}", brokerId, e);
+            return ResponseEntity.status(500)
+                    .body(ApiResponseDTO.error("Failed to retrieve pending payments", "Internal server error"));
+        }
+    }
+
     @GetMapping("/{brokerId}/receivable")
     public ResponseEntity<ApiResponseDTO<List<ReceivablePaymentDTO>>> getAllReceivablePayments(
             @PathVariable Long brokerId) {
@@ -122,6 +170,25 @@ public class PaymentController {
         }
     }
 
+    @GetMapping("/{brokerId}/receivable/page")
+    public ResponseEntity<ApiResponseDTO<PaymentPageDTO<ReceivablePaymentDTO>>> getReceivablePaymentsPage(
+            @PathVariable Long brokerId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDateTo,
+            @RequestParam(required = false) String firmName,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return paymentService.getReceivablePaymentsPage(brokerId,
+                    pageRequest(status, dueDateFrom, dueDateTo, firmName, cursor, limit));
+        } catch (Exception e) {
+            log.error("Error in getReceivablePaymentsPage for broker: {}", brokerId, e);
+            return ResponseEntity.status(500)
+                    .body(ApiResponseDTO.error("Failed to retrieve receivable payments", "Internal server error"));
+        }
+    }
+
     @PostMapping("/{brokerId}/clear-cache")
     public ResponseEntity<ApiResponseDTO<String>> clearCache(@PathVariable Long brokerId) {
         try {
@@ -133,6 +200,32 @@ public class PaymentController {
         }
     }
 
+    @PostMapping("/{brokerId}/generate/{financialYearId}")
+    public ResponseEntity<ApiResponseDTO<PaymentGenerationStatusDTO>> generatePaymentData(
+            @PathVariable Long brokerId,
+            @PathVariable Long financialYearId) {
+        try {
+            return paymentService.generatePaymentDataFromLedger(brokerId, financialYearId);
+        } catch (Exception e) {
+            log.error("Error in generatePaymentData for broker: {} and financial year: {}", brokerId, financialYearId, e);
+            return ResponseEntity.status(500)
+                    .body(ApiResponseDTO.error("Failed to start payment data generation", "Internal server error"));
+        }
+    }
+
+    @GetMapping("/{brokerId}/generate/status/{jobId}")
+    public ResponseEntity<ApiResponseDTO<PaymentGenerationStatusDTO>> getPaymentGenerationStatus(
+            @PathVariable Long brokerId,
+            @PathVariable String jobId) {
+        try {
+            return paymentService.getPaymentGenerationStatus(brokerId, jobId);
+        } catch (Exception e) {
+            log.error("Error in getPaymentGenerationStatus for broker: {}", brokerId, e);
+            return ResponseEntity.status(500)
+                    .body(ApiResponseDTO.error("Failed to retrieve payment generation status", "Internal server error"));
+        }
+    }
+
     @GetMapping("/{brokerId}/dashboard")
     public ResponseEntity<ApiResponseDTO<PaymentDashboardDTO>> getPaymentDashboardStatistics(
             @PathVariable Long brokerId) {
@@ -156,4 +249,86 @@ public class PaymentController {
                     .body(ApiResponseDTO.error("Failed to retrieve payment summary", "Internal server error"));
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/{brokerId}/trends")
+    public ResponseEntity<ApiResponseDTO<PaymentTrendsDTO>> getPaymentTrends(
+            @PathVariable Long brokerId,
+            @RequestParam(defaultValue = "30") Integer days) {
+        try {
+            return paymentService.getPaymentTrends(brokerId, days);
+        } catch (Exception e) {
+            log.error("Error in getPaymentTrends for broker: {}", brokerId, e);
+            return ResponseEntity.status(500)
+                    .body(ApiResponseDTO.error("Failed to retrieve payment trends", "Internal server error"));
+        }
+    }
+
+    /**
+     * Streams the workbook from the export executor; the request thread is released while it is written. Once the
+     * export has started, only its thread touches the response: the export enforces app.payments.export.timeout-ms
+     * itself, so the async request has no timeout of its own.
+     */
+    @GetMapping("/{brokerId}/export")
+    public DeferredResult<Void> exportPaymentData(
+            @PathVariable Long brokerId,
+            @RequestParam(required = false) String paymentType,
+            HttpServletResponse response) {
+        DeferredResult<Void> result = new DeferredResult<>(0L);
+        try {
+            String type = paymentType != null ? paymentType.replaceAll("[^A-Za-z]", "").toLowerCase(Locale.ROOT) : "all";
+            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            response.setHeader("Content-Disposition", "attachment; filename=payments-" + type + "-" + brokerId + ".xlsx");
+            CompletableFuture<Void> export = paymentService.exportPaymentDataToExcel(brokerId, paymentType, response.getOutputStream());
+            // Runs on the export thread, or here when the export has already finished
+            export.whenComplete((ignored, e) -> {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof CancellationException) {
+                    log.warn("Payment export for broker {} stopped: {}", brokerId, cause.getMessage());
+                    resetFailedDownload(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                } else if (cause != null) {
+                    log.error("Error exporting payments for broker: {}", brokerId, cause);
+                    resetFailedDownload(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                }
+                result.setResult(null);
+            });
+            return result;
+        } catch (ResourceNotFoundException e) {
+            resetFailedDownload(response, HttpServletResponse.SC_NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            resetFailedDownload(response, HttpServletResponse.SC_BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            log.info("Rejected payment export for broker {}: {}", brokerId, e.getMessage());
+            resetFailedDownload(response, 429);
+        } catch (RejectedExecutionException e) {
+            log.warn("Export executor is full, rejected payment export for broker {}", brokerId);
+            resetFailedDownload(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        } catch (Exception e) {
+            log.error("Error in exportPaymentData for broker: {}", brokerId, e);
+            resetFailedDownload(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+        result.setResult(null);
+        return result;
+    }
+
+    /**
+     * Streamed downloads can only report a failure while nothing has reached the client yet.
+     */
+    private void resetFailedDownload(HttpServletResponse response, int status) {
+        if (!response.isCommitted()) {
+            response.reset();
+            response.setStatus(status);
+        }
+    }
+
+    private PaymentListRequestDTO pageRequest(String status, LocalDate dueDateFrom, LocalDate dueDateTo,
+                                              String firmName, String cursor, Integer limit) {
+        return PaymentListRequestDTO.builder()
+                .status(status)
+                .dueDateFrom(dueDateFrom)
+                .dueDateTo(dueDateTo)
+                .firmName(firmName)
+                .cursor(cursor)
+                .limit(limit)
+                .build();
+    }
+}
@@ -3,6 +3,7 @@ package com.brokerhub.brokerageapp.controller;
 import com.brokerhub.brokerageapp.entity.FinancialYear;
 import com.brokerhub.brokerageapp.repository.FinancialYearRepository;
 import com.brokerhub.brokerageapp.repository.DashboardRepository;
+import com.brokerhub.brokerageapp.service.TenantContextService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,6 +23,9 @@ public class TestController {
     @Autowired
     private DashboardRepository dashboardRepository;
 
+    @Autowired
+    private TenantContextService tenantContextService;
+
     @GetMapping("/health")
     public ResponseEntity<String> healthCheck() {
         return ResponseEntity.ok("Dashboard service is running!");
@@ -47,7 +51,7 @@ public class TestController {
     @GetMapping("/testOverallTotals/{financialYearId}")
     public ResponseEntity<String> testOverallTotals(@PathVariable Long financialYearId) {
         try {
-            Object[] overallTotals = dashboardRepository.getOverallTotals(financialYearId);
+            Object[] overallTotals = dashboardRepository.getOverallTotals(tenantContextService.getCurrentBrokerId(), financialYearId);
             StringBuilder result = new StringBuilder();
             result.append("Overall Totals Test:\n");
             result.append("Array is null: ").append(overallTotals == null).append("\n");
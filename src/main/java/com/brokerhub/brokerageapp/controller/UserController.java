@@ -1,6 +1,8 @@
 package com.brokerhub.brokerageapp.controller;
 
+import com.brokerhub.brokerageapp.dto.ApiResponse;
 import com.brokerhub.brokerageapp.dto.BulkUploadResponseDTO;
+import com.brokerhub.brokerageapp.dto.BulkUploadStatusDTO;
 import com.brokerhub.brokerageapp.dto.UserDTO;
 import com.brokerhub.brokerageapp.dto.UserSummaryDTO;
 import com.brokerhub.brokerageapp.entity.User;
@@ -66,6 +68,38 @@ public class UserController {
         }
     }
 
+    /**
+     * Starts the upload in the background for large files; poll /bulkUpload/status/{uploadId} for progress.
+     */
+    @PostMapping(value = "/bulkUpload/async", consumes = "multipart/form-data")
+    public ResponseEntity<ApiResponse<BulkUploadStatusDTO>> startBulkUpload(@RequestParam("file") MultipartFile file) {
+        try {
+            if (file.isEmpty()) {
+                return ResponseEntity.badRequest().body(ApiResponse.error("Please select a file to upload"));
+            }
+            BulkUploadStatusDTO status = userService.startBulkUpload(file);
+            if (status.getUploadId() == null) {
+                return ResponseEntity.badRequest().body(new ApiResponse<>("error", status.getResult().getMessage(), status));
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(status, "Bulk upload started"));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to start bulk upload: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/bulkUpload/status/{uploadId}")
+    public ResponseEntity<ApiResponse<BulkUploadStatusDTO>> getBulkUploadStatus(@PathVariable String uploadId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(userService.getBulkUploadStatus(uploadId), "Bulk upload status retrieved"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to retrieve bulk upload status: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/downloadTemplate")
     public ResponseEntity<ByteArrayResource> downloadBulkUploadTemplate() {
         return ExcelTemplateGenerator.generateTemplate();
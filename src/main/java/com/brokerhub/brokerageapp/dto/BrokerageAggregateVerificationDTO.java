@@ -0,0 +1,23 @@
+package com.brokerhub.brokerageapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BrokerageAggregateVerificationDTO {
+    private Long brokerId;
+    private Long financialYearId;
+    private int expectedRows;
+    private int storedRows;
+    private int mismatchedRows;
+    private boolean consistent;
+    private boolean rebuilt;
+    private List<String> mismatches; // first few differences, for logs and the verify endpoint
+}
@@ -0,0 +1,21 @@
+package com.brokerhub.brokerageapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkBillGenerationResultDTO {
+    private int totalUsers;
+    private int successfulBills;
+    private int failedBills;
+    private Map<Long, String> failures; // userId -> reason
+    private long elapsedMillis;
+    private double billsPerSecond;
+}
@@ -0,0 +1,26 @@
+package com.brokerhub.brokerageapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a bulk upload running in the background. {@code result} is filled in once the upload finished.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkUploadStatusDTO {
+    private String uploadId;
+    private String status; // RUNNING, COMPLETED or FAILED
+    private int processedRecords;
+    private int successfulRecords;
+    private int failedRecords;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private BulkUploadResponseDTO result;
+}
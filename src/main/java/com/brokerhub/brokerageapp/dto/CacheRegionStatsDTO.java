@@ -0,0 +1,23 @@
+package com.brokerhub.brokerageapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CacheRegionStatsDTO {
+    private String region;
+    private long hits;
+    private long misses;
+    private long puts;
+    private long evictions;
+    private double hitRatio; // hits / (hits + misses), 0 before the first lookup
+    private long localHits; // lookups answered by the in-process tier without a Redis round trip
+    private long localMisses;
+    private double localHitRatio;
+    private long localSize;
+}
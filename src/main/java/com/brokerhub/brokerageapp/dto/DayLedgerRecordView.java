@@ -0,0 +1,18 @@
+package com.brokerhub.brokerageapp.dto;
+
+/**
+ * One ledger record of a day with its seller, buyer and product names already joined in,
+ * so the daily ledger view is built from a single query.
+ */
+public interface DayLedgerRecordView {
+    Long getLedgerDetailsId();
+    Long getTransactionNumber();
+    String getSellerName();
+    String getSellerCity();
+    String getBuyerName();
+    String getBuyerCity();
+    String getProductName();
+    Long getQuantity();
+    Long getBrokerage();
+    Long getProductCost();
+}
@@ -0,0 +1,22 @@
+package com.brokerhub.brokerageapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ExecutorStatsDTO {
+    private String executor;
+    private boolean virtualThreads;
+    private long submitted;
+    private long completed;
+    private long failed;
+    private long queued; // submitted but not yet started, i.e. the current queue depth
+    private long active;
+    private double averageWaitMillis; // time between submission and start
+    private double maxWaitMillis;
+}
@@ -0,0 +1,28 @@
+package com.brokerhub.brokerageapp.dto.payments;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Payments one overdue sweep marked OVERDUE, i.e. those that fell due in [dueFrom, dueBefore).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OverdueSweepResultDTO {
+    private LocalDate dueFrom;
+    private LocalDate dueBefore;
+    private int brokeragePayments;
+    private int pendingPayments;
+    private int receivablePayments;
+    private int brokersAffected;
+
+    public int getTotalPayments() {
+        return brokeragePayments + pendingPayments + receivablePayments;
+    }
+}
@@ -0,0 +1,99 @@
+package com.brokerhub.brokerageapp.dto.payments;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A broker's payment totals per payment type and status, kept in the paymentDashboard cache.
+ * The dashboard and status summary are derived from it, and payment changes adjust it by their difference
+ * instead of recounting the payment tables. It is rebuilt when its day has passed, since due-soon and recent
+ * totals are relative to {@code asOf}. A cached snapshot is never modified, since requests read it without a lock:
+ * a change is applied to a {@link #copy()} that then replaces it in the cache.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PaymentDashboardSnapshot {
+
+    private LocalDate asOf;
+
+    /**
+     * Totals keyed by "{paymentType}:{status}", e.g. "BROKERAGE:OVERDUE"
+     */
+    @Builder.Default
+    private Map<String, StatusTotals> totals = new HashMap<>();
+
+    /**
+     * Part payments received since asOf minus the recent period
+     */
+    @Builder.Default
+    private long recentPaymentsCount = 0L;
+
+    @Builder.Default
+    private BigDecimal recentPaymentsAmount = BigDecimal.ZERO;
+
+    public static String key(String paymentType, String status) {
+        return paymentType + ":" + status;
+    }
+
+    /**
+     * Deep copy, sharing nothing mutable with this snapshot
+     */
+    public PaymentDashboardSnapshot copy() {
+        Map<String, StatusTotals> totalsCopy = new HashMap<>();
+        totals.forEach((key, statusTotals) -> totalsCopy.put(key, statusTotals.copy()));
+        return new PaymentDashboardSnapshot(asOf, totalsCopy, recentPaymentsCount, recentPaymentsAmount);
+    }
+
+    /**
+     * Sums over the payments of one type and status. Counts are number of payments matching each condition.
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class StatusTotals {
+        private long count;
+        @Builder.Default
+        private BigDecimal amount = BigDecimal.ZERO;
+        @Builder.Default
+        private BigDecimal paid = BigDecimal.ZERO;
+        @Builder.Default
+        private BigDecimal pending = BigDecimal.ZERO;
+        private long outstandingCount;
+        private long dueSoonCount;
+        @Builder.Default
+        private BigDecimal dueSoonAmount = BigDecimal.ZERO;
+        private long criticalCount;
+        private long recentCount;
+
+        /**
+         * Adds (sign 1) or removes (sign -1) another set of totals
+         */
+        public void apply(StatusTotals other, int sign) {
+            BigDecimal factor = BigDecimal.valueOf(sign);
+            count += sign * other.count;
+            amount = amount.add(other.amount.multiply(factor));
+            paid = paid.add(other.paid.multiply(factor));
+            pending = pending.add(other.pending.multiply(factor));
+            outstandingCount += sign * other.outstandingCount;
+            dueSoonCount += sign * other.dueSoonCount;
+            dueSoonAmount = dueSoonAmount.add(other.dueSoonAmount.multiply(factor));
+            criticalCount += sign * other.criticalCount;
+            recentCount += sign * other.recentCount;
+        }
+
+        public StatusTotals copy() {
+            return new StatusTotals(count, amount, paid, pending, outstandingCount, dueSoonCount, dueSoonAmount,
+                    criticalCount, recentCount);
+        }
+    }
+}
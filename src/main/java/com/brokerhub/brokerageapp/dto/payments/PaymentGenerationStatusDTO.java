@@ -0,0 +1,33 @@
+package com.brokerhub.brokerageapp.dto.payments;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a payment generation run for one broker and financial year.
+ * The row counts are filled in as each payment type is written.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PaymentGenerationStatusDTO {
+    private String jobId;
+    private Long brokerId;
+    private Long financialYearId;
+    private String status; // RUNNING, COMPLETED or FAILED
+    private String phase; // QUEUED, AGGREGATING, BROKERAGE, PENDING, RECEIVABLE, DONE
+    private int progressPercent;
+    private int brokeragePayments;
+    private int pendingPayments;
+    private int receivablePayments;
+    private int removedPayments;
+    private int retainedPayments; // rows without trades kept because payments were recorded against them
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
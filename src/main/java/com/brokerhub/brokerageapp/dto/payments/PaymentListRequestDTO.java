@@ -0,0 +1,49 @@
+package com.brokerhub.brokerageapp.dto.payments;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Filters and position of a paginated payment listing request.
+ * All filters are optional.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PaymentListRequestDTO {
+
+    /**
+     * Payment status name, e.g. PENDING or OVERDUE
+     */
+    private String status;
+
+    /**
+     * First due date to include
+     */
+    private LocalDate dueDateFrom;
+
+    /**
+     * Last due date to include
+     */
+    private LocalDate dueDateTo;
+
+    /**
+     * Part of the merchant's firm name (case-insensitive)
+     */
+    private String firmName;
+
+    /**
+     * nextCursor of the previous page, empty for the first page
+     */
+    private String cursor;
+
+    /**
+     * Requested page size
+     */
+    private Integer limit;
+}
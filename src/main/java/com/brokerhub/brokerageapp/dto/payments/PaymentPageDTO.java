@@ -0,0 +1,39 @@
+package com.brokerhub.brokerageapp.dto.payments;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated payment listing.
+ * The next page is requested with nextCursor; there is no total count.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PaymentPageDTO<T> {
+
+    /**
+     * Payments of this page, ordered by due date and ID (payments without a due date come last)
+     */
+    private List<T> items;
+
+    /**
+     * Opaque cursor for the next page, null on the last page
+     */
+    private String nextCursor;
+
+    /**
+     * Whether another page exists
+     */
+    private boolean hasMore;
+
+    /**
+     * Page size that was applied
+     */
+    private int limit;
+}
@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DTO for payment trends and analytics.
@@ -49,6 +50,11 @@ public class PaymentTrendsDTO {
      */
     private PaymentTrendSummaryDTO trendSummary;
 
+    /**
+     * Amount received per payment method over the period
+     */
+    private Map<String, BigDecimal> collectionsByMethod;
+
     /**
      * DTO for daily payment trends
      */
@@ -63,6 +69,8 @@ public class PaymentTrendsDTO {
         private BigDecimal averagePaymentAmount;
         private BigDecimal newPendingAmount;
         private Integer newPendingCount;
+        private Integer overdueCount;
+        private BigDecimal overdueAmount;
     }
 
     /**
@@ -17,7 +17,12 @@ import java.util.List;
  * This tracks the brokerage amount owed by merchants based on their trading activities.
  */
 @Entity
-@Table(name = "brokerage_payment")
+@Table(name = "brokerage_payment",
+        indexes = {
+                @Index(name = "idx_brokerage_payment_broker_due_id", columnList = "broker_id, due_date, id"),
+                @Index(name = "idx_brokerage_payment_broker_status_due_id", columnList = "broker_id, status, due_date, id"),
+                @Index(name = "idx_brokerage_payment_due_id", columnList = "due_date, id")
+        })
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -25,7 +30,8 @@ import java.util.List;
 public class BrokeragePayment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "brokerage_payment_seq")
+    @SequenceGenerator(name = "brokerage_payment_seq", sequenceName = "brokerage_payment_seq", allocationSize = 50)
     private Long id;
 
     /**
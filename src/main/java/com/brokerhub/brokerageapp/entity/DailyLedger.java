@@ -21,7 +21,8 @@ import java.util.List;
 public class DailyLedger {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "daily_ledger_seq")
+    @SequenceGenerator(name = "daily_ledger_seq", sequenceName = "daily_ledger_seq", allocationSize = 50)
     private Long dailyLedgerId;
 
     /**
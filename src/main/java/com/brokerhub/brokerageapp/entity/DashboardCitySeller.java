@@ -0,0 +1,58 @@
+package com.brokerhub.brokerageapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Ledger records per (broker, financial year, month, buyer city, seller), so the dashboard can count the distinct
+ * sellers who sold to buyers of a city in a month, which cannot be summed from DashboardDailyRollup cells.
+ * Maintained and rebuilt together with DashboardDailyRollup.
+ */
+@Entity
+@Table(name = "dashboard_city_seller",
+        uniqueConstraints = @UniqueConstraint(name = "uk_dashboard_city_seller_key",
+                columnNames = {"broker_id", "financial_year_id", "month_start", "buyer_city", "seller_id"}),
+        indexes = @Index(name = "idx_dashboard_city_seller_broker_fy", columnList = "broker_id, financial_year_id"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class DashboardCitySeller {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "dashboard_city_seller_seq")
+    @SequenceGenerator(name = "dashboard_city_seller_seq", sequenceName = "dashboard_city_seller_seq", allocationSize = 50)
+    private Long citySellerId;
+
+    @Column(name = "broker_id", nullable = false)
+    private Long brokerId;
+
+    @Column(name = "financial_year_id", nullable = false)
+    private Long financialYearId;
+
+    /**
+     * First day of the month of the daily ledger the records belong to.
+     */
+    @Column(name = "month_start")
+    private LocalDate monthStart;
+
+    @Column(name = "buyer_city")
+    private String buyerCity;
+
+    @Column(name = "seller_id", nullable = false)
+    private Long sellerId;
+
+    /**
+     * Number of ledger records the seller sold to buyers of the city in the month.
+     */
+    @Builder.Default
+    private Long records = 0L;
+
+    @Version
+    private Long version;
+}
@@ -0,0 +1,101 @@
+package com.brokerhub.brokerageapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Daily ledger totals the dashboard reads instead of joining the raw ledger.
+ * One row per (broker, financial year, date, product, seller city, buyer city, seller type, buyer type).
+ * Cities and merchant types are the ones copied onto each LedgerRecord when it was written, so a record stays in
+ * its cell when a user later changes city or type.
+ * Rows are maintained with deltas in the ledger transaction and can be rebuilt from the raw ledger.
+ */
+@Entity
+@Table(name = "dashboard_daily_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_dashboard_daily_rollup_key",
+                columnNames = {"broker_id", "financial_year_id", "ledger_date", "product_id",
+                        "seller_city", "buyer_city", "seller_type", "buyer_type"}),
+        indexes = @Index(name = "idx_dashboard_daily_rollup_broker_fy_date", columnList = "broker_id, financial_year_id, ledger_date"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class DashboardDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "dashboard_daily_rollup_seq")
+    @SequenceGenerator(name = "dashboard_daily_rollup_seq", sequenceName = "dashboard_daily_rollup_seq", allocationSize = 50)
+    private Long rollupId;
+
+    @Column(name = "broker_id", nullable = false)
+    private Long brokerId;
+
+    @Column(name = "financial_year_id", nullable = false)
+    private Long financialYearId;
+
+    /**
+     * Date of the daily ledger the records belong to.
+     */
+    @Column(name = "ledger_date")
+    private LocalDate ledgerDate;
+
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "seller_city")
+    private String sellerCity;
+
+    @Column(name = "buyer_city")
+    private String buyerCity;
+
+    @Column(name = "seller_type")
+    private String sellerType;
+
+    @Column(name = "buyer_type")
+    private String buyerType;
+
+    /**
+     * Number of ledger records in the cell.
+     */
+    @Builder.Default
+    private Long records = 0L;
+
+    @Builder.Default
+    private Long quantity = 0L;
+
+    /**
+     * Sum of LedgerRecord.totalProductsCost.
+     */
+    @Builder.Default
+    private Long transactionValue = 0L;
+
+    /**
+     * Sum of LedgerRecord.totalBrokerage.
+     */
+    @Builder.Default
+    private Long brokerage = 0L;
+
+    /**
+     * Sum of the per-unit LedgerRecord.productCost, so the average price is productCostSum / records.
+     */
+    @Builder.Default
+    private Long productCostSum = 0L;
+
+    /**
+     * Sum of the per-unit LedgerRecord.brokerage, so the average brokerage per unit is brokeragePerUnitSum / records.
+     */
+    @Builder.Default
+    private Long brokeragePerUnitSum = 0L;
+
+    @Version
+    private Long version;
+
+    public boolean isEmpty() {
+        return records == 0;
+    }
+}
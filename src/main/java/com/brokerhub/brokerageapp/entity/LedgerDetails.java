@@ -19,8 +19,13 @@ import java.util.List;
 @Builder
 public class LedgerDetails {
 
+    /**
+     * Pooled sequence, like LedgerRecord, so an entry and its records are inserted in JDBC batches.
+     * See entity_sequence_migration.sql for aligning the sequence with existing rows.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_details_seq")
+    @SequenceGenerator(name = "ledger_details_seq", sequenceName = "ledger_details_seq", allocationSize = 50)
     private Long ledgerDetailsId;
 
     /**
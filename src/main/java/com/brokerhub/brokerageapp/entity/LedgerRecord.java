@@ -16,8 +16,13 @@ import lombok.NoArgsConstructor;
 @Builder
 public class LedgerRecord {
 
+    /**
+     * Pooled sequence instead of IDENTITY so hibernate.jdbc.batch_size can batch record inserts.
+     * See ledger_record_sequence_migration.sql for aligning the sequence with existing rows.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_record_seq")
+    @SequenceGenerator(name = "ledger_record_seq", sequenceName = "ledger_record_seq", allocationSize = 50)
     private Long ledgerRecordId;
 
     /**
@@ -57,4 +62,33 @@ public class LedgerRecord {
     @NotNull
     private Long totalBrokerage;
 
+    /**
+     * Cities and merchant types of the seller and buyer when the record was written: the dashboard rollup cell
+     * the record is counted in, so a later change of either user does not move it. Null on records written
+     * before these columns existed, which are counted under the users' current values.
+     */
+    @JsonIgnore
+    private String sellerCity;
+
+    @JsonIgnore
+    private String buyerCity;
+
+    @JsonIgnore
+    private String sellerType;
+
+    @JsonIgnore
+    private String buyerType;
+
+    @PrePersist
+    void copyCountedParties() {
+        User seller = ledgerDetails != null ? ledgerDetails.getFromSeller() : null;
+        if (seller != null) {
+            sellerCity = seller.getAddress() != null ? seller.getAddress().getCity() : null;
+            sellerType = seller.getUserType();
+        }
+        if (toBuyer != null) {
+            buyerCity = toBuyer.getAddress() != null ? toBuyer.getAddress().getCity() : null;
+            buyerType = toBuyer.getUserType();
+        }
+    }
 }
@@ -0,0 +1,88 @@
+package com.brokerhub.brokerageapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Running brokerage totals per merchant, kept in step with the ledger.
+ * One row per (broker, financial year, user, product, month). The purchase columns hold the
+ * records where the user is the buyer and the sale columns the records where the user is the seller,
+ * so brokerage totals, city-wise and product-wise figures never have to scan ledger_record.
+ * Rows are maintained with deltas in the ledger transaction and can be rebuilt from the raw ledger.
+ */
+@Entity
+@Table(name = "merchant_brokerage_aggregate",
+        uniqueConstraints = @UniqueConstraint(name = "uk_merchant_brokerage_aggregate_key",
+                columnNames = {"broker_id", "financial_year_id", "user_id", "product_id", "month_start"}),
+        indexes = @Index(name = "idx_merchant_brokerage_aggregate_broker_fy", columnList = "broker_id, financial_year_id"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MerchantBrokerageAggregate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "merchant_brokerage_aggregate_seq")
+    @SequenceGenerator(name = "merchant_brokerage_aggregate_seq", sequenceName = "merchant_brokerage_aggregate_seq", allocationSize = 50)
+    private Long aggregateId;
+
+    @Column(name = "broker_id", nullable = false)
+    private Long brokerId;
+
+    @Column(name = "financial_year_id", nullable = false)
+    private Long financialYearId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "product_id")
+    private Long productId;
+
+    /**
+     * First day of the month of the daily ledger the records belong to.
+     */
+    @Column(name = "month_start")
+    private LocalDate monthStart;
+
+    @Builder.Default
+    private Long purchaseRecords = 0L;
+
+    @Builder.Default
+    private Long bagsBought = 0L;
+
+    @Builder.Default
+    private Long purchaseAmount = 0L;
+
+    /**
+     * Sum of LedgerRecord.totalBrokerage for records where the user is the buyer.
+     */
+    @Builder.Default
+    private Long purchaseBrokerage = 0L;
+
+    @Builder.Default
+    private Long saleRecords = 0L;
+
+    @Builder.Default
+    private Long bagsSold = 0L;
+
+    @Builder.Default
+    private Long saleAmount = 0L;
+
+    /**
+     * Sum of LedgerRecord.totalBrokerage for records where the user is the seller.
+     */
+    @Builder.Default
+    private Long saleBrokerage = 0L;
+
+    @Version
+    private Long version;
+
+    public boolean isEmpty() {
+        return purchaseRecords == 0 && saleRecords == 0;
+    }
+}
@@ -25,7 +25,8 @@ import java.time.LocalDateTime;
 public class PartPayment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "part_payment_seq")
+    @SequenceGenerator(name = "part_payment_seq", sequenceName = "part_payment_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -0,0 +1,82 @@
+package com.brokerhub.brokerageapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Daily payment totals the trends endpoint reads instead of scanning part payments and transactions.
+ * One row per (broker, date, payment method). Payments received are counted on the row of their method;
+ * new dues and overdue transitions have no method and are counted on the {@link #NO_METHOD} row.
+ * Rows are maintained with deltas by PaymentTrendService, in the transaction of the change they count; payments
+ * and dues can be rebuilt from part_payment and payment_transaction, overdue transitions only exist here.
+ */
+@Entity
+@Table(name = "payment_daily_trend",
+        uniqueConstraints = @UniqueConstraint(name = "uk_payment_daily_trend_key",
+                columnNames = {"broker_id", "trend_date", "payment_method"}),
+        indexes = @Index(name = "idx_payment_daily_trend_broker_date", columnList = "broker_id, trend_date"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PaymentDailyTrend {
+
+    public static final String NO_METHOD = "NONE";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_daily_trend_seq")
+    @SequenceGenerator(name = "payment_daily_trend_seq", sequenceName = "payment_daily_trend_seq", allocationSize = 50)
+    private Long trendId;
+
+    @Column(name = "broker_id", nullable = false)
+    private Long brokerId;
+
+    @Column(name = "trend_date", nullable = false)
+    private LocalDate trendDate;
+
+    /**
+     * PaymentMethod name of the payments received, or NO_METHOD
+     */
+    @Column(name = "payment_method", nullable = false, length = 20)
+    private String paymentMethod;
+
+    /**
+     * Part payments received on the day
+     */
+    @Builder.Default
+    private Long paymentsCount = 0L;
+
+    @Builder.Default
+    private BigDecimal paymentsAmount = BigDecimal.ZERO;
+
+    /**
+     * Payment transactions (amounts buyers owe sellers) dated on the day
+     */
+    @Builder.Default
+    private Long newDueCount = 0L;
+
+    @Builder.Default
+    private BigDecimal newDueAmount = BigDecimal.ZERO;
+
+    /**
+     * Payments marked overdue on the day, with their pending amount at that time
+     */
+    @Builder.Default
+    private Long overdueCount = 0L;
+
+    @Builder.Default
+    private BigDecimal overdueAmount = BigDecimal.ZERO;
+
+    @Version
+    private Long version;
+
+    public boolean isEmpty() {
+        return paymentsCount == 0 && newDueCount == 0 && overdueCount == 0;
+    }
+}
@@ -17,7 +17,12 @@ import java.util.List;
  * This tracks amounts that buyers owe to sellers for transactions.
  */
 @Entity
-@Table(name = "pending_payment")
+@Table(name = "pending_payment",
+        indexes = {
+                @Index(name = "idx_pending_payment_broker_due_id", columnList = "broker_id, due_date, id"),
+                @Index(name = "idx_pending_payment_broker_status_due_id", columnList = "broker_id, status, due_date, id"),
+                @Index(name = "idx_pending_payment_due_id", columnList = "due_date, id")
+        })
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -25,7 +30,8 @@ import java.util.List;
 public class PendingPayment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pending_payment_seq")
+    @SequenceGenerator(name = "pending_payment_seq", sequenceName = "pending_payment_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -17,7 +17,12 @@ import java.util.List;
  * This tracks amounts that sellers are owed by buyers for transactions.
  */
 @Entity
-@Table(name = "receivable_payment")
+@Table(name = "receivable_payment",
+        indexes = {
+                @Index(name = "idx_receivable_payment_broker_due_id", columnList = "broker_id, due_date, id"),
+                @Index(name = "idx_receivable_payment_broker_status_due_id", columnList = "broker_id, status, due_date, id"),
+                @Index(name = "idx_receivable_payment_due_id", columnList = "due_date, id")
+        })
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -25,7 +30,8 @@ import java.util.List;
 public class ReceivablePayment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "receivable_payment_seq")
+    @SequenceGenerator(name = "receivable_payment_seq", sequenceName = "receivable_payment_seq", allocationSize = 50)
     private Long id;
 
     /**
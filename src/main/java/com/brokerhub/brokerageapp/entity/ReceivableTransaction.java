@@ -25,7 +25,8 @@ import java.util.List;
 public class ReceivableTransaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "receivable_transaction_seq")
+    @SequenceGenerator(name = "receivable_transaction_seq", sequenceName = "receivable_transaction_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -42,6 +43,22 @@ public class ReceivableTransaction {
     @PositiveOrZero
     private BigDecimal totalOwed;
 
+    /**
+     * Number of ledger records behind totalOwed, stored when the row is generated from the ledger
+     * without individual transactions
+     */
+    private Integer transactionCount;
+
+    /**
+     * Date of the buyer's first purchase from the seller, stored like transactionCount
+     */
+    private LocalDate oldestTransactionDate;
+
+    /**
+     * Date of the buyer's latest purchase from the seller, stored like transactionCount
+     */
+    private LocalDate mostRecentTransactionDate;
+
     /**
      * Reference to the receivable payment this belongs to
      */
@@ -97,7 +114,7 @@ public class ReceivableTransaction {
             this.totalOwed = transactions.stream()
                     .map(PaymentTransaction::getPendingAmount)
                     .reduce(BigDecimal.ZERO, BigDecimal::add);
-        } else {
+        } else if (totalOwed == null) {
             this.totalOwed = BigDecimal.ZERO;
         }
     }
@@ -120,7 +137,10 @@ public class ReceivableTransaction {
      * Get number of transactions
      */
     public int getTransactionCount() {
-        return transactions != null ? transactions.size() : 0;
+        if (transactions == null || transactions.isEmpty()) {
+            return transactionCount != null ? transactionCount : 0;
+        }
+        return transactions.size();
     }
 
     /**
@@ -128,7 +148,7 @@ public class ReceivableTransaction {
      */
     public LocalDate getOldestTransactionDate() {
         if (transactions == null || transactions.isEmpty()) {
-            return null;
+            return oldestTransactionDate;
         }
         return transactions.stream()
                 .map(PaymentTransaction::getTransactionDate)
@@ -141,7 +161,7 @@ public class ReceivableTransaction {
      */
     public LocalDate getMostRecentTransactionDate() {
         if (transactions == null || transactions.isEmpty()) {
-            return null;
+            return mostRecentTransactionDate;
         }
         return transactions.stream()
                 .map(PaymentTransaction::getTransactionDate)
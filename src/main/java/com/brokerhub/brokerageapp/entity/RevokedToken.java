@@ -0,0 +1,47 @@
+package com.brokerhub.brokerageapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A revoked JWT, shared by all nodes. A row without a token id revokes every token of the broker
+ * issued up to revokedAt. Rows are purged once the tokens they revoke have expired.
+ */
+@Entity
+@Table(name = "revoked_token", indexes = {
+        @Index(name = "idx_revoked_token_revoked_at", columnList = "revoked_at"),
+        @Index(name = "idx_revoked_token_expires_at", columnList = "expires_at")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RevokedToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The jti claim, or null to revoke all tokens of the broker
+     */
+    @Column(name = "token_id", length = 64)
+    private String tokenId;
+
+    @Column(name = "user_name")
+    private String userName;
+
+    @Column(name = "revoked_at", nullable = false)
+    private Instant revokedAt;
+
+    /**
+     * When the revoked tokens expire anyway, after which the row can go
+     */
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
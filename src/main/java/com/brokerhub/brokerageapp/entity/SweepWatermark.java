@@ -0,0 +1,50 @@
+package com.brokerhub.brokerageapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * How far a scheduled sweep has got, so that the next run only looks at rows that changed since.
+ */
+@Entity
+@Table(name = "sweep_watermark")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SweepWatermark {
+
+    @Id
+    @Column(name = "sweep_name", length = 50)
+    private String sweepName;
+
+    /**
+     * Every row due before this date has been swept
+     */
+    @Column(name = "swept_before", nullable = false)
+    private LocalDate sweptBefore;
+
+    @Column(name = "last_run_at")
+    private LocalDateTime lastRunAt;
+
+    /**
+     * Rows the last run changed
+     */
+    @Column(name = "last_run_count")
+    private Integer lastRunCount;
+
+    /**
+     * Set while a node runs the sweep, so other nodes skip it; a claim older than the lease is taken over
+     */
+    @Column(name = "running_since")
+    private LocalDateTime runningSince;
+
+    @Version
+    private Long version;
+}
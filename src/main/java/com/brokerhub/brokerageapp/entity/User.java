@@ -23,8 +23,12 @@ import java.util.List;
 @DiscriminatorColumn(name = "user_type", discriminatorType = DiscriminatorType.STRING)
 public class User {
 
+    /**
+     * Pooled sequence so bulk merchant imports insert in JDBC batches; IDENTITY forces one INSERT per user.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "user_seq", allocationSize = 50)
     private Long userId;
 
     @Column(name = "user_type", insertable = false, updatable = false)
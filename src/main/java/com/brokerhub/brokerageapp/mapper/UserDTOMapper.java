@@ -21,4 +21,8 @@ public class UserDTOMapper {
         User user = modelMapper.map(userDTO, User.class);
         return user;
     }
+
+    public <T extends User> T convertUserDTOtoUser(UserDTO userDTO, Class<T> userClass){
+        return modelMapper.map(userDTO, userClass);
+    }
 }
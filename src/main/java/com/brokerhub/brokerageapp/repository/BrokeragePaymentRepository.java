@@ -2,7 +2,11 @@ package com.brokerhub.brokerageapp.repository;
 
 import com.brokerhub.brokerageapp.entity.BrokeragePayment;
 import com.brokerhub.brokerageapp.entity.PaymentStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -29,6 +33,51 @@ public interface BrokeragePaymentRepository extends JpaRepository<BrokeragePayme
            "ORDER BY bp.dueDate ASC, bp.pendingAmount DESC")
     List<BrokeragePayment> findByBrokerIdWithDetails(@Param("brokerId") Long brokerId);
 
+    /**
+     * Keyset page of the broker's brokerage payments that have a due date, ordered by (dueDate, id).
+     * Pass null for filters that do not apply and for afterDueDate/afterId on the first page.
+     * firmNamePattern is a lowercase LIKE pattern on the merchant's firm name.
+     */
+    @Query("SELECT bp FROM BrokeragePayment bp " +
+           "JOIN FETCH bp.merchant m " +
+           "LEFT JOIN FETCH m.address a " +
+           "WHERE bp.broker.brokerId = :brokerId " +
+           "AND bp.dueDate IS NOT NULL " +
+           "AND (:status IS NULL OR bp.status = :status) " +
+           "AND (:dueDateFrom IS NULL OR bp.dueDate >= :dueDateFrom) " +
+           "AND (:dueDateTo IS NULL OR bp.dueDate <= :dueDateTo) " +
+           "AND (:firmNamePattern IS NULL OR LOWER(m.firmName) LIKE :firmNamePattern) " +
+           "AND (:afterDueDate IS NULL OR bp.dueDate > :afterDueDate " +
+           "     OR (bp.dueDate = :afterDueDate AND bp.id > :afterId)) " +
+           "ORDER BY bp.dueDate ASC, bp.id ASC")
+    List<BrokeragePayment> findKeysetPageWithDueDate(@Param("brokerId") Long brokerId,
+                                                     @Param("status") PaymentStatus status,
+                                                     @Param("dueDateFrom") LocalDate dueDateFrom,
+                                                     @Param("dueDateTo") LocalDate dueDateTo,
+                                                     @Param("firmNamePattern") String firmNamePattern,
+                                                     @Param("afterDueDate") LocalDate afterDueDate,
+                                                     @Param("afterId") Long afterId,
+                                                     Pageable pageable);
+
+    /**
+     * Keyset page of the broker's brokerage payments without a due date, ordered by id.
+     * These follow the payments with a due date.
+     */
+    @Query("SELECT bp FROM BrokeragePayment bp " +
+           "JOIN FETCH bp.merchant m " +
+           "LEFT JOIN FETCH m.address a " +
+           "WHERE bp.broker.brokerId = :brokerId " +
+           "AND bp.dueDate IS NULL " +
+           "AND (:status IS NULL OR bp.status = :status) " +
+           "AND (:firmNamePattern IS NULL OR LOWER(m.firmName) LIKE :firmNamePattern) " +
+           "AND bp.id > :afterId " +
+           "ORDER BY bp.id ASC")
+    List<BrokeragePayment> findKeysetPageWithoutDueDate(@Param("brokerId") Long brokerId,
+                                                        @Param("status") PaymentStatus status,
+                                                        @Param("firmNamePattern") String firmNamePattern,
+                                                        @Param("afterId") Long afterId,
+                                                        Pageable pageable);
+
     /**
      * Search brokerage payments by firm name (case-insensitive partial match)
      */
@@ -159,6 +208,7 @@ public interface BrokeragePaymentRepository extends JpaRepository<BrokeragePayme
     /**
      * Update payment status for overdue payments
      */
+    @Modifying
     @Query("UPDATE BrokeragePayment bp SET bp.status = :status " +
            "WHERE bp.broker.brokerId = :brokerId " +
            "AND bp.dueDate < :currentDate " +
@@ -192,4 +242,109 @@ public interface BrokeragePaymentRepository extends JpaRepository<BrokeragePayme
            "FROM BrokeragePayment bp " +
            "WHERE bp.broker.brokerId = :brokerId")
     Object[] getBrokeragePaymentStatistics(@Param("brokerId") Long brokerId);
+
+    /**
+     * Totals of all of a broker's brokerage, pending and receivable payments per (payment type, status), with
+     * the part payments received since recentFrom as a 'PART_PAYMENT' row, in one pass over each table.
+     * Columns: paymentType, status, count, amount, paid, pending, outstandingCount, dueSoonCount, dueSoonAmount,
+     * criticalCount, recentCount. Due soon is a pending amount due between today and dueSoonTo, critical an overdue
+     * pending amount of at least criticalAmount, recent a payment received (brokerage) or a row created (pending,
+     * receivable) since recentFrom.
+     */
+    @Query(value = "SELECT 'BROKERAGE', bp.status, COUNT(*), COALESCE(SUM(bp.net_brokerage), 0), " +
+           "COALESCE(SUM(bp.paid_amount), 0), COALESCE(SUM(bp.pending_amount), 0), " +
+           "SUM(CASE WHEN bp.pending_amount > 0 THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN bp.pending_amount > 0 AND bp.due_date BETWEEN :today AND :dueSoonTo THEN 1 ELSE 0 END), " +
+           "COALESCE(SUM(CASE WHEN bp.pending_amount > 0 AND bp.due_date BETWEEN :today AND :dueSoonTo THEN bp.pending_amount END), 0), " +
+           "SUM(CASE WHEN bp.status = 'OVERDUE' AND bp.pending_amount >= :criticalAmount THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN bp.last_payment_date >= :recentFrom THEN 1 ELSE 0 END) " +
+           "FROM brokerage_payment bp WHERE bp.broker_id = :brokerId GROUP BY bp.status " +
+           "UNION ALL " +
+           "SELECT 'PENDING', pp.status, COUNT(*), COALESCE(SUM(pp.total_pending_amount), 0), " +
+           "0, COALESCE(SUM(pp.total_pending_amount), 0), " +
+           "SUM(CASE WHEN pp.total_pending_amount > 0 THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN pp.total_pending_amount > 0 AND pp.due_date BETWEEN :today AND :dueSoonTo THEN 1 ELSE 0 END), " +
+           "COALESCE(SUM(CASE WHEN pp.total_pending_amount > 0 AND pp.due_date BETWEEN :today AND :dueSoonTo THEN pp.total_pending_amount END), 0), " +
+           "SUM(CASE WHEN pp.status = 'OVERDUE' AND pp.total_pending_amount >= :criticalAmount THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN pp.created_date >= :recentFrom THEN 1 ELSE 0 END) " +
+           "FROM pending_payment pp WHERE pp.broker_id = :brokerId GROUP BY pp.status " +
+           "UNION ALL " +
+           "SELECT 'RECEIVABLE', rp.status, COUNT(*), COALESCE(SUM(rp.total_receivable_amount), 0), " +
+           "0, COALESCE(SUM(rp.total_receivable_amount), 0), " +
+           "SUM(CASE WHEN rp.total_receivable_amount > 0 THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN rp.total_receivable_amount > 0 AND rp.due_date BETWEEN :today AND :dueSoonTo THEN 1 ELSE 0 END), " +
+           "COALESCE(SUM(CASE WHEN rp.total_receivable_amount > 0 AND rp.due_date BETWEEN :today AND :dueSoonTo THEN rp.total_receivable_amount END), 0), " +
+           "SUM(CASE WHEN rp.status = 'OVERDUE' AND rp.total_receivable_amount >= :criticalAmount THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN rp.created_date >= :recentFrom THEN 1 ELSE 0 END) " +
+           "FROM receivable_payment rp WHERE rp.broker_id = :brokerId GROUP BY rp.status " +
+           "UNION ALL " +
+           "SELECT 'PART_PAYMENT', NULL, COUNT(*), COALESCE(SUM(pp.amount), 0), 0, 0, 0, 0, 0, 0, 0 " +
+           "FROM part_payment pp JOIN brokerage_payment bp ON bp.id = pp.brokerage_payment_id " +
+           "WHERE bp.broker_id = :brokerId AND pp.payment_date >= :recentFrom",
+           nativeQuery = true)
+    List<Object[]> getPaymentStatusTotals(@Param("brokerId") Long brokerId,
+                                          @Param("today") LocalDate today,
+                                          @Param("dueSoonTo") LocalDate dueSoonTo,
+                                          @Param("recentFrom") LocalDate recentFrom,
+                                          @Param("criticalAmount") BigDecimal criticalAmount);
+
+    /**
+     * All brokerage payment rows of a broker's financial year, without joins; used by payment generation
+     */
+    List<BrokeragePayment> findByBrokerBrokerIdAndFinancialYearYearId(Long brokerId, Long financialYearId);
+
+    /**
+     * Keyset batch of brokerage payments of every broker that fell due in [dueFrom, dueBefore) and still need to be
+     * marked OVERDUE, in (dueDate, id) order so it walks idx_brokerage_payment_due_id: [id, brokerId, dueDate, pending amount].
+     * Start with afterDueDate = dueFrom and afterId = -1. The rows stay locked until the batch's transaction ends,
+     * so markStatus with their ids changes exactly these rows.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT bp.id, bp.broker.brokerId, bp.dueDate, bp.pendingAmount FROM BrokeragePayment bp " +
+           "WHERE bp.dueDate >= :dueFrom AND bp.dueDate < :dueBefore " +
+           "AND bp.pendingAmount > 0 AND bp.status <> :status " +
+           "AND (bp.dueDate > :afterDueDate OR (bp.dueDate = :afterDueDate AND bp.id > :afterId)) " +
+           "ORDER BY bp.dueDate ASC, bp.id ASC")
+    List<Object[]> findOverdueCandidates(@Param("dueFrom") LocalDate dueFrom,
+                                         @Param("dueBefore") LocalDate dueBefore,
+                                         @Param("status") PaymentStatus status,
+                                         @Param("afterDueDate") LocalDate afterDueDate,
+                                         @Param("afterId") Long afterId,
+                                         Pageable pageable);
+
+    /**
+     * Marks the given brokerage payments with the status, skipping any paid or already marked in the meantime
+     */
+    @Modifying
+    @Query("UPDATE BrokeragePayment bp SET bp.status = :status " +
+           "WHERE bp.id IN :ids AND bp.pendingAmount > 0 AND bp.status <> :status")
+    int markStatus(@Param("ids") List<Long> ids, @Param("status") PaymentStatus status);
+
+    /**
+     * The broker's brokerage payments past their due date that still need to be marked with the status, locked until the
+     * transaction ends so markStatus with their ids changes exactly these rows: [id, pending amount].
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT bp.id, bp.pendingAmount FROM BrokeragePayment bp " +
+           "WHERE bp.broker.brokerId = :brokerId AND bp.dueDate < :today " +
+           "AND bp.pendingAmount > 0 AND bp.status <> :status " +
+           "ORDER BY bp.id ASC")
+    List<Object[]> findBrokerOverdueCandidates(@Param("brokerId") Long brokerId,
+                                               @Param("today") LocalDate today,
+                                               @Param("status") PaymentStatus status);
+
+    /**
+     * Keyset batch of the broker's brokerage payments for the Excel export, in id order and as plain columns so no
+     * entities are managed: [id, firmName, ownerName, city, soldBags, boughtBags, totalBags, grossBrokerage,
+     * discount, tds, netBrokerage, paidAmount, pendingAmount, status, dueDate, lastPaymentDate].
+     */
+    @Query("SELECT bp.id, m.firmName, m.ownerName, a.city, bp.soldBags, bp.boughtBags, bp.totalBags, " +
+           "bp.grossBrokerage, bp.discount, bp.tds, bp.netBrokerage, bp.paidAmount, bp.pendingAmount, bp.status, " +
+           "bp.dueDate, bp.lastPaymentDate " +
+           "FROM BrokeragePayment bp JOIN bp.merchant m LEFT JOIN m.address a " +
+           "WHERE bp.broker.brokerId = :brokerId AND bp.id > :afterId " +
+           "ORDER BY bp.id ASC")
+    List<Object[]> findExportRows(@Param("brokerId") Long brokerId,
+                                  @Param("afterId") Long afterId,
+                                  Pageable pageable);
 }
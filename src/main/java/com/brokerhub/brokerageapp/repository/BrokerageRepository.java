@@ -50,4 +50,59 @@ public interface BrokerageRepository extends JpaRepository<LedgerRecord, Long> {
            "WHERE lr.broker.brokerId = :brokerId AND lr.ledgerDetails.financialYearId = :financialYearId " +
            "AND a.city = :city")
     Number getCityTotalBrokerage(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId, @Param("city") String city);
+    
+    /**
+     * Raw purchase totals per (buyer, product, year, month), used to rebuild and verify MerchantBrokerageAggregate.
+     * Columns: userId, productId, year, month, records, bags, amount, brokerage.
+     */
+    @Query("SELECT lr.toBuyer.userId, p.productId, EXTRACT(YEAR FROM dl.date), EXTRACT(MONTH FROM dl.date), " +
+           "COUNT(lr), COALESCE(SUM(lr.quantity), 0), COALESCE(SUM(lr.totalProductsCost), 0), COALESCE(SUM(lr.totalBrokerage), 0) " +
+           "FROM LedgerRecord lr JOIN lr.ledgerDetails ld LEFT JOIN ld.dailyLedger dl LEFT JOIN lr.product p " +
+           "WHERE lr.broker.brokerId = :brokerId AND ld.financialYearId = :financialYearId " +
+           "GROUP BY lr.toBuyer.userId, p.productId, EXTRACT(YEAR FROM dl.date), EXTRACT(MONTH FROM dl.date)")
+    List<Object[]> getPurchaseAggregates(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
+    
+    /**
+     * Raw sale totals per (seller, product, year, month), same columns as getPurchaseAggregates.
+     */
+    @Query("SELECT s.userId, p.productId, EXTRACT(YEAR FROM dl.date), EXTRACT(MONTH FROM dl.date), " +
+           "COUNT(lr), COALESCE(SUM(lr.quantity), 0), COALESCE(SUM(lr.totalProductsCost), 0), COALESCE(SUM(lr.totalBrokerage), 0) " +
+           "FROM LedgerRecord lr JOIN lr.ledgerDetails ld JOIN ld.fromSeller s LEFT JOIN ld.dailyLedger dl LEFT JOIN lr.product p " +
+           "WHERE lr.broker.brokerId = :brokerId AND ld.financialYearId = :financialYearId " +
+           "GROUP BY s.userId, p.productId, EXTRACT(YEAR FROM dl.date), EXTRACT(MONTH FROM dl.date)")
+    List<Object[]> getSaleAggregates(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
+    
+    /**
+     * Purchase totals per buyer for payment generation.
+     * Columns: userId, brokerageRate, records, bags, amount, brokerage, first trade date, last trade date.
+     */
+    @Query("SELECT b.userId, b.brokerageRate, COUNT(lr), COALESCE(SUM(lr.quantity), 0), COALESCE(SUM(lr.totalProductsCost), 0), " +
+           "COALESCE(SUM(lr.totalBrokerage), 0), MIN(dl.date), MAX(dl.date) " +
+           "FROM LedgerRecord lr JOIN lr.ledgerDetails ld JOIN lr.toBuyer b LEFT JOIN ld.dailyLedger dl " +
+           "WHERE lr.broker.brokerId = :brokerId AND ld.financialYearId = :financialYearId " +
+           "GROUP BY b.userId, b.brokerageRate")
+    List<Object[]> getBuyerPaymentAggregates(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
+    
+    /**
+     * Sale totals per seller for payment generation, same columns as getBuyerPaymentAggregates.
+     */
+    @Query("SELECT s.userId, s.brokerageRate, COUNT(lr), COALESCE(SUM(lr.quantity), 0), COALESCE(SUM(lr.totalProductsCost), 0), " +
+           "COALESCE(SUM(lr.totalBrokerage), 0), MIN(dl.date), MAX(dl.date) " +
+           "FROM LedgerRecord lr JOIN lr.ledgerDetails ld JOIN ld.fromSeller s LEFT JOIN ld.dailyLedger dl " +
+           "WHERE lr.broker.brokerId = :brokerId AND ld.financialYearId = :financialYearId " +
+           "GROUP BY s.userId, s.brokerageRate")
+    List<Object[]> getSellerPaymentAggregates(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
+    
+    /**
+     * Amounts each buyer owes each seller for payment generation.
+     * Columns: sellerId, buyerId, records, amount, first trade date, last trade date.
+     */
+    @Query("SELECT s.userId, b.userId, COUNT(lr), COALESCE(SUM(lr.totalProductsCost), 0), MIN(dl.date), MAX(dl.date) " +
+           "FROM LedgerRecord lr JOIN lr.ledgerDetails ld JOIN ld.fromSeller s JOIN lr.toBuyer b LEFT JOIN ld.dailyLedger dl " +
+           "WHERE lr.broker.brokerId = :brokerId AND ld.financialYearId = :financialYearId " +
+           "GROUP BY s.userId, b.userId")
+    List<Object[]> getSellerBuyerPaymentAggregates(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
+    
+    @Query("SELECT DISTINCT lr.broker.brokerId, lr.ledgerDetails.financialYearId FROM LedgerRecord lr")
+    List<Object[]> findBrokerFinancialYearsWithRecords();
 }
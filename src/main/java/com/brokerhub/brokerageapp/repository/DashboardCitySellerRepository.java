@@ -0,0 +1,52 @@
+package com.brokerhub.brokerageapp.repository;
+
+import com.brokerhub.brokerageapp.entity.DashboardCitySeller;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DashboardCitySellerRepository extends JpaRepository<DashboardCitySeller, Long> {
+
+    List<DashboardCitySeller> findByBrokerIdAndFinancialYearId(Long brokerId, Long financialYearId);
+
+    /**
+     * Adds the delta to the stored cell in one statement, so concurrent ledger writes cannot overwrite each other.
+     *
+     * @return 0 when the cell does not exist yet
+     */
+    @Modifying
+    @Query("UPDATE DashboardCitySeller c SET c.records = c.records + :records, c.version = c.version + 1 " +
+           "WHERE c.brokerId = :brokerId AND c.financialYearId = :financialYearId AND c.sellerId = :sellerId " +
+           "AND (c.monthStart = :monthStart OR (c.monthStart IS NULL AND :monthStart IS NULL)) " +
+           "AND (c.buyerCity = :buyerCity OR (c.buyerCity IS NULL AND :buyerCity IS NULL))")
+    int addToCell(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId,
+                  @Param("monthStart") LocalDate monthStart, @Param("buyerCity") String buyerCity,
+                  @Param("sellerId") Long sellerId, @Param("records") long records);
+
+    @Modifying
+    @Query("DELETE FROM DashboardCitySeller c WHERE c.brokerId = :brokerId AND c.financialYearId = :financialYearId " +
+           "AND c.sellerId IN :sellerIds AND c.records = 0")
+    int deleteEmptyCells(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId,
+                         @Param("sellerIds") Collection<Long> sellerIds);
+
+    @Modifying
+    @Query("DELETE FROM DashboardCitySeller c WHERE c.brokerId = :brokerId AND c.financialYearId = :financialYearId")
+    int deleteByBrokerIdAndFinancialYearId(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
+
+    /**
+     * Raw ledger records per cell: [year, month, buyerCity, sellerId, records], with the buyer city stored on the record.
+     */
+    @Query("SELECT EXTRACT(YEAR FROM dl.date), EXTRACT(MONTH FROM dl.date), COALESCE(lr.buyerCity, ba.city), s.userId, COUNT(lr) " +
+           "FROM LedgerRecord lr JOIN lr.ledgerDetails ld JOIN ld.fromSeller s " +
+           "JOIN lr.toBuyer b LEFT JOIN b.address ba LEFT JOIN ld.dailyLedger dl " +
+           "WHERE lr.broker.brokerId = :brokerId AND ld.financialYearId = :financialYearId " +
+           "GROUP BY EXTRACT(YEAR FROM dl.date), EXTRACT(MONTH FROM dl.date), COALESCE(lr.buyerCity, ba.city), s.userId")
+    List<Object[]> getLedgerCitySellerCells(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
+}
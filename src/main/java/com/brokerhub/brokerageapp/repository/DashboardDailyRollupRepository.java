@@ -0,0 +1,71 @@
+package com.brokerhub.brokerageapp.repository;
+
+import com.brokerhub.brokerageapp.entity.DashboardDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DashboardDailyRollupRepository extends JpaRepository<DashboardDailyRollup, Long> {
+
+    List<DashboardDailyRollup> findByBrokerIdAndFinancialYearId(Long brokerId, Long financialYearId);
+
+    /**
+     * Adds the deltas to the stored cell in one statement, so concurrent ledger writes cannot overwrite each other.
+     *
+     * @return 0 when the cell does not exist yet
+     */
+    @Modifying
+    @Query("UPDATE DashboardDailyRollup r SET r.records = r.records + :records, r.quantity = r.quantity + :quantity, " +
+           "r.transactionValue = r.transactionValue + :transactionValue, r.brokerage = r.brokerage + :brokerage, " +
+           "r.productCostSum = r.productCostSum + :productCostSum, " +
+           "r.brokeragePerUnitSum = r.brokeragePerUnitSum + :brokeragePerUnitSum, r.version = r.version + 1 " +
+           "WHERE r.brokerId = :brokerId AND r.financialYearId = :financialYearId " +
+           "AND (r.ledgerDate = :ledgerDate OR (r.ledgerDate IS NULL AND :ledgerDate IS NULL)) " +
+           "AND (r.productId = :productId OR (r.productId IS NULL AND :productId IS NULL)) " +
+           "AND (r.sellerCity = :sellerCity OR (r.sellerCity IS NULL AND :sellerCity IS NULL)) " +
+           "AND (r.buyerCity = :buyerCity OR (r.buyerCity IS NULL AND :buyerCity IS NULL)) " +
+           "AND (r.sellerType = :sellerType OR (r.sellerType IS NULL AND :sellerType IS NULL)) " +
+           "AND (r.buyerType = :buyerType OR (r.buyerType IS NULL AND :buyerType IS NULL))")
+    int addToCell(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId,
+                  @Param("ledgerDate") LocalDate ledgerDate, @Param("productId") Long productId,
+                  @Param("sellerCity") String sellerCity, @Param("buyerCity") String buyerCity,
+                  @Param("sellerType") String sellerType, @Param("buyerType") String buyerType,
+                  @Param("records") long records, @Param("quantity") long quantity,
+                  @Param("transactionValue") long transactionValue, @Param("brokerage") long brokerage,
+                  @Param("productCostSum") long productCostSum, @Param("brokeragePerUnitSum") long brokeragePerUnitSum);
+
+    @Modifying
+    @Query("DELETE FROM DashboardDailyRollup r WHERE r.brokerId = :brokerId AND r.financialYearId = :financialYearId " +
+           "AND (r.ledgerDate = :ledgerDate OR (r.ledgerDate IS NULL AND :ledgerDate IS NULL)) AND r.records = 0")
+    int deleteEmptyCells(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId,
+                         @Param("ledgerDate") LocalDate ledgerDate);
+
+    @Modifying
+    @Query("DELETE FROM DashboardDailyRollup r WHERE r.brokerId = :brokerId AND r.financialYearId = :financialYearId")
+    int deleteByBrokerIdAndFinancialYearId(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
+
+    @Query("SELECT DISTINCT r.brokerId, r.financialYearId FROM DashboardDailyRollup r")
+    List<Object[]> findRolledUpBrokerFinancialYears();
+
+    /**
+     * Raw ledger totals per rollup cell: [date, productId, sellerCity, buyerCity, sellerType, buyerType,
+     * records, quantity, transactionValue, brokerage, productCostSum, brokeragePerUnitSum].
+     * Cities and types are the ones stored on the records, or the users' current ones for records written before.
+     */
+    @Query("SELECT dl.date, p.productId, COALESCE(lr.sellerCity, sa.city), COALESCE(lr.buyerCity, ba.city), " +
+           "COALESCE(lr.sellerType, s.userType), COALESCE(lr.buyerType, b.userType), " +
+           "COUNT(lr), COALESCE(SUM(lr.quantity), 0), COALESCE(SUM(lr.totalProductsCost), 0), COALESCE(SUM(lr.totalBrokerage), 0), " +
+           "COALESCE(SUM(lr.productCost), 0), COALESCE(SUM(lr.brokerage), 0) " +
+           "FROM LedgerRecord lr JOIN lr.ledgerDetails ld JOIN ld.fromSeller s LEFT JOIN s.address sa " +
+           "JOIN lr.toBuyer b LEFT JOIN b.address ba LEFT JOIN ld.dailyLedger dl LEFT JOIN lr.product p " +
+           "WHERE lr.broker.brokerId = :brokerId AND ld.financialYearId = :financialYearId " +
+           "GROUP BY dl.date, p.productId, COALESCE(lr.sellerCity, sa.city), COALESCE(lr.buyerCity, ba.city), " +
+           "COALESCE(lr.sellerType, s.userType), COALESCE(lr.buyerType, b.userType)")
+    List<Object[]> getLedgerRollupCells(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
+}
@@ -1,286 +1,182 @@
 package com.brokerhub.brokerageapp.repository;
 
 import com.brokerhub.brokerageapp.entity.DailyLedger;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * Dashboard reads. Totals come from dashboard_daily_rollup and per-merchant figures from
+ * merchant_brokerage_aggregate, so none of these queries touch the raw ledger tables.
+ */
 @Repository
 public interface DashboardRepository extends JpaRepository<DailyLedger, Long> {
 
-    // Monthly analytics query
-    @Query(value = """
+    // Month x buyer city x product x merchant types; every total of the financial year analytics rolls up from these cells.
+    // Row: [year, month, buyerCity, productId, productName, sellerType, buyerType, quantity, brokerage, value,
+    // transactions, sumProductCost, sumBrokeragePerUnit]
+    @Query("""
         SELECT
-            YEAR(dl.date) as year,
-            MONTH(dl.date) as month,
-            SUM(lr.total_brokerage) as totalBrokerage,
-            SUM(lr.quantity) as totalQuantity,
-            SUM(lr.total_products_cost) as totalTransactionValue,
-            COUNT(lr.ledger_record_id) as totalTransactions
-        FROM daily_ledger dl
-        JOIN ledger_details ld ON dl.daily_ledger_id = ld.daily_ledger_daily_ledger_id
-        JOIN ledger_record lr ON ld.ledger_details_id = lr.ledger_details_ledger_details_id
-        WHERE dl.financial_year_year_id = :financialYearId
-        GROUP BY YEAR(dl.date), MONTH(dl.date)
-        ORDER BY YEAR(dl.date), MONTH(dl.date)
-        """, nativeQuery = true)
-    List<Object[]> getMonthlyAnalytics(@Param("financialYearId") Long financialYearId);
+            EXTRACT(YEAR FROM r.ledgerDate),
+            EXTRACT(MONTH FROM r.ledgerDate),
+            r.buyerCity,
+            r.productId,
+            p.productName,
+            r.sellerType,
+            r.buyerType,
+            SUM(r.quantity),
+            SUM(r.brokerage),
+            SUM(r.transactionValue),
+            SUM(r.records),
+            SUM(r.productCostSum),
+            SUM(r.brokeragePerUnitSum)
+        FROM DashboardDailyRollup r
+        LEFT JOIN Product p ON p.productId = r.productId
+        WHERE r.brokerId = :brokerId AND r.financialYearId = :financialYearId
+        GROUP BY EXTRACT(YEAR FROM r.ledgerDate), EXTRACT(MONTH FROM r.ledgerDate), r.buyerCity, r.productId, p.productName,
+            r.sellerType, r.buyerType
+        """)
+    List<Object[]> getRollupCube(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
 
-    // Product analytics by month
-    @Query(value = """
+    // Distinct merchants per month, city and merchant type. Each merchant has one city and one type,
+    // so these counts add up exactly across cities or across types. The city seller count comes from
+    // getCitySellerCountsByMonth instead.
+    // Row: [year, month, city, userType, sellers, buyers]
+    @Query("""
         SELECT
-            YEAR(dl.date) as year,
-            MONTH(dl.date) as month,
-            p.product_id as productId,
-            p.product_name as productName,
-            SUM(lr.quantity) as totalQuantity,
-            SUM(lr.total_brokerage) as totalBrokerage,
-            SUM(lr.total_products_cost) as totalTransactionValue,
-            COUNT(lr.ledger_record_id) as totalTransactions,
-            AVG(lr.product_cost) as averagePrice,
-            AVG(lr.brokerage) as averageBrokeragePerUnit
-        FROM daily_ledger dl
-        JOIN ledger_details ld ON dl.daily_ledger_id = ld.daily_ledger_daily_ledger_id
-        JOIN ledger_record lr ON ld.ledger_details_id = lr.ledger_details_ledger_details_id
-        JOIN product p ON lr.product_product_id = p.product_id
-        WHERE dl.financial_year_year_id = :financialYearId
-        GROUP BY YEAR(dl.date), MONTH(dl.date), p.product_id, p.product_name
-        ORDER BY YEAR(dl.date), MONTH(dl.date), p.product_name
-        """, nativeQuery = true)
-    List<Object[]> getProductAnalyticsByMonth(@Param("financialYearId") Long financialYearId);
+            EXTRACT(YEAR FROM m.monthStart),
+            EXTRACT(MONTH FROM m.monthStart),
+            a.city,
+            u.userType,
+            COUNT(DISTINCT CASE WHEN m.saleRecords > 0 THEN m.userId END),
+            COUNT(DISTINCT CASE WHEN m.purchaseRecords > 0 THEN m.userId END)
+        FROM MerchantBrokerageAggregate m
+        JOIN User u ON u.userId = m.userId
+        LEFT JOIN u.address a
+        WHERE m.brokerId = :brokerId AND m.financialYearId = :financialYearId
+        GROUP BY EXTRACT(YEAR FROM m.monthStart), EXTRACT(MONTH FROM m.monthStart), a.city, u.userType
+        """)
+    List<Object[]> getMerchantCountsByMonth(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
 
-    // City analytics by month
-    @Query(value = """
+    // Distinct sellers who sold to buyers of each city per month.
+    // Row: [year, month, buyerCity, sellers]
+    @Query("""
         SELECT
-            YEAR(dl.date) as year,
-            MONTH(dl.date) as month,
-            a.city as cityName,
-            SUM(lr.quantity) as totalQuantity,
-            SUM(lr.total_brokerage) as totalBrokerage,
-            SUM(lr.total_products_cost) as totalTransactionValue,
-            COUNT(lr.ledger_record_id) as totalTransactions,
-            COUNT(DISTINCT ld.user_id) as totalSellers,
-            COUNT(DISTINCT lr.to_buyer_user_id) as totalBuyers
-        FROM daily_ledger dl
-        JOIN ledger_details ld ON dl.daily_ledger_id = ld.daily_ledger_daily_ledger_id
-        JOIN ledger_record lr ON ld.ledger_details_id = lr.ledger_details_ledger_details_id
-        JOIN user u ON lr.to_buyer_user_id = u.user_id
-        JOIN address a ON u.address_id = a.address_id
-        WHERE dl.financial_year_year_id = :financialYearId
-        GROUP BY YEAR(dl.date), MONTH(dl.date), a.city
-        ORDER BY YEAR(dl.date), MONTH(dl.date), a.city
-        """, nativeQuery = true)
-    List<Object[]> getCityAnalyticsByMonth(@Param("financialYearId") Long financialYearId);
+            EXTRACT(YEAR FROM c.monthStart),
+            EXTRACT(MONTH FROM c.monthStart),
+            c.buyerCity,
+            COUNT(DISTINCT c.sellerId)
+        FROM DashboardCitySeller c
+        WHERE c.brokerId = :brokerId AND c.financialYearId = :financialYearId AND c.records > 0
+        GROUP BY EXTRACT(YEAR FROM c.monthStart), EXTRACT(MONTH FROM c.monthStart), c.buyerCity
+        """)
+    List<Object[]> getCitySellerCountsByMonth(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
 
-    // Merchant type analytics by month
-    @Query(value = """
-        SELECT
-            YEAR(dl.date) as year,
-            MONTH(dl.date) as month,
-            seller.user_type as merchantType,
-            SUM(lr.quantity) as totalQuantitySold,
-            0 as totalQuantityBought,
-            SUM(lr.total_brokerage) as totalBrokeragePaid,
-            SUM(lr.total_products_cost) as totalTransactionValue,
-            COUNT(lr.ledger_record_id) as totalTransactions,
-            COUNT(DISTINCT ld.user_id) as totalMerchants
-        FROM daily_ledger dl
-        JOIN ledger_details ld ON dl.daily_ledger_id = ld.daily_ledger_daily_ledger_id
-        JOIN ledger_record lr ON ld.ledger_details_id = lr.ledger_details_ledger_details_id
-        JOIN user seller ON ld.user_id = seller.user_id
-        WHERE dl.financial_year_year_id = :financialYearId
-        GROUP BY YEAR(dl.date), MONTH(dl.date), seller.user_type
-
-        UNION ALL
-
-        SELECT
-            YEAR(dl.date) as year,
-            MONTH(dl.date) as month,
-            buyer.user_type as merchantType,
-            0 as totalQuantitySold,
-            SUM(lr.quantity) as totalQuantityBought,
-            0 as totalBrokeragePaid,
-            SUM(lr.total_products_cost) as totalTransactionValue,
-            COUNT(lr.ledger_record_id) as totalTransactions,
-            COUNT(DISTINCT lr.to_buyer_user_id) as totalMerchants
-        FROM daily_ledger dl
-        JOIN ledger_details ld ON dl.daily_ledger_id = ld.daily_ledger_daily_ledger_id
-        JOIN ledger_record lr ON ld.ledger_details_id = lr.ledger_details_ledger_details_id
-        JOIN user buyer ON lr.to_buyer_user_id = buyer.user_id
-        WHERE dl.financial_year_year_id = :financialYearId
-        GROUP BY YEAR(dl.date), MONTH(dl.date), buyer.user_type
-        ORDER BY year, month, merchantType
-        """, nativeQuery = true)
-    List<Object[]> getMerchantTypeAnalyticsByMonth(@Param("financialYearId") Long financialYearId);
+    // Distinct ledger entries of each of the given sellers, their transaction count in the top seller and top
+    // merchant figures. Only read for the few sellers listed, so the raw ledger scan stays small.
+    // Row: [sellerId, entries]
+    @Query("""
+        SELECT ld.fromSeller.userId, COUNT(DISTINCT ld.ledgerDetailsId)
+        FROM LedgerRecord lr
+        JOIN lr.ledgerDetails ld
+        WHERE lr.broker.brokerId = :brokerId AND ld.financialYearId = :financialYearId
+            AND ld.fromSeller.userId IN :sellerIds
+        GROUP BY ld.fromSeller.userId
+        """)
+    List<Object[]> getSaleEntryCounts(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId,
+                                      @Param("sellerIds") Collection<Long> sellerIds);
 
     // Overall totals for financial year
-    @Query(value = """
-        SELECT
-            SUM(lr.total_brokerage) as totalBrokerage,
-            SUM(lr.quantity) as totalQuantity,
-            SUM(lr.total_products_cost) as totalTransactionValue,
-            COUNT(lr.ledger_record_id) as totalTransactions
-        FROM daily_ledger dl
-        JOIN ledger_details ld ON dl.daily_ledger_id = ld.daily_ledger_daily_ledger_id
-        JOIN ledger_record lr ON ld.ledger_details_id = lr.ledger_details_ledger_details_id
-        WHERE dl.financial_year_year_id = :financialYearId
-        """, nativeQuery = true)
-    Object[] getOverallTotals(@Param("financialYearId") Long financialYearId);
-
-    // Product breakdown for specific city and month
-    @Query(value = """
+    @Query("""
         SELECT
-            p.product_id as productId,
-            p.product_name as productName,
-            SUM(lr.quantity) as totalQuantity,
-            SUM(lr.total_brokerage) as totalBrokerage,
-            SUM(lr.total_products_cost) as totalTransactionValue,
-            COUNT(lr.ledger_record_id) as totalTransactions,
-            AVG(lr.product_cost) as averagePrice,
-            AVG(lr.brokerage) as averageBrokeragePerUnit
-        FROM daily_ledger dl
-        JOIN ledger_details ld ON dl.daily_ledger_id = ld.daily_ledger_daily_ledger_id
-        JOIN ledger_record lr ON ld.ledger_details_id = lr.ledger_details_ledger_details_id
-        JOIN product p ON lr.product_product_id = p.product_id
-        JOIN user u ON lr.to_buyer_user_id = u.user_id
-        JOIN address a ON u.address_id = a.address_id
-        WHERE dl.financial_year_year_id = :financialYearId
-        AND YEAR(dl.date) = :year
-        AND MONTH(dl.date) = :month
-        AND a.city = :cityName
-        GROUP BY p.product_id, p.product_name
-        ORDER BY p.product_name
-        """, nativeQuery = true)
-    List<Object[]> getProductBreakdownForCityAndMonth(
-            @Param("financialYearId") Long financialYearId,
-            @Param("year") Integer year,
-            @Param("month") Integer month,
-            @Param("cityName") String cityName
-    );
+            COALESCE(SUM(r.brokerage), 0),
+            COALESCE(SUM(r.quantity), 0),
+            COALESCE(SUM(r.transactionValue), 0),
+            COALESCE(SUM(r.records), 0)
+        FROM DashboardDailyRollup r
+        WHERE r.brokerId = :brokerId AND r.financialYearId = :financialYearId
+        """)
+    Object[] getOverallTotals(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
 
-    // Top 5 buyers by quantity
-    @Query(value = """
+    // Top buyers by quantity.
+    // Row: [buyerId, buyerName, firmName, city, userType, quantity, amount, brokerage, transactions, email]
+    @Query("""
         SELECT
-            buyer.user_id as buyerId,
-            buyer.owner_name as buyerName,
-            buyer.firm_name as firmName,
-            a.city as city,
-            buyer.user_type as userType,
-            SUM(lr.quantity) as totalQuantityBought,
-            SUM(lr.total_products_cost) as totalAmountSpent,
-            SUM(lr.total_brokerage) as totalBrokeragePaid,
-            COUNT(lr.ledger_record_id) as totalTransactions,
-            AVG(lr.total_products_cost) as averageTransactionSize,
-            '' as phoneNumber,
-            buyer.email as email
-        FROM daily_ledger dl
-        JOIN ledger_details ld ON dl.daily_ledger_id = ld.daily_ledger_daily_ledger_id
-        JOIN ledger_record lr ON ld.ledger_details_id = lr.ledger_details_ledger_details_id
-        JOIN user buyer ON lr.to_buyer_user_id = buyer.user_id
-        JOIN address a ON buyer.address_id = a.address_id
-        WHERE dl.financial_year_year_id = :financialYearId
-        GROUP BY buyer.user_id, buyer.owner_name, buyer.firm_name, a.city, buyer.user_type, buyer.email
-        ORDER BY SUM(lr.quantity) DESC
-        LIMIT 5
-        """, nativeQuery = true)
-    List<Object[]> getTop5BuyersByQuantity(@Param("financialYearId") Long financialYearId);
+            u.userId,
+            u.ownerName,
+            u.firmName,
+            a.city,
+            u.userType,
+            SUM(m.bagsBought),
+            SUM(m.purchaseAmount),
+            SUM(m.purchaseBrokerage),
+            SUM(m.purchaseRecords),
+            u.email
+        FROM MerchantBrokerageAggregate m
+        JOIN User u ON u.userId = m.userId
+        LEFT JOIN u.address a
+        WHERE m.brokerId = :brokerId AND m.financialYearId = :financialYearId
+        GROUP BY u.userId, u.ownerName, u.firmName, a.city, u.userType, u.email
+        HAVING SUM(m.purchaseRecords) > 0
+        ORDER BY SUM(m.bagsBought) DESC
+        """)
+    List<Object[]> getTopBuyersByQuantity(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId,
+                                          Pageable pageable);
 
-    // Top 5 sellers by quantity
-    @Query(value = """
+    // Top sellers by quantity.
+    // Row: [sellerId, sellerName, firmName, city, userType, quantity, amount, brokerage, saleRecords, email]
+    @Query("""
         SELECT
-            seller.user_id as sellerId,
-            seller.owner_name as sellerName,
-            seller.firm_name as firmName,
-            a.city as city,
-            seller.user_type as userType,
-            SUM(lr.quantity) as totalQuantitySold,
-            SUM(lr.total_products_cost) as totalAmountReceived,
-            SUM(lr.total_brokerage) as totalBrokerageGenerated,
-            COUNT(DISTINCT ld.ledger_details_id) as totalTransactions,
-            AVG(lr.total_products_cost) as averageTransactionSize,
-            '' as phoneNumber,
-            seller.email as email
-        FROM daily_ledger dl
-        JOIN ledger_details ld ON dl.daily_ledger_id = ld.daily_ledger_daily_ledger_id
-        JOIN ledger_record lr ON ld.ledger_details_id = lr.ledger_details_ledger_details_id
-        JOIN user seller ON ld.user_id = seller.user_id
-        JOIN address a ON seller.address_id = a.address_id
-        WHERE dl.financial_year_year_id = :financialYearId
-        GROUP BY seller.user_id, seller.owner_name, seller.firm_name, a.city, seller.user_type, seller.email
-        ORDER BY SUM(lr.quantity) DESC
-        LIMIT 5
-        """, nativeQuery = true)
-    List<Object[]> getTop5SellersByQuantity(@Param("financialYearId") Long financialYearId);
+            u.userId,
+            u.ownerName,
+            u.firmName,
+            a.city,
+            u.userType,
+            SUM(m.bagsSold),
+            SUM(m.saleAmount),
+            SUM(m.saleBrokerage),
+            SUM(m.saleRecords),
+            u.email
+        FROM MerchantBrokerageAggregate m
+        JOIN User u ON u.userId = m.userId
+        LEFT JOIN u.address a
+        WHERE m.brokerId = :brokerId AND m.financialYearId = :financialYearId
+        GROUP BY u.userId, u.ownerName, u.firmName, a.city, u.userType, u.email
+        HAVING SUM(m.saleRecords) > 0
+        ORDER BY SUM(m.bagsSold) DESC
+        """)
+    List<Object[]> getTopSellersByQuantity(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId,
+                                           Pageable pageable);
 
-    // Top 5 merchants by brokerage amount (combining both buying and selling activities)
-    @Query(value = """
+    // Top merchants by brokerage amount (combining both buying and selling activities).
+    // Row: [merchantId, merchantName, firmName, city, userType, brokerage, quantityTraded, quantityBought,
+    // quantitySold, amountTraded, purchaseRecords, email]
+    @Query("""
         SELECT
-            merchant_data.merchantId,
-            merchant_data.merchantName,
-            merchant_data.firmName,
-            merchant_data.city,
-            merchant_data.userType,
-            merchant_data.totalBrokeragePaid,
-            merchant_data.totalQuantityTraded,
-            merchant_data.totalQuantityBought,
-            merchant_data.totalQuantitySold,
-            merchant_data.totalAmountTraded,
-            merchant_data.totalTransactions,
-            merchant_data.phoneNumber,
-            merchant_data.email
-        FROM (
-            SELECT
-                u.user_id as merchantId,
-                u.owner_name as merchantName,
-                u.firm_name as firmName,
-                a.city as city,
-                u.user_type as userType,
-                COALESCE(buyer_data.totalBrokeragePaid, 0) + COALESCE(seller_data.totalBrokerageGenerated, 0) as totalBrokeragePaid,
-                COALESCE(buyer_data.totalQuantityBought, 0) + COALESCE(seller_data.totalQuantitySold, 0) as totalQuantityTraded,
-                COALESCE(buyer_data.totalQuantityBought, 0) as totalQuantityBought,
-                COALESCE(seller_data.totalQuantitySold, 0) as totalQuantitySold,
-                COALESCE(buyer_data.totalAmountSpent, 0) + COALESCE(seller_data.totalAmountReceived, 0) as totalAmountTraded,
-                COALESCE(buyer_data.totalTransactions, 0) + COALESCE(seller_data.totalTransactions, 0) as totalTransactions,
-                '' as phoneNumber,
-                u.email as email
-            FROM user u
-            JOIN address a ON u.address_id = a.address_id
-            LEFT JOIN (
-                SELECT
-                    buyer.user_id,
-                    SUM(lr.total_brokerage) as totalBrokeragePaid,
-                    SUM(lr.quantity) as totalQuantityBought,
-                    SUM(lr.total_products_cost) as totalAmountSpent,
-                    COUNT(lr.ledger_record_id) as totalTransactions
-                FROM daily_ledger dl
-                JOIN ledger_details ld ON dl.daily_ledger_id = ld.daily_ledger_daily_ledger_id
-                JOIN ledger_record lr ON ld.ledger_details_id = lr.ledger_details_ledger_details_id
-                JOIN user buyer ON lr.to_buyer_user_id = buyer.user_id
-                WHERE dl.financial_year_year_id = :financialYearId
-                GROUP BY buyer.user_id
-            ) buyer_data ON u.user_id = buyer_data.user_id
-            LEFT JOIN (
-                SELECT
-                    seller.user_id,
-                    SUM(lr.total_brokerage) as totalBrokerageGenerated,
-                    SUM(lr.quantity) as totalQuantitySold,
-                    SUM(lr.total_products_cost) as totalAmountReceived,
-                    COUNT(DISTINCT ld.ledger_details_id) as totalTransactions
-                FROM daily_ledger dl
-                JOIN ledger_details ld ON dl.daily_ledger_id = ld.daily_ledger_daily_ledger_id
-                JOIN ledger_record lr ON ld.ledger_details_id = lr.ledger_details_ledger_details_id
-                JOIN user seller ON ld.user_id = seller.user_id
-                WHERE dl.financial_year_year_id = :financialYearId
-                GROUP BY seller.user_id
-            ) seller_data ON u.user_id = seller_data.user_id
-            WHERE (buyer_data.user_id IS NOT NULL OR seller_data.user_id IS NOT NULL)
-        ) merchant_data
-        ORDER BY merchant_data.totalBrokeragePaid DESC
-        LIMIT 5
-        """, nativeQuery = true)
-    List<Object[]> getTop5MerchantsByBrokerage(@Param("financialYearId") Long financialYearId);
+            u.userId,
+            u.ownerName,
+            u.firmName,
+            a.city,
+            u.userType,
+            SUM(m.purchaseBrokerage + m.saleBrokerage),
+            SUM(m.bagsBought + m.bagsSold),
+            SUM(m.bagsBought),
+            SUM(m.bagsSold),
+            SUM(m.purchaseAmount + m.saleAmount),
+            SUM(m.purchaseRecords),
+            u.email
+        FROM MerchantBrokerageAggregate m
+        JOIN User u ON u.userId = m.userId
+        LEFT JOIN u.address a
+        WHERE m.brokerId = :brokerId AND m.financialYearId = :financialYearId
+        GROUP BY u.userId, u.ownerName, u.firmName, a.city, u.userType, u.email
+        ORDER BY SUM(m.purchaseBrokerage + m.saleBrokerage) DESC
+        """)
+    List<Object[]> getTopMerchantsByBrokerage(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId,
+                                              Pageable pageable);
 }
@@ -2,6 +2,7 @@ package com.brokerhub.brokerageapp.repository;
 
 import com.brokerhub.brokerageapp.dto.DateLedgerRecordDTO;
 import com.brokerhub.brokerageapp.dto.DateLedgerRecordProjection;
+import com.brokerhub.brokerageapp.dto.DayLedgerRecordView;
 import com.brokerhub.brokerageapp.dto.LedgerDetailsDTO;
 import com.brokerhub.brokerageapp.entity.LedgerDetails;
 import com.brokerhub.brokerageapp.entity.LedgerRecord;
@@ -25,6 +26,17 @@ public interface LedgerDetailsRepository extends JpaRepository<LedgerDetails, Lo
             "WHERE dl.date = :date AND ld.broker_id = :brokerId", nativeQuery = true)
     List<Object[]> findLedgersOnDateByBrokerIdRaw(@Param("brokerId") Long brokerId, @Param("date") LocalDate date);
 
+    @Query("SELECT ld.ledgerDetailsId AS ledgerDetailsId, ld.brokerTransactionNumber AS transactionNumber, " +
+           "s.firmName AS sellerName, sa.city AS sellerCity, b.firmName AS buyerName, ba.city AS buyerCity, " +
+           "p.productName AS productName, lr.quantity AS quantity, lr.brokerage AS brokerage, lr.productCost AS productCost " +
+           "FROM LedgerRecord lr JOIN lr.ledgerDetails ld JOIN ld.dailyLedger dl " +
+           "JOIN ld.fromSeller s LEFT JOIN s.address sa " +
+           "JOIN lr.toBuyer b LEFT JOIN b.address ba " +
+           "LEFT JOIN lr.product p " +
+           "WHERE ld.broker.brokerId = :brokerId AND dl.date = :date " +
+           "ORDER BY ld.ledgerDetailsId, lr.ledgerRecordId")
+    List<DayLedgerRecordView> findDayLedgerViewByBrokerIdAndDate(@Param("brokerId") Long brokerId, @Param("date") LocalDate date);
+
     @Query("SELECT DISTINCT ld FROM LedgerDetails ld " +
            "LEFT JOIN FETCH ld.records lr " +
            "LEFT JOIN FETCH lr.toBuyer tb " +
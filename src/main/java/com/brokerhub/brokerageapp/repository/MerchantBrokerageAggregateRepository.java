@@ -0,0 +1,86 @@
+package com.brokerhub.brokerageapp.repository;
+
+import com.brokerhub.brokerageapp.entity.MerchantBrokerageAggregate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MerchantBrokerageAggregateRepository extends JpaRepository<MerchantBrokerageAggregate, Long> {
+
+    List<MerchantBrokerageAggregate> findByBrokerIdAndFinancialYearId(Long brokerId, Long financialYearId);
+
+    List<MerchantBrokerageAggregate> findByBrokerIdAndFinancialYearIdAndUserIdIn(Long brokerId, Long financialYearId, Collection<Long> userIds);
+
+    /**
+     * Adds the deltas to the stored cell in one statement, so concurrent ledger writes cannot overwrite each other.
+     *
+     * @return 0 when the cell does not exist yet
+     */
+    @Modifying
+    @Query("UPDATE MerchantBrokerageAggregate m SET " +
+           "m.purchaseRecords = m.purchaseRecords + :purchaseRecords, m.bagsBought = m.bagsBought + :bagsBought, " +
+           "m.purchaseAmount = m.purchaseAmount + :purchaseAmount, m.purchaseBrokerage = m.purchaseBrokerage + :purchaseBrokerage, " +
+           "m.saleRecords = m.saleRecords + :saleRecords, m.bagsSold = m.bagsSold + :bagsSold, " +
+           "m.saleAmount = m.saleAmount + :saleAmount, m.saleBrokerage = m.saleBrokerage + :saleBrokerage, " +
+           "m.version = m.version + 1 " +
+           "WHERE m.brokerId = :brokerId AND m.financialYearId = :financialYearId AND m.userId = :userId " +
+           "AND (m.productId = :productId OR (m.productId IS NULL AND :productId IS NULL)) " +
+           "AND (m.monthStart = :monthStart OR (m.monthStart IS NULL AND :monthStart IS NULL))")
+    int addToCell(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId,
+                  @Param("userId") Long userId, @Param("productId") Long productId, @Param("monthStart") LocalDate monthStart,
+                  @Param("purchaseRecords") long purchaseRecords, @Param("bagsBought") long bagsBought,
+                  @Param("purchaseAmount") long purchaseAmount, @Param("purchaseBrokerage") long purchaseBrokerage,
+                  @Param("saleRecords") long saleRecords, @Param("bagsSold") long bagsSold,
+                  @Param("saleAmount") long saleAmount, @Param("saleBrokerage") long saleBrokerage);
+
+    @Modifying
+    @Query("DELETE FROM MerchantBrokerageAggregate m WHERE m.brokerId = :brokerId AND m.financialYearId = :financialYearId " +
+           "AND m.userId IN :userIds AND m.purchaseRecords = 0 AND m.saleRecords = 0")
+    int deleteEmptyCells(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId,
+                         @Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query("DELETE FROM MerchantBrokerageAggregate m WHERE m.brokerId = :brokerId AND m.financialYearId = :financialYearId")
+    int deleteByBrokerIdAndFinancialYearId(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
+
+    @Query("SELECT DISTINCT m.brokerId, m.financialYearId FROM MerchantBrokerageAggregate m")
+    List<Object[]> findAggregatedBrokerFinancialYears();
+
+    @Query("SELECT COALESCE(SUM(m.purchaseBrokerage), 0) FROM MerchantBrokerageAggregate m " +
+           "WHERE m.brokerId = :brokerId AND m.financialYearId = :financialYearId")
+    Number getTotalBrokerage(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
+
+    @Query("SELECT COALESCE(SUM(m.purchaseBrokerage), 0) FROM MerchantBrokerageAggregate m " +
+           "JOIN User u ON u.userId = m.userId " +
+           "WHERE m.brokerId = :brokerId AND m.financialYearId = :financialYearId AND u.userType = 'TRADER'")
+    Number getTotalBrokerageFromBuyers(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
+
+    @Query("SELECT COALESCE(SUM(m.saleBrokerage), 0) FROM MerchantBrokerageAggregate m " +
+           "JOIN User u ON u.userId = m.userId " +
+           "WHERE m.brokerId = :brokerId AND m.financialYearId = :financialYearId AND u.userType = 'MILLER'")
+    Number getTotalBrokerageFromSellers(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
+
+    @Query("SELECT a.city, COALESCE(SUM(m.purchaseBrokerage), 0) FROM MerchantBrokerageAggregate m " +
+           "JOIN User u ON u.userId = m.userId JOIN u.address a " +
+           "WHERE m.brokerId = :brokerId AND m.financialYearId = :financialYearId AND m.purchaseRecords > 0 " +
+           "GROUP BY a.city")
+    List<Object[]> getCityWiseBrokerage(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
+
+    @Query("SELECT p.productName, COALESCE(SUM(m.purchaseBrokerage), 0) FROM MerchantBrokerageAggregate m " +
+           "JOIN Product p ON p.productId = m.productId " +
+           "WHERE m.brokerId = :brokerId AND m.financialYearId = :financialYearId AND m.purchaseRecords > 0 " +
+           "GROUP BY p.productName")
+    List<Object[]> getProductWiseBrokerage(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId);
+
+    @Query("SELECT COALESCE(SUM(m.purchaseBrokerage), 0) FROM MerchantBrokerageAggregate m " +
+           "JOIN User u ON u.userId = m.userId JOIN u.address a " +
+           "WHERE m.brokerId = :brokerId AND m.financialYearId = :financialYearId AND a.city = :city")
+    Number getCityTotalBrokerage(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId, @Param("city") String city);
+}
@@ -195,4 +195,14 @@ public interface PartPaymentRepository extends JpaRepository<PartPayment, Long>
            "GROUP BY pp.paymentReference " +
            "HAVING COUNT(pp) > 1")
     List<Object[]> findDuplicatePaymentReferences();
+
+    /**
+     * Part payments of a batch of brokerage payments for the Excel export, as plain columns:
+     * [brokeragePaymentId, paymentReference, amount, paymentDate, method, transactionReference, recordedBy, verified].
+     */
+    @Query("SELECT pp.brokeragePayment.id, pp.paymentReference, pp.amount, pp.paymentDate, pp.method, " +
+           "pp.transactionReference, pp.recordedBy, pp.verified " +
+           "FROM PartPayment pp WHERE pp.brokeragePayment.id IN :brokeragePaymentIds " +
+           "ORDER BY pp.brokeragePayment.id ASC, pp.paymentDate ASC, pp.id ASC")
+    List<Object[]> findExportRows(@Param("brokeragePaymentIds") List<Long> brokeragePaymentIds);
 }
@@ -0,0 +1,60 @@
+package com.brokerhub.brokerageapp.repository;
+
+import com.brokerhub.brokerageapp.entity.PaymentDailyTrend;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface PaymentDailyTrendRepository extends JpaRepository<PaymentDailyTrend, Long> {
+
+    List<PaymentDailyTrend> findByBrokerIdAndTrendDateBetween(Long brokerId, LocalDate from, LocalDate to);
+
+    /**
+     * Totals per day over all payment methods:
+     * [date, paymentsCount, paymentsAmount, newDueCount, newDueAmount, overdueCount, overdueAmount].
+     */
+    @Query("SELECT t.trendDate, SUM(t.paymentsCount), SUM(t.paymentsAmount), SUM(t.newDueCount), SUM(t.newDueAmount), " +
+           "SUM(t.overdueCount), SUM(t.overdueAmount) " +
+           "FROM PaymentDailyTrend t WHERE t.brokerId = :brokerId AND t.trendDate BETWEEN :from AND :to " +
+           "GROUP BY t.trendDate ORDER BY t.trendDate")
+    List<Object[]> getDailyTotals(@Param("brokerId") Long brokerId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Payments received per method over the range: [method, paymentsCount, paymentsAmount].
+     */
+    @Query("SELECT t.paymentMethod, SUM(t.paymentsCount), SUM(t.paymentsAmount) " +
+           "FROM PaymentDailyTrend t WHERE t.brokerId = :brokerId AND t.trendDate BETWEEN :from AND :to " +
+           "AND t.paymentsCount > 0 GROUP BY t.paymentMethod")
+    List<Object[]> getMethodTotals(@Param("brokerId") Long brokerId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Raw part payment totals per (date, method): [date, method, count, amount].
+     */
+    @Query("SELECT pp.paymentDate, pp.method, COUNT(pp), COALESCE(SUM(pp.amount), 0) FROM PartPayment pp " +
+           "WHERE pp.brokeragePayment.broker.brokerId = :brokerId AND pp.paymentDate BETWEEN :from AND :to " +
+           "GROUP BY pp.paymentDate, pp.method")
+    List<Object[]> getPartPaymentTotals(@Param("brokerId") Long brokerId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Raw payment transaction totals per date: [date, count, amount].
+     */
+    @Query("SELECT pt.transactionDate, COUNT(pt), COALESCE(SUM(pt.totalAmount), 0) FROM PaymentTransaction pt " +
+           "WHERE pt.broker.brokerId = :brokerId AND pt.transactionDate BETWEEN :from AND :to " +
+           "GROUP BY pt.transactionDate")
+    List<Object[]> getPaymentTransactionTotals(@Param("brokerId") Long brokerId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT DISTINCT pp.brokeragePayment.broker.brokerId FROM PartPayment pp WHERE pp.paymentDate >= :from")
+    List<Long> findBrokerIdsWithPartPaymentsSince(@Param("from") LocalDate from);
+
+    @Query("SELECT DISTINCT pt.broker.brokerId FROM PaymentTransaction pt WHERE pt.transactionDate >= :from")
+    List<Long> findBrokerIdsWithPaymentTransactionsSince(@Param("from") LocalDate from);
+
+    @Query("SELECT DISTINCT t.brokerId FROM PaymentDailyTrend t WHERE t.trendDate >= :from " +
+           "AND (t.paymentsCount <> 0 OR t.newDueCount <> 0)")
+    List<Long> findBrokerIdsWithTrendsSince(@Param("from") LocalDate from);
+}
@@ -2,13 +2,18 @@ package com.brokerhub.brokerageapp.repository;
 
 import com.brokerhub.brokerageapp.entity.PendingPayment;
 import com.brokerhub.brokerageapp.entity.PaymentStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +36,51 @@ public interface PendingPaymentRepository extends JpaRepository<PendingPayment,
            "ORDER BY pp.dueDate ASC, pp.totalPendingAmount DESC")
     List<PendingPayment> findByBrokerIdWithDetails(@Param("brokerId") Long brokerId);
 
+    /**
+     * Keyset page of the broker's pending payments that have a due date, ordered by (dueDate, id).
+     * Pass null for filters that do not apply and for afterDueDate/afterId on the first page.
+     * firmNamePattern is a lowercase LIKE pattern on the buyer's firm name.
+     */
+    @Query("SELECT pp FROM PendingPayment pp " +
+           "JOIN FETCH pp.buyer m " +
+           "LEFT JOIN FETCH m.address a " +
+           "WHERE pp.broker.brokerId = :brokerId " +
+           "AND pp.dueDate IS NOT NULL " +
+           "AND (:status IS NULL OR pp.status = :status) " +
+           "AND (:dueDateFrom IS NULL OR pp.dueDate >= :dueDateFrom) " +
+           "AND (:dueDateTo IS NULL OR pp.dueDate <= :dueDateTo) " +
+           "AND (:firmNamePattern IS NULL OR LOWER(m.firmName) LIKE :firmNamePattern) " +
+           "AND (:afterDueDate IS NULL OR pp.dueDate > :afterDueDate " +
+           "     OR (pp.dueDate = :afterDueDate AND pp.id > :afterId)) " +
+           "ORDER BY pp.dueDate ASC, pp.id ASC")
+    List<PendingPayment> findKeysetPageWithDueDate(@Param("brokerId") Long brokerId,
+                                                   @Param("status") PaymentStatus status,
+                                                   @Param("dueDateFrom") LocalDate dueDateFrom,
+                                                   @Param("dueDateTo") LocalDate dueDateTo,
+                                                   @Param("firmNamePattern") String firmNamePattern,
+                                                   @Param("afterDueDate") LocalDate afterDueDate,
+                                                   @Param("afterId") Long afterId,
+                                                   Pageable pageable);
+
+    /**
+     * Keyset page of the broker's pending payments without a due date, ordered by id.
+     * These follow the payments with a due date.
+     */
+    @Query("SELECT pp FROM PendingPayment pp " +
+           "JOIN FETCH pp.buyer m " +
+           "LEFT JOIN FETCH m.address a " +
+           "WHERE pp.broker.brokerId = :brokerId " +
+           "AND pp.dueDate IS NULL " +
+           "AND (:status IS NULL OR pp.status = :status) " +
+           "AND (:firmNamePattern IS NULL OR LOWER(m.firmName) LIKE :firmNamePattern) " +
+           "AND pp.id > :afterId " +
+           "ORDER BY pp.id ASC")
+    List<PendingPayment> findKeysetPageWithoutDueDate(@Param("brokerId") Long brokerId,
+                                                      @Param("status") PaymentStatus status,
+                                                      @Param("firmNamePattern") String firmNamePattern,
+                                                      @Param("afterId") Long afterId,
+                                                      Pageable pageable);
+
     /**
      * Search pending payments by buyer firm name (case-insensitive partial match)
      */
@@ -210,6 +260,7 @@ public interface PendingPaymentRepository extends JpaRepository<PendingPayment,
     /**
      * Update payment status for overdue payments
      */
+    @Modifying
     @Query("UPDATE PendingPayment pp SET pp.status = :status " +
            "WHERE pp.broker.brokerId = :brokerId " +
            "AND pp.dueDate < :currentDate " +
@@ -232,4 +283,71 @@ public interface PendingPaymentRepository extends JpaRepository<PendingPayment,
     List<PendingPayment> findCriticalPendingPayments(@Param("brokerId") Long brokerId,
                                                      @Param("criticalAmount") BigDecimal criticalAmount,
                                                      @Param("currentDate") LocalDate currentDate);
+
+    /**
+     * All pending payment rows of a broker's financial year, without joins; used by payment generation
+     */
+    List<PendingPayment> findByBrokerBrokerIdAndFinancialYearYearId(Long brokerId, Long financialYearId);
+
+    /**
+     * Keyset batch of pending payments of every broker that fell due in [dueFrom, dueBefore) and still need to be
+     * marked OVERDUE, in (dueDate, id) order so it walks idx_pending_payment_due_id: [id, brokerId, dueDate, pending amount].
+     * Start with afterDueDate = dueFrom and afterId = -1. The rows stay locked until the batch's transaction ends,
+     * so markStatus with their ids changes exactly these rows.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT pp.id, pp.broker.brokerId, pp.dueDate, pp.totalPendingAmount FROM PendingPayment pp " +
+           "WHERE pp.dueDate >= :dueFrom AND pp.dueDate < :dueBefore " +
+           "AND pp.totalPendingAmount > 0 AND pp.status <> :status " +
+           "AND (pp.dueDate > :afterDueDate OR (pp.dueDate = :afterDueDate AND pp.id > :afterId)) " +
+           "ORDER BY pp.dueDate ASC, pp.id ASC")
+    List<Object[]> findOverdueCandidates(@Param("dueFrom") LocalDate dueFrom,
+                                         @Param("dueBefore") LocalDate dueBefore,
+                                         @Param("status") PaymentStatus status,
+                                         @Param("afterDueDate") LocalDate afterDueDate,
+                                         @Param("afterId") Long afterId,
+                                         Pageable pageable);
+
+    /**
+     * Marks the given pending payments with the status, skipping any paid or already marked in the meantime
+     */
+    @Modifying
+    @Query("UPDATE PendingPayment pp SET pp.status = :status " +
+           "WHERE pp.id IN :ids AND pp.totalPendingAmount > 0 AND pp.status <> :status")
+    int markStatus(@Param("ids") List<Long> ids, @Param("status") PaymentStatus status);
+
+    /**
+     * The broker's pending payments past their due date that still need to be marked with the status, locked until the
+     * transaction ends so markStatus with their ids changes exactly these rows: [id, pending amount].
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT pp.id, pp.totalPendingAmount FROM PendingPayment pp " +
+           "WHERE pp.broker.brokerId = :brokerId AND pp.dueDate < :today " +
+           "AND pp.totalPendingAmount > 0 AND pp.status <> :status " +
+           "ORDER BY pp.id ASC")
+    List<Object[]> findBrokerOverdueCandidates(@Param("brokerId") Long brokerId,
+                                               @Param("today") LocalDate today,
+                                               @Param("status") PaymentStatus status);
+
+    /**
+     * Keyset batch of the broker's pending payments for the Excel export, in id order and as plain columns so no
+     * entities are managed: [id, firmName, ownerName, city, totalPendingAmount, transactionCount,
+     * oldestTransactionDate, dueDate, status].
+     */
+    @Query("SELECT pp.id, u.firmName, u.ownerName, a.city, pp.totalPendingAmount, pp.transactionCount, " +
+           "pp.oldestTransactionDate, pp.dueDate, pp.status " +
+           "FROM PendingPayment pp JOIN pp.buyer u LEFT JOIN u.address a " +
+           "WHERE pp.broker.brokerId = :brokerId AND pp.id > :afterId " +
+           "ORDER BY pp.id ASC")
+    List<Object[]> findExportRows(@Param("brokerId") Long brokerId,
+                                  @Param("afterId") Long afterId,
+                                  Pageable pageable);
+
+    /**
+     * Those of the given pending payments with a transaction that has been paid into, which deleting the
+     * payment would take with it
+     */
+    @Query("SELECT DISTINCT t.pendingPayment.id FROM PaymentTransaction t " +
+           "WHERE t.pendingPayment.id IN :ids AND t.paidAmount > 0")
+    List<Long> findIdsWithRecordedPayments(@Param("ids") Collection<Long> ids);
 }
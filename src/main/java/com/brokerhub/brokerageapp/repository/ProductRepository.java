@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
@@ -14,6 +15,12 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     
     List<Product> findByBrokerBrokerIdAndProductNameIgnoreCase(Long brokerId, String productName);
 
+    /**
+     * Batch lookup for ledger entry: productNames must already be lower-cased.
+     */
+    @Query("SELECT p FROM Product p WHERE p.broker.brokerId = :brokerId AND LOWER(p.productName) IN :productNames ORDER BY p.productId")
+    List<Product> findByBrokerIdAndProductNamesIgnoreCase(@Param("brokerId") Long brokerId, @Param("productNames") Collection<String> productNames);
+
     List<Product> findByBrokerBrokerIdAndProductNameAndQualityAndQuantity(Long brokerId, String productName, String productQuality, Integer quantity);
 
     List<Product> findByBrokerBrokerId(Long brokerId);
@@ -2,13 +2,18 @@ package com.brokerhub.brokerageapp.repository;
 
 import com.brokerhub.brokerageapp.entity.ReceivablePayment;
 import com.brokerhub.brokerageapp.entity.PaymentStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +36,51 @@ public interface ReceivablePaymentRepository extends JpaRepository<ReceivablePay
            "ORDER BY rp.dueDate ASC, rp.totalReceivableAmount DESC")
     List<ReceivablePayment> findByBrokerIdWithDetails(@Param("brokerId") Long brokerId);
 
+    /**
+     * Keyset page of the broker's receivable payments that have a due date, ordered by (dueDate, id).
+     * Pass null for filters that do not apply and for afterDueDate/afterId on the first page.
+     * firmNamePattern is a lowercase LIKE pattern on the seller's firm name.
+     */
+    @Query("SELECT rp FROM ReceivablePayment rp " +
+           "JOIN FETCH rp.seller m " +
+           "LEFT JOIN FETCH m.address a " +
+           "WHERE rp.broker.brokerId = :brokerId " +
+           "AND rp.dueDate IS NOT NULL " +
+           "AND (:status IS NULL OR rp.status = :status) " +
+           "AND (:dueDateFrom IS NULL OR rp.dueDate >= :dueDateFrom) " +
+           "AND (:dueDateTo IS NULL OR rp.dueDate <= :dueDateTo) " +
+           "AND (:firmNamePattern IS NULL OR LOWER(m.firmName) LIKE :firmNamePattern) " +
+           "AND (:afterDueDate IS NULL OR rp.dueDate > :afterDueDate " +
+           "     OR (rp.dueDate = :afterDueDate AND rp.id > :afterId)) " +
+           "ORDER BY rp.dueDate ASC, rp.id ASC")
+    List<ReceivablePayment> findKeysetPageWithDueDate(@Param("brokerId") Long brokerId,
+                                                      @Param("status") PaymentStatus status,
+                                                      @Param("dueDateFrom") LocalDate dueDateFrom,
+                                                      @Param("dueDateTo") LocalDate dueDateTo,
+                                                      @Param("firmNamePattern") String firmNamePattern,
+                                                      @Param("afterDueDate") LocalDate afterDueDate,
+                                                      @Param("afterId") Long afterId,
+                                                      Pageable pageable);
+
+    /**
+     * Keyset page of the broker's receivable payments without a due date, ordered by id.
+     * These follow the payments with a due date.
+     */
+    @Query("SELECT rp FROM ReceivablePayment rp " +
+           "JOIN FETCH rp.seller m " +
+           "LEFT JOIN FETCH m.address a " +
+           "WHERE rp.broker.brokerId = :brokerId " +
+           "AND rp.dueDate IS NULL " +
+           "AND (:status IS NULL OR rp.status = :status) " +
+           "AND (:firmNamePattern IS NULL OR LOWER(m.firmName) LIKE :firmNamePattern) " +
+           "AND rp.id > :afterId " +
+           "ORDER BY rp.id ASC")
+    List<ReceivablePayment> findKeysetPageWithoutDueDate(@Param("brokerId") Long brokerId,
+                                                         @Param("status") PaymentStatus status,
+                                                         @Param("firmNamePattern") String firmNamePattern,
+                                                         @Param("afterId") Long afterId,
+                                                         Pageable pageable);
+
     /**
      * Search receivable payments by seller firm name (case-insensitive partial match)
      */
@@ -210,6 +260,7 @@ public interface ReceivablePaymentRepository extends JpaRepository<ReceivablePay
     /**
      * Update payment status for overdue payments
      */
+    @Modifying
     @Query("UPDATE ReceivablePayment rp SET rp.status = :status " +
            "WHERE rp.broker.brokerId = :brokerId " +
            "AND rp.dueDate < :currentDate " +
@@ -245,4 +296,71 @@ public interface ReceivablePaymentRepository extends JpaRepository<ReceivablePay
            "AND SIZE(rp.owedBy) > 1 " +
            "ORDER BY SIZE(rp.owedBy) DESC, rp.totalReceivableAmount DESC")
     List<ReceivablePayment> findSellersWithMultipleBuyers(@Param("brokerId") Long brokerId);
+
+    /**
+     * All receivable payment rows of a broker's financial year, without joins; used by payment generation
+     */
+    List<ReceivablePayment> findByBrokerBrokerIdAndFinancialYearYearId(Long brokerId, Long financialYearId);
+
+    /**
+     * Keyset batch of receivable payments of every broker that fell due in [dueFrom, dueBefore) and still need to be
+     * marked OVERDUE, in (dueDate, id) order so it walks idx_receivable_payment_due_id: [id, brokerId, dueDate, pending amount].
+     * Start with afterDueDate = dueFrom and afterId = -1. The rows stay locked until the batch's transaction ends,
+     * so markStatus with their ids changes exactly these rows.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT rp.id, rp.broker.brokerId, rp.dueDate, rp.totalReceivableAmount FROM ReceivablePayment rp " +
+           "WHERE rp.dueDate >= :dueFrom AND rp.dueDate < :dueBefore " +
+           "AND rp.totalReceivableAmount > 0 AND rp.status <> :status " +
+           "AND (rp.dueDate > :afterDueDate OR (rp.dueDate = :afterDueDate AND rp.id > :afterId)) " +
+           "ORDER BY rp.dueDate ASC, rp.id ASC")
+    List<Object[]> findOverdueCandidates(@Param("dueFrom") LocalDate dueFrom,
+                                         @Param("dueBefore") LocalDate dueBefore,
+                                         @Param("status") PaymentStatus status,
+                                         @Param("afterDueDate") LocalDate afterDueDate,
+                                         @Param("afterId") Long afterId,
+                                         Pageable pageable);
+
+    /**
+     * Marks the given receivable payments with the status, skipping any paid or already marked in the meantime
+     */
+    @Modifying
+    @Query("UPDATE ReceivablePayment rp SET rp.status = :status " +
+           "WHERE rp.id IN :ids AND rp.totalReceivableAmount > 0 AND rp.status <> :status")
+    int markStatus(@Param("ids") List<Long> ids, @Param("status") PaymentStatus status);
+
+    /**
+     * The broker's receivable payments past their due date that still need to be marked with the status, locked until the
+     * transaction ends so markStatus with their ids changes exactly these rows: [id, pending amount].
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT rp.id, rp.totalReceivableAmount FROM ReceivablePayment rp " +
+           "WHERE rp.broker.brokerId = :brokerId AND rp.dueDate < :today " +
+           "AND rp.totalReceivableAmount > 0 AND rp.status <> :status " +
+           "ORDER BY rp.id ASC")
+    List<Object[]> findBrokerOverdueCandidates(@Param("brokerId") Long brokerId,
+                                               @Param("today") LocalDate today,
+                                               @Param("status") PaymentStatus status);
+
+    /**
+     * Keyset batch of the broker's receivable payments for the Excel export, in id order and as plain columns so no
+     * entities are managed: [id, firmName, ownerName, city, totalReceivableAmount, transactionCount,
+     * oldestTransactionDate, dueDate, status].
+     */
+    @Query("SELECT rp.id, u.firmName, u.ownerName, a.city, rp.totalReceivableAmount, rp.transactionCount, " +
+           "rp.oldestTransactionDate, rp.dueDate, rp.status " +
+           "FROM ReceivablePayment rp JOIN rp.seller u LEFT JOIN u.address a " +
+           "WHERE rp.broker.brokerId = :brokerId AND rp.id > :afterId " +
+           "ORDER BY rp.id ASC")
+    List<Object[]> findExportRows(@Param("brokerId") Long brokerId,
+                                  @Param("afterId") Long afterId,
+                                  Pageable pageable);
+
+    /**
+     * Those of the given receivable payments with a buyer transaction that has been paid into, which deleting
+     * the payment would take with it
+     */
+    @Query("SELECT DISTINCT rt.receivablePayment.id FROM PaymentTransaction t JOIN t.receivableTransaction rt " +
+           "WHERE rt.receivablePayment.id IN :ids AND t.paidAmount > 0")
+    List<Long> findIdsWithRecordedPayments(@Param("ids") Collection<Long> ids);
 }
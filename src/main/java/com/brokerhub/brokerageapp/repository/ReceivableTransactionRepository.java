@@ -0,0 +1,30 @@
+package com.brokerhub.brokerageapp.repository;
+
+import com.brokerhub.brokerageapp.entity.ReceivableTransaction;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for ReceivableTransaction entity.
+ */
+@Repository
+public interface ReceivableTransactionRepository extends JpaRepository<ReceivableTransaction, Long> {
+
+    /**
+     * All buyer rows under a broker's receivable payments of one financial year
+     */
+    List<ReceivableTransaction> findByReceivablePaymentBrokerBrokerIdAndReceivablePaymentFinancialYearYearId(Long brokerId, Long financialYearId);
+
+    /**
+     * Those of the given buyer rows with a transaction that has been paid into, which deleting the row would
+     * take with it
+     */
+    @Query("SELECT DISTINCT t.receivableTransaction.id FROM PaymentTransaction t " +
+           "WHERE t.receivableTransaction.id IN :ids AND t.paidAmount > 0")
+    List<Long> findIdsWithRecordedPayments(@Param("ids") Collection<Long> ids);
+}
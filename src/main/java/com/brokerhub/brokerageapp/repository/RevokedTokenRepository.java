@@ -0,0 +1,29 @@
+package com.brokerhub.brokerageapp.repository;
+
+import com.brokerhub.brokerageapp.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    /**
+     * Revocations that still apply, to load on startup
+     */
+    List<RevokedToken> findByExpiresAtAfter(Instant now);
+
+    /**
+     * Revocations recorded since the last sync, on any node
+     */
+    List<RevokedToken> findByRevokedAtGreaterThanEqualAndExpiresAtAfter(Instant since, Instant now);
+
+    @Modifying
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,33 @@
+package com.brokerhub.brokerageapp.repository;
+
+import com.brokerhub.brokerageapp.entity.SweepWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface SweepWatermarkRepository extends JpaRepository<SweepWatermark, String> {
+
+    /**
+     * Claims the sweep for the caller unless another run holds a claim made after expiredBefore
+     *
+     * @return 1 when the caller now runs the sweep
+     */
+    @Modifying
+    @Query("UPDATE SweepWatermark w SET w.runningSince = :now, w.version = w.version + 1 " +
+           "WHERE w.sweepName = :sweepName AND (w.runningSince IS NULL OR w.runningSince < :expiredBefore)")
+    int claim(@Param("sweepName") String sweepName, @Param("now") LocalDateTime now,
+              @Param("expiredBefore") LocalDateTime expiredBefore);
+
+    /**
+     * Drops the caller's claim after a failed run; a claim another node has taken over since is left alone
+     */
+    @Modifying
+    @Query("UPDATE SweepWatermark w SET w.runningSince = NULL, w.version = w.version + 1 " +
+           "WHERE w.sweepName = :sweepName AND w.runningSince = :claimedAt")
+    int release(@Param("sweepName") String sweepName, @Param("claimedAt") LocalDateTime claimedAt);
+}
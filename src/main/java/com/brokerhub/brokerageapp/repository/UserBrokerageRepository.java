@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import com.brokerhub.brokerageapp.entity.LedgerRecord;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface UserBrokerageRepository extends JpaRepository<LedgerRecord, Long> {
@@ -91,4 +92,26 @@ public interface UserBrokerageRepository extends JpaRepository<LedgerRecord, Lon
            "GROUP BY CASE WHEN lr.toBuyer.userId = :userId THEN sellerAddr.city ELSE buyerAddr.city END " +
            "ORDER BY cityName")
     List<Object[]> getUserCityWiseBagDistribution(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId, @Param("userId") Long userId);
-}
\ No newline at end of file
+    
+    /**
+     * One row per ledger record in which any of the given users is the seller or the buyer.
+     * Columns: transactionNumber, date, sellerId, sellerFirm, sellerCity, buyerId, buyerFirm, buyerCity,
+     * productName, productCost, quantity, totalBrokerage, totalProductsCost.
+     * The city is null when that merchant has no address.
+     */
+    @Query("SELECT ld.brokerTransactionNumber, dl.date, fs.userId, fs.firmName, sellerAddr.city, " +
+           "tb.userId, tb.firmName, buyerAddr.city, p.productName, lr.productCost, lr.quantity, " +
+           "lr.totalBrokerage, lr.totalProductsCost " +
+           "FROM LedgerRecord lr " +
+           "JOIN lr.ledgerDetails ld " +
+           "LEFT JOIN ld.dailyLedger dl " +
+           "JOIN ld.fromSeller fs " +
+           "LEFT JOIN fs.address sellerAddr " +
+           "JOIN lr.toBuyer tb " +
+           "LEFT JOIN tb.address buyerAddr " +
+           "LEFT JOIN lr.product p " +
+           "WHERE lr.broker.brokerId = :brokerId AND ld.financialYearId = :financialYearId " +
+           "AND (tb.userId IN :userIds OR fs.userId IN :userIds) " +
+           "ORDER BY ld.brokerTransactionNumber")
+    List<Object[]> getTransactionRowsForUsers(@Param("brokerId") Long brokerId, @Param("financialYearId") Long financialYearId, @Param("userIds") Collection<Long> userIds);
+}
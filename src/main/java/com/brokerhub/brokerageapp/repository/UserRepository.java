@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +18,12 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     Optional<User> findByBrokerBrokerIdAndFirmNameIgnoreCase(Long brokerId, String firmName);
 
+    /**
+     * Batch lookup for ledger entry: firmNames must already be lower-cased.
+     */
+    @Query("SELECT u FROM User u WHERE u.broker.brokerId = :brokerId AND LOWER(u.firmName) IN :firmNames")
+    List<User> findByBrokerIdAndFirmNamesIgnoreCase(@Param("brokerId") Long brokerId, @Param("firmNames") Collection<String> firmNames);
+
     Optional<User> findByBrokerBrokerIdAndGstNumber(Long brokerId, String gstNumber);
 
     List<User> findByBrokerBrokerIdAndAddressCity(Long brokerId, String city);
@@ -41,6 +48,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     @Query("SELECT u.userId, u.firmName, u.address.city, u.brokerageRate FROM User u WHERE u.broker.brokerId = :brokerId")
     List<Object[]> findUserIdsAndFirmNamesAndCitiesByBrokerId(@Param("brokerId") Long brokerId);
+
+    @Query("SELECT u.userId, u.firmName, u.ownerName, a.city FROM User u LEFT JOIN u.address a " +
+           "WHERE u.broker.brokerId = :brokerId AND u.userId IN :userIds")
+    List<Object[]> findBasicInfoByBrokerIdAndUserIds(@Param("brokerId") Long brokerId, @Param("userIds") Collection<Long> userIds);
     
     @Query(value = "SELECT DISTINCT u.* FROM User u " +
            "WHERE u.broker_id = :brokerId AND (" +
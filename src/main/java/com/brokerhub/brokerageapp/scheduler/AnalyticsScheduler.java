@@ -1,29 +1,112 @@
 package com.brokerhub.brokerageapp.scheduler;
 
-import com.brokerhub.brokerageapp.service.DashboardService;
+import com.brokerhub.brokerageapp.dto.BrokerageAggregateVerificationDTO;
+import com.brokerhub.brokerageapp.service.AnalyticsCacheWarmer;
+import com.brokerhub.brokerageapp.service.DashboardRollupService;
+import com.brokerhub.brokerageapp.service.MerchantBrokerageAggregateService;
+import com.brokerhub.brokerageapp.service.PaymentTrendService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 @Slf4j
 public class AnalyticsScheduler {
 
     @Autowired
-    private DashboardService dashboardService;
+    private MerchantBrokerageAggregateService merchantBrokerageAggregateService;
+
+    @Autowired
+    private DashboardRollupService dashboardRollupService;
+
+    @Autowired
+    private AnalyticsCacheWarmer analyticsCacheWarmer;
+
+    @Autowired
+    private PaymentTrendService paymentTrendService;
 
     /**
-     * Refresh analytics cache daily at 2 AM
+     * Recompute every broker's dashboard entries for its current financial year nightly, replacing the cached
+     * values in place instead of evicting them
      */
-    @Scheduled(cron = "0 0 2 * * ?")
+    @Scheduled(cron = "${app.cache.warming.cron:0 0 2 * * ?}")
     public void refreshAnalyticsCache() {
-        log.info("Starting scheduled analytics cache refresh");
+        log.info("Starting scheduled analytics cache warming");
         try {
-            dashboardService.refreshAllAnalyticsCache();
-            log.info("Analytics cache refresh completed successfully");
+            int scheduled = analyticsCacheWarmer.warmAll();
+            log.info("Analytics cache warming queued for {} brokers", scheduled);
         } catch (Exception e) {
-            log.error("Error during analytics cache refresh", e);
+            log.error("Error during analytics cache warming", e);
+        }
+    }
+
+    /**
+     * Verify the brokerage aggregate against the raw ledger nightly and rebuild any broker/year that drifted
+     */
+    @Scheduled(cron = "${app.brokerage-aggregate.verify-cron:0 30 2 * * ?}")
+    public void verifyBrokerageAggregates() {
+        log.info("Starting scheduled brokerage aggregate verification");
+        int repaired = 0;
+        for (List<Long> brokerFinancialYear : merchantBrokerageAggregateService.findBrokerFinancialYears()) {
+            try {
+                BrokerageAggregateVerificationDTO result = merchantBrokerageAggregateService.verify(
+                        brokerFinancialYear.get(0), brokerFinancialYear.get(1), true);
+                if (result.isRebuilt()) {
+                    repaired++;
+                    log.warn("Rebuilt brokerage aggregate for broker {} FY {} ({} mismatched rows): {}",
+                            result.getBrokerId(), result.getFinancialYearId(), result.getMismatchedRows(), result.getMismatches());
+                }
+            } catch (Exception e) {
+                log.error("Error verifying brokerage aggregate for broker {} FY {}",
+                        brokerFinancialYear.get(0), brokerFinancialYear.get(1), e);
+            }
+        }
+        log.info("Brokerage aggregate verification completed, {} broker financial years rebuilt", repaired);
+    }
+
+    /**
+     * Reconcile the dashboard rollup with the raw ledger nightly
+     */
+    @Scheduled(cron = "${app.dashboard-rollup.verify-cron:0 45 2 * * ?}")
+    public void verifyDashboardRollups() {
+        log.info("Starting scheduled dashboard rollup verification");
+        int repaired = 0;
+        for (List<Long> brokerFinancialYear : dashboardRollupService.findBrokerFinancialYears()) {
+            try {
+                BrokerageAggregateVerificationDTO result = dashboardRollupService.verify(
+                        brokerFinancialYear.get(0), brokerFinancialYear.get(1), true);
+                if (result.isRebuilt()) {
+                    repaired++;
+                    analyticsCacheWarmer.refreshAhead(result.getBrokerId(), result.getFinancialYearId());
+                    log.warn("Rebuilt dashboard rollup for broker {} FY {} ({} mismatched rows): {}",
+                            result.getBrokerId(), result.getFinancialYearId(), result.getMismatchedRows(), result.getMismatches());
+                }
+            } catch (Exception e) {
+                log.error("Error verifying dashboard rollup for broker {} FY {}",
+                        brokerFinancialYear.get(0), brokerFinancialYear.get(1), e);
+            }
+        }
+        log.info("Dashboard rollup verification completed, {} broker financial years rebuilt", repaired);
+    }
+
+    /**
+     * Rebuild the last days of every active broker's payment trend buckets nightly. Payment transactions only
+     * reach the buckets this way; it also repairs deltas lost to part payments changed outside addPartPayment.
+     */
+    @Scheduled(cron = "${app.payments.trends.reconcile-cron:0 0 3 * * ?}")
+    public void reconcilePaymentTrends() {
+        log.info("Starting scheduled payment trend reconciliation");
+        int corrected = 0;
+        for (Long brokerId : paymentTrendService.findBrokersToReconcile()) {
+            try {
+                corrected += paymentTrendService.reconcileRecent(brokerId);
+            } catch (Exception e) {
+                log.error("Error reconciling payment trends for broker {}", brokerId, e);
+            }
         }
+        log.info("Payment trend reconciliation completed, {} buckets corrected", corrected);
     }
 }
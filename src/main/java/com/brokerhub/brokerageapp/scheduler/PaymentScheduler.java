@@ -0,0 +1,35 @@
+package com.brokerhub.brokerageapp.scheduler;
+
+import com.brokerhub.brokerageapp.dto.payments.OverdueSweepResultDTO;
+import com.brokerhub.brokerageapp.service.OverdueSweepService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class PaymentScheduler {
+
+    @Autowired
+    private OverdueSweepService overdueSweepService;
+
+    /**
+     * Mark the payments of every broker that passed their due date since the previous sweep as OVERDUE
+     */
+    @Scheduled(cron = "${app.payments.overdue-sweep.cron:0 5 0 * * ?}")
+    public void sweepOverduePayments() {
+        log.info("Starting scheduled overdue payment sweep");
+        try {
+            OverdueSweepResultDTO result = overdueSweepService.sweep();
+            if (result != null) {
+                log.info("Overdue sweep of due dates {} to {} marked {} brokerage, {} pending and {} receivable payments "
+                                + "overdue across {} brokers", result.getDueFrom(), result.getDueBefore().minusDays(1),
+                        result.getBrokeragePayments(), result.getPendingPayments(), result.getReceivablePayments(),
+                        result.getBrokersAffected());
+            }
+        } catch (Exception e) {
+            log.error("Error during overdue payment sweep", e);
+        }
+    }
+}
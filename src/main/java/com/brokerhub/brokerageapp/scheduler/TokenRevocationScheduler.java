@@ -0,0 +1,44 @@
+package com.brokerhub.brokerageapp.scheduler;
+
+import com.brokerhub.brokerageapp.security.TokenRevocationList;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class TokenRevocationScheduler {
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    /**
+     * Pick up the logouts and password changes handled by other nodes
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.sync-interval:10000}")
+    public void syncRevocations() {
+        try {
+            int revocations = tokenRevocationList.sync();
+            if (revocations > 0) {
+                log.debug("Synced {} token revocations", revocations);
+            }
+        } catch (Exception e) {
+            // The next sync reads from the same point again
+            log.warn("Error syncing token revocations", e);
+        }
+    }
+
+    /**
+     * Delete the revocations of tokens that have expired anyway
+     */
+    @Scheduled(cron = "${app.jwt.revocation.purge-cron:0 15 * * * ?}")
+    public void purgeExpiredRevocations() {
+        try {
+            int purged = tokenRevocationList.purgeExpired();
+            log.info("Purged {} expired token revocations", purged);
+        } catch (Exception e) {
+            log.error("Error purging expired token revocations", e);
+        }
+    }
+}
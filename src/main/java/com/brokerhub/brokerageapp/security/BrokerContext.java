@@ -0,0 +1,21 @@
+package com.brokerhub.brokerageapp.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The authenticated broker of the current request, resolved once by {@link JwtAuthenticationFilter}.
+ * Immutable and detached from the persistence context, so it can be cached and shared across requests.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+@ToString
+public class BrokerContext {
+    private final Long brokerId;
+    private final String userName;
+    private final String brokerName;
+    private final String brokerageFirmName;
+}
@@ -0,0 +1,26 @@
+package com.brokerhub.brokerageapp.security;
+
+/**
+ * Holds the {@link BrokerContext} for the request being processed on the current thread.
+ * Set and cleared by {@link JwtAuthenticationFilter}; code running outside a request
+ * (schedulers, async tasks) sees null and resolves the broker through the cache instead.
+ */
+public final class BrokerContextHolder {
+
+    private static final ThreadLocal<BrokerContext> CONTEXT = new ThreadLocal<>();
+
+    private BrokerContextHolder() {
+    }
+
+    public static BrokerContext get() {
+        return CONTEXT.get();
+    }
+
+    public static void set(BrokerContext context) {
+        CONTEXT.set(context);
+    }
+
+    public static void clear() {
+        CONTEXT.remove();
+    }
+}
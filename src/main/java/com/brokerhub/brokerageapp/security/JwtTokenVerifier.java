@@ -0,0 +1,153 @@
+package com.brokerhub.brokerageapp.security;
+
+import com.brokerhub.brokerageapp.service.BrokerContextCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns a bearer token into the broker it authenticates without touching the database.
+ * The signature is checked once per token; repeat requests with the same token are answered from a
+ * small cache whose entries expire with the token. Revocation is checked on every request.
+ */
+@Component
+@Slf4j
+public class JwtTokenVerifier {
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    private BrokerContextCache brokerContextCache;
+
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    public JwtTokenVerifier(@Value("${app.jwt.verified-cache.max-size:10000}") long maxSize) {
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String token, VerifiedToken verified, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(
+                                Math.max(0, verified.getExpiresAt().getTime() - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+                        return expireAfterCreate(token, verified, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * @return the verified token, or null when it is malformed, badly signed, expired or revoked
+     */
+    public VerifiedToken verify(String token) {
+        VerifiedToken verified = verifiedTokens.getIfPresent(token);
+        if (verified == null) {
+            verified = parse(token);
+            if (verified == null) {
+                return null;
+            }
+            verifiedTokens.put(token, verified);
+        }
+        if (!verified.getExpiresAt().after(new Date())
+                || tokenRevocationList.isRevoked(verified.getTokenId(), verified.getContext().getUserName(), verified.getIssuedAt())) {
+            return null;
+        }
+        return verified;
+    }
+
+    /**
+     * Revokes the token, here at once and on the other nodes at their next revocation sync, and drops it from
+     * the verified cache.
+     */
+    public void revoke(String token) {
+        VerifiedToken verified = verify(token);
+        if (verified != null) {
+            tokenRevocationList.revoke(verified.getTokenId(), verified.getExpiresAt());
+        }
+        verifiedTokens.invalidate(token);
+    }
+
+    private VerifiedToken parse(String token) {
+        Claims claims;
+        try {
+            claims = jwtUtil.parseClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Rejected bearer token: {}", e.getMessage());
+            return null;
+        }
+        if (claims.getSubject() == null || claims.getExpiration() == null) {
+            return null;
+        }
+        BrokerContext context;
+        try {
+            context = toContext(claims);
+        } catch (RuntimeException e) {
+            log.debug("Rejected bearer token of unknown broker {}", claims.getSubject());
+            return null;
+        }
+        return new VerifiedToken(claims.getId(), context, toAuthorities(claims),
+                claims.getIssuedAt(), claims.getExpiration());
+    }
+
+    private BrokerContext toContext(Claims claims) {
+        Long brokerId = claims.get(JwtUtil.BROKER_ID_CLAIM, Long.class);
+        String firmName = claims.get(JwtUtil.FIRM_NAME_CLAIM, String.class);
+        if (brokerId == null || firmName == null) {
+            // Issued before the broker details were embedded; resolved once through the broker cache
+            return brokerContextCache.get(claims.getSubject());
+        }
+        return BrokerContext.builder()
+                .brokerId(brokerId)
+                .userName(claims.getSubject())
+                .brokerName(claims.get(JwtUtil.BROKER_NAME_CLAIM, String.class))
+                .brokerageFirmName(firmName)
+                .build();
+    }
+
+    private List<GrantedAuthority> toAuthorities(Claims claims) {
+        Object authorities = claims.get(JwtUtil.AUTHORITIES_CLAIM);
+        if (!(authorities instanceof Collection<?>)) {
+            return List.of();
+        }
+        return ((Collection<?>) authorities).stream()
+                .map(authority -> (GrantedAuthority) new SimpleGrantedAuthority(String.valueOf(authority)))
+                .toList();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class VerifiedToken {
+        private final String tokenId;
+        private final BrokerContext context;
+        private final List<GrantedAuthority> authorities;
+        private final Date issuedAt;
+        private final Date expiresAt;
+    }
+}
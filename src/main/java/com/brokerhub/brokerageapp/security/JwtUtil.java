@@ -2,65 +2,95 @@ package com.brokerhub.brokerageapp.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 
 @Component
 public class JwtUtil {
 
+    public static final String BROKER_ID_CLAIM = "brokerId";
+    public static final String BROKER_NAME_CLAIM = "brokerName";
+    public static final String FIRM_NAME_CLAIM = "firmName";
+    public static final String AUTHORITIES_CLAIM = "authorities";
+
     @Value("${app.jwt.secret:mySecretKey123456789012345678901234567890}")
     private String jwtSecret;
 
     @Value("${app.jwt.expiration:86400000}")
     private long jwtExpiration;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    private SecretKey signingKey;
+
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
+    public long getExpiration() {
+        return jwtExpiration;
     }
 
     public String generateToken(String username, Long brokerId) {
+        return generateToken(BrokerContext.builder().userName(username).brokerId(brokerId).build(), List.of());
+    }
+
+    /**
+     * Carries everything the request filter needs to authenticate without loading the broker:
+     * its id, name and firm, the granted authorities, and a token id for revocation.
+     */
+    public String generateToken(BrokerContext broker, Collection<String> authorities) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpiration);
 
         return Jwts.builder()
-                .setSubject(username)
-                .claim("brokerId", brokerId)
+                .setId(UUID.randomUUID().toString())
+                .setSubject(broker.getUserName())
+                .claim(BROKER_ID_CLAIM, broker.getBrokerId())
+                .claim(BROKER_NAME_CLAIM, broker.getBrokerName())
+                .claim(FIRM_NAME_CLAIM, broker.getBrokerageFirmName())
+                .claim(AUTHORITIES_CLAIM, List.copyOf(authorities))
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
+    /**
+     * Verifies the signature and expiry once and returns the claims.
+     *
+     * @throws JwtException if the token is invalid or expired
+     * @throws IllegalArgumentException if the token is empty
+     */
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
+        return parseClaims(token).getSubject();
     }
 
     public Long getBrokerIdFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.get("brokerId", Long.class);
+        return parseClaims(token).get(BROKER_ID_CLAIM, Long.class);
     }
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
+            parseClaims(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,144 @@
+package com.brokerhub.brokerageapp.security;
+
+import com.brokerhub.brokerageapp.entity.RevokedToken;
+import com.brokerhub.brokerageapp.repository.RevokedTokenRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Revoked JWTs, checked by the request filter in place of a database lookup.
+ * Single tokens are revoked by their id until they would have expired anyway; all tokens of a
+ * broker are revoked by remembering the time before which they were issued.
+ * Revocations are stored in the revoked_token table and held in memory on each node; a node applies its own
+ * revocations at once and picks up those of other nodes on the next sync
+ * ({@code app.jwt.revocation.sync-interval}), and loads all that still apply on startup.
+ */
+@Component
+@Slf4j
+public class TokenRevocationList {
+
+    // Revocations committed late or stamped by a node whose clock is behind are still picked up
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    private final Cache<String, Instant> revokedTokens = Caffeine.newBuilder()
+            .expireAfter(new Expiry<String, Instant>() {
+                @Override
+                public long expireAfterCreate(String tokenId, Instant expiresAt, long currentTime) {
+                    return Math.max(0, Duration.between(Instant.now(), expiresAt).toNanos());
+                }
+
+                @Override
+                public long expireAfterUpdate(String tokenId, Instant expiresAt, long currentTime, long currentDuration) {
+                    return expireAfterCreate(tokenId, expiresAt, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String tokenId, Instant expiresAt, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
+    private final Cache<String, Instant> revokedBefore;
+    private final Duration tokenLifetime;
+    private final RevokedTokenRepository revokedTokenRepository;
+    private volatile Instant lastSync;
+
+    public TokenRevocationList(JwtUtil jwtUtil, RevokedTokenRepository revokedTokenRepository) {
+        this.tokenLifetime = Duration.ofMillis(jwtUtil.getExpiration());
+        this.revokedTokenRepository = revokedTokenRepository;
+        // Once a full token lifetime has passed, every token issued before the cut-off has expired
+        this.revokedBefore = Caffeine.newBuilder()
+                .expireAfterWrite(tokenLifetime)
+                .build();
+    }
+
+    @PostConstruct
+    void load() {
+        Instant now = Instant.now();
+        List<RevokedToken> revocations = revokedTokenRepository.findByExpiresAtAfter(now);
+        revocations.forEach(this::apply);
+        lastSync = now;
+        log.info("Loaded {} token revocations", revocations.size());
+    }
+
+    public void revoke(String tokenId, Date expiresAt) {
+        if (tokenId != null && expiresAt != null) {
+            RevokedToken revocation = RevokedToken.builder()
+                    .tokenId(tokenId)
+                    .revokedAt(Instant.now())
+                    .expiresAt(expiresAt.toInstant())
+                    .build();
+            revokedTokenRepository.save(revocation);
+            apply(revocation);
+        }
+    }
+
+    /**
+     * Revokes every token of the broker issued up to now, e.g. after a password change or deletion.
+     */
+    public void revokeAllFor(String userName) {
+        if (userName != null) {
+            Instant now = Instant.now();
+            RevokedToken revocation = RevokedToken.builder()
+                    .userName(userName)
+                    .revokedAt(now)
+                    .expiresAt(now.plus(tokenLifetime))
+                    .build();
+            revokedTokenRepository.save(revocation);
+            apply(revocation);
+        }
+    }
+
+    public boolean isRevoked(String tokenId, String userName, Date issuedAt) {
+        if (tokenId != null && revokedTokens.getIfPresent(tokenId) != null) {
+            return true;
+        }
+        Instant cutOff = userName != null ? revokedBefore.getIfPresent(userName) : null;
+        // JWT issue times have second precision, so a token issued in the same second as the cut-off is revoked too
+        return cutOff != null && (issuedAt == null || !issuedAt.toInstant().isAfter(cutOff));
+    }
+
+    /**
+     * Applies the revocations other nodes recorded since the previous sync
+     *
+     * @return number of revocations read
+     */
+    public int sync() {
+        Instant now = Instant.now();
+        List<RevokedToken> revocations = revokedTokenRepository.findByRevokedAtGreaterThanEqualAndExpiresAtAfter(
+                lastSync != null ? lastSync.minus(SYNC_OVERLAP) : Instant.EPOCH, now);
+        revocations.forEach(this::apply);
+        lastSync = now;
+        return revocations.size();
+    }
+
+    /**
+     * Deletes the revocations whose tokens have expired
+     *
+     * @return number of rows deleted
+     */
+    @Transactional
+    public int purgeExpired() {
+        return revokedTokenRepository.deleteExpired(Instant.now());
+    }
+
+    private void apply(RevokedToken revocation) {
+        if (revocation.getTokenId() != null) {
+            revokedTokens.put(revocation.getTokenId(), revocation.getExpiresAt());
+        } else if (revocation.getUserName() != null) {
+            revokedBefore.asMap().merge(revocation.getUserName(), revocation.getRevokedAt(),
+                    (current, revokedAt) -> revokedAt.isAfter(current) ? revokedAt : current);
+        }
+    }
+}
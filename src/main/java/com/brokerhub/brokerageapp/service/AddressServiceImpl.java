@@ -102,7 +102,7 @@ public class AddressServiceImpl implements AddressService{
     public Address saveAddress(Address address) {
         // Set the broker for multi-tenant isolation if not already set
         if (address.getBroker() == null) {
-            Broker currentBroker = tenantContextService.getCurrentBroker();
+            Broker currentBroker = tenantContextService.getCurrentBrokerReference();
             address.setBroker(currentBroker);
         }
         return addressRepository.save(address);
@@ -132,7 +132,7 @@ public class AddressServiceImpl implements AddressService{
     @Override
     public ResponseEntity createAddress(Address address) {
         Long currentBrokerId = tenantContextService.getCurrentBrokerId();
-        Broker currentBroker = tenantContextService.getCurrentBroker();
+        Broker currentBroker = tenantContextService.getCurrentBrokerReference();
 
         // Check if address already exists for this broker
         Optional<Address> existingAddress = addressRepository.findByBrokerBrokerIdAndCityAndAreaAndPincode(
@@ -159,7 +159,7 @@ public class AddressServiceImpl implements AddressService{
         }
 
         // Ensure the broker is set correctly
-        address.setBroker(tenantContextService.getCurrentBroker());
+        address.setBroker(tenantContextService.getCurrentBrokerReference());
 
         addressRepository.save(address);
         return ResponseEntity.ok().body("Address updated successfully");
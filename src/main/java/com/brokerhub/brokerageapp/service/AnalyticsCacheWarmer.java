@@ -0,0 +1,169 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.entity.CurrentFinancialYear;
+import com.brokerhub.brokerageapp.repository.CurrentFinancialYearRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Keeps the dashboard entries of each broker's financial year warm: the year analytics, the top performers and
+ * the brokerage summary. Entries are recomputed on the cache executor and put over the old ones, so readers keep
+ * getting the previous values while a refresh runs instead of missing and recomputing on the request thread.
+ * At most {@code app.cache.warming.max-concurrent} refreshes query the database at a time, and a refresh that
+ * is already queued for a broker and year absorbs further requests for it.
+ */
+@Service
+@Slf4j
+public class AnalyticsCacheWarmer {
+
+    static final List<String> WARMED_CACHES = List.of("financialYearAnalytics", "topPerformers",
+            BrokerageCacheService.BROKERAGE_SUMMARY_CACHE);
+    // Served by their own endpoints only, so they are recomputed on the next read rather than warmed
+    static final List<String> EVICTED_CACHES = List.of("topBuyers", "topSellers", "topMerchants");
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private BrokerageService brokerageService;
+
+    @Autowired
+    private CurrentFinancialYearRepository currentFinancialYearRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    @Qualifier("cacheTaskExecutor")
+    private Executor cacheTaskExecutor;
+
+    @Value("${app.cache.warming.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cache.warming.max-concurrent:2}")
+    private int maxConcurrent;
+
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private Semaphore permits;
+
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(Math.max(1, maxConcurrent), true);
+        log.info("Analytics cache warming {}, {} concurrent refreshes", enabled ? "enabled" : "disabled", maxConcurrent);
+    }
+
+    /**
+     * Recomputes the entries of every broker's current financial year, or evicts just those entries when warming
+     * is disabled.
+     *
+     * @return number of refreshes queued
+     */
+    public int warmAll() {
+        int scheduled = 0;
+        for (CurrentFinancialYear current : currentFinancialYearRepository.findAll()) {
+            if (current.getBrokerId() == null || current.getFinancialYearId() == null) {
+                continue;
+            }
+            if (refreshAhead(current.getBrokerId(), current.getFinancialYearId())) {
+                scheduled++;
+            }
+        }
+        if (!enabled) {
+            log.info("Analytics cache warming disabled, evicted the current financial year entries of every broker");
+            return 0;
+        }
+        log.info("Queued analytics cache warming for {} brokers", scheduled);
+        return scheduled;
+    }
+
+    /**
+     * Refreshes the entries of the broker and year once the current transaction commits, so the refresh reads
+     * the committed ledger.
+     */
+    public void refreshAfterCommit(Long brokerId, Long financialYearId) {
+        if (brokerId == null || financialYearId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshAhead(brokerId, financialYearId);
+                }
+            });
+        } else {
+            refreshAhead(brokerId, financialYearId);
+        }
+    }
+
+    /**
+     * Queues a recompute of the broker's entries for the year, or evicts them when warming is disabled.
+     *
+     * @return false if a refresh for the same broker and year was already queued
+     */
+    public boolean refreshAhead(Long brokerId, Long financialYearId) {
+        String key = brokerId + "_" + financialYearId;
+        if (!enabled) {
+            evict(WARMED_CACHES, key);
+            evict(EVICTED_CACHES, key);
+            return false;
+        }
+        if (!queued.add(key)) {
+            log.debug("Analytics refresh for broker {} FY {} already queued", brokerId, financialYearId);
+            return false;
+        }
+        cacheTaskExecutor.execute(() -> {
+            // Dequeue before reading, so a write that commits while this runs queues another refresh
+            queued.remove(key);
+            warm(brokerId, financialYearId);
+        });
+        return true;
+    }
+
+    private void warm(Long brokerId, Long financialYearId) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted before refreshing analytics cache for broker {} FY {}", brokerId, financialYearId);
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            dashboardService.recomputeFinancialYearAnalytics(brokerId, financialYearId);
+            dashboardService.recomputeTopPerformers(brokerId, financialYearId);
+            brokerageService.refreshBrokerageSummary(brokerId, financialYearId);
+            evict(EVICTED_CACHES, brokerId + "_" + financialYearId);
+            log.debug("Refreshed analytics cache for broker {} FY {} in {} ms", brokerId, financialYearId,
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // The previous entries stay in place; the next write or the nightly run retries
+            log.warn("Failed to refresh analytics cache for broker {} FY {}, serving previous entries", brokerId, financialYearId, e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void evict(List<String> cacheNames, String key) {
+        for (String cacheName : cacheNames) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.evict(key);
+            }
+        }
+    }
+}
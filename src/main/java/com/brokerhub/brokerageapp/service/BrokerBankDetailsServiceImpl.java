@@ -48,7 +48,7 @@ public class BrokerBankDetailsServiceImpl implements BrokerBankDetailsService {
     public BrokerBankDetails saveBrokerBankDetails(BrokerBankDetails bankDetails) {
         // Set the broker for multi-tenant isolation if not already set
         if (bankDetails.getBroker() == null) {
-            Broker currentBroker = tenantContextService.getCurrentBroker();
+            Broker currentBroker = tenantContextService.getCurrentBrokerReference();
             bankDetails.setBroker(currentBroker);
         }
         return brokerBankDetailsRepository.save(bankDetails);
@@ -0,0 +1,66 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.entity.Broker;
+import com.brokerhub.brokerageapp.repository.BrokerRepository;
+import com.brokerhub.brokerageapp.security.BrokerContext;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Bounded username to {@link BrokerContext} cache, so resolving the tenant of a request does not
+ * cost a broker SELECT. Entries are evicted when a broker is updated or deleted on this node and
+ * otherwise expire after the configured TTL.
+ */
+@Service
+@Slf4j
+public class BrokerContextCache {
+
+    @Autowired
+    private BrokerRepository brokerRepository;
+
+    private final Cache<String, BrokerContext> contexts;
+
+    public BrokerContextCache(@Value("${app.tenant.broker-cache.max-size:10000}") long maxSize,
+                              @Value("${app.tenant.broker-cache.ttl:10m}") Duration ttl) {
+        this.contexts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * @throws RuntimeException if no broker exists for the username
+     */
+    public BrokerContext get(String userName) {
+        return contexts.get(userName, this::load);
+    }
+
+    public void evict(String userName) {
+        if (userName != null) {
+            contexts.invalidate(userName);
+        }
+    }
+
+    public void evictBroker(Long brokerId) {
+        contexts.asMap().values().removeIf(context -> context.getBrokerId().equals(brokerId));
+    }
+
+    private BrokerContext load(String userName) {
+        Broker broker = brokerRepository.findByUserName(userName).orElseThrow(() -> {
+            log.error("Broker not found for username: {}", userName);
+            return new RuntimeException("Broker not found for username: " + userName);
+        });
+        return BrokerContext.builder()
+                .brokerId(broker.getBrokerId())
+                .userName(broker.getUserName())
+                .brokerName(broker.getBrokerName())
+                .brokerageFirmName(broker.getBrokerageFirmName())
+                .build();
+    }
+}
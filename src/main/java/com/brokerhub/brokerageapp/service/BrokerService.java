@@ -40,6 +40,8 @@ public interface BrokerService {
 
     ResponseEntity<?> login(BrokerLoginDTO brokerLoginDTO);
 
+    ResponseEntity<String> logout(String token);
+
     String generatePasswordHash(String password);
 
     ResponseEntity<String> resetAdminPassword(String newPassword);
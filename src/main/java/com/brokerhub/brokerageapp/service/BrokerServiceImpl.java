@@ -7,6 +7,9 @@ import com.brokerhub.brokerageapp.mapper.BrokerDTOMapper;
 import com.brokerhub.brokerageapp.repository.BrokerRepository;
 import com.brokerhub.brokerageapp.repository.UserRepository;
 import com.brokerhub.brokerageapp.repository.AddressRepository;
+import com.brokerhub.brokerageapp.security.BrokerContext;
+import com.brokerhub.brokerageapp.security.JwtTokenVerifier;
+import com.brokerhub.brokerageapp.security.TokenRevocationList;
 import com.brokerhub.brokerageapp.utils.OtpUtil;
 import com.brokerhub.brokerageapp.utils.EmailUtil;
 import com.brokerhub.brokerageapp.constants.Constants;
@@ -18,6 +21,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
@@ -70,6 +74,9 @@ public class BrokerServiceImpl implements BrokerService{
     @Autowired
     RazorPayHelper razorPayHelper;
 
+    @Autowired
+    BrokerContextCache brokerContextCache;
+
     public ResponseEntity createBroker(BrokerDTO brokerDTO) throws IOException, InterruptedException {
         String brokerFirmName = brokerDTO.getBrokerageFirmName();
         String brokerEmail = brokerDTO.getEmail();
@@ -184,6 +191,7 @@ public class BrokerServiceImpl implements BrokerService{
     public ResponseEntity updateBroker(UpdateBrokerDTO updateBrokerDTO) {
         Optional<Broker> broker = brokerRepository.findById(updateBrokerDTO.getBrokerId());
         if(broker.isPresent()){
+            brokerContextCache.evict(broker.get().getUserName());
             broker.get().setBrokerName(updateBrokerDTO.getBrokerName());
             broker.get().setTotalBrokerage(updateBrokerDTO.getTotalBrokerage());
             broker.get().setEmail(updateBrokerDTO.getEmail());
@@ -197,9 +205,11 @@ public class BrokerServiceImpl implements BrokerService{
     }
 
     public ResponseEntity deleteBroker(Long brokerId) {
-        Boolean brokerExists = brokerRepository.findById(brokerId).isPresent();
-        if(brokerExists){
+        Optional<Broker> broker = brokerRepository.findById(brokerId);
+        if(broker.isPresent()){
             brokerRepository.deleteById(brokerId);
+            brokerContextCache.evictBroker(brokerId);
+            tokenRevocationList.revokeAllFor(broker.get().getUserName());
             return ResponseEntity.status(HttpStatus.OK).body("Deleted successfully");
         }
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body("no broker exists");
@@ -324,6 +334,7 @@ public class BrokerServiceImpl implements BrokerService{
         if(isPasswordCorrect){
                 broker.setPassword(passwordEncoder.encode(newPassword));
                 brokerRepository.save(broker);
+                tokenRevocationList.revokeAllFor(broker.getUserName());
                return  ResponseEntity.status(HttpStatus.CREATED).body("Password changed successfully");
         }
         else{
@@ -337,12 +348,24 @@ public class BrokerServiceImpl implements BrokerService{
         String newPassword = createPasswordDTO.getPassword();
         broker.setPassword(passwordEncoder.encode(newPassword));
         brokerRepository.save(broker);
+        tokenRevocationList.revokeAllFor(broker.getUserName());
         return ResponseEntity.status(HttpStatus.CREATED).body("Password created");
     }
 
     @Autowired
     private com.brokerhub.brokerageapp.security.JwtUtil jwtUtil;
 
+    @Autowired
+    private JwtTokenVerifier jwtTokenVerifier;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    public ResponseEntity<String> logout(String token) {
+        jwtTokenVerifier.revoke(token);
+        return ResponseEntity.ok("Logged out successfully");
+    }
+
     @Autowired
     private org.springframework.security.authentication.AuthenticationManager authenticationManager;
 
@@ -360,8 +383,16 @@ public class BrokerServiceImpl implements BrokerService{
             Broker broker = brokerRepository.findByUserName(brokerLoginDTO.getUserName())
                 .orElseThrow(() -> new RuntimeException("Broker not found"));
 
-            // Generate JWT token
-            String token = jwtUtil.generateToken(broker.getUserName(), broker.getBrokerId());
+            // Generate JWT token carrying what the request filter needs, so it never loads the broker
+            BrokerContext brokerContext = BrokerContext.builder()
+                .brokerId(broker.getBrokerId())
+                .userName(broker.getUserName())
+                .brokerName(broker.getBrokerName())
+                .brokerageFirmName(broker.getBrokerageFirmName())
+                .build();
+            String token = jwtUtil.generateToken(brokerContext, authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList());
 
             // Create response
             AuthResponseDTO response = AuthResponseDTO.builder()
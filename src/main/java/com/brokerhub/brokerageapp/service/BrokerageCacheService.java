@@ -1,42 +1,195 @@
 package com.brokerhub.brokerageapp.service;
 
+import com.brokerhub.brokerageapp.config.InstrumentedCacheManager;
+import com.brokerhub.brokerageapp.config.ScopedCacheEviction;
+import com.brokerhub.brokerageapp.entity.User;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Owns the brokerage cache keys and their invalidation.
+ * Every brokerage key starts with "{brokerId}_{financialYearId}", so a ledger write only evicts the
+ * entries of its own broker and year: the year totals plus the users and cities it touched.
+ * The key methods are used from @Cacheable SpEL as {@code @brokerageCacheService.scopeKey(...)}.
+ */
 @Service
 @Slf4j
 public class BrokerageCacheService {
-    
+
+    public static final String TOTAL_BROKERAGE_CACHE = "totalBrokerage";
+    public static final String BROKERAGE_SUMMARY_CACHE = "brokerageSummary";
+    public static final String USER_BROKERAGE_CACHE = "userBrokerage";
+    public static final String CITY_BROKERAGE_CACHE = "cityBrokerage";
+    public static final String USER_BROKERAGE_DETAIL_CACHE = "userBrokerageDetail";
+    public static final String BROKERAGE_QUERY_CACHE = "brokerageQuery";
+
+    private static final List<String> SCOPED_CACHES = List.of(TOTAL_BROKERAGE_CACHE, BROKERAGE_SUMMARY_CACHE,
+            USER_BROKERAGE_CACHE, CITY_BROKERAGE_CACHE, USER_BROKERAGE_DETAIL_CACHE);
+    private static final List<String> QUERY_KEY_TYPES = List.of("total", "citywise", "productwise");
+
     @Autowired
     private TenantContextService tenantContextService;
-    
-    @CacheEvict(value = {"totalBrokerage", "brokerageSummary", "userBrokerage", "cityBrokerage", "userBrokerageDetail", "brokerageQuery"}, 
-                allEntries = true)
+
+    @Autowired
+    private CurrentFinancialYearService currentFinancialYearService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    public String scopeKey(Long financialYearId) {
+        Long brokerId = tenantContextService.getCurrentBrokerId();
+        return scopeKey(brokerId, resolveFinancialYear(brokerId, financialYearId));
+    }
+
+    public String userKey(Long userId, Long financialYearId) {
+        return scopeKey(financialYearId) + "_user_" + userId;
+    }
+
+    public String cityKey(String city, Long financialYearId) {
+        return scopeKey(financialYearId) + "_city_" + normalizeCity(city);
+    }
+
+    /**
+     * Evicts exactly what a ledger write can change. Runs after commit when called inside a transaction,
+     * so a concurrent read cannot put the pre-commit values back.
+     * The year summary is left in place: {@link AnalyticsCacheWarmer#refreshAfterCommit} replaces it, and
+     * evicts it itself when warming is disabled.
+     */
+    public void evictLedgerChange(Long brokerId, Long financialYearId, Collection<User> touchedUsers) {
+        String scope = scopeKey(brokerId, financialYearId);
+        Set<Long> userIds = new LinkedHashSet<>();
+        Set<String> cities = new LinkedHashSet<>();
+        for (User user : touchedUsers) {
+            if (user == null) {
+                continue;
+            }
+            userIds.add(user.getUserId());
+            if (user.getAddress() != null && user.getAddress().getCity() != null) {
+                cities.add(normalizeCity(user.getAddress().getCity()));
+            }
+        }
+
+        afterCommit(() -> {
+            evictYearQueries(brokerId, financialYearId);
+            for (Long userId : userIds) {
+                evict(USER_BROKERAGE_CACHE, scope + "_user_" + userId);
+                evict(USER_BROKERAGE_DETAIL_CACHE, scope + "_user_" + userId);
+            }
+            for (String city : cities) {
+                evict(CITY_BROKERAGE_CACHE, scope + "_city_" + city);
+            }
+            log.debug("Evicted brokerage cache for broker {} year {}: users {}, cities {}", brokerId, financialYearId, userIds, cities);
+        });
+    }
+
+    /**
+     * Evicts every brokerage entry of the current broker in one financial year, e.g. after an aggregate rebuild.
+     */
     public void evictBrokerageCache(Long financialYearId) {
         Long brokerId = tenantContextService.getCurrentBrokerId();
-        log.info("Evicted all brokerage cache for broker {} and financial year {}", brokerId, financialYearId);
+        String scope = scopeKey(brokerId, financialYearId);
+        afterCommit(() -> {
+            evictYearTotals(brokerId, financialYearId);
+            evictMatching(USER_BROKERAGE_CACHE, scope + "_*");
+            evictMatching(USER_BROKERAGE_DETAIL_CACHE, scope + "_*");
+            evictMatching(CITY_BROKERAGE_CACHE, scope + "_*");
+        });
+        log.info("Evicted brokerage cache for broker {} and financial year {}", brokerId, financialYearId);
     }
-    
-    @CacheEvict(value = {"userBrokerage", "userBrokerageDetail"}, 
-                allEntries = true)
+
     public void evictUserBrokerageCache(Long userId) {
         Long brokerId = tenantContextService.getCurrentBrokerId();
+        evictMatching(USER_BROKERAGE_CACHE, brokerId + "_*_user_" + userId);
+        evictMatching(USER_BROKERAGE_DETAIL_CACHE, brokerId + "_*_user_" + userId);
         log.info("Evicted user brokerage cache for broker {} and user {}", brokerId, userId);
     }
-    
-    @CacheEvict(value = "cityBrokerage", 
-                allEntries = true)
+
     public void evictCityBrokerageCache(String city) {
         Long brokerId = tenantContextService.getCurrentBrokerId();
+        evictMatching(CITY_BROKERAGE_CACHE, brokerId + "_*_city_" + normalizeCity(city));
         log.info("Evicted city brokerage cache for broker {} and city {}", brokerId, city);
     }
-    
-    @CacheEvict(value = {"totalBrokerage", "brokerageSummary", "userBrokerage", "cityBrokerage", "userBrokerageDetail", "brokerageQuery"}, 
-                allEntries = true)
+
+    /**
+     * Evicts every brokerage entry of the current broker across all financial years; other brokers keep theirs.
+     */
     public void evictAllBrokerageCache() {
         Long brokerId = tenantContextService.getCurrentBrokerId();
+        for (String cacheName : SCOPED_CACHES) {
+            evictMatching(cacheName, brokerId + "_*");
+        }
+        for (String type : QUERY_KEY_TYPES) {
+            evictMatching(BROKERAGE_QUERY_CACHE, type + "_" + brokerId + "_*");
+        }
         log.info("Evicted all brokerage cache for broker {}", brokerId);
     }
-}
\ No newline at end of file
+
+    private void evictYearTotals(Long brokerId, Long financialYearId) {
+        evictYearQueries(brokerId, financialYearId);
+        evict(BROKERAGE_SUMMARY_CACHE, scopeKey(brokerId, financialYearId));
+    }
+
+    private void evictYearQueries(Long brokerId, Long financialYearId) {
+        String scope = scopeKey(brokerId, financialYearId);
+        evict(TOTAL_BROKERAGE_CACHE, scope);
+        // BrokerageRepository keys its query results as "{type}_{brokerId}_{financialYearId}"
+        for (String type : QUERY_KEY_TYPES) {
+            evict(BROKERAGE_QUERY_CACHE, type + "_" + scope);
+        }
+    }
+
+    private String scopeKey(Long brokerId, Long financialYearId) {
+        return brokerId + "_" + financialYearId;
+    }
+
+    private Long resolveFinancialYear(Long brokerId, Long financialYearId) {
+        return financialYearId != null ? financialYearId : currentFinancialYearService.getCurrentFinancialYearId(brokerId);
+    }
+
+    private String normalizeCity(String city) {
+        return city == null ? "" : city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+
+    private void evict(String cacheName, String key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+
+    private void evictMatching(String cacheName, String glob) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return;
+        }
+        if (!ScopedCacheEviction.evictMatching(cache, glob)) {
+            log.warn("Cache {} of type {} does not support scoped eviction, clearing it", cacheName,
+                    InstrumentedCacheManager.unwrap(cache).getClass().getSimpleName());
+            cache.clear();
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package com.brokerhub.brokerageapp.service;
 
+import com.brokerhub.brokerageapp.dto.BrokerageAggregateVerificationDTO;
 import com.brokerhub.brokerageapp.dto.BrokerageSummaryDTO;
+import com.brokerhub.brokerageapp.dto.BulkBillGenerationResultDTO;
 import com.brokerhub.brokerageapp.dto.UserBrokerageDetailDTO;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface BrokerageService {
     
@@ -12,12 +17,30 @@ public interface BrokerageService {
     
     BrokerageSummaryDTO getBrokerageSummaryInFinancialYear(Long brokerId, Long financialYearId);
     
+    /**
+     * Recomputes the summary of the given broker outside a request and replaces the cached entry.
+     */
+    BrokerageSummaryDTO refreshBrokerageSummary(Long brokerId, Long financialYearId);
+    
     BigDecimal getUserTotalBrokerageInFinancialYear(Long userId, Long brokerId, Long financialYearId);
     
     BigDecimal getCityTotalBrokerageInFinancialYear(String city, Long brokerId, Long financialYearId);
     
+    /**
+     * Checks the incrementally maintained brokerage aggregate against the raw ledger; rebuilds it when repair is set.
+     */
+    BrokerageAggregateVerificationDTO verifyBrokerageAggregate(Long brokerId, Long financialYearId, boolean repair);
+    
+    int rebuildBrokerageAggregate(Long brokerId, Long financialYearId);
+    
     UserBrokerageDetailDTO getUserBrokerageDetailInFinancialYear(Long userId, Long brokerId, Long financialYearId);
     
+    /**
+     * Batched variant of getUserBrokerageDetailInFinancialYear: loads every ledger record for the users once
+     * and folds them in memory. Users that do not exist for the broker are left out of the result.
+     */
+    Map<Long, UserBrokerageDetailDTO> getUserBrokerageDetailsInFinancialYear(Set<Long> userIds, Long brokerId, Long financialYearId);
+    
     byte[] generateUserBrokerageBill(Long userId, Long brokerId, Long financialYearId);
     
     byte[] generateUserBrokerageBill(Long userId, Long brokerId, Long financialYearId, BigDecimal customBrokerage);
@@ -34,6 +57,12 @@ public interface BrokerageService {
     
     byte[] generateCityBrokerageExcel(String city, Long brokerId, Long financialYearId);
     
+    void streamUserBrokerageExcel(Long userId, Long brokerId, Long financialYearId, BigDecimal customBrokerage, OutputStream outputStream);
+    
+    void streamBrokerageSummaryExcel(Long brokerId, Long financialYearId, OutputStream outputStream);
+    
+    void streamCityBrokerageExcel(String city, Long brokerId, Long financialYearId, OutputStream outputStream);
+    
 
     
     byte[] generateBulkBillsHtml(List<Long> userIds, Long brokerId, Long financialYearId, BigDecimal customBrokerage);
@@ -42,6 +71,15 @@ public interface BrokerageService {
     
     byte[] generateBulkPrintBills(List<Long> userIds, Long brokerId, Long financialYearId, BigDecimal customBrokerage);
     
+    BulkBillGenerationResultDTO streamBulkBills(BulkBillGenerationService.BillFormat format, List<Long> userIds, Long brokerId,
+                                                Long financialYearId, BigDecimal customBrokerage, OutputStream outputStream);
+    
+    BulkBillGenerationResultDTO streamMergedBillsPdf(List<Long> userIds, Long brokerId, Long financialYearId,
+                                                     BigDecimal customBrokerage, OutputStream outputStream);
+    
+    BulkBillGenerationResultDTO streamCityBillsPdf(String city, Long brokerId, Long financialYearId,
+                                                   BigDecimal customBrokerage, OutputStream outputStream);
+    
     byte[] generateCityWisePrintBill(Long userId, Long brokerId, Long financialYearId, BigDecimal customBrokerage, String paperSize, String orientation);
     
     String generateExcelFilename(Long userId, Long financialYearId);
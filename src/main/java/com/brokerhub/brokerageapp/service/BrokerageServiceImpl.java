@@ -1,6 +1,8 @@
 package com.brokerhub.brokerageapp.service;
 
+import com.brokerhub.brokerageapp.dto.BrokerageAggregateVerificationDTO;
 import com.brokerhub.brokerageapp.dto.BrokerageSummaryDTO;
+import com.brokerhub.brokerageapp.dto.BulkBillGenerationResultDTO;
 import com.brokerhub.brokerageapp.dto.CityWiseBagDistributionDTO;
 import com.brokerhub.brokerageapp.dto.UserBrokerageDetailDTO;
 import com.brokerhub.brokerageapp.entity.GeneratedDocument;
@@ -8,20 +10,33 @@ import com.brokerhub.brokerageapp.entity.User;
 import com.brokerhub.brokerageapp.repository.BrokerageRepository;
 import com.brokerhub.brokerageapp.repository.BrokerRepository;
 import com.brokerhub.brokerageapp.repository.GeneratedDocumentRepository;
+import com.brokerhub.brokerageapp.repository.MerchantBrokerageAggregateRepository;
 import com.brokerhub.brokerageapp.repository.UserBrokerageRepository;
 import com.brokerhub.brokerageapp.repository.UserRepository;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,6 +46,15 @@ public class BrokerageServiceImpl implements BrokerageService {
     @Autowired
     private BrokerageRepository brokerageRepository;
     
+    @Autowired
+    private MerchantBrokerageAggregateRepository aggregateRepository;
+    
+    @Autowired
+    private MerchantBrokerageAggregateService merchantBrokerageAggregateService;
+    
+    @Autowired
+    private BrokerageCacheService brokerageCacheService;
+    
     @Autowired
     private UserBrokerageRepository userBrokerageRepository;
     
@@ -58,35 +82,45 @@ public class BrokerageServiceImpl implements BrokerageService {
     @Autowired
     private GeneratedDocumentRepository documentRepository;
     
+    private static final int EXCEL_USER_CHUNK_SIZE = 200;
+    
     @Override
-    @Cacheable(value = "totalBrokerage", key = "#brokerId + '_' + #financialYearId")
+    @Cacheable(value = BrokerageCacheService.TOTAL_BROKERAGE_CACHE, key = "@brokerageCacheService.scopeKey(#financialYearId)")
     public BigDecimal getTotalBrokerageInFinancialYear(Long brokerId, Long financialYearId) {
         Long currentBrokerId = tenantContextService.getCurrentBrokerId();
         if (financialYearId == null) {
             financialYearId = currentFinancialYearService.getCurrentFinancialYearId(currentBrokerId);
         }
-        Number totalBrokerage = brokerageRepository.getTotalBrokerageByBrokerAndFinancialYear(currentBrokerId, financialYearId);
+        Number totalBrokerage = aggregateRepository.getTotalBrokerage(currentBrokerId, financialYearId);
         return BigDecimal.valueOf(totalBrokerage != null ? totalBrokerage.longValue() : 0L);
     }
     
     @Override
-    @CacheEvict(value = {"brokerageSummary", "totalBrokerage", "brokerageQuery"}, allEntries = true)
-    @Cacheable(value = "brokerageSummary", key = "#brokerId + '_' + #financialYearId")
+    @Cacheable(value = BrokerageCacheService.BROKERAGE_SUMMARY_CACHE, key = "@brokerageCacheService.scopeKey(#financialYearId)")
     public BrokerageSummaryDTO getBrokerageSummaryInFinancialYear(Long brokerId, Long financialYearId) {
         Long currentBrokerId = tenantContextService.getCurrentBrokerId();
         if (financialYearId == null) {
             financialYearId = currentFinancialYearService.getCurrentFinancialYearId(currentBrokerId);
         }
-        
-        Number totalBrokerageAmount = brokerageRepository.getTotalBrokerageByBrokerAndFinancialYear(currentBrokerId, financialYearId);
-        Number brokerageFromSellersAmount = brokerageRepository.getTotalBrokerageFromSellers(currentBrokerId, financialYearId);
-        Number brokerageFromBuyersAmount = brokerageRepository.getTotalBrokerageFromBuyers(currentBrokerId, financialYearId);
+        return buildBrokerageSummary(currentBrokerId, financialYearId);
+    }
+    
+    @Override
+    @CachePut(value = BrokerageCacheService.BROKERAGE_SUMMARY_CACHE, key = "#brokerId + '_' + #financialYearId")
+    public BrokerageSummaryDTO refreshBrokerageSummary(Long brokerId, Long financialYearId) {
+        return buildBrokerageSummary(brokerId, financialYearId);
+    }
+    
+    private BrokerageSummaryDTO buildBrokerageSummary(Long currentBrokerId, Long financialYearId) {
+        Number totalBrokerageAmount = aggregateRepository.getTotalBrokerage(currentBrokerId, financialYearId);
+        Number brokerageFromSellersAmount = aggregateRepository.getTotalBrokerageFromSellers(currentBrokerId, financialYearId);
+        Number brokerageFromBuyersAmount = aggregateRepository.getTotalBrokerageFromBuyers(currentBrokerId, financialYearId);
         
         BigDecimal totalBrokerage = BigDecimal.valueOf(totalBrokerageAmount != null ? totalBrokerageAmount.longValue() : 0L);
         BigDecimal brokerageFromSellers = BigDecimal.valueOf(brokerageFromSellersAmount != null ? brokerageFromSellersAmount.longValue() : 0L);
         BigDecimal brokerageFromBuyers = BigDecimal.valueOf(brokerageFromBuyersAmount != null ? brokerageFromBuyersAmount.longValue() : 0L);
         
-        List<Object[]> cityData = brokerageRepository.getCityWiseBrokerage(currentBrokerId, financialYearId);
+        List<Object[]> cityData = aggregateRepository.getCityWiseBrokerage(currentBrokerId, financialYearId);
         List<BrokerageSummaryDTO.CityBrokerageDTO> cityBrokerage = cityData.stream()
                 .map(row -> BrokerageSummaryDTO.CityBrokerageDTO.builder()
                         .city((String) row[0])
@@ -94,7 +128,7 @@ public class BrokerageServiceImpl implements BrokerageService {
                         .build())
                 .collect(Collectors.toList());
         
-        List<Object[]> productData = brokerageRepository.getProductWiseBrokerage(currentBrokerId, financialYearId);
+        List<Object[]> productData = aggregateRepository.getProductWiseBrokerage(currentBrokerId, financialYearId);
         List<BrokerageSummaryDTO.ProductBrokerageDTO> productBrokerage = productData.stream()
                 .map(row -> BrokerageSummaryDTO.ProductBrokerageDTO.builder()
                         .productName((String) row[0])
@@ -112,7 +146,7 @@ public class BrokerageServiceImpl implements BrokerageService {
     }
     
     @Override
-    @Cacheable(value = "userBrokerage", key = "#brokerId + '_' + #userId + '_' + #financialYearId")
+    @Cacheable(value = BrokerageCacheService.USER_BROKERAGE_CACHE, key = "@brokerageCacheService.userKey(#userId, #financialYearId)")
     public BigDecimal getUserTotalBrokerageInFinancialYear(Long userId, Long brokerId, Long financialYearId) {
         Long currentBrokerId = tenantContextService.getCurrentBrokerId();
         if (financialYearId == null) {
@@ -123,18 +157,42 @@ public class BrokerageServiceImpl implements BrokerageService {
     }
     
     @Override
-    @Cacheable(value = "cityBrokerage", key = "#brokerId + '_' + #city + '_' + #financialYearId")
+    @Cacheable(value = BrokerageCacheService.CITY_BROKERAGE_CACHE, key = "@brokerageCacheService.cityKey(#city, #financialYearId)")
     public BigDecimal getCityTotalBrokerageInFinancialYear(String city, Long brokerId, Long financialYearId) {
         Long currentBrokerId = tenantContextService.getCurrentBrokerId();
         if (financialYearId == null) {
             financialYearId = currentFinancialYearService.getCurrentFinancialYearId(currentBrokerId);
         }
-        Number cityBrokerage = brokerageRepository.getCityTotalBrokerage(currentBrokerId, financialYearId, city);
+        Number cityBrokerage = aggregateRepository.getCityTotalBrokerage(currentBrokerId, financialYearId, city);
         return BigDecimal.valueOf(cityBrokerage != null ? cityBrokerage.longValue() : 0L);
     }
     
     @Override
-    @Cacheable(value = "userBrokerageDetail", key = "#brokerId + '_' + #userId + '_' + #financialYearId")
+    public BrokerageAggregateVerificationDTO verifyBrokerageAggregate(Long brokerId, Long financialYearId, boolean repair) {
+        Long currentBrokerId = tenantContextService.getCurrentBrokerId();
+        if (financialYearId == null) {
+            financialYearId = currentFinancialYearService.getCurrentFinancialYearId(currentBrokerId);
+        }
+        BrokerageAggregateVerificationDTO result = merchantBrokerageAggregateService.verify(currentBrokerId, financialYearId, repair);
+        if (result.isRebuilt()) {
+            brokerageCacheService.evictBrokerageCache(financialYearId);
+        }
+        return result;
+    }
+    
+    @Override
+    public int rebuildBrokerageAggregate(Long brokerId, Long financialYearId) {
+        Long currentBrokerId = tenantContextService.getCurrentBrokerId();
+        if (financialYearId == null) {
+            financialYearId = currentFinancialYearService.getCurrentFinancialYearId(currentBrokerId);
+        }
+        int rows = merchantBrokerageAggregateService.rebuild(currentBrokerId, financialYearId);
+        brokerageCacheService.evictBrokerageCache(financialYearId);
+        return rows;
+    }
+    
+    @Override
+    @Cacheable(value = BrokerageCacheService.USER_BROKERAGE_DETAIL_CACHE, key = "@brokerageCacheService.userKey(#userId, #financialYearId)")
     public UserBrokerageDetailDTO getUserBrokerageDetailInFinancialYear(Long userId, Long brokerId, Long financialYearId) {
         Long currentBrokerId = tenantContextService.getCurrentBrokerId();
         if (financialYearId == null) {
@@ -230,6 +288,51 @@ public class BrokerageServiceImpl implements BrokerageService {
                 .build();
     }
     
+    @Override
+    public Map<Long, UserBrokerageDetailDTO> getUserBrokerageDetailsInFinancialYear(Set<Long> userIds, Long brokerId, Long financialYearId) {
+        Long currentBrokerId = brokerId != null ? brokerId : tenantContextService.getCurrentBrokerId();
+        if (financialYearId == null) {
+            financialYearId = currentFinancialYearService.getCurrentFinancialYearId(currentBrokerId);
+        }
+        if (userIds == null || userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        
+        Map<Long, UserBrokerageAccumulator> accumulators = new HashMap<>();
+        for (Object[] row : userRepository.findBasicInfoByBrokerIdAndUserIds(currentBrokerId, userIds)) {
+            accumulators.put(((Number) row[0]).longValue(),
+                    new UserBrokerageAccumulator((String) row[1], (String) row[2], (String) row[3]));
+        }
+        if (accumulators.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        
+        List<Object[]> rows = userBrokerageRepository.getTransactionRowsForUsers(currentBrokerId, financialYearId, accumulators.keySet());
+        for (Object[] row : rows) {
+            Long sellerId = ((Number) row[2]).longValue();
+            Long buyerId = ((Number) row[5]).longValue();
+            
+            UserBrokerageAccumulator buyer = accumulators.get(buyerId);
+            if (buyer != null) {
+                buyer.addPurchase(row);
+            }
+            UserBrokerageAccumulator seller = accumulators.get(sellerId);
+            if (seller != null) {
+                seller.addSale(row, sellerId.equals(buyerId));
+            }
+        }
+        
+        Map<Long, UserBrokerageDetailDTO> details = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            UserBrokerageAccumulator accumulator = accumulators.get(userId);
+            if (accumulator != null) {
+                details.put(userId, accumulator.toDTO());
+            }
+        }
+        log.debug("Loaded brokerage details for {} users from {} ledger records", details.size(), rows.size());
+        return details;
+    }
+    
     @Override
     public byte[] generateUserBrokerageBill(Long userId, Long brokerId, Long financialYearId) {
         return generateUserBrokerageBill(userId, brokerId, financialYearId, null);
@@ -293,6 +396,28 @@ public class BrokerageServiceImpl implements BrokerageService {
     
     @Override
     public byte[] generateUserBrokerageExcel(Long userId, Long brokerId, Long financialYearId, BigDecimal customBrokerage) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        streamUserBrokerageExcel(userId, brokerId, financialYearId, customBrokerage, outputStream);
+        return outputStream.toByteArray();
+    }
+    
+    @Override
+    public byte[] generateBrokerageSummaryExcel(Long brokerId, Long financialYearId) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        streamBrokerageSummaryExcel(brokerId, financialYearId, outputStream);
+        return outputStream.toByteArray();
+    }
+    
+    @Override
+    public byte[] generateCityBrokerageExcel(String city, Long brokerId, Long financialYearId) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        streamCityBrokerageExcel(city, brokerId, financialYearId, outputStream);
+        return outputStream.toByteArray();
+    }
+    
+    @Override
+    public void streamUserBrokerageExcel(Long userId, Long brokerId, Long financialYearId, BigDecimal customBrokerage,
+                                         OutputStream outputStream) {
         Long currentBrokerId = tenantContextService.getCurrentBrokerId();
         if (financialYearId == null) {
             financialYearId = currentFinancialYearService.getCurrentFinancialYearId(currentBrokerId);
@@ -304,14 +429,11 @@ public class BrokerageServiceImpl implements BrokerageService {
             throw new RuntimeException("Broker not found");
         }
         
-        if (customBrokerage != null) {
-            return excelGenerationService.generateUserBrokerageExcel(userDetail, brokerOpt.get(), financialYearId, customBrokerage);
-        }
-        return excelGenerationService.generateUserBrokerageExcel(userDetail, brokerOpt.get(), financialYearId);
+        excelGenerationService.writeUserBrokerageExcel(userDetail, brokerOpt.get(), financialYearId, customBrokerage, outputStream);
     }
     
     @Override
-    public byte[] generateBrokerageSummaryExcel(Long brokerId, Long financialYearId) {
+    public void streamBrokerageSummaryExcel(Long brokerId, Long financialYearId, OutputStream outputStream) {
         Long currentBrokerId = tenantContextService.getCurrentBrokerId();
         if (financialYearId == null) {
             financialYearId = currentFinancialYearService.getCurrentFinancialYearId(currentBrokerId);
@@ -323,30 +445,56 @@ public class BrokerageServiceImpl implements BrokerageService {
             throw new RuntimeException("Broker not found");
         }
         
-        return excelGenerationService.generateBrokerageSummaryExcel(summary, brokerOpt.get(), financialYearId);
+        excelGenerationService.writeBrokerageSummaryExcel(summary, brokerOpt.get(), financialYearId, outputStream);
     }
     
     @Override
-    public byte[] generateCityBrokerageExcel(String city, Long brokerId, Long financialYearId) {
+    public void streamCityBrokerageExcel(String city, Long brokerId, Long financialYearId, OutputStream outputStream) {
         Long currentBrokerId = tenantContextService.getCurrentBrokerId();
         if (financialYearId == null) {
             financialYearId = currentFinancialYearService.getCurrentFinancialYearId(currentBrokerId);
         }
         
-        final Long finalBrokerId = brokerId;
-        final Long finalFinancialYearId = financialYearId;
-        
-        List<User> cityUsers = userRepository.findByBrokerBrokerIdAndAddressCity(currentBrokerId, city);
-        List<UserBrokerageDetailDTO> cityUserDetails = cityUsers.stream()
-                .map(user -> getUserBrokerageDetailInFinancialYear(user.getUserId(), finalBrokerId, finalFinancialYearId))
-                .collect(Collectors.toList());
-        
         Optional<com.brokerhub.brokerageapp.entity.Broker> brokerOpt = brokerRepository.findById(currentBrokerId);
         if (!brokerOpt.isPresent()) {
             throw new RuntimeException("Broker not found");
         }
         
-        return excelGenerationService.generateCityBrokerageExcel(city, cityUserDetails, brokerOpt.get(), financialYearId);
+        List<Long> cityUserIds = userRepository.findByBrokerBrokerIdAndAddressCity(currentBrokerId, city).stream()
+                .map(User::getUserId)
+                .collect(Collectors.toList());
+        excelGenerationService.writeCityBrokerageExcel(city,
+                cityUserDetailsInChunks(cityUserIds, currentBrokerId, financialYearId), brokerOpt.get(), financialYearId, outputStream);
+    }
+    
+    /**
+     * Loads the city's brokerage details a chunk of users at a time as the sheet asks for them, so only one
+     * chunk of transaction rows is ever held in memory while the workbook streams out.
+     */
+    private Iterable<UserBrokerageDetailDTO> cityUserDetailsInChunks(List<Long> userIds, Long brokerId, Long financialYearId) {
+        return () -> new Iterator<UserBrokerageDetailDTO>() {
+            private int nextChunkStart = 0;
+            private Iterator<UserBrokerageDetailDTO> chunk = Collections.emptyIterator();
+            
+            @Override
+            public boolean hasNext() {
+                while (!chunk.hasNext() && nextChunkStart < userIds.size()) {
+                    int chunkEnd = Math.min(nextChunkStart + EXCEL_USER_CHUNK_SIZE, userIds.size());
+                    Set<Long> chunkUserIds = new LinkedHashSet<>(userIds.subList(nextChunkStart, chunkEnd));
+                    nextChunkStart = chunkEnd;
+                    chunk = getUserBrokerageDetailsInFinancialYear(chunkUserIds, brokerId, financialYearId).values().iterator();
+                }
+                return chunk.hasNext();
+            }
+            
+            @Override
+            public UserBrokerageDetailDTO next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return chunk.next();
+            }
+        };
     }
     
     @Override
@@ -393,6 +541,50 @@ public class BrokerageServiceImpl implements BrokerageService {
         
         return bulkBillGenerationService.generateBulkPrintBillsSync(userIds, brokerOpt.get(), financialYearId, customBrokerage);
     }
+    
+    @Override
+    public BulkBillGenerationResultDTO streamBulkBills(BulkBillGenerationService.BillFormat format, List<Long> userIds, Long brokerId,
+                                                       Long financialYearId, BigDecimal customBrokerage, OutputStream outputStream) {
+        Long currentBrokerId = tenantContextService.getCurrentBrokerId();
+        if (financialYearId == null) {
+            financialYearId = currentFinancialYearService.getCurrentFinancialYearId(currentBrokerId);
+        }
+        
+        Optional<com.brokerhub.brokerageapp.entity.Broker> brokerOpt = brokerRepository.findById(currentBrokerId);
+        if (!brokerOpt.isPresent()) {
+            throw new RuntimeException("Broker not found: " + currentBrokerId);
+        }
+        
+        return bulkBillGenerationService.streamBulkBills(format, userIds, brokerOpt.get(), financialYearId, customBrokerage, outputStream);
+    }
+    
+    @Override
+    public BulkBillGenerationResultDTO streamMergedBillsPdf(List<Long> userIds, Long brokerId, Long financialYearId,
+                                                            BigDecimal customBrokerage, OutputStream outputStream) {
+        Long currentBrokerId = tenantContextService.getCurrentBrokerId();
+        if (financialYearId == null) {
+            financialYearId = currentFinancialYearService.getCurrentFinancialYearId(currentBrokerId);
+        }
+        
+        Optional<com.brokerhub.brokerageapp.entity.Broker> brokerOpt = brokerRepository.findById(currentBrokerId);
+        if (!brokerOpt.isPresent()) {
+            throw new RuntimeException("Broker not found: " + currentBrokerId);
+        }
+        
+        return bulkBillGenerationService.streamMergedBillsPdf(userIds, brokerOpt.get(), financialYearId, customBrokerage, outputStream);
+    }
+    
+    @Override
+    public BulkBillGenerationResultDTO streamCityBillsPdf(String city, Long brokerId, Long financialYearId,
+                                                          BigDecimal customBrokerage, OutputStream outputStream) {
+        Long currentBrokerId = tenantContextService.getCurrentBrokerId();
+        // Bills come out in firm name order so the printed stack can be handed out as is
+        List<Long> userIds = userRepository.findByBrokerBrokerIdAndAddressCity(currentBrokerId, city).stream()
+                .sorted(Comparator.comparing(User::getFirmName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)))
+                .map(User::getUserId)
+                .collect(Collectors.toList());
+        return streamMergedBillsPdf(userIds, brokerId, financialYearId, customBrokerage, outputStream);
+    }
 
     @Override
     public String generateExcelFilename(Long userId, Long financialYearId) {
@@ -442,4 +634,125 @@ public class BrokerageServiceImpl implements BrokerageService {
         return pdfGenerationService.generateCityWisePrintBill(userDetail, brokerOpt.get(), financialYearId, customBrokerage, paperSize, orientation, cityDistribution);
     }
 
+    /**
+     * Folds ledger rows from getTransactionRowsForUsers into one user's UserBrokerageDetailDTO,
+     * mirroring the per-user aggregate queries used by getUserBrokerageDetailInFinancialYear.
+     */
+    private static class UserBrokerageAccumulator {
+        private final String firmName;
+        private final String ownerName;
+        private final String city;
+        private long totalBagsSold;
+        private long totalBagsBought;
+        private long totalBrokerage;
+        private long totalAmountEarned;
+        private long totalAmountPaid;
+        private final Map<String, Long> productsBought = new LinkedHashMap<>();
+        private final Map<String, Long> productsSold = new LinkedHashMap<>();
+        private final Map<String, Long> citiesSoldTo = new LinkedHashMap<>();
+        private final Map<String, Long> citiesBoughtFrom = new LinkedHashMap<>();
+        private final List<UserBrokerageDetailDTO.TransactionDetail> transactions = new ArrayList<>();
+        
+        UserBrokerageAccumulator(String firmName, String ownerName, String city) {
+            this.firmName = firmName;
+            this.ownerName = ownerName;
+            this.city = city;
+        }
+        
+        void addPurchase(Object[] row) {
+            long quantity = longValue(row[10]);
+            totalBagsBought += quantity;
+            totalAmountPaid += longValue(row[12]);
+            totalBrokerage += longValue(row[11]);
+            if (row[4] != null) {
+                citiesBoughtFrom.merge((String) row[4], quantity, Long::sum);
+            }
+            if (row[8] != null) {
+                productsBought.merge((String) row[8], quantity, Long::sum);
+            }
+            addTransaction(row, (String) row[3], (String) row[4], "BOUGHT");
+        }
+        
+        void addSale(Object[] row, boolean selfTrade) {
+            long quantity = longValue(row[10]);
+            totalBagsSold += quantity;
+            totalAmountEarned += longValue(row[12]);
+            // A counterparty without an address still counts in the totals, just not in a city
+            if (row[7] != null) {
+                citiesSoldTo.merge((String) row[7], quantity, Long::sum);
+            }
+            if (row[8] != null) {
+                productsSold.merge((String) row[8], quantity, Long::sum);
+            }
+            // A record where the user is both seller and buyer is counted once, as BOUGHT
+            if (!selfTrade) {
+                totalBrokerage += longValue(row[11]);
+                addTransaction(row, (String) row[6], (String) row[7], "SOLD");
+            }
+        }
+        
+        private void addTransaction(Object[] row, String counterPartyFirmName, String counterPartyCity, String transactionType) {
+            if (row[1] == null || row[8] == null) {
+                return;
+            }
+            transactions.add(UserBrokerageDetailDTO.TransactionDetail.builder()
+                    .transactionNumber(longValue(row[0]))
+                    .transactionDate((LocalDate) row[1])
+                    .counterPartyFirmName(counterPartyFirmName)
+                    .counterPartyCity(counterPartyCity)
+                    .productName((String) row[8])
+                    .productCost(longValue(row[9]))
+                    .quantity(longValue(row[10]))
+                    .brokerage(BigDecimal.valueOf(longValue(row[11])))
+                    .transactionType(transactionType)
+                    .build());
+        }
+        
+        UserBrokerageDetailDTO toDTO() {
+            UserBrokerageDetailDTO.BrokerageSummary brokerageSummary = UserBrokerageDetailDTO.BrokerageSummary.builder()
+                    .totalBagsSold(totalBagsSold)
+                    .totalBagsBought(totalBagsBought)
+                    .productsBought(toProductSummaries(productsBought))
+                    .productsSold(toProductSummaries(productsSold))
+                    .citiesSoldTo(toCitySummaries(citiesSoldTo))
+                    .citiesBoughtFrom(toCitySummaries(citiesBoughtFrom))
+                    .totalBrokeragePayable(BigDecimal.valueOf(totalBrokerage))
+                    .totalAmountEarned(totalAmountEarned)
+                    .totalAmountPaid(totalAmountPaid)
+                    .build();
+            
+            return UserBrokerageDetailDTO.builder()
+                    .userBasicInfo(UserBrokerageDetailDTO.UserBasicInfo.builder()
+                            .firmName(firmName)
+                            .ownerName(ownerName)
+                            .city(city)
+                            .build())
+                    .brokerageSummary(brokerageSummary)
+                    .transactionDetails(transactions)
+                    .build();
+        }
+        
+        private static List<UserBrokerageDetailDTO.ProductSummary> toProductSummaries(Map<String, Long> bagsByProduct) {
+            return bagsByProduct.entrySet().stream()
+                    .map(entry -> UserBrokerageDetailDTO.ProductSummary.builder()
+                            .productName(entry.getKey())
+                            .totalBags(entry.getValue())
+                            .build())
+                    .collect(Collectors.toList());
+        }
+        
+        private static List<UserBrokerageDetailDTO.CitySummary> toCitySummaries(Map<String, Long> bagsByCity) {
+            return bagsByCity.entrySet().stream()
+                    .map(entry -> UserBrokerageDetailDTO.CitySummary.builder()
+                            .city(entry.getKey())
+                            .totalBags(entry.getValue())
+                            .build())
+                    .collect(Collectors.toList());
+        }
+        
+        private static long longValue(Object value) {
+            return value != null ? ((Number) value).longValue() : 0L;
+        }
+    }
+
 }
@@ -1,15 +1,39 @@
 package com.brokerhub.brokerageapp.service;
 
+import com.brokerhub.brokerageapp.dto.BulkBillGenerationResultDTO;
 import com.brokerhub.brokerageapp.entity.Broker;
+
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.util.List;
 
 public interface BulkBillGenerationService {
-    
+
+    enum BillFormat {
+        HTML,
+        EXCEL,
+        PRINT,
+        PDF
+    }
+
     byte[] generateBulkBillsHtmlSync(List<Long> userIds, Broker broker, Long financialYearId, BigDecimal customBrokerage);
-    
+
     byte[] generateBulkBillsExcelSync(List<Long> userIds, Broker broker, Long financialYearId, BigDecimal customBrokerage);
-    
+
     byte[] generateBulkPrintBillsSync(List<Long> userIds, Broker broker, Long financialYearId, BigDecimal customBrokerage);
-    
-}
\ No newline at end of file
+
+    /**
+     * Renders bills in parallel and writes each one to the given stream as a ZIP entry as soon as it is ready.
+     * The caller's stream is finished but not closed.
+     */
+    BulkBillGenerationResultDTO streamBulkBills(BillFormat format, List<Long> userIds, Broker broker, Long financialYearId,
+                                                BigDecimal customBrokerage, OutputStream outputStream);
+
+    /**
+     * Renders PDF bills in parallel and merges them, in the order of the given users, into one PDF written to the stream.
+     * A report page listing the users whose bill failed is appended at the end. The caller's stream is not closed.
+     */
+    BulkBillGenerationResultDTO streamMergedBillsPdf(List<Long> userIds, Broker broker, Long financialYearId,
+                                                     BigDecimal customBrokerage, OutputStream outputStream);
+
+}
@@ -1,198 +1,331 @@
 package com.brokerhub.brokerageapp.service;
 
+import com.brokerhub.brokerageapp.dto.BulkBillGenerationResultDTO;
 import com.brokerhub.brokerageapp.dto.UserBrokerageDetailDTO;
 import com.brokerhub.brokerageapp.entity.Broker;
-import com.brokerhub.brokerageapp.entity.User;
-import com.brokerhub.brokerageapp.repository.UserRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 @Service
 @Slf4j
 public class BulkBillGenerationServiceImpl implements BulkBillGenerationService {
-    
+
+    /**
+     * Upper bound on bills that are rendered but not yet written to the ZIP.
+     * Keeps heap usage flat regardless of how many merchants are billed in one request.
+     */
+    private static final int MAX_BILLS_IN_FLIGHT = 16;
+
+    /**
+     * Number of users whose ledger data is loaded per batched query.
+     */
+    private static final int DETAIL_BATCH_SIZE = 100;
+
+    private static final String REPORT_ENTRY_NAME = "bulk-bill-report.txt";
+
     @Autowired
     @Lazy
     private BrokerageService brokerageService;
-    
+
     @Autowired
     private PdfGenerationService pdfGenerationService;
-    
-    @Autowired
-    private UserRepository userRepository;
-    
+
     @Autowired
     private ExcelGenerationService excelGenerationService;
-    
+
+    @Autowired
+    private PdfRenderer pdfRenderer;
+
+    @Autowired
+    @Qualifier("bulkOperationTaskExecutor")
+    private Executor bulkOperationTaskExecutor;
+
     @Override
     public byte[] generateBulkBillsHtmlSync(List<Long> userIds, Broker broker, Long financialYearId, BigDecimal customBrokerage) {
+        return generateBulkBillsZip(BillFormat.HTML, userIds, broker, financialYearId, customBrokerage);
+    }
+
+    @Override
+    public byte[] generateBulkBillsExcelSync(List<Long> userIds, Broker broker, Long financialYearId, BigDecimal customBrokerage) {
+        return generateBulkBillsZip(BillFormat.EXCEL, userIds, broker, financialYearId, customBrokerage);
+    }
+
+    @Override
+    public byte[] generateBulkPrintBillsSync(List<Long> userIds, Broker broker, Long financialYearId, BigDecimal customBrokerage) {
+        return generateBulkBillsZip(BillFormat.PRINT, userIds, broker, financialYearId, customBrokerage);
+    }
+
+    private byte[] generateBulkBillsZip(BillFormat format, List<Long> userIds, Broker broker, Long financialYearId, BigDecimal customBrokerage) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        streamBulkBills(format, userIds, broker, financialYearId, customBrokerage, baos);
+        return baos.toByteArray();
+    }
+
+    @Override
+    public BulkBillGenerationResultDTO streamBulkBills(BillFormat format, List<Long> userIds, Broker broker, Long financialYearId,
+                                                       BigDecimal customBrokerage, OutputStream outputStream) {
+        long startTime = System.currentTimeMillis();
+        log.info("Starting {} bulk bill generation for {} users", format, userIds.size());
+
+        List<Long> distinctUserIds = new ArrayList<>(new LinkedHashSet<>(userIds));
+        CompletionService<RenderedBill> completionService = new ExecutorCompletionService<>(bulkOperationTaskExecutor);
+        Map<Long, String> failures = new LinkedHashMap<>();
+        int successCount = 0;
+
         try {
-            log.info("Starting synchronous HTML bulk bill generation for {} users", userIds.size());
-            
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ZipOutputStream zos = new ZipOutputStream(baos);
-            
-            int successCount = 0;
-            for (Long userId : userIds) {
-                try {
-                    Optional<User> userOpt = userRepository.findById(userId);
-                    if (userOpt.isPresent()) {
-                        User user = userOpt.get();
-                        
-                        // Generate user brokerage detail
-                        UserBrokerageDetailDTO userDetail = brokerageService.getUserBrokerageDetailInFinancialYear(
-                            userId, broker.getBrokerId(), financialYearId);
-                        
-                        // Generate HTML bill with custom brokerage if provided
-                        byte[] billHtml;
-                        if (customBrokerage != null) {
-                            billHtml = pdfGenerationService.generateUserBrokerageBill(userDetail, broker, financialYearId, customBrokerage, userId);
-                        } else {
-                            billHtml = pdfGenerationService.generateUserBrokerageBill(userDetail, broker, financialYearId, userId);
-                        }
-                        
-                        // Add to zip
-                        String fileName = "bill_" + userId + "_" + sanitizeFileName(user.getFirmName()) + ".html";
-                        ZipEntry entry = new ZipEntry(fileName);
-                        zos.putNextEntry(entry);
-                        zos.write(billHtml);
-                        zos.closeEntry();
-                        
-                        successCount++;
-                        log.debug("Generated HTML bill for user: {}", user.getFirmName());
-                    } else {
+            ZipOutputStream zos = new ZipOutputStream(outputStream);
+            int inFlight = 0;
+
+            for (int from = 0; from < distinctUserIds.size(); from += DETAIL_BATCH_SIZE) {
+                List<Long> batch = distinctUserIds.subList(from, Math.min(from + DETAIL_BATCH_SIZE, distinctUserIds.size()));
+                Map<Long, UserBrokerageDetailDTO> details = brokerageService.getUserBrokerageDetailsInFinancialYear(
+                        new LinkedHashSet<>(batch), broker.getBrokerId(), financialYearId);
+
+                for (Long userId : batch) {
+                    UserBrokerageDetailDTO userDetail = details.get(userId);
+                    if (userDetail == null) {
                         log.warn("User not found: {}", userId);
+                        failures.put(userId, "User not found");
+                        continue;
+                    }
+                    if (inFlight == MAX_BILLS_IN_FLIGHT) {
+                        successCount += writeNextBill(completionService, zos, failures);
+                        inFlight--;
                     }
-                } catch (Exception e) {
-                    log.error("Failed to generate HTML bill for user: {}", userId, e);
+                    // Renderers take the broker and details explicitly, so workers need no security context
+                    completionService.submit(() -> renderBill(format, userId, userDetail, broker, financialYearId, customBrokerage));
+                    inFlight++;
                 }
             }
-            
-            zos.close();
-            log.info("Completed HTML bulk bill generation. Generated {} out of {} files", successCount, userIds.size());
-            
-            return baos.toByteArray();
-        } catch (Exception e) {
-            log.error("Error in HTML bulk bill generation", e);
-            throw new RuntimeException("Failed to generate HTML bulk bills: " + e.getMessage(), e);
+            while (inFlight > 0) {
+                successCount += writeNextBill(completionService, zos, failures);
+                inFlight--;
+            }
+
+            BulkBillGenerationResultDTO result = buildResult(userIds.size(), successCount, failures, startTime);
+            if (!failures.isEmpty()) {
+                zos.putNextEntry(new ZipEntry(REPORT_ENTRY_NAME));
+                zos.write(buildReport(format, result).getBytes(StandardCharsets.UTF_8));
+                zos.closeEntry();
+            }
+            zos.finish();
+            zos.flush();
+
+            log.info("Completed {} bulk bill generation. Generated {} out of {} files in {} ms ({} bills/sec)",
+                    format, result.getSuccessfulBills(), result.getTotalUsers(), result.getElapsedMillis(),
+                    String.format("%.2f", result.getBillsPerSecond()));
+            return result;
+        } catch (IOException e) {
+            log.error("Error streaming {} bulk bills after {} files", format, successCount, e);
+            throw new RuntimeException("Failed to stream bulk bills: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Bulk bill generation was interrupted", e);
+        } catch (ExecutionException e) {
+            log.error("Error in {} bulk bill generation", format, e);
+            throw new RuntimeException("Failed to generate bulk bills: " + e.getMessage(), e);
         }
     }
-    
+
     @Override
-    public byte[] generateBulkBillsExcelSync(List<Long> userIds, Broker broker, Long financialYearId, BigDecimal customBrokerage) {
-        try {
-            log.info("Starting synchronous Excel bulk bill generation for {} users", userIds.size());
-            
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ZipOutputStream zos = new ZipOutputStream(baos);
-            
-            int successCount = 0;
-            for (Long userId : userIds) {
-                try {
-                    Optional<User> userOpt = userRepository.findById(userId);
-                    if (userOpt.isPresent()) {
-                        User user = userOpt.get();
-                        
-                        // Generate user brokerage detail
-                        UserBrokerageDetailDTO userDetail = brokerageService.getUserBrokerageDetailInFinancialYear(
-                            userId, broker.getBrokerId(), financialYearId);
-                        
-                        // Generate Excel bill with custom brokerage if provided
-                        byte[] excelData;
-                        if (customBrokerage != null) {
-                            excelData = excelGenerationService.generateUserBrokerageExcel(userDetail, broker, financialYearId, customBrokerage);
-                        } else {
-                            excelData = excelGenerationService.generateUserBrokerageExcel(userDetail, broker, financialYearId);
-                        }
-                        
-                        // Add to zip
-                        String fileName = sanitizeFileName(user.getFirmName()) + "-brokerage-bill-FY" + financialYearId + ".xlsx";
-                        ZipEntry entry = new ZipEntry(fileName);
-                        zos.putNextEntry(entry);
-                        zos.write(excelData);
-                        zos.closeEntry();
-                        
-                        successCount++;
-                        log.debug("Generated Excel bill for user: {}", user.getFirmName());
-                    } else {
+    public BulkBillGenerationResultDTO streamMergedBillsPdf(List<Long> userIds, Broker broker, Long financialYearId,
+                                                            BigDecimal customBrokerage, OutputStream outputStream) {
+        long startTime = System.currentTimeMillis();
+        log.info("Starting merged PDF bill generation for {} users", userIds.size());
+
+        List<Long> distinctUserIds = new ArrayList<>(new LinkedHashSet<>(userIds));
+        Deque<Future<RenderedBill>> pending = new ArrayDeque<>();
+        Map<Long, String> failures = new LinkedHashMap<>();
+        int successCount = 0;
+
+        try (PdfRenderer.MergedPdf mergedPdf = pdfRenderer.openMerged(outputStream)) {
+            for (int from = 0; from < distinctUserIds.size(); from += DETAIL_BATCH_SIZE) {
+                List<Long> batch = distinctUserIds.subList(from, Math.min(from + DETAIL_BATCH_SIZE, distinctUserIds.size()));
+                Map<Long, UserBrokerageDetailDTO> details = brokerageService.getUserBrokerageDetailsInFinancialYear(
+                        new LinkedHashSet<>(batch), broker.getBrokerId(), financialYearId);
+
+                for (Long userId : batch) {
+                    UserBrokerageDetailDTO userDetail = details.get(userId);
+                    if (userDetail == null) {
                         log.warn("User not found: {}", userId);
+                        failures.put(userId, "User not found");
+                        continue;
+                    }
+                    if (pending.size() == MAX_BILLS_IN_FLIGHT) {
+                        successCount += appendNextBill(pending, mergedPdf, failures);
                     }
-                } catch (Exception e) {
-                    log.error("Failed to generate Excel bill for user: {}", userId, e);
+                    FutureTask<RenderedBill> task = new FutureTask<>(
+                            () -> renderBill(BillFormat.PDF, userId, userDetail, broker, financialYearId, customBrokerage));
+                    bulkOperationTaskExecutor.execute(task);
+                    pending.add(task);
+                }
+            }
+            while (!pending.isEmpty()) {
+                successCount += appendNextBill(pending, mergedPdf, failures);
+            }
+
+            BulkBillGenerationResultDTO result = buildResult(userIds.size(), successCount, failures, startTime);
+            if (!failures.isEmpty()) {
+                mergedPdf.append(pdfRenderer.render("<html><body><pre>"
+                        + HtmlUtils.htmlEscape(buildReport(BillFormat.PDF, result)) + "</pre></body></html>"));
+            }
+
+            log.info("Completed merged PDF bill generation. Merged {} out of {} bills ({} pages) in {} ms ({} bills/sec)",
+                    result.getSuccessfulBills(), result.getTotalUsers(), mergedPdf.getNumberOfPages(), result.getElapsedMillis(),
+                    String.format("%.2f", result.getBillsPerSecond()));
+            return result;
+        } catch (IOException e) {
+            log.error("Error merging PDF bills after {} bills", successCount, e);
+            throw new RuntimeException("Failed to merge PDF bills: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Bulk bill generation was interrupted", e);
+        } catch (ExecutionException e) {
+            log.error("Error in merged PDF bill generation", e);
+            throw new RuntimeException("Failed to generate bulk bills: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Waits for the oldest pending bill so pages keep the requested user order. Returns 1 if it was merged, 0 if it failed.
+     */
+    private int appendNextBill(Deque<Future<RenderedBill>> pending, PdfRenderer.MergedPdf mergedPdf, Map<Long, String> failures)
+            throws InterruptedException, ExecutionException, IOException {
+        RenderedBill bill = pending.poll().get();
+        if (bill.error != null) {
+            failures.put(bill.userId, bill.error);
+            return 0;
+        }
+        mergedPdf.append(bill.content);
+        return 1;
+    }
+
+    /**
+     * Waits for the next finished bill and writes it to the ZIP. Returns 1 if a bill was written, 0 if it failed.
+     */
+    private int writeNextBill(CompletionService<RenderedBill> completionService, ZipOutputStream zos, Map<Long, String> failures)
+            throws InterruptedException, ExecutionException, IOException {
+        RenderedBill bill = completionService.take().get();
+        if (bill.error != null) {
+            failures.put(bill.userId, bill.error);
+            return 0;
+        }
+        zos.putNextEntry(new ZipEntry(bill.fileName));
+        zos.write(bill.content);
+        zos.closeEntry();
+        return 1;
+    }
+
+    private RenderedBill renderBill(BillFormat format, Long userId, UserBrokerageDetailDTO userDetail, Broker broker,
+                                    Long financialYearId, BigDecimal customBrokerage) {
+        try {
+            String firmName = sanitizeFileName(userDetail.getUserBasicInfo().getFirmName());
+            switch (format) {
+                case EXCEL: {
+                    byte[] excelData = customBrokerage != null
+                            ? excelGenerationService.generateUserBrokerageExcel(userDetail, broker, financialYearId, customBrokerage)
+                            : excelGenerationService.generateUserBrokerageExcel(userDetail, broker, financialYearId);
+                    return RenderedBill.success(userId, "brokerage-bill_" + userId + "_" + firmName + "-FY" + financialYearId + ".xlsx", excelData);
+                }
+                case PDF: {
+                    byte[] pdfBill = pdfGenerationService.generateUserBrokerageBillPdf(userDetail, broker, financialYearId, customBrokerage, userId);
+                    return RenderedBill.success(userId, "bill_" + userId + "_" + firmName + ".pdf", pdfBill);
+                }
+                case PRINT: {
+                    byte[] printBill = pdfGenerationService.generatePrintOptimizedBill(userDetail, broker, financialYearId, customBrokerage, "a4", "portrait");
+                    return RenderedBill.success(userId, "print-bill_" + userId + "_" + firmName + ".html", printBill);
+                }
+                default: {
+                    byte[] billHtml = customBrokerage != null
+                            ? pdfGenerationService.generateUserBrokerageBill(userDetail, broker, financialYearId, customBrokerage, userId)
+                            : pdfGenerationService.generateUserBrokerageBill(userDetail, broker, financialYearId, userId);
+                    return RenderedBill.success(userId, "bill_" + userId + "_" + firmName + ".html", billHtml);
                 }
             }
-            
-            zos.close();
-            log.info("Completed Excel bulk bill generation. Generated {} out of {} files", successCount, userIds.size());
-            
-            return baos.toByteArray();
         } catch (Exception e) {
-            log.error("Error in Excel bulk bill generation", e);
-            throw new RuntimeException("Failed to generate Excel bulk bills: " + e.getMessage(), e);
+            log.error("Failed to generate {} bill for user: {}", format, userId, e);
+            return RenderedBill.failed(userId, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
         }
     }
-    
+
+    private BulkBillGenerationResultDTO buildResult(int totalUsers, int successCount, Map<Long, String> failures, long startTime) {
+        long elapsedMillis = System.currentTimeMillis() - startTime;
+        return BulkBillGenerationResultDTO.builder()
+                .totalUsers(totalUsers)
+                .successfulBills(successCount)
+                .failedBills(failures.size())
+                .failures(failures)
+                .elapsedMillis(elapsedMillis)
+                .billsPerSecond(successCount * 1000.0 / Math.max(elapsedMillis, 1))
+                .build();
+    }
+
+    private String buildReport(BillFormat format, BulkBillGenerationResultDTO result) {
+        StringBuilder report = new StringBuilder();
+        report.append("Bulk bill generation report\n")
+              .append("Format: ").append(format).append('\n')
+              .append("Requested: ").append(result.getTotalUsers()).append('\n')
+              .append("Generated: ").append(result.getSuccessfulBills()).append('\n')
+              .append("Failed: ").append(result.getFailedBills()).append('\n')
+              .append("Elapsed: ").append(result.getElapsedMillis()).append(" ms\n\n")
+              .append("Failures:\n");
+        result.getFailures().forEach((userId, reason) ->
+                report.append("User ").append(userId).append(": ").append(reason).append('\n'));
+        return report.toString();
+    }
+
     private String sanitizeFileName(String fileName) {
         if (fileName == null) {
             return "Unknown";
         }
         return fileName.replaceAll("[^a-zA-Z0-9\\s-_]", "").replaceAll("\\s+", "-");
     }
-    
-    @Override
-    public byte[] generateBulkPrintBillsSync(List<Long> userIds, Broker broker, Long financialYearId, BigDecimal customBrokerage) {
-        try {
-            log.info("Starting synchronous print bill generation for {} users", userIds.size());
-            
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ZipOutputStream zos = new ZipOutputStream(baos);
-            
-            int successCount = 0;
-            for (Long userId : userIds) {
-                try {
-                    Optional<User> userOpt = userRepository.findById(userId);
-                    if (userOpt.isPresent()) {
-                        User user = userOpt.get();
-                        
-                        UserBrokerageDetailDTO userDetail = brokerageService.getUserBrokerageDetailInFinancialYear(
-                            userId, broker.getBrokerId(), financialYearId);
-                        
-                        byte[] printBill = pdfGenerationService.generatePrintOptimizedBill(userDetail, broker, financialYearId, customBrokerage, "a4", "portrait");
-                        
-                        String fileName = "print-bill_" + userId + "_" + sanitizeFileName(user.getFirmName()) + ".html";
-                        ZipEntry entry = new ZipEntry(fileName);
-                        zos.putNextEntry(entry);
-                        zos.write(printBill);
-                        zos.closeEntry();
-                        
-                        successCount++;
-                        log.debug("Generated print bill for user: {}", user.getFirmName());
-                    } else {
-                        log.warn("User not found: {}", userId);
-                    }
-                } catch (Exception e) {
-                    log.error("Failed to generate print bill for user: {}", userId, e);
-                }
-            }
-            
-            zos.close();
-            log.info("Completed print bill generation. Generated {} out of {} files", successCount, userIds.size());
-            
-            return baos.toByteArray();
-        } catch (Exception e) {
-            log.error("Error in print bill generation", e);
-            throw new RuntimeException("Failed to generate print bills: " + e.getMessage(), e);
+
+    private static final class RenderedBill {
+        private final Long userId;
+        private final String fileName;
+        private final byte[] content;
+        private final String error;
+
+        private RenderedBill(Long userId, String fileName, byte[] content, String error) {
+            this.userId = userId;
+            this.fileName = fileName;
+            this.content = content;
+            this.error = error;
+        }
+
+        static RenderedBill success(Long userId, String fileName, byte[] content) {
+            return new RenderedBill(userId, fileName, content, null);
+        }
+
+        static RenderedBill failed(Long userId, String error) {
+            return new RenderedBill(userId, null, null, error);
         }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,125 @@
+package com.brokerhub.brokerageapp.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.query.BindableType;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes deltas to the counter tables kept beside the ledger and the payments (merchant brokerage aggregate,
+ * dashboard rollup, payment trends) in the caller's transaction, so the counters commit and roll back with the
+ * write they belong to. A row is inserted with a native upsert ({@code ON DUPLICATE KEY UPDATE} on MySQL,
+ * {@code ON CONFLICT DO UPDATE} on PostgreSQL): when two transactions insert the same key, the second waits for the
+ * first and adds its deltas to the row it committed. Unique keys treat NULLs as distinct, so callers whose keys
+ * have nullable columns first add to an existing row with a null-safe UPDATE and only upsert when none matched.
+ */
+@Service
+public class CounterDeltaWriter {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Map<Class<?>, Upsert> upserts = new ConcurrentHashMap<>();
+
+    /**
+     * Inserts the row, or adds its counters to the stored row with the same unique key
+     *
+     * @param row a new entity carrying the key and the deltas; its ID is drawn from the entity's sequence
+     * @param keyProperties properties making up the unique key of the table, in any order
+     * @param counterProperties properties the deltas are added to
+     */
+    public void upsert(Object row, List<String> keyProperties, List<String> counterProperties) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        Upsert upsert = upserts.computeIfAbsent(row.getClass(),
+                type -> prepare(session.getFactory(), type, keyProperties, counterProperties));
+
+        NativeQuery<?> query = session.createNativeQuery(upsert.sql());
+        query.addSynchronizedEntityClass(row.getClass());
+        query.setParameter(1, ((IdentifierGenerator) upsert.persister().getGenerator()).generate(session, row));
+        int position = 2;
+        for (String property : upsert.properties()) {
+            bind(query, position++, upsert.persister(), row, property);
+        }
+        if (!upsert.postgres()) {
+            // ON DUPLICATE KEY UPDATE repeats the deltas instead of the deprecated VALUES()
+            for (String property : counterProperties) {
+                bind(query, position++, upsert.persister(), row, property);
+            }
+        }
+        query.executeUpdate();
+    }
+
+    private static void bind(NativeQuery<?> query, int position, AbstractEntityPersister persister, Object row, String property) {
+        Object value = persister.getPropertyValue(row, property);
+        // Typed, so a null key binds as the column's type rather than as binary
+        if (persister.getPropertyType(property) instanceof BindableType<?> type) {
+            @SuppressWarnings("unchecked")
+            BindableType<Object> bindable = (BindableType<Object>) type;
+            query.setParameter(position, value, bindable);
+        } else {
+            query.setParameter(position, value);
+        }
+    }
+
+    private static Upsert prepare(SessionFactoryImplementor factory, Class<?> type, List<String> keyProperties,
+                                  List<String> counterProperties) {
+        AbstractEntityPersister persister = (AbstractEntityPersister) factory.getMappingMetamodel().getEntityDescriptor(type);
+        Dialect dialect = factory.getJdbcServices().getDialect();
+        boolean postgres;
+        if (dialect instanceof PostgreSQLDialect) {
+            postgres = true;
+        } else if (dialect instanceof MySQLDialect) {
+            postgres = false;
+        } else {
+            throw new IllegalStateException("Counter upserts support MySQL and PostgreSQL, not " + dialect);
+        }
+        List<String> properties = new ArrayList<>(keyProperties);
+        properties.addAll(counterProperties);
+        List<String> keyColumns = keyProperties.stream().map(property -> persister.getPropertyColumnNames(property)[0]).toList();
+        List<String> counterColumns = counterProperties.stream().map(property -> persister.getPropertyColumnNames(property)[0]).toList();
+        String versionColumn = persister.isVersioned() ? persister.getPropertyColumnNames(persister.getVersionProperty())[0] : null;
+        String sql = upsertSql(postgres, persister.getIdentifierTableName(), persister.getIdentifierColumnNames()[0],
+                keyColumns, counterColumns, versionColumn);
+        return new Upsert(persister, postgres, properties, sql);
+    }
+
+    /**
+     * Parameters are the ID, the keys and the counters, followed on MySQL by the counters again
+     */
+    static String upsertSql(boolean postgres, String table, String idColumn, List<String> keyColumns,
+                            List<String> counterColumns, String versionColumn) {
+        List<String> columns = new ArrayList<>();
+        columns.add(idColumn);
+        columns.addAll(keyColumns);
+        columns.addAll(counterColumns);
+        List<String> values = new ArrayList<>(columns.stream().map(column -> "?").toList());
+        List<String> updates = new ArrayList<>();
+        for (String column : counterColumns) {
+            updates.add(postgres ? column + " = " + table + "." + column + " + EXCLUDED." + column : column + " = " + column + " + ?");
+        }
+        if (versionColumn != null) {
+            columns.add(versionColumn);
+            values.add("0");
+            updates.add(postgres ? versionColumn + " = " + table + "." + versionColumn + " + 1" : versionColumn + " = " + versionColumn + " + 1");
+        }
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" + String.join(", ", values) + ") "
+                + (postgres ? "ON CONFLICT (" + String.join(", ", keyColumns) + ") DO UPDATE SET " : "ON DUPLICATE KEY UPDATE ")
+                + String.join(", ", updates);
+    }
+
+    private record Upsert(AbstractEntityPersister persister, boolean postgres, List<String> properties, String sql) {
+    }
+}
@@ -40,7 +40,7 @@ public class DailyLedgerServiceImpl implements DailyLedgerService{
         if(null != financialYearId && null!= date) {
             // Get current broker for multi-tenant isolation
             Long currentBrokerId = tenantContextService.getCurrentBrokerId();
-            Broker currentBroker = tenantContextService.getCurrentBroker();
+            Broker currentBroker = tenantContextService.getCurrentBrokerReference();
 
             Optional<FinancialYear> financialYear = financialYearRepository.findById(financialYearId);
             if (financialYear.isPresent() && (date.isEqual(financialYear.get().getStart()) || date.isEqual(financialYear.get().getEnd()) || (date.isAfter(financialYear.get().getStart()) && date.isBefore(financialYear.get().getEnd())))) {
@@ -184,7 +184,7 @@ public class DailyLedgerServiceImpl implements DailyLedgerService{
             }
 
             // Create new daily ledger with broker for multi-tenant isolation
-            Broker currentBroker = tenantContextService.getCurrentBroker();
+            Broker currentBroker = tenantContextService.getCurrentBrokerReference();
             DailyLedger dailyLedger = DailyLedger.builder()
                     .date(date)
                     .financialYear(financialYear)
@@ -224,7 +224,7 @@ public class DailyLedgerServiceImpl implements DailyLedgerService{
             }
 
             // Create new daily ledger with broker for multi-tenant isolation
-            Broker currentBroker = tenantContextService.getCurrentBroker();
+            Broker currentBroker = tenantContextService.getCurrentBrokerReference();
             DailyLedger dailyLedger = DailyLedger.builder()
                     .date(date)
                     .financialYear(financialYear)
@@ -0,0 +1,332 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.analytics.CityAnalyticsDTO;
+import com.brokerhub.brokerageapp.dto.analytics.MerchantTypeAnalyticsDTO;
+import com.brokerhub.brokerageapp.dto.analytics.MonthlyAnalyticsDTO;
+import com.brokerhub.brokerageapp.dto.analytics.ProductAnalyticsDTO;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.YearMonth;
+import java.time.format.TextStyle;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory cube over the dashboard rollup. Each row of {@code DashboardRepository.getRollupCube} is added once
+ * to the month, product, city and merchant type cells it belongs to, so every total of the financial year
+ * analytics comes from one pass over one query. Cells keep sums rather than averages, which lets them roll up
+ * exactly. Distinct merchant counts cannot be summed from rollup cells and come from
+ * {@code DashboardRepository.getMerchantCountsByMonth} and, for the sellers who sold to buyers of a city,
+ * {@code DashboardRepository.getCitySellerCountsByMonth} instead.
+ */
+final class DashboardAnalyticsCube {
+
+    private final Totals overall = new Totals();
+    private final Map<YearMonth, Totals> months = new TreeMap<>();
+    private final Map<YearMonth, Map<Long, ProductCell>> productsByMonth = new HashMap<>();
+    private final Map<YearMonth, Map<String, Map<Long, ProductCell>>> productsByMonthAndCity = new HashMap<>();
+    private final Map<String, Map<Long, ProductCell>> productsByCity = new HashMap<>();
+    private final Map<Long, ProductCell> productTotals = new HashMap<>();
+    private final Map<YearMonth, Map<String, Totals>> citiesByMonth = new HashMap<>();
+    private final Map<YearMonth, Map<String, MerchantTypeCell>> merchantTypesByMonth = new HashMap<>();
+    private final Map<YearMonth, Map<String, int[]>> cityMerchantCounts = new HashMap<>();
+    private final Map<YearMonth, Map<String, int[]>> typeMerchantCounts = new HashMap<>();
+
+    private DashboardAnalyticsCube() {
+    }
+
+    /**
+     * @param rows   [year, month, buyerCity, productId, productName, sellerType, buyerType, quantity, brokerage,
+     *               value, transactions, sumProductCost, sumBrokeragePerUnit]
+     * @param counts [year, month, city, userType, sellers, buyers]
+     * @param citySellers [year, month, buyerCity, sellers]
+     */
+    static DashboardAnalyticsCube fromRows(List<Object[]> rows, List<Object[]> counts, List<Object[]> citySellers) {
+        DashboardAnalyticsCube cube = new DashboardAnalyticsCube();
+        for (Object[] row : rows) {
+            YearMonth yearMonth = yearMonth(row);
+            if (yearMonth == null) continue;
+            String buyerCity = (String) row[2];
+            Long productId = row[3] != null ? Long.valueOf(row[3].toString()) : null;
+            String productName = row[4] != null ? row[4].toString() : "";
+            Totals cell = Totals.of(row);
+
+            cube.overall.add(cell);
+            cube.months.computeIfAbsent(yearMonth, k -> new Totals()).add(cell);
+            if (productId != null) {
+                addProduct(cube.productsByMonth.computeIfAbsent(yearMonth, k -> new HashMap<>()), productId, productName, cell);
+                addProduct(cube.productTotals, productId, productName, cell);
+            }
+            // Buyers without an address still count towards the month and product figures but belong to no city
+            if (buyerCity != null) {
+                cube.citiesByMonth.computeIfAbsent(yearMonth, k -> new HashMap<>())
+                        .computeIfAbsent(buyerCity, k -> new Totals()).add(cell);
+                if (productId != null) {
+                    addProduct(cube.productsByMonthAndCity.computeIfAbsent(yearMonth, k -> new HashMap<>())
+                            .computeIfAbsent(buyerCity, k -> new HashMap<>()), productId, productName, cell);
+                    addProduct(cube.productsByCity.computeIfAbsent(buyerCity, k -> new HashMap<>()), productId, productName, cell);
+                }
+            }
+            // The seller's type is credited with the sale and the brokerage, the buyer's type with the purchase
+            Map<String, MerchantTypeCell> merchantTypes = cube.merchantTypesByMonth.computeIfAbsent(yearMonth, k -> new HashMap<>());
+            if (row[5] != null) {
+                merchantTypes.computeIfAbsent(row[5].toString(), k -> new MerchantTypeCell()).addSale(cell);
+            }
+            if (row[6] != null) {
+                merchantTypes.computeIfAbsent(row[6].toString(), k -> new MerchantTypeCell()).addPurchase(cell);
+            }
+        }
+        for (Object[] row : counts) {
+            YearMonth yearMonth = yearMonth(row);
+            if (yearMonth == null) continue;
+            int sellers = toBigDecimal(row[4]).intValue();
+            int buyers = toBigDecimal(row[5]).intValue();
+            if (row[2] != null) {
+                addCounts(cube.cityMerchantCounts.computeIfAbsent(yearMonth, k -> new HashMap<>()), row[2].toString(), 0, buyers);
+            }
+            if (row[3] != null) {
+                addCounts(cube.typeMerchantCounts.computeIfAbsent(yearMonth, k -> new HashMap<>()), row[3].toString(), sellers, buyers);
+            }
+        }
+        // A city's sellers are those who sold to its buyers, wherever they are located
+        for (Object[] row : citySellers) {
+            YearMonth yearMonth = yearMonth(row);
+            if (yearMonth == null || row[2] == null) continue;
+            addCounts(cube.cityMerchantCounts.computeIfAbsent(yearMonth, k -> new HashMap<>()), row[2].toString(),
+                    toBigDecimal(row[3]).intValue(), 0);
+        }
+        return cube;
+    }
+
+    BigDecimal totalBrokerage() {
+        return overall.brokerage;
+    }
+
+    long totalQuantity() {
+        return overall.quantity;
+    }
+
+    BigDecimal totalTransactionValue() {
+        return overall.transactionValue;
+    }
+
+    int totalTransactions() {
+        return overall.transactions;
+    }
+
+    List<MonthlyAnalyticsDTO> monthlyAnalytics() {
+        List<MonthlyAnalyticsDTO> monthly = new ArrayList<>();
+        months.forEach((yearMonth, totals) -> monthly.add(MonthlyAnalyticsDTO.builder()
+                .month(yearMonth)
+                .monthName(yearMonth.getMonth().getDisplayName(TextStyle.FULL, Locale.ENGLISH) + " " + yearMonth.getYear())
+                .totalBrokerage(totals.brokerage)
+                .totalQuantity(totals.quantity)
+                .totalTransactionValue(totals.transactionValue)
+                .totalTransactions(totals.transactions)
+                .productAnalytics(toProductList(productsByMonth.getOrDefault(yearMonth, Map.of())))
+                .cityAnalytics(cities(yearMonth))
+                .merchantTypeAnalytics(merchantTypes(yearMonth))
+                .build()));
+        return monthly;
+    }
+
+    List<ProductAnalyticsDTO> productTotals() {
+        return toProductList(productTotals);
+    }
+
+    /**
+     * Yearly city totals; merchant counts are the highest monthly count, as distinct merchants do not add up across months.
+     */
+    List<CityAnalyticsDTO> cityTotals() {
+        Map<String, CityAnalyticsDTO> totals = new TreeMap<>();
+        for (YearMonth yearMonth : months.keySet()) {
+            for (CityAnalyticsDTO city : cities(yearMonth)) {
+                totals.merge(city.getCityName(), city, (existing, next) -> CityAnalyticsDTO.builder()
+                        .cityName(existing.getCityName())
+                        .totalQuantity(existing.getTotalQuantity() + next.getTotalQuantity())
+                        .totalBrokerage(existing.getTotalBrokerage().add(next.getTotalBrokerage()))
+                        .totalTransactionValue(existing.getTotalTransactionValue().add(next.getTotalTransactionValue()))
+                        .totalTransactions(existing.getTotalTransactions() + next.getTotalTransactions())
+                        .totalSellers(Math.max(existing.getTotalSellers(), next.getTotalSellers()))
+                        .totalBuyers(Math.max(existing.getTotalBuyers(), next.getTotalBuyers()))
+                        .build());
+            }
+        }
+        totals.values().forEach(city -> city.setProductBreakdown(toProductList(productsByCity.getOrDefault(city.getCityName(), Map.of()))));
+        return new ArrayList<>(totals.values());
+    }
+
+    /**
+     * Yearly merchant type totals; merchant counts are the highest monthly count.
+     */
+    List<MerchantTypeAnalyticsDTO> merchantTypeTotals() {
+        Map<String, MerchantTypeAnalyticsDTO> totals = new TreeMap<>();
+        for (YearMonth yearMonth : months.keySet()) {
+            for (MerchantTypeAnalyticsDTO merchantType : merchantTypes(yearMonth)) {
+                totals.merge(merchantType.getMerchantType(), merchantType, (existing, next) -> MerchantTypeAnalyticsDTO.builder()
+                        .merchantType(existing.getMerchantType())
+                        .totalQuantitySold(existing.getTotalQuantitySold() + next.getTotalQuantitySold())
+                        .totalQuantityBought(existing.getTotalQuantityBought() + next.getTotalQuantityBought())
+                        .totalBrokeragePaid(existing.getTotalBrokeragePaid().add(next.getTotalBrokeragePaid()))
+                        .totalTransactionValue(existing.getTotalTransactionValue().add(next.getTotalTransactionValue()))
+                        .totalTransactions(existing.getTotalTransactions() + next.getTotalTransactions())
+                        .totalMerchants(Math.max(existing.getTotalMerchants(), next.getTotalMerchants()))
+                        .build());
+            }
+        }
+        return new ArrayList<>(totals.values());
+    }
+
+    private List<CityAnalyticsDTO> cities(YearMonth yearMonth) {
+        Map<String, int[]> counts = cityMerchantCounts.getOrDefault(yearMonth, Map.of());
+        Map<String, Map<Long, ProductCell>> products = productsByMonthAndCity.getOrDefault(yearMonth, Map.of());
+        return sorted(citiesByMonth.getOrDefault(yearMonth, Map.of()), (cityName, totals) -> CityAnalyticsDTO.builder()
+                .cityName(cityName)
+                .totalQuantity(totals.quantity)
+                .totalBrokerage(totals.brokerage)
+                .totalTransactionValue(totals.transactionValue)
+                .totalTransactions(totals.transactions)
+                .totalSellers(counts.getOrDefault(cityName, new int[2])[0])
+                .totalBuyers(counts.getOrDefault(cityName, new int[2])[1])
+                .productBreakdown(toProductList(products.getOrDefault(cityName, Map.of())))
+                .build());
+    }
+
+    private List<MerchantTypeAnalyticsDTO> merchantTypes(YearMonth yearMonth) {
+        Map<String, int[]> counts = typeMerchantCounts.getOrDefault(yearMonth, Map.of());
+        return sorted(merchantTypesByMonth.getOrDefault(yearMonth, Map.of()), (merchantType, cell) -> {
+            int[] merchants = counts.getOrDefault(merchantType, new int[2]);
+            return MerchantTypeAnalyticsDTO.builder()
+                    .merchantType(merchantType)
+                    .totalQuantitySold(cell.quantitySold)
+                    .totalQuantityBought(cell.quantityBought)
+                    .totalBrokeragePaid(cell.brokeragePaid)
+                    .totalTransactionValue(cell.transactionValue)
+                    .totalTransactions(cell.transactions)
+                    .totalMerchants(Math.max(merchants[0], merchants[1]))
+                    .build();
+        });
+    }
+
+    private static <V, T> List<T> sorted(Map<String, V> cells, BiFunction<String, V, T> mapper) {
+        return new TreeMap<>(cells).entrySet().stream()
+                .map(entry -> mapper.apply(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    private static List<ProductAnalyticsDTO> toProductList(Map<Long, ProductCell> cells) {
+        return cells.values().stream()
+                .map(ProductCell::toDto)
+                .sorted(Comparator.comparing(ProductAnalyticsDTO::getProductName))
+                .collect(Collectors.toList());
+    }
+
+    private static void addProduct(Map<Long, ProductCell> cells, Long productId, String productName, Totals cell) {
+        cells.computeIfAbsent(productId, k -> new ProductCell(productId, productName)).add(cell);
+    }
+
+    private static void addCounts(Map<String, int[]> counts, String key, int sellers, int buyers) {
+        int[] merchants = counts.computeIfAbsent(key, k -> new int[2]);
+        merchants[0] += sellers;
+        merchants[1] += buyers;
+    }
+
+    private static YearMonth yearMonth(Object[] row) {
+        if (row[0] == null || row[1] == null) {
+            return null;
+        }
+        return YearMonth.of(toBigDecimal(row[0]).intValue(), toBigDecimal(row[1]).intValue());
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null) return BigDecimal.ZERO;
+        if (value instanceof BigDecimal) return (BigDecimal) value;
+        return new BigDecimal(value.toString().trim());
+    }
+
+    private static class Totals {
+
+        long quantity;
+        BigDecimal brokerage = BigDecimal.ZERO;
+        BigDecimal transactionValue = BigDecimal.ZERO;
+        int transactions;
+        BigDecimal productCostSum = BigDecimal.ZERO;
+        BigDecimal brokeragePerUnitSum = BigDecimal.ZERO;
+
+        static Totals of(Object[] row) {
+            Totals totals = new Totals();
+            totals.quantity = toBigDecimal(row[7]).longValue();
+            totals.brokerage = toBigDecimal(row[8]);
+            totals.transactionValue = toBigDecimal(row[9]);
+            totals.transactions = toBigDecimal(row[10]).intValue();
+            totals.productCostSum = toBigDecimal(row[11]);
+            totals.brokeragePerUnitSum = toBigDecimal(row[12]);
+            return totals;
+        }
+
+        void add(Totals other) {
+            quantity += other.quantity;
+            brokerage = brokerage.add(other.brokerage);
+            transactionValue = transactionValue.add(other.transactionValue);
+            transactions += other.transactions;
+            productCostSum = productCostSum.add(other.productCostSum);
+            brokeragePerUnitSum = brokeragePerUnitSum.add(other.brokeragePerUnitSum);
+        }
+    }
+
+    private static final class ProductCell extends Totals {
+
+        private final Long productId;
+        private final String productName;
+
+        private ProductCell(Long productId, String productName) {
+            this.productId = productId;
+            this.productName = productName;
+        }
+
+        private ProductAnalyticsDTO toDto() {
+            return ProductAnalyticsDTO.builder()
+                    .productId(productId)
+                    .productName(productName)
+                    .totalQuantity(quantity)
+                    .totalBrokerage(brokerage)
+                    .totalTransactionValue(transactionValue)
+                    .totalTransactions(transactions)
+                    .averagePrice(average(productCostSum))
+                    .averageBrokeragePerUnit(average(brokeragePerUnitSum))
+                    .build();
+        }
+
+        // Same figure as AVG() over the ledger records of the cell
+        private BigDecimal average(BigDecimal sum) {
+            if (transactions == 0) {
+                return BigDecimal.ZERO;
+            }
+            return sum.divide(BigDecimal.valueOf(transactions), 2, RoundingMode.HALF_UP);
+        }
+    }
+
+    private static final class MerchantTypeCell {
+
+        private long quantitySold;
+        private long quantityBought;
+        private BigDecimal brokeragePaid = BigDecimal.ZERO;
+        private BigDecimal transactionValue = BigDecimal.ZERO;
+        private int transactions;
+
+        private void addSale(Totals cell) {
+            quantitySold += cell.quantity;
+            brokeragePaid = brokeragePaid.add(cell.brokerage);
+            transactionValue = transactionValue.add(cell.transactionValue);
+            transactions += cell.transactions;
+        }
+
+        private void addPurchase(Totals cell) {
+            quantityBought += cell.quantity;
+            transactionValue = transactionValue.add(cell.transactionValue);
+            transactions += cell.transactions;
+        }
+    }
+}
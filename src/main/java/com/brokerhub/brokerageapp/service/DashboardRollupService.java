@@ -0,0 +1,383 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.BrokerageAggregateVerificationDTO;
+import com.brokerhub.brokerageapp.entity.DashboardCitySeller;
+import com.brokerhub.brokerageapp.entity.DashboardDailyRollup;
+import com.brokerhub.brokerageapp.entity.LedgerDetails;
+import com.brokerhub.brokerageapp.entity.LedgerRecord;
+import com.brokerhub.brokerageapp.entity.User;
+import com.brokerhub.brokerageapp.repository.BrokerageRepository;
+import com.brokerhub.brokerageapp.repository.DashboardCitySellerRepository;
+import com.brokerhub.brokerageapp.repository.DashboardDailyRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Maintains DashboardDailyRollup and DashboardCitySeller. Ledger writes push signed deltas through
+ * addRecords/removeRecords, which add them to the cells in the ledger transaction, so the rollup commits and rolls
+ * back with the ledger. Records are counted under the cities and merchant types stored on them when written;
+ * rebuild and verify recompute the same cells from ledger_record.
+ */
+@Service
+@Transactional
+@Slf4j
+public class DashboardRollupService {
+
+    private static final int MAX_REPORTED_MISMATCHES = 20;
+    private static final List<String> CELL_KEY = List.of("brokerId", "financialYearId", "ledgerDate", "productId",
+            "sellerCity", "buyerCity", "sellerType", "buyerType");
+    private static final List<String> COUNTERS = List.of("records", "quantity", "transactionValue", "brokerage",
+            "productCostSum", "brokeragePerUnitSum");
+    private static final List<String> CITY_SELLER_KEY = List.of("brokerId", "financialYearId", "monthStart", "buyerCity", "sellerId");
+    private static final List<String> CITY_SELLER_COUNTERS = List.of("records");
+
+    @Autowired
+    private DashboardDailyRollupRepository rollupRepository;
+
+    @Autowired
+    private DashboardCitySellerRepository citySellerRepository;
+
+    @Autowired
+    private BrokerageRepository brokerageRepository;
+
+    @Autowired
+    private CounterDeltaWriter deltaWriter;
+
+    public void addRecords(LedgerDetails ledgerDetails, Collection<LedgerRecord> records) {
+        applyDelta(ledgerDetails, records, 1L);
+    }
+
+    /**
+     * Must be called before the records are deleted and before the seller or date of the ledger is changed,
+     * so the deltas land on the cells the records were originally counted in.
+     */
+    public void removeRecords(LedgerDetails ledgerDetails, Collection<LedgerRecord> records) {
+        applyDelta(ledgerDetails, records, -1L);
+    }
+
+    private void applyDelta(LedgerDetails ledgerDetails, Collection<LedgerRecord> records, long sign) {
+        if (records == null || records.isEmpty() || ledgerDetails.getBroker() == null) {
+            return;
+        }
+        Long brokerId = ledgerDetails.getBroker().getBrokerId();
+        Long financialYearId = ledgerDetails.getFinancialYearId();
+        LocalDate ledgerDate = ledgerDetails.getDailyLedger() != null ? ledgerDetails.getDailyLedger().getDate() : null;
+        LocalDate monthStart = ledgerDate != null ? ledgerDate.withDayOfMonth(1) : null;
+        User seller = ledgerDetails.getFromSeller();
+        if (seller == null) {
+            return;
+        }
+
+        Map<CellKey, DashboardDailyRollup> deltas = new LinkedHashMap<>();
+        Map<CitySellerKey, DashboardCitySeller> citySellerDeltas = new LinkedHashMap<>();
+        for (LedgerRecord record : records) {
+            if (record.getToBuyer() == null) {
+                continue;
+            }
+            User buyer = record.getToBuyer();
+            String buyerCity = record.getBuyerCity() != null ? record.getBuyerCity() : cityOf(buyer);
+            CellKey key = new CellKey(ledgerDate, record.getProduct() != null ? record.getProduct().getProductId() : null,
+                    record.getSellerCity() != null ? record.getSellerCity() : cityOf(seller), buyerCity,
+                    record.getSellerType() != null ? record.getSellerType() : seller.getUserType(),
+                    record.getBuyerType() != null ? record.getBuyerType() : buyer.getUserType());
+            add(deltas.computeIfAbsent(key, k -> newCell(brokerId, financialYearId, k)), sign,
+                    sign * valueOf(record.getQuantity()), sign * valueOf(record.getTotalProductsCost()),
+                    sign * valueOf(record.getTotalBrokerage()), sign * valueOf(record.getProductCost()),
+                    sign * valueOf(record.getBrokerage()));
+            if (seller.getUserId() != null) {
+                CitySellerKey citySellerKey = new CitySellerKey(monthStart, buyerCity, seller.getUserId());
+                DashboardCitySeller citySeller = citySellerDeltas.computeIfAbsent(citySellerKey,
+                        k -> newCitySeller(brokerId, financialYearId, k));
+                citySeller.setRecords(citySeller.getRecords() + sign);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        writeDeltas(brokerId, financialYearId, ledgerDate, deltas, citySellerDeltas, sign);
+    }
+
+    private void writeDeltas(Long brokerId, Long financialYearId, LocalDate ledgerDate,
+                             Map<CellKey, DashboardDailyRollup> deltas,
+                             Map<CitySellerKey, DashboardCitySeller> citySellerDeltas, long sign) {
+        // In a fixed order, so two ledger writes touching the same cells cannot deadlock each other
+        deltas.entrySet().stream().sorted(Comparator.comparing(entry -> entry.getKey().toString())).forEach(entry -> {
+            CellKey key = entry.getKey();
+            DashboardDailyRollup delta = entry.getValue();
+            int updated = rollupRepository.addToCell(brokerId, financialYearId, key.ledgerDate(), key.productId(),
+                    key.sellerCity(), key.buyerCity(), key.sellerType(), key.buyerType(), delta.getRecords(),
+                    delta.getQuantity(), delta.getTransactionValue(), delta.getBrokerage(), delta.getProductCostSum(),
+                    delta.getBrokeragePerUnitSum());
+            if (updated > 0) {
+                return;
+            }
+            if (sign < 0) {
+                log.warn("No dashboard rollup for broker {} FY {} cell {} while reversing records, skipping; run verify to repair",
+                        brokerId, financialYearId, key);
+                return;
+            }
+            // Another ledger write may insert the same cell concurrently
+            deltaWriter.upsert(delta, CELL_KEY, COUNTERS);
+        });
+
+        citySellerDeltas.entrySet().stream().sorted(Comparator.comparing(entry -> entry.getKey().toString())).forEach(entry -> {
+            CitySellerKey key = entry.getKey();
+            DashboardCitySeller delta = entry.getValue();
+            int updated = citySellerRepository.addToCell(brokerId, financialYearId, key.monthStart(), key.buyerCity(),
+                    key.sellerId(), delta.getRecords());
+            if (updated > 0) {
+                return;
+            }
+            if (sign < 0) {
+                log.warn("No dashboard city seller row for broker {} FY {} cell {} while reversing records, skipping; run verify to repair",
+                        brokerId, financialYearId, key);
+                return;
+            }
+            deltaWriter.upsert(delta, CITY_SELLER_KEY, CITY_SELLER_COUNTERS);
+        });
+
+        if (sign < 0) {
+            // Every record of a ledger entry falls on the same day and has the same seller
+            rollupRepository.deleteEmptyCells(brokerId, financialYearId, ledgerDate);
+            Set<Long> sellerIds = new HashSet<>();
+            citySellerDeltas.keySet().forEach(key -> sellerIds.add(key.sellerId()));
+            if (!sellerIds.isEmpty()) {
+                citySellerRepository.deleteEmptyCells(brokerId, financialYearId, sellerIds);
+            }
+        }
+        log.debug("Applied {} dashboard rollup deltas for broker {} FY {}", deltas.size(), brokerId, financialYearId);
+    }
+
+    /**
+     * Replaces every rollup and city seller row of the broker and financial year with totals recomputed from the ledger.
+     */
+    public int rebuild(Long brokerId, Long financialYearId) {
+        Map<CellKey, DashboardDailyRollup> expected = computeFromLedger(brokerId, financialYearId);
+        Map<CitySellerKey, DashboardCitySeller> expectedCitySellers = computeCitySellersFromLedger(brokerId, financialYearId);
+        rollupRepository.deleteByBrokerIdAndFinancialYearId(brokerId, financialYearId);
+        rollupRepository.saveAll(expected.values());
+        citySellerRepository.deleteByBrokerIdAndFinancialYearId(brokerId, financialYearId);
+        citySellerRepository.saveAll(expectedCitySellers.values());
+        log.info("Rebuilt dashboard rollup for broker {} FY {}: {} rows, {} city seller rows", brokerId, financialYearId,
+                expected.size(), expectedCitySellers.size());
+        return expected.size();
+    }
+
+    /**
+     * Compares the stored rollup with the raw ledger and optionally rebuilds it when they differ.
+     */
+    public BrokerageAggregateVerificationDTO verify(Long brokerId, Long financialYearId, boolean repair) {
+        Map<CellKey, DashboardDailyRollup> expected = computeFromLedger(brokerId, financialYearId);
+        Map<CellKey, DashboardDailyRollup> stored = index(rollupRepository.findByBrokerIdAndFinancialYearId(brokerId, financialYearId));
+
+        Set<CellKey> keys = new LinkedHashSet<>(expected.keySet());
+        keys.addAll(stored.keySet());
+        List<String> mismatches = new ArrayList<>();
+        int mismatchedRows = 0;
+        for (CellKey key : keys) {
+            DashboardDailyRollup want = expected.get(key);
+            DashboardDailyRollup have = stored.get(key);
+            if (sameTotals(want, have)) {
+                continue;
+            }
+            mismatchedRows++;
+            if (mismatches.size() < MAX_REPORTED_MISMATCHES) {
+                mismatches.add(key + " expected " + describe(want) + " but was " + describe(have));
+            }
+        }
+
+        Map<CitySellerKey, DashboardCitySeller> expectedCitySellers = computeCitySellersFromLedger(brokerId, financialYearId);
+        Map<CitySellerKey, DashboardCitySeller> storedCitySellers = indexCitySellers(
+                citySellerRepository.findByBrokerIdAndFinancialYearId(brokerId, financialYearId));
+        Set<CitySellerKey> citySellerKeys = new LinkedHashSet<>(expectedCitySellers.keySet());
+        citySellerKeys.addAll(storedCitySellers.keySet());
+        for (CitySellerKey key : citySellerKeys) {
+            Long want = expectedCitySellers.containsKey(key) ? expectedCitySellers.get(key).getRecords() : null;
+            Long have = storedCitySellers.containsKey(key) ? storedCitySellers.get(key).getRecords() : null;
+            if (Objects.equals(want, have)) {
+                continue;
+            }
+            mismatchedRows++;
+            if (mismatches.size() < MAX_REPORTED_MISMATCHES) {
+                mismatches.add(key + " expected " + (want != null ? want + " records" : "no row")
+                        + " but was " + (have != null ? have + " records" : "no row"));
+            }
+        }
+
+        boolean consistent = mismatchedRows == 0;
+        boolean rebuilt = false;
+        if (!consistent) {
+            log.warn("Dashboard rollup for broker {} FY {} differs from ledger in {} rows", brokerId, financialYearId, mismatchedRows);
+            if (repair) {
+                rebuild(brokerId, financialYearId);
+                rebuilt = true;
+            }
+        }
+        return BrokerageAggregateVerificationDTO.builder()
+                .brokerId(brokerId)
+                .financialYearId(financialYearId)
+                .expectedRows(expected.size() + expectedCitySellers.size())
+                .storedRows(stored.size() + storedCitySellers.size())
+                .mismatchedRows(mismatchedRows)
+                .consistent(consistent)
+                .rebuilt(rebuilt)
+                .mismatches(mismatches)
+                .build();
+    }
+
+    /**
+     * Every (brokerId, financialYearId) pair that has ledger records or rollup rows.
+     */
+    @Transactional(readOnly = true)
+    public Set<List<Long>> findBrokerFinancialYears() {
+        Set<List<Long>> pairs = new LinkedHashSet<>();
+        for (Object[] row : brokerageRepository.findBrokerFinancialYearsWithRecords()) {
+            pairs.add(List.of((Long) row[0], (Long) row[1]));
+        }
+        for (Object[] row : rollupRepository.findRolledUpBrokerFinancialYears()) {
+            pairs.add(List.of((Long) row[0], (Long) row[1]));
+        }
+        return pairs;
+    }
+
+    private Map<CellKey, DashboardDailyRollup> computeFromLedger(Long brokerId, Long financialYearId) {
+        Map<CellKey, DashboardDailyRollup> cells = new HashMap<>();
+        for (Object[] row : rollupRepository.getLedgerRollupCells(brokerId, financialYearId)) {
+            CellKey key = new CellKey((LocalDate) row[0], (Long) row[1], (String) row[2], (String) row[3],
+                    (String) row[4], (String) row[5]);
+            add(cells.computeIfAbsent(key, k -> newCell(brokerId, financialYearId, k)),
+                    longValue(row[6]), longValue(row[7]), longValue(row[8]), longValue(row[9]),
+                    longValue(row[10]), longValue(row[11]));
+        }
+        return cells;
+    }
+
+    private Map<CitySellerKey, DashboardCitySeller> computeCitySellersFromLedger(Long brokerId, Long financialYearId) {
+        Map<CitySellerKey, DashboardCitySeller> cells = new HashMap<>();
+        for (Object[] row : citySellerRepository.getLedgerCitySellerCells(brokerId, financialYearId)) {
+            CitySellerKey key = new CitySellerKey(toMonthStart(row[0], row[1]), (String) row[2], (Long) row[3]);
+            DashboardCitySeller cell = cells.computeIfAbsent(key, k -> newCitySeller(brokerId, financialYearId, k));
+            cell.setRecords(cell.getRecords() + longValue(row[4]));
+        }
+        return cells;
+    }
+
+    /**
+     * Rows of a cell with a NULL key column can exist twice, the unique key does not match NULLs; reads sum them
+     */
+    private static Map<CitySellerKey, DashboardCitySeller> indexCitySellers(List<DashboardCitySeller> rows) {
+        Map<CitySellerKey, DashboardCitySeller> indexed = new HashMap<>();
+        for (DashboardCitySeller row : rows) {
+            DashboardCitySeller cell = indexed.computeIfAbsent(new CitySellerKey(row.getMonthStart(), row.getBuyerCity(), row.getSellerId()),
+                    key -> newCitySeller(row.getBrokerId(), row.getFinancialYearId(), key));
+            cell.setRecords(cell.getRecords() + row.getRecords());
+        }
+        return indexed;
+    }
+
+    private static Map<CellKey, DashboardDailyRollup> index(List<DashboardDailyRollup> rows) {
+        Map<CellKey, DashboardDailyRollup> indexed = new HashMap<>();
+        for (DashboardDailyRollup row : rows) {
+            DashboardDailyRollup cell = indexed.computeIfAbsent(new CellKey(row.getLedgerDate(), row.getProductId(),
+                    row.getSellerCity(), row.getBuyerCity(), row.getSellerType(), row.getBuyerType()),
+                    key -> newCell(row.getBrokerId(), row.getFinancialYearId(), key));
+            add(cell, row.getRecords(), row.getQuantity(), row.getTransactionValue(), row.getBrokerage(),
+                    row.getProductCostSum(), row.getBrokeragePerUnitSum());
+        }
+        return indexed;
+    }
+
+    private static DashboardDailyRollup newCell(Long brokerId, Long financialYearId, CellKey key) {
+        return DashboardDailyRollup.builder()
+                .brokerId(brokerId)
+                .financialYearId(financialYearId)
+                .ledgerDate(key.ledgerDate())
+                .productId(key.productId())
+                .sellerCity(key.sellerCity())
+                .buyerCity(key.buyerCity())
+                .sellerType(key.sellerType())
+                .buyerType(key.buyerType())
+                .build();
+    }
+
+    private static DashboardCitySeller newCitySeller(Long brokerId, Long financialYearId, CitySellerKey key) {
+        return DashboardCitySeller.builder()
+                .brokerId(brokerId)
+                .financialYearId(financialYearId)
+                .monthStart(key.monthStart())
+                .buyerCity(key.buyerCity())
+                .sellerId(key.sellerId())
+                .build();
+    }
+
+    private static void add(DashboardDailyRollup cell, long records, long quantity, long transactionValue, long brokerage,
+                            long productCostSum, long brokeragePerUnitSum) {
+        cell.setRecords(cell.getRecords() + records);
+        cell.setQuantity(cell.getQuantity() + quantity);
+        cell.setTransactionValue(cell.getTransactionValue() + transactionValue);
+        cell.setBrokerage(cell.getBrokerage() + brokerage);
+        cell.setProductCostSum(cell.getProductCostSum() + productCostSum);
+        cell.setBrokeragePerUnitSum(cell.getBrokeragePerUnitSum() + brokeragePerUnitSum);
+    }
+
+    private static boolean sameTotals(DashboardDailyRollup want, DashboardDailyRollup have) {
+        if (want == null || have == null) {
+            return want == have;
+        }
+        return Objects.equals(want.getRecords(), have.getRecords())
+                && Objects.equals(want.getQuantity(), have.getQuantity())
+                && Objects.equals(want.getTransactionValue(), have.getTransactionValue())
+                && Objects.equals(want.getBrokerage(), have.getBrokerage())
+                && Objects.equals(want.getProductCostSum(), have.getProductCostSum())
+                && Objects.equals(want.getBrokeragePerUnitSum(), have.getBrokeragePerUnitSum());
+    }
+
+    private static String describe(DashboardDailyRollup cell) {
+        if (cell == null) {
+            return "no row";
+        }
+        return "[" + cell.getRecords() + " records/" + cell.getQuantity() + " bags/" + cell.getTransactionValue()
+                + " value/" + cell.getBrokerage() + " brokerage]";
+    }
+
+    private static String cityOf(User user) {
+        return user.getAddress() != null ? user.getAddress().getCity() : null;
+    }
+
+    private static LocalDate toMonthStart(Object year, Object month) {
+        if (year == null || month == null) {
+            return null;
+        }
+        return LocalDate.of(((Number) year).intValue(), ((Number) month).intValue(), 1);
+    }
+
+    private static long longValue(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static long valueOf(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    private record CellKey(LocalDate ledgerDate, Long productId, String sellerCity, String buyerCity,
+                           String sellerType, String buyerType) {
+    }
+
+    private record CitySellerKey(LocalDate monthStart, String buyerCity, Long sellerId) {
+    }
+}
@@ -26,6 +26,22 @@ public interface DashboardService {
      */
     TopPerformersDTO getTopPerformers(Long brokerId, Long financialYearId);
 
+    /**
+     * Recompute the financial year analytics and replace the cached entry, which keeps being served until then
+     * @param brokerId The broker ID
+     * @param financialYearId The financial year ID
+     * @return Freshly computed analytics
+     */
+    FinancialYearAnalyticsDTO recomputeFinancialYearAnalytics(Long brokerId, Long financialYearId);
+
+    /**
+     * Recompute the top performers and replace the cached entry, which keeps being served until then
+     * @param brokerId The broker ID
+     * @param financialYearId The financial year ID
+     * @return Freshly computed top performers
+     */
+    TopPerformersDTO recomputeTopPerformers(Long brokerId, Long financialYearId);
+
     /**
      * Get top 5 buyers by quantity for a financial year
      * @param brokerId The broker ID requesting the analytics
@@ -51,13 +67,15 @@ public interface DashboardService {
     List<TopMerchantByBrokerageDTO> getTop5MerchantsByBrokerage(Long brokerId, Long financialYearId);
 
     /**
-     * Refresh analytics cache for a specific financial year
+     * Refresh the broker's analytics cache for a specific financial year
+     * @param brokerId The broker whose entries are evicted
      * @param financialYearId The financial year ID to refresh
      */
-    void refreshAnalyticsCache(Long financialYearId);
+    void refreshAnalyticsCache(Long brokerId, Long financialYearId);
 
     /**
-     * Refresh all analytics cache
+     * Refresh the broker's analytics cache for all financial years; other brokers keep their entries
+     * @param brokerId The broker whose entries are evicted
      */
-    void refreshAllAnalyticsCache();
+    void refreshAllAnalyticsCache(Long brokerId);
 }
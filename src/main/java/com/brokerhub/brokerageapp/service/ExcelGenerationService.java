@@ -4,6 +4,7 @@ import com.brokerhub.brokerageapp.dto.BrokerageSummaryDTO;
 import com.brokerhub.brokerageapp.dto.UserBrokerageDetailDTO;
 import com.brokerhub.brokerageapp.entity.Broker;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.util.List;
 
@@ -17,4 +18,13 @@ public interface ExcelGenerationService {
     
     byte[] generateCityBrokerageExcel(String city, List<UserBrokerageDetailDTO> cityUsers, Broker broker, Long financialYearId);
     
+    void writeUserBrokerageExcel(UserBrokerageDetailDTO userDetail, Broker broker, Long financialYearId, BigDecimal customBrokerage, OutputStream outputStream);
+    
+    void writeBrokerageSummaryExcel(BrokerageSummaryDTO summary, Broker broker, Long financialYearId, OutputStream outputStream);
+    
+    /**
+     * Users are read from the iterable one at a time while rows stream out, so the caller can load them lazily.
+     */
+    void writeCityBrokerageExcel(String city, Iterable<UserBrokerageDetailDTO> cityUsers, Broker broker, Long financialYearId, OutputStream outputStream);
+    
 }
\ No newline at end of file
@@ -6,75 +6,112 @@ import com.brokerhub.brokerageapp.entity.Broker;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFColor;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Slf4j
 public class ExcelGenerationServiceImpl implements ExcelGenerationService {
     
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    
+    /**
+     * Rows kept in memory per sheet; older rows are flushed to a compressed temp file, so heap use
+     * stays flat however many transactions a bill or city report has.
+     */
+    @Value("${app.excel.stream-row-window:100}")
+    private int rowWindow;
+    
     @Override
     public byte[] generateUserBrokerageExcel(UserBrokerageDetailDTO userDetail, Broker broker, Long financialYearId) {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            createUserBrokerageSheet(workbook, userDetail, broker, financialYearId, null);
-            return writeWorkbookToBytes(workbook);
-        } catch (IOException e) {
-            log.error("Error generating user brokerage Excel", e);
-            throw new RuntimeException("Failed to generate Excel", e);
-        }
+        return generateUserBrokerageExcel(userDetail, broker, financialYearId, null);
     }
     
     @Override
     public byte[] generateUserBrokerageExcel(UserBrokerageDetailDTO userDetail, Broker broker, Long financialYearId, BigDecimal customBrokerage) {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            createUserBrokerageSheet(workbook, userDetail, broker, financialYearId, customBrokerage);
-            return writeWorkbookToBytes(workbook);
-        } catch (IOException e) {
-            log.error("Error generating user brokerage Excel with custom brokerage", e);
-            throw new RuntimeException("Failed to generate Excel", e);
-        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeUserBrokerageExcel(userDetail, broker, financialYearId, customBrokerage, outputStream);
+        return outputStream.toByteArray();
     }
     
     @Override
     public byte[] generateBrokerageSummaryExcel(BrokerageSummaryDTO summary, Broker broker, Long financialYearId) {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            createSummarySheet(workbook, summary, broker, financialYearId);
-            return writeWorkbookToBytes(workbook);
-        } catch (IOException e) {
-            log.error("Error generating brokerage summary Excel", e);
-            throw new RuntimeException("Failed to generate Excel", e);
-        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeBrokerageSummaryExcel(summary, broker, financialYearId, outputStream);
+        return outputStream.toByteArray();
     }
     
     @Override
     public byte[] generateCityBrokerageExcel(String city, List<UserBrokerageDetailDTO> cityUsers, Broker broker, Long financialYearId) {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            createCityBrokerageSheet(workbook, city, cityUsers, broker, financialYearId);
-            return writeWorkbookToBytes(workbook);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeCityBrokerageExcel(city, cityUsers, broker, financialYearId, outputStream);
+        return outputStream.toByteArray();
+    }
+    
+    @Override
+    public void writeUserBrokerageExcel(UserBrokerageDetailDTO userDetail, Broker broker, Long financialYearId,
+                                        BigDecimal customBrokerage, OutputStream outputStream) {
+        writeWorkbook(outputStream, "user brokerage",
+                (workbook, styles) -> createUserBrokerageSheet(workbook, styles, userDetail, broker, financialYearId, customBrokerage));
+    }
+    
+    @Override
+    public void writeBrokerageSummaryExcel(BrokerageSummaryDTO summary, Broker broker, Long financialYearId, OutputStream outputStream) {
+        writeWorkbook(outputStream, "brokerage summary",
+                (workbook, styles) -> createSummarySheet(workbook, styles, summary, broker, financialYearId));
+    }
+    
+    @Override
+    public void writeCityBrokerageExcel(String city, Iterable<UserBrokerageDetailDTO> cityUsers, Broker broker,
+                                        Long financialYearId, OutputStream outputStream) {
+        writeWorkbook(outputStream, "city brokerage",
+                (workbook, styles) -> createCityBrokerageSheet(workbook, styles, city, cityUsers, broker, financialYearId));
+    }
+    
+    private void writeWorkbook(OutputStream outputStream, String report, SheetWriter sheetWriter) {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+        try {
+            sheetWriter.write(workbook, new ExcelStyles(workbook));
+            workbook.write(outputStream);
+            outputStream.flush();
         } catch (IOException e) {
-            log.error("Error generating city brokerage Excel", e);
+            log.error("Error generating {} Excel", report, e);
             throw new RuntimeException("Failed to generate Excel", e);
+        } finally {
+            workbook.dispose();
+            try {
+                workbook.close();
+            } catch (IOException e) {
+                log.warn("Failed to close {} Excel workbook", report, e);
+            }
         }
     }
     
-    private void createUserBrokerageSheet(Workbook workbook, UserBrokerageDetailDTO userDetail, Broker broker, Long financialYearId, BigDecimal customBrokerage) {
-        Sheet sheet = workbook.createSheet("Brokerage Bill");
+    private void createUserBrokerageSheet(SXSSFWorkbook workbook, ExcelStyles styles, UserBrokerageDetailDTO userDetail, Broker broker, Long financialYearId, BigDecimal customBrokerage) {
+        SXSSFSheet sheet = workbook.createSheet("Brokerage Bill");
         sheet.setDisplayGridlines(false);
+        // Rows are flushed as they leave the window, so height and column widths are settled up front
+        sheet.setDefaultRowHeightInPoints(20);
+        sheet.trackAllColumnsForAutoSizing();
         
-        // Create enhanced styles
-        CellStyle titleStyle = createTitleStyle(workbook);
-        CellStyle headerStyle = createHeaderStyle(workbook);
-        CellStyle boldStyle = createBoldStyle(workbook);
-        CellStyle dataStyle = createDataStyle(workbook);
-        CellStyle currencyStyle = createCurrencyStyle(workbook);
-        CellStyle totalStyle = createTotalStyle(workbook);
+        CellStyle titleStyle = styles.get(StyleKind.TITLE);
+        CellStyle headerStyle = styles.get(StyleKind.HEADER);
+        CellStyle boldStyle = styles.get(StyleKind.BOLD);
+        CellStyle dataStyle = styles.get(StyleKind.DATA);
+        CellStyle currencyStyle = styles.get(StyleKind.CURRENCY);
+        CellStyle totalStyle = styles.get(StyleKind.TOTAL);
         
         int rowNum = 0;
         
@@ -138,7 +175,7 @@ public class ExcelGenerationServiceImpl implements ExcelGenerationService {
                 transaction.getBrokerage();
             
             createNumericCell(row, 0, serialNo++, dataStyle);
-            createCell(row, 1, transaction.getTransactionDate().format(DateTimeFormatter.ofPattern("dd-MM-yyyy")), dataStyle);
+            createCell(row, 1, transaction.getTransactionDate().format(DATE_FORMAT), dataStyle);
             createCell(row, 2, transaction.getCounterPartyFirmName(), dataStyle);
             createCell(row, 3, transaction.getProductName(), dataStyle);
             createNumericCell(row, 4, transaction.getQuantity(), dataStyle);
@@ -172,25 +209,19 @@ public class ExcelGenerationServiceImpl implements ExcelGenerationService {
         
         createSummarySection(sheet, userDetail, totalBrokerage, customBrokerage, rowNum, boldStyle, dataStyle, currencyStyle);
         
-        // Auto-size columns and apply formatting
+        // Auto-size columns from the widths tracked while the rows streamed past
         for (int i = 0; i < headers.length; i++) {
             sheet.autoSizeColumn(i);
             sheet.setColumnWidth(i, Math.max(sheet.getColumnWidth(i), 3000));
         }
-        
-        // Set row heights for better appearance
-        for (int i = 0; i <= rowNum + 10; i++) {
-            Row row = sheet.getRow(i);
-            if (row != null) {
-                row.setHeightInPoints(20);
-            }
-        }
     }
     
-    private void createSummarySheet(Workbook workbook, BrokerageSummaryDTO summary, Broker broker, Long financialYearId) {
-        Sheet sheet = workbook.createSheet("Brokerage Summary");
-        CellStyle headerStyle = createHeaderStyle(workbook);
-        CellStyle boldStyle = createBoldStyle(workbook);
+    private void createSummarySheet(SXSSFWorkbook workbook, ExcelStyles styles, BrokerageSummaryDTO summary, Broker broker, Long financialYearId) {
+        SXSSFSheet sheet = workbook.createSheet("Brokerage Summary");
+        sheet.trackColumnForAutoSizing(0);
+        sheet.trackColumnForAutoSizing(1);
+        CellStyle headerStyle = styles.get(StyleKind.HEADER);
+        CellStyle boldStyle = styles.get(StyleKind.BOLD);
         
         int rowNum = 0;
         
@@ -243,10 +274,11 @@ public class ExcelGenerationServiceImpl implements ExcelGenerationService {
         sheet.autoSizeColumn(1);
     }
     
-    private void createCityBrokerageSheet(Workbook workbook, String city, List<UserBrokerageDetailDTO> cityUsers, Broker broker, Long financialYearId) {
-        Sheet sheet = workbook.createSheet("City Brokerage - " + city);
-        CellStyle headerStyle = createHeaderStyle(workbook);
-        CellStyle boldStyle = createBoldStyle(workbook);
+    private void createCityBrokerageSheet(SXSSFWorkbook workbook, ExcelStyles styles, String city, Iterable<UserBrokerageDetailDTO> cityUsers, Broker broker, Long financialYearId) {
+        SXSSFSheet sheet = workbook.createSheet("City Brokerage - " + city);
+        sheet.trackAllColumnsForAutoSizing();
+        CellStyle headerStyle = styles.get(StyleKind.HEADER);
+        CellStyle boldStyle = styles.get(StyleKind.BOLD);
         
         int rowNum = 0;
         
@@ -459,13 +491,6 @@ public class ExcelGenerationServiceImpl implements ExcelGenerationService {
         }
     }
     
-    private byte[] writeWorkbookToBytes(Workbook workbook) throws IOException {
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            workbook.write(outputStream);
-            return outputStream.toByteArray();
-        }
-    }
-    
     private BigDecimal calculateTotalBrokerage(UserBrokerageDetailDTO userDetail, BigDecimal customBrokerage) {
         if (customBrokerage == null) {
             // If no custom brokerage, calculate from transaction details to ensure accuracy
@@ -484,4 +509,48 @@ public class ExcelGenerationServiceImpl implements ExcelGenerationService {
             .map(transaction -> customBrokerage.multiply(BigDecimal.valueOf(transaction.getQuantity())))
             .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
-}
\ No newline at end of file
+    
+    @FunctionalInterface
+    private interface SheetWriter {
+        void write(SXSSFWorkbook workbook, ExcelStyles styles) throws IOException;
+    }
+    
+    private enum StyleKind {
+        TITLE, HEADER, BOLD, DATA, CURRENCY, TOTAL
+    }
+    
+    /**
+     * Cell styles and fonts are workbook-level records; creating them per cell or per sheet bloats
+     * styles.xml and eventually hits Excel's style limit. Each kind is created once per workbook.
+     */
+    private final class ExcelStyles {
+        
+        private final Workbook workbook;
+        private final Map<StyleKind, CellStyle> styles = new EnumMap<>(StyleKind.class);
+        
+        private ExcelStyles(Workbook workbook) {
+            this.workbook = workbook;
+        }
+        
+        CellStyle get(StyleKind kind) {
+            return styles.computeIfAbsent(kind, this::create);
+        }
+        
+        private CellStyle create(StyleKind kind) {
+            switch (kind) {
+                case TITLE:
+                    return createTitleStyle(workbook);
+                case HEADER:
+                    return createHeaderStyle(workbook);
+                case BOLD:
+                    return createBoldStyle(workbook);
+                case CURRENCY:
+                    return createCurrencyStyle(workbook);
+                case TOTAL:
+                    return createTotalStyle(workbook);
+                default:
+                    return createDataStyle(workbook);
+            }
+        }
+    }
+}
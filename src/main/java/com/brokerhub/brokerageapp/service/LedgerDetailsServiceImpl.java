@@ -115,6 +115,15 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
     @Autowired
     BrokerageCacheService brokerageCacheService;
 
+    @Autowired
+    AnalyticsCacheWarmer analyticsCacheWarmer;
+
+    @Autowired
+    MerchantBrokerageAggregateService merchantBrokerageAggregateService;
+
+    @Autowired
+    DashboardRollupService dashboardRollupService;
+
     public ResponseEntity<Long> createLedgerDetails(LedgerDetailsDTO ledgerDetailsDTO) {
         // Get current broker
         Broker currentBroker = tenantContextService.getCurrentBroker();
@@ -158,59 +167,78 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
         }
         // Store seller brokerage rate for this transaction
         ledgerDetails.setSellerBrokerageRate(sellerBrokerage);
-        List<LedgerRecordDTO> ledgerRecordDTOList = ledgerDetailsDTO.getLedgerRecordDTOList();
+        List<LedgerRecordDTO> ledgerRecordDTOList = ledgerDetailsDTO.getLedgerRecordDTOList() != null ?
+            ledgerDetailsDTO.getLedgerRecordDTOList() : Collections.emptyList();
+
+        // Resolve every product and buyer of the entry up front: one query each instead of two per record
+        Map<Long, Product> productsById = productRepository.findAllById(ledgerRecordDTOList.stream()
+                .map(LedgerRecordDTO::getProductId).filter(Objects::nonNull).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Product::getProductId, product -> product));
+        Map<String, User> buyersByName = resolveUsersByFirmName(currentBroker.getBrokerId(),
+                ledgerRecordDTOList.stream().map(LedgerRecordDTO::getBuyerName).collect(Collectors.toList()));
+
+        List<LedgerRecord> createdRecords = new ArrayList<>();
+        Map<Long, User> touchedUsers = new LinkedHashMap<>();
         Long totalBags = 0L;
-        if(ledgerRecordDTOList != null && !ledgerRecordDTOList.isEmpty()) {
-            for(int i=0; i<ledgerRecordDTOList.size(); i++){
-            Long brokerage = ledgerRecordDTOList.get(i).getBrokerage();
-//            if(brokerage<=0){brokerage= 1L;}
-            Long quantity = ledgerRecordDTOList.get(i).getQuantity();
-            Long productCost = ledgerRecordDTOList.get(i).getProductCost();
+        BigDecimal totalBuyerBrokerage = BigDecimal.ZERO;
+        for (LedgerRecordDTO recordDTO : ledgerRecordDTOList) {
+            Long brokerage = recordDTO.getBrokerage();
+            Long quantity = recordDTO.getQuantity();
+            Long productCost = recordDTO.getProductCost();
+            Product product = productsById.get(recordDTO.getProductId());
+            if (product == null) {
+                throw new IllegalArgumentException("Product not found: " + recordDTO.getProductId());
+            }
+            User buyer = buyersByName.get(recordDTO.getBuyerName());
+            if (buyer == null) {
+                throw new IllegalArgumentException("Buyer name not found: " + recordDTO.getBuyerName());
+            }
+
             LedgerRecord ledgerRecord = new LedgerRecord();
             ledgerRecord.setLedgerDetails(ledgerDetails);
             ledgerRecord.setBroker(currentBroker);
-            ledgerRecord.setBrokerage((long) brokerage);
-
-            Product product = productRepository.findById(ledgerRecordDTOList.get(i).getProductId()).get();
-            if(product != null) {
-                ledgerRecord.setProduct(product);
-            }
-
-            User buyer = userRepository.findByFirmName(ledgerRecordDTOList.get(i).getBuyerName()).get();
-            if(buyer != null) {
-                ledgerRecord.setToBuyer(buyer);
-            }
+            ledgerRecord.setBrokerage(brokerage);
+            ledgerRecord.setProduct(product);
+            ledgerRecord.setToBuyer(buyer);
             ledgerRecord.setQuantity(quantity);
             ledgerRecord.setProductCost(productCost);
             ledgerRecord.setTotalBrokerage(brokerage*quantity);
             ledgerRecord.setTotalProductsCost(productCost*quantity);
+            createdRecords.add(ledgerRecord);
+
+            // Balance changes are applied to the managed entities and written once per user at flush
             totalBags+=quantity;
             BigDecimal totalBrokerage = safeMultiply(quantity, brokerage);
             buyer.setTotalBagsBought(buyer.getTotalBagsBought()+quantity);
             buyer.setPayableAmount(buyer.getPayableAmount()+quantity*productCost);
             addBrokerage(buyer, totalBrokerage, "CREATE_TRANSACTION_BUYER");
-            seller.setReceivableAmount(seller.getReceivableAmount()+quantity*productCost);
-            currentBroker.setTotalBrokerage(currentBroker.getTotalBrokerage().add(totalBrokerage));
-            userRepository.save(seller);
-            userRepository.save(buyer);
-            ledgerDetailsRepository.save(ledgerDetails);
-            ledgerRecordRepository.save(ledgerRecord);
+            touchedUsers.put(buyer.getUserId(), buyer);
+            if(seller != null) {
+                seller.setReceivableAmount(seller.getReceivableAmount()+quantity*productCost);
             }
+            totalBuyerBrokerage = totalBuyerBrokerage.add(totalBrokerage);
         }
         if(seller != null) {
             seller.setTotalBagsSold(seller.getTotalBagsSold()+totalBags);
             BigDecimal sellerBrokerageAmount = safeMultiply(totalBags, sellerBrokerage);
             addBrokerage(seller, sellerBrokerageAmount, "CREATE_TRANSACTION_SELLER");
-            userRepository.save(seller);
+            touchedUsers.put(seller.getUserId(), seller);
         }
         if(currentBroker != null) {
             BigDecimal sellerBrokerageAmount = safeMultiply(totalBags, sellerBrokerage);
-            currentBroker.setTotalBrokerage(currentBroker.getTotalBrokerage().add(sellerBrokerageAmount));
+            currentBroker.setTotalBrokerage(currentBroker.getTotalBrokerage().add(totalBuyerBrokerage).add(sellerBrokerageAmount));
         }
         ledgerDetailsRepository.save(ledgerDetails);
+        // Sequence-generated IDs let hibernate.jdbc.batch_size group these inserts and the user updates
+        ledgerRecordRepository.saveAll(createdRecords);
+        userRepository.saveAll(touchedUsers.values());
+        merchantBrokerageAggregateService.addRecords(ledgerDetails, createdRecords);
+        dashboardRollupService.addRecords(ledgerDetails, createdRecords);
         
-        // Clear brokerage cache after transaction creation
-        brokerageCacheService.evictBrokerageCache(financialYearId);
+        // Only this broker's year totals and the touched merchants and their cities go stale
+        brokerageCacheService.evictLedgerChange(currentBroker.getBrokerId(), financialYearId, touchedUsers.values());
+        // The dashboards and the year summary keep serving the old values until the recomputed ones replace them
+        analyticsCacheWarmer.refreshAfterCommit(currentBroker.getBrokerId(), financialYearId);
         
         log.info("Transaction {} created successfully for broker {}", nextTransactionNumber, currentBroker.getBrokerId());
         
@@ -352,70 +380,36 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
     }
 
     public List<DisplayLedgerDetailDTO> getAllLedgerDetailsOnDate(LocalDate date, Long brokerId, Long financialYearId) {
-        List<DisplayLedgerDetailDTO> ledgerDetailsDTOList = new ArrayList<>();
-
         // Use current broker context instead of passed brokerId for security
         Long currentBrokerId = tenantContextService.getCurrentBrokerId();
-        List<Object[]> rawResults = ledgerDetailsRepository.findLedgersOnDateByBrokerIdRaw(currentBrokerId, date);
-        
-        // Convert Object[] to DTOs
-        List<DateLedgerRecordDTO> ledgerRecordsOnDate = rawResults.stream()
-                .map(row -> DateLedgerRecordDTO.builder()
-                        .sellerId(((Number) row[0]).longValue())
-                        .ledgerDetailsId(((Number) row[1]).longValue())
-                        .buyerId(((Number) row[2]).longValue())
-                        .productId(((Number) row[3]).longValue())
-                        .quantity(((Number) row[4]).longValue())
-                        .brokerage(((Number) row[5]).longValue())
-                        .productCost(((Number) row[6]).longValue())
-                        .transactionNumber(((Number) row[7]).longValue())
-                        .build())
-                .collect(Collectors.toList());
-
-        for(DateLedgerRecordDTO dateLedgerRecord : ledgerRecordsOnDate){
-            User seller = userRepository.findById(dateLedgerRecord.getSellerId()).get();
-            String sellerName = seller.getFirmName();
-            DisplayLedgerDetailDTO existingLedgerDetail = checkTransactionExists(ledgerDetailsDTOList, sellerName, dateLedgerRecord.getTransactionNumber());
-            if(null==existingLedgerDetail){
-                DisplayLedgerDetailDTO ledgerDetailsDTO = new DisplayLedgerDetailDTO();
-
-                ledgerDetailsDTO.setDate(date);
-                ledgerDetailsDTO.setTransactionNumber(dateLedgerRecord.getTransactionNumber());
-                ledgerDetailsDTO.setFinancialYearId(financialYearId);
-                ledgerDetailsDTO.setBrokerId(currentBrokerId);
-                ledgerDetailsDTO.setSellerName(sellerName);
-                ledgerDetailsDTO.setSellerLocation(seller.getAddress() != null ? seller.getAddress().getCity() : null);
-
-                List<DisplayLedgerRecordDTO> ledgerRecordDTOList = new ArrayList<>();
-                DisplayLedgerRecordDTO ledgerRecordDTO = new DisplayLedgerRecordDTO();
-                ledgerRecordDTO.setBrokerage(dateLedgerRecord.getBrokerage());
-                User buyer = userRepository.findById(dateLedgerRecord.getBuyerId()).get();
-                ledgerRecordDTO.setBuyerName(buyer.getFirmName());
-                ledgerRecordDTO.setLocation(buyer.getAddress() != null ? buyer.getAddress().getCity() : null);
-                ledgerRecordDTO.setQuantity(dateLedgerRecord.getQuantity());
-                ledgerRecordDTO.setProductName(productRepository.findById(dateLedgerRecord.getProductId()).get().getProductName());
-                ledgerRecordDTO.setProductCost(dateLedgerRecord.getProductCost());
-                ledgerRecordDTO.setTotal(dateLedgerRecord.getQuantity()*dateLedgerRecord.getProductCost());
-                ledgerRecordDTOList.add(ledgerRecordDTO);
-
-                ledgerDetailsDTO.setDisplayLedgerRecordDTOList(ledgerRecordDTOList);
-                ledgerDetailsDTOList.add(ledgerDetailsDTO);
-            }else{
-
-                DisplayLedgerRecordDTO ledgerRecordDTO = new DisplayLedgerRecordDTO();
-                ledgerRecordDTO.setBrokerage(dateLedgerRecord.getBrokerage());
-                User buyer = userRepository.findById(dateLedgerRecord.getBuyerId()).get();
-                ledgerRecordDTO.setBuyerName(buyer.getFirmName());
-                ledgerRecordDTO.setLocation(buyer.getAddress() != null ? buyer.getAddress().getCity() : null);
-                ledgerRecordDTO.setQuantity(dateLedgerRecord.getQuantity());
-                ledgerRecordDTO.setProductName(productRepository.findById(dateLedgerRecord.getProductId()).get().getProductName());
-                ledgerRecordDTO.setProductCost(dateLedgerRecord.getProductCost());
-                ledgerRecordDTO.setTotal(dateLedgerRecord.getQuantity()*dateLedgerRecord.getProductCost());
-
-                existingLedgerDetail.getDisplayLedgerRecordDTOList().add(ledgerRecordDTO);
-            }
+
+        // Seller, buyer, product and city names come back joined in, so the whole day is one round trip
+        Map<Long, DisplayLedgerDetailDTO> ledgerDetailsById = new LinkedHashMap<>();
+        for (DayLedgerRecordView row : ledgerDetailsRepository.findDayLedgerViewByBrokerIdAndDate(currentBrokerId, date)) {
+            DisplayLedgerDetailDTO ledgerDetailsDTO = ledgerDetailsById.computeIfAbsent(row.getLedgerDetailsId(), id ->
+                    DisplayLedgerDetailDTO.builder()
+                            .date(date)
+                            .transactionNumber(row.getTransactionNumber())
+                            .financialYearId(financialYearId)
+                            .brokerId(currentBrokerId)
+                            .sellerName(row.getSellerName())
+                            .sellerLocation(row.getSellerCity())
+                            .displayLedgerRecordDTOList(new ArrayList<>())
+                            .build());
+
+            Long quantity = row.getQuantity() != null ? row.getQuantity() : 0L;
+            Long productCost = row.getProductCost() != null ? row.getProductCost() : 0L;
+            ledgerDetailsDTO.getDisplayLedgerRecordDTOList().add(DisplayLedgerRecordDTO.builder()
+                    .buyerName(row.getBuyerName())
+                    .location(row.getBuyerCity())
+                    .productName(row.getProductName())
+                    .quantity(row.getQuantity())
+                    .brokerage(row.getBrokerage())
+                    .productCost(row.getProductCost())
+                    .total(quantity * productCost)
+                    .build());
         }
-        return ledgerDetailsDTOList;
+        return new ArrayList<>(ledgerDetailsById.values());
     }
 
     @Override
@@ -428,12 +422,6 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
 //        List<LedgerDetailsDTO> LedgerDetailsBySeller = ledgerDetailsRepository.findByFromSeller(sellerId);
 //    }
 
-    private DisplayLedgerDetailDTO checkTransactionExists(List<DisplayLedgerDetailDTO> ledgerDetailsDTOList, String sellerName, Long transactionNumber) {
-        return ledgerDetailsDTOList.stream()
-                .filter(ld -> ld.getSellerName().equalsIgnoreCase(sellerName) && ld.getTransactionNumber().equals(transactionNumber))
-                .findFirst().orElse(null);
-    }
-
     /**
      * Helper method to convert LedgerDetails entity to OptimizedLedgerDetailsDTO
      */
@@ -639,6 +627,7 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
             LedgerDetails existingLedger = existingLedgerOptional.get();
             Broker currentBroker = existingLedger.getBroker();
             User oldSeller = existingLedger.getFromSeller();
+            Map<Long, User> touchedUsers = new LinkedHashMap<>();
             
             // STEP 1: Reverse old transaction balances
             Long oldTotalBags = 0L;
@@ -658,6 +647,7 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
                         buyer.setPayableAmount(buyer.getPayableAmount() - (quantity * productCost));
                         BigDecimal recordBrokerage = safeMultiply(quantity, brokerage);
                         subtractBrokerage(buyer, recordBrokerage, "UPDATE_TRANSACTION_REVERSE_BUYER");
+                        touchedUsers.put(buyer.getUserId(), buyer);
                         
                         // Reverse old seller receivable amount
                         if (oldSeller != null) {
@@ -666,10 +656,6 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
                         
                         oldTotalBags += quantity;
                         oldTotalBrokerBrokerage = oldTotalBrokerBrokerage.add(recordBrokerage);
-                        
-                        // Store buyer for later saving
-                        
-                        userRepository.save(buyer);
                     }
                 }
             }
@@ -695,6 +681,8 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
             
             // Delete old records and clear the collection
             if (existingLedger.getRecords() != null) {
+                merchantBrokerageAggregateService.removeRecords(existingLedger, existingLedger.getRecords());
+                dashboardRollupService.removeRecords(existingLedger, existingLedger.getRecords());
                 ledgerRecordRepository.deleteAll(existingLedger.getRecords());
                 existingLedger.getRecords().clear(); // Clear the collection to avoid stale references
             }
@@ -721,9 +709,17 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
             Long newSellerBrokerage = ledgerDetailsDTO.getBrokerage();
             // Update the seller brokerage rate in ledger details
             existingLedger.setSellerBrokerageRate(newSellerBrokerage);
+            List<LedgerRecord> newRecords = new ArrayList<>();
             
             if (ledgerDetailsDTO.getLedgerRecordDTOList() != null && !ledgerDetailsDTO.getLedgerRecordDTOList().isEmpty()) {
-                for (LedgerRecordDTO recordDTO : ledgerDetailsDTO.getLedgerRecordDTOList()) {
+                // Resolve every product and buyer of the entry up front, as on create
+                List<LedgerRecordDTO> recordDTOs = ledgerDetailsDTO.getLedgerRecordDTOList();
+                Map<Long, Product> productsById = productRepository.findAllById(recordDTOs.stream()
+                        .map(LedgerRecordDTO::getProductId).filter(Objects::nonNull).collect(Collectors.toSet()))
+                        .stream().collect(Collectors.toMap(Product::getProductId, product -> product));
+                Map<String, User> buyersByName = resolveUsersByFirmName(currentBrokerId,
+                        recordDTOs.stream().map(LedgerRecordDTO::getBuyerName).collect(Collectors.toList()));
+                for (LedgerRecordDTO recordDTO : recordDTOs) {
                     LedgerRecord newRecord = new LedgerRecord();
                     newRecord.setLedgerDetails(existingLedger);
                     newRecord.setBroker(currentBroker);
@@ -733,18 +729,14 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
                     newRecord.setTotalBrokerage(recordDTO.getBrokerage() * recordDTO.getQuantity());
                     newRecord.setTotalProductsCost(recordDTO.getProductCost() * recordDTO.getQuantity());
                     
-                    if (recordDTO.getProductId() != null) {
-                        Optional<Product> productOptional = productRepository.findById(recordDTO.getProductId());
-                        productOptional.ifPresent(newRecord::setProduct);
+                    Product product = productsById.get(recordDTO.getProductId());
+                    if (product != null) {
+                        newRecord.setProduct(product);
                     }
                     
-                    User buyer = null;
-                    if (recordDTO.getBuyerName() != null) {
-                        Optional<User> buyerOptional = userRepository.findByFirmName(recordDTO.getBuyerName());
-                        if (buyerOptional.isPresent()) {
-                            buyer = buyerOptional.get();
-                            newRecord.setToBuyer(buyer);
-                        }
+                    User buyer = buyersByName.get(recordDTO.getBuyerName());
+                    if (buyer != null) {
+                        newRecord.setToBuyer(buyer);
                     }
                     
                     // Apply new buyer updates
@@ -757,6 +749,7 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
                         buyer.setPayableAmount(buyer.getPayableAmount() + (quantity * productCost));
                         BigDecimal recordBrokerage = safeMultiply(quantity, brokerage);
                         addBrokerage(buyer, recordBrokerage, "UPDATE_TRANSACTION_APPLY_BUYER");
+                        touchedUsers.put(buyer.getUserId(), buyer);
                         
                         // Apply new seller receivable amount
                         if (newSeller != null) {
@@ -767,9 +760,11 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
                         newTotalBags += quantity;
                     }
                     
-                    ledgerRecordRepository.save(newRecord);
+                    newRecords.add(newRecord);
                 }
             }
+            // Sequence-generated IDs let hibernate.jdbc.batch_size group these inserts, as on create
+            ledgerRecordRepository.saveAll(newRecords);
             
             // Apply new seller totals
             if (newSeller != null && newTotalBags > 0) {
@@ -788,18 +783,22 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
             // Flush and clear session to avoid stale references
             ledgerDetailsRepository.flush();
             
-            // Save all affected users at the end
+            // Save every merchant on either side of the old and new entry once, at the end
             if (oldSeller != null) {
-                userRepository.save(oldSeller);
+                touchedUsers.put(oldSeller.getUserId(), oldSeller);
             }
-            if (newSeller != null && !newSeller.equals(oldSeller)) {
-                userRepository.save(newSeller);
+            if (newSeller != null) {
+                touchedUsers.put(newSeller.getUserId(), newSeller);
             }
+            userRepository.saveAll(touchedUsers.values());
             
             ledgerDetailsRepository.save(existingLedger);
+            merchantBrokerageAggregateService.addRecords(existingLedger, newRecords);
+            dashboardRollupService.addRecords(existingLedger, newRecords);
             
-            // Clear brokerage cache after transaction update
-            brokerageCacheService.evictBrokerageCache(financialYearId);
+            // Clear the brokerage cache of the same merchants
+            brokerageCacheService.evictLedgerChange(currentBrokerId, financialYearId, touchedUsers.values());
+            analyticsCacheWarmer.refreshAfterCommit(currentBrokerId, financialYearId);
             
             log.info("Successfully updated ledger details with transaction number: {} and balanced all accounts", transactionNumber);
             return ResponseEntity.ok("Ledger details updated successfully");
@@ -812,17 +811,17 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
 
     @Override
     public Long getNextTransactionNumber(Long financialYearId) {
-        Broker currentBroker = tenantContextService.getCurrentBroker();
+        Long currentBrokerId = tenantContextService.getCurrentBrokerId();
         
         // Use provided financial year or current one
         if (financialYearId == null) {
-            financialYearId = currentFinancialYearService.getCurrentFinancialYearId(currentBroker.getBrokerId());
+            financialYearId = currentFinancialYearService.getCurrentFinancialYearId(currentBrokerId);
             if (financialYearId == null) {
                 throw new IllegalArgumentException("Financial year ID is required. Please set current financial year first.");
             }
         }
         
-        Long maxTransactionNumber = ledgerDetailsRepository.findMaxTransactionNumberByBrokerIdAndFinancialYearId(currentBroker.getBrokerId(), financialYearId);
+        Long maxTransactionNumber = ledgerDetailsRepository.findMaxTransactionNumberByBrokerIdAndFinancialYearId(currentBrokerId, financialYearId);
         return (maxTransactionNumber != null ? maxTransactionNumber : 0L) + 1;
     }
 
@@ -847,19 +846,25 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
     }
     
     private LedgerDetailsDTO convertNewRequestToLedgerDetailsDTO(NewLedgerRequestDTO newRequest) {
-        Broker currentBroker = tenantContextService.getCurrentBroker();
+        Long currentBrokerId = tenantContextService.getCurrentBrokerId();
         
+        // Resolve the seller, every buyer and every product name with one query per table
+        List<String> firmNames = new ArrayList<>();
+        firmNames.add(newRequest.getSeller_name());
+        newRequest.getBuyers().forEach(buyerDto -> firmNames.add(buyerDto.getBuyer_name()));
+        Map<String, User> usersByName = resolveUsersByFirmName(currentBrokerId, firmNames);
+
+        List<String> productNames = new ArrayList<>();
+        newRequest.getProduct_list().forEach(productDto -> productNames.add(productDto.getProduct_name()));
+        newRequest.getBuyers().forEach(buyerDto -> buyerDto.getProducts().forEach(buyerProduct -> productNames.add(buyerProduct.getProduct_name())));
+        Map<String, Product> productsByName = resolveProductsByName(currentBrokerId, productNames);
+
         // Validate seller name and get seller ID (case-insensitive)
-        Optional<User> sellerOptional = userRepository.findByBrokerBrokerIdAndFirmNameIgnoreCase(currentBroker.getBrokerId(), newRequest.getSeller_name());
-        if (!sellerOptional.isPresent()) {
-            // Try exact match as fallback
-            sellerOptional = userRepository.findByBrokerBrokerIdAndFirmName(currentBroker.getBrokerId(), newRequest.getSeller_name());
-            if (!sellerOptional.isPresent()) {
-                log.error("Seller validation failed. Seller name '{}' not found for broker {}", newRequest.getSeller_name(), currentBroker.getBrokerId());
-                throw new IllegalArgumentException("Seller name not found: " + newRequest.getSeller_name() + ". Please ensure the seller is registered in the system.");
-            }
+        User seller = usersByName.get(newRequest.getSeller_name());
+        if (seller == null) {
+            log.error("Seller validation failed. Seller name '{}' not found for broker {}", newRequest.getSeller_name(), currentBrokerId);
+            throw new IllegalArgumentException("Seller name not found: " + newRequest.getSeller_name() + ". Please ensure the seller is registered in the system.");
         }
-        User seller = sellerOptional.get();
         
         // Parse date - expecting d/M/yyyy format (day/month/year)
         LocalDate date;
@@ -874,16 +879,11 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
         List<SellerProductDTO> sellerProducts = new ArrayList<>();
         for (NewLedgerRequestDTO.ProductListDTO productDto : newRequest.getProduct_list()) {
             // Find product by name (case-insensitive)
-            List<Product> products = productRepository.findByBrokerBrokerIdAndProductNameIgnoreCase(currentBroker.getBrokerId(), productDto.getProduct_name());
-            if (products.isEmpty()) {
-                // Try exact match as fallback
-                products = productRepository.findByBrokerBrokerIdAndProductName(currentBroker.getBrokerId(), productDto.getProduct_name());
-                if (products.isEmpty()) {
-                    log.error("Product validation failed. Product name '{}' not found for broker {}", productDto.getProduct_name(), currentBroker.getBrokerId());
-                    throw new IllegalArgumentException("Product not found: " + productDto.getProduct_name() + ". Please ensure the product is registered in the system.");
-                }
+            Product product = productsByName.get(productDto.getProduct_name());
+            if (product == null) {
+                log.error("Product validation failed. Product name '{}' not found for broker {}", productDto.getProduct_name(), currentBrokerId);
+                throw new IllegalArgumentException("Product not found: " + productDto.getProduct_name() + ". Please ensure the product is registered in the system.");
             }
-            Product product = products.get(0); // Take first match
             
             SellerProductDTO sellerProduct = SellerProductDTO.builder()
                     .productId(String.valueOf(product.getProductId()))
@@ -896,31 +896,22 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
         List<LedgerRecordDTO> ledgerRecords = new ArrayList<>();
         for (NewLedgerRequestDTO.BuyerDTO buyerDto : newRequest.getBuyers()) {
             // Validate buyer name (case-insensitive)
-            Optional<User> buyerOptional = userRepository.findByBrokerBrokerIdAndFirmNameIgnoreCase(currentBroker.getBrokerId(), buyerDto.getBuyer_name());
-            if (!buyerOptional.isPresent()) {
-                // Try exact match as fallback
-                buyerOptional = userRepository.findByBrokerBrokerIdAndFirmName(currentBroker.getBrokerId(), buyerDto.getBuyer_name());
-                if (!buyerOptional.isPresent()) {
-                    log.error("Buyer validation failed. Buyer name '{}' not found for broker {}", buyerDto.getBuyer_name(), currentBroker.getBrokerId());
-                    throw new IllegalArgumentException("Buyer name not found: " + buyerDto.getBuyer_name() + ". Please ensure the buyer is registered in the system.");
-                }
+            User buyer = usersByName.get(buyerDto.getBuyer_name());
+            if (buyer == null) {
+                log.error("Buyer validation failed. Buyer name '{}' not found for broker {}", buyerDto.getBuyer_name(), currentBrokerId);
+                throw new IllegalArgumentException("Buyer name not found: " + buyerDto.getBuyer_name() + ". Please ensure the buyer is registered in the system.");
             }
             
             for (NewLedgerRequestDTO.BuyerProductDTO buyerProduct : buyerDto.getProducts()) {
                 // Find product by name (case-insensitive)
-                List<Product> products = productRepository.findByBrokerBrokerIdAndProductNameIgnoreCase(currentBroker.getBrokerId(), buyerProduct.getProduct_name());
-                if (products.isEmpty()) {
-                    // Try exact match as fallback
-                    products = productRepository.findByBrokerBrokerIdAndProductName(currentBroker.getBrokerId(), buyerProduct.getProduct_name());
-                    if (products.isEmpty()) {
-                        log.error("Product validation failed. Product name '{}' not found for broker {}", buyerProduct.getProduct_name(), currentBroker.getBrokerId());
-                        throw new IllegalArgumentException("Product not found: " + buyerProduct.getProduct_name() + ". Please ensure the product is registered in the system.");
-                    }
+                Product product = productsByName.get(buyerProduct.getProduct_name());
+                if (product == null) {
+                    log.error("Product validation failed. Product name '{}' not found for broker {}", buyerProduct.getProduct_name(), currentBrokerId);
+                    throw new IllegalArgumentException("Product not found: " + buyerProduct.getProduct_name() + ". Please ensure the product is registered in the system.");
                 }
-                Product product = products.get(0); // Take first match
                 
                 LedgerRecordDTO ledgerRecord = LedgerRecordDTO.builder()
-                        .buyerName(buyerDto.getBuyer_name())
+                        .buyerName(buyer.getFirmName())
                         .productId(product.getProductId())
                         .quantity(buyerProduct.getQuantity())
                         .brokerage(buyerDto.getBuyerBrokerage())
@@ -947,6 +938,56 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
                 .build();
     }
 
+    /**
+     * Resolves firm names to the broker's users with a single query. An exact match wins over a case-insensitive one.
+     */
+    private Map<String, User> resolveUsersByFirmName(Long brokerId, Collection<String> firmNames) {
+        Set<String> lowerCaseNames = firmNames.stream().filter(Objects::nonNull)
+                .map(name -> name.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+        if (lowerCaseNames.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, User> exact = new HashMap<>();
+        Map<String, User> ignoringCase = new HashMap<>();
+        for (User user : userRepository.findByBrokerIdAndFirmNamesIgnoreCase(brokerId, lowerCaseNames)) {
+            exact.putIfAbsent(user.getFirmName(), user);
+            ignoringCase.putIfAbsent(user.getFirmName().toLowerCase(Locale.ROOT), user);
+        }
+        Map<String, User> resolved = new HashMap<>();
+        for (String name : firmNames) {
+            if (name == null) {
+                continue;
+            }
+            User user = exact.getOrDefault(name, ignoringCase.get(name.toLowerCase(Locale.ROOT)));
+            if (user != null) {
+                resolved.put(name, user);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Resolves product names to the broker's products with a single query, taking the first match per name.
+     */
+    private Map<String, Product> resolveProductsByName(Long brokerId, Collection<String> productNames) {
+        Set<String> lowerCaseNames = productNames.stream().filter(Objects::nonNull)
+                .map(name -> name.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+        if (lowerCaseNames.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Product> ignoringCase = new HashMap<>();
+        for (Product product : productRepository.findByBrokerIdAndProductNamesIgnoreCase(brokerId, lowerCaseNames)) {
+            ignoringCase.putIfAbsent(product.getProductName().toLowerCase(Locale.ROOT), product);
+        }
+        Map<String, Product> resolved = new HashMap<>();
+        for (String name : productNames) {
+            if (name != null && ignoringCase.containsKey(name.toLowerCase(Locale.ROOT))) {
+                resolved.put(name, ignoringCase.get(name.toLowerCase(Locale.ROOT)));
+            }
+        }
+        return resolved;
+    }
+
     @Override
     public ResponseEntity<String> deleteLedgerDetailByTransactionNumber(Long transactionNumber, Long brokerId, Long financialYearId) {
         log.info("Deleting ledger details by transaction number: {} for broker: {} in financial year: {}", transactionNumber, brokerId, financialYearId);
@@ -978,6 +1019,7 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
             LedgerDetails existingLedger = existingLedgerOptional.get();
             Broker currentBroker = existingLedger.getBroker();
             User seller = existingLedger.getFromSeller();
+            Map<Long, User> touchedUsers = new LinkedHashMap<>();
             
             // Get the stored seller brokerage rate from ledger details
             // Fallback to 0 if not stored (for backward compatibility with old records)
@@ -1005,6 +1047,7 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
                         buyer.setPayableAmount(buyer.getPayableAmount() - (quantity * productCost));
                         BigDecimal recordBrokerage = safeMultiply(quantity, brokerage);
                         subtractBrokerage(buyer, recordBrokerage, "DELETE_TRANSACTION_BUYER");
+                        touchedUsers.put(buyer.getUserId(), buyer);
                         
                         // Reverse seller receivable amount
                         if (seller != null) {
@@ -1013,8 +1056,6 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
                         
                         totalBags += quantity;
                         totalBrokerBrokerage = totalBrokerBrokerage.add(recordBrokerage);
-                        
-                        userRepository.save(buyer);
                     }
                 }
             }
@@ -1025,8 +1066,12 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
                 // Use the seller brokerage rate we stored earlier
                 totalSellerBrokerage = safeMultiply(totalBags, sellerBrokerageRate);
                 subtractBrokerage(seller, totalSellerBrokerage, "DELETE_TRANSACTION_SELLER");
-                userRepository.save(seller);
             }
+            if (seller != null) {
+                touchedUsers.put(seller.getUserId(), seller);
+            }
+            // Every buyer and the seller are written once, as on create
+            userRepository.saveAll(touchedUsers.values());
             
             // Reverse broker total brokerage
             if (currentBroker != null) {
@@ -1037,14 +1082,17 @@ public class LedgerDetailsServiceImpl implements LedgerDetailsService{
             
             // Delete associated ledger records
             if (existingLedger.getRecords() != null && !existingLedger.getRecords().isEmpty()) {
+                merchantBrokerageAggregateService.removeRecords(existingLedger, existingLedger.getRecords());
+                dashboardRollupService.removeRecords(existingLedger, existingLedger.getRecords());
                 ledgerRecordRepository.deleteAll(existingLedger.getRecords());
             }
 
             // Delete the ledger details
             ledgerDetailsRepository.delete(existingLedger);
             
-            // Clear brokerage cache after transaction deletion
-            brokerageCacheService.evictBrokerageCache(financialYearId);
+            // Clear brokerage cache of the seller and buyers of the deleted entry
+            brokerageCacheService.evictLedgerChange(currentBrokerId, financialYearId, touchedUsers.values());
+            analyticsCacheWarmer.refreshAfterCommit(currentBrokerId, financialYearId);
             
             log.info("Successfully deleted ledger details with transaction number: {} and reversed all balances", transactionNumber);
             return ResponseEntity.ok("Ledger details deleted successfully");
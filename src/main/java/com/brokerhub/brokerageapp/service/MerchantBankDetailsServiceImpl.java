@@ -21,7 +21,7 @@ public class MerchantBankDetailsServiceImpl implements MerchantBankDetailsServic
 
     public ResponseEntity<String> createMerchantBankDetails(MerchantBankDetails bankDetails) {
         // Get current broker for multi-tenant isolation
-        Broker currentBroker = tenantContextService.getCurrentBroker();
+        Broker currentBroker = tenantContextService.getCurrentBrokerReference();
 
         // Set the broker for multi-tenant isolation if not already set
         if (bankDetails.getBroker() == null) {
@@ -59,7 +59,7 @@ public class MerchantBankDetailsServiceImpl implements MerchantBankDetailsServic
     public MerchantBankDetails saveMerchantBankDetails(MerchantBankDetails bankDetails) {
         // Set the broker for multi-tenant isolation if not already set
         if (bankDetails.getBroker() == null) {
-            Broker currentBroker = tenantContextService.getCurrentBroker();
+            Broker currentBroker = tenantContextService.getCurrentBrokerReference();
             bankDetails.setBroker(currentBroker);
         }
         return merchantBankDetailsRepository.save(bankDetails);
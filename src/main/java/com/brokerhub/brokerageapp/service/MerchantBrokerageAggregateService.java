@@ -0,0 +1,287 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.BrokerageAggregateVerificationDTO;
+import com.brokerhub.brokerageapp.entity.LedgerDetails;
+import com.brokerhub.brokerageapp.entity.LedgerRecord;
+import com.brokerhub.brokerageapp.entity.MerchantBrokerageAggregate;
+import com.brokerhub.brokerageapp.repository.BrokerageRepository;
+import com.brokerhub.brokerageapp.repository.MerchantBrokerageAggregateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Maintains MerchantBrokerageAggregate. Ledger writes push signed deltas through addRecords/removeRecords, which add
+ * them to the cells in the ledger transaction, so the aggregate commits and rolls back with the ledger.
+ * rebuild and verify recompute the same cells from ledger_record.
+ */
+@Service
+@Transactional
+@Slf4j
+public class MerchantBrokerageAggregateService {
+
+    private static final int MAX_REPORTED_MISMATCHES = 20;
+    private static final List<String> CELL_KEY = List.of("brokerId", "financialYearId", "userId", "productId", "monthStart");
+    private static final List<String> COUNTERS = List.of("purchaseRecords", "bagsBought", "purchaseAmount",
+            "purchaseBrokerage", "saleRecords", "bagsSold", "saleAmount", "saleBrokerage");
+
+    @Autowired
+    private MerchantBrokerageAggregateRepository aggregateRepository;
+
+    @Autowired
+    private BrokerageRepository brokerageRepository;
+
+    @Autowired
+    private CounterDeltaWriter deltaWriter;
+
+    public void addRecords(LedgerDetails ledgerDetails, Collection<LedgerRecord> records) {
+        applyDelta(ledgerDetails, records, 1L);
+    }
+
+    /**
+     * Must be called before the records are deleted and before the seller or date of the ledger is changed,
+     * so the deltas land on the cells the records were originally counted in.
+     */
+    public void removeRecords(LedgerDetails ledgerDetails, Collection<LedgerRecord> records) {
+        applyDelta(ledgerDetails, records, -1L);
+    }
+
+    private void applyDelta(LedgerDetails ledgerDetails, Collection<LedgerRecord> records, long sign) {
+        if (records == null || records.isEmpty() || ledgerDetails.getBroker() == null) {
+            return;
+        }
+        Long brokerId = ledgerDetails.getBroker().getBrokerId();
+        Long financialYearId = ledgerDetails.getFinancialYearId();
+        LocalDate monthStart = ledgerDetails.getDailyLedger() != null && ledgerDetails.getDailyLedger().getDate() != null
+                ? ledgerDetails.getDailyLedger().getDate().withDayOfMonth(1) : null;
+        Long sellerId = ledgerDetails.getFromSeller() != null ? ledgerDetails.getFromSeller().getUserId() : null;
+
+        Map<CellKey, MerchantBrokerageAggregate> deltas = new LinkedHashMap<>();
+        for (LedgerRecord record : records) {
+            if (record.getToBuyer() == null) {
+                continue;
+            }
+            Long productId = record.getProduct() != null ? record.getProduct().getProductId() : null;
+            long bags = valueOf(record.getQuantity());
+            long amount = valueOf(record.getTotalProductsCost());
+            long brokerage = valueOf(record.getTotalBrokerage());
+
+            CellKey buyerKey = new CellKey(record.getToBuyer().getUserId(), productId, monthStart);
+            addPurchase(deltas.computeIfAbsent(buyerKey, key -> newCell(brokerId, financialYearId, key)),
+                    sign, sign * bags, sign * amount, sign * brokerage);
+            if (sellerId != null) {
+                CellKey sellerKey = new CellKey(sellerId, productId, monthStart);
+                addSale(deltas.computeIfAbsent(sellerKey, key -> newCell(brokerId, financialYearId, key)),
+                        sign, sign * bags, sign * amount, sign * brokerage);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        writeDeltas(brokerId, financialYearId, deltas, sign);
+    }
+
+    private void writeDeltas(Long brokerId, Long financialYearId, Map<CellKey, MerchantBrokerageAggregate> deltas, long sign) {
+        Set<Long> reducedUserIds = new HashSet<>();
+        // In a fixed order, so two ledger writes touching the same cells cannot deadlock each other
+        deltas.entrySet().stream().sorted(Comparator.comparing(entry -> entry.getKey().toString())).forEach(entry -> {
+            CellKey key = entry.getKey();
+            MerchantBrokerageAggregate delta = entry.getValue();
+            int updated = aggregateRepository.addToCell(brokerId, financialYearId, key.userId(), key.productId(), key.monthStart(),
+                    delta.getPurchaseRecords(), delta.getBagsBought(), delta.getPurchaseAmount(), delta.getPurchaseBrokerage(),
+                    delta.getSaleRecords(), delta.getBagsSold(), delta.getSaleAmount(), delta.getSaleBrokerage());
+            if (updated > 0) {
+                if (sign < 0) {
+                    reducedUserIds.add(key.userId());
+                }
+            } else if (sign < 0) {
+                log.warn("No brokerage aggregate for broker {} FY {} cell {} while reversing records, skipping; run verify to repair",
+                        brokerId, financialYearId, key);
+            } else {
+                // Another ledger write may insert the same cell concurrently
+                deltaWriter.upsert(delta, CELL_KEY, COUNTERS);
+            }
+        });
+        if (!reducedUserIds.isEmpty()) {
+            aggregateRepository.deleteEmptyCells(brokerId, financialYearId, reducedUserIds);
+        }
+        log.debug("Applied {} brokerage aggregate deltas for broker {} FY {}", deltas.size(), brokerId, financialYearId);
+    }
+
+    /**
+     * Replaces every aggregate row of the broker and financial year with totals recomputed from the ledger.
+     */
+    public int rebuild(Long brokerId, Long financialYearId) {
+        Map<CellKey, MerchantBrokerageAggregate> expected = computeFromLedger(brokerId, financialYearId);
+        aggregateRepository.deleteByBrokerIdAndFinancialYearId(brokerId, financialYearId);
+        aggregateRepository.saveAll(expected.values());
+        log.info("Rebuilt brokerage aggregate for broker {} FY {}: {} rows", brokerId, financialYearId, expected.size());
+        return expected.size();
+    }
+
+    /**
+     * Compares the stored aggregate with the raw ledger and optionally rebuilds it when they differ.
+     */
+    public BrokerageAggregateVerificationDTO verify(Long brokerId, Long financialYearId, boolean repair) {
+        Map<CellKey, MerchantBrokerageAggregate> expected = computeFromLedger(brokerId, financialYearId);
+        Map<CellKey, MerchantBrokerageAggregate> stored = index(aggregateRepository.findByBrokerIdAndFinancialYearId(brokerId, financialYearId));
+
+        Set<CellKey> keys = new LinkedHashSet<>(expected.keySet());
+        keys.addAll(stored.keySet());
+        List<String> mismatches = new ArrayList<>();
+        int mismatchedRows = 0;
+        for (CellKey key : keys) {
+            MerchantBrokerageAggregate want = expected.get(key);
+            MerchantBrokerageAggregate have = stored.get(key);
+            if (sameTotals(want, have)) {
+                continue;
+            }
+            mismatchedRows++;
+            if (mismatches.size() < MAX_REPORTED_MISMATCHES) {
+                mismatches.add(key + " expected " + describe(want) + " but was " + describe(have));
+            }
+        }
+
+        boolean consistent = mismatchedRows == 0;
+        boolean rebuilt = false;
+        if (!consistent) {
+            log.warn("Brokerage aggregate for broker {} FY {} differs from ledger in {} rows", brokerId, financialYearId, mismatchedRows);
+            if (repair) {
+                rebuild(brokerId, financialYearId);
+                rebuilt = true;
+            }
+        }
+        return BrokerageAggregateVerificationDTO.builder()
+                .brokerId(brokerId)
+                .financialYearId(financialYearId)
+                .expectedRows(expected.size())
+                .storedRows(stored.size())
+                .mismatchedRows(mismatchedRows)
+                .consistent(consistent)
+                .rebuilt(rebuilt)
+                .mismatches(mismatches)
+                .build();
+    }
+
+    /**
+     * Every (brokerId, financialYearId) pair that has ledger records or aggregate rows.
+     */
+    @Transactional(readOnly = true)
+    public Set<List<Long>> findBrokerFinancialYears() {
+        Set<List<Long>> pairs = new LinkedHashSet<>();
+        for (Object[] row : brokerageRepository.findBrokerFinancialYearsWithRecords()) {
+            pairs.add(List.of((Long) row[0], (Long) row[1]));
+        }
+        for (Object[] row : aggregateRepository.findAggregatedBrokerFinancialYears()) {
+            pairs.add(List.of((Long) row[0], (Long) row[1]));
+        }
+        return pairs;
+    }
+
+    private Map<CellKey, MerchantBrokerageAggregate> computeFromLedger(Long brokerId, Long financialYearId) {
+        Map<CellKey, MerchantBrokerageAggregate> cells = new HashMap<>();
+        for (Object[] row : brokerageRepository.getPurchaseAggregates(brokerId, financialYearId)) {
+            CellKey key = new CellKey((Long) row[0], (Long) row[1], toMonthStart(row[2], row[3]));
+            addPurchase(cells.computeIfAbsent(key, k -> newCell(brokerId, financialYearId, k)),
+                    longValue(row[4]), longValue(row[5]), longValue(row[6]), longValue(row[7]));
+        }
+        for (Object[] row : brokerageRepository.getSaleAggregates(brokerId, financialYearId)) {
+            CellKey key = new CellKey((Long) row[0], (Long) row[1], toMonthStart(row[2], row[3]));
+            addSale(cells.computeIfAbsent(key, k -> newCell(brokerId, financialYearId, k)),
+                    longValue(row[4]), longValue(row[5]), longValue(row[6]), longValue(row[7]));
+        }
+        return cells;
+    }
+
+    /**
+     * Rows of a cell with no product or month can exist twice, the unique key does not match NULLs; reads sum them
+     */
+    private static Map<CellKey, MerchantBrokerageAggregate> index(List<MerchantBrokerageAggregate> rows) {
+        Map<CellKey, MerchantBrokerageAggregate> indexed = new HashMap<>();
+        for (MerchantBrokerageAggregate row : rows) {
+            MerchantBrokerageAggregate cell = indexed.computeIfAbsent(new CellKey(row.getUserId(), row.getProductId(), row.getMonthStart()),
+                    key -> newCell(row.getBrokerId(), row.getFinancialYearId(), key));
+            addPurchase(cell, row.getPurchaseRecords(), row.getBagsBought(), row.getPurchaseAmount(), row.getPurchaseBrokerage());
+            addSale(cell, row.getSaleRecords(), row.getBagsSold(), row.getSaleAmount(), row.getSaleBrokerage());
+        }
+        return indexed;
+    }
+
+    private static MerchantBrokerageAggregate newCell(Long brokerId, Long financialYearId, CellKey key) {
+        return MerchantBrokerageAggregate.builder()
+                .brokerId(brokerId)
+                .financialYearId(financialYearId)
+                .userId(key.userId())
+                .productId(key.productId())
+                .monthStart(key.monthStart())
+                .build();
+    }
+
+    private static void addPurchase(MerchantBrokerageAggregate cell, long records, long bags, long amount, long brokerage) {
+        cell.setPurchaseRecords(cell.getPurchaseRecords() + records);
+        cell.setBagsBought(cell.getBagsBought() + bags);
+        cell.setPurchaseAmount(cell.getPurchaseAmount() + amount);
+        cell.setPurchaseBrokerage(cell.getPurchaseBrokerage() + brokerage);
+    }
+
+    private static void addSale(MerchantBrokerageAggregate cell, long records, long bags, long amount, long brokerage) {
+        cell.setSaleRecords(cell.getSaleRecords() + records);
+        cell.setBagsSold(cell.getBagsSold() + bags);
+        cell.setSaleAmount(cell.getSaleAmount() + amount);
+        cell.setSaleBrokerage(cell.getSaleBrokerage() + brokerage);
+    }
+
+    private static boolean sameTotals(MerchantBrokerageAggregate want, MerchantBrokerageAggregate have) {
+        if (want == null || have == null) {
+            return want == have;
+        }
+        return Objects.equals(want.getPurchaseRecords(), have.getPurchaseRecords())
+                && Objects.equals(want.getBagsBought(), have.getBagsBought())
+                && Objects.equals(want.getPurchaseAmount(), have.getPurchaseAmount())
+                && Objects.equals(want.getPurchaseBrokerage(), have.getPurchaseBrokerage())
+                && Objects.equals(want.getSaleRecords(), have.getSaleRecords())
+                && Objects.equals(want.getBagsSold(), have.getBagsSold())
+                && Objects.equals(want.getSaleAmount(), have.getSaleAmount())
+                && Objects.equals(want.getSaleBrokerage(), have.getSaleBrokerage());
+    }
+
+    private static String describe(MerchantBrokerageAggregate cell) {
+        if (cell == null) {
+            return "no row";
+        }
+        return "[bought " + cell.getPurchaseRecords() + " records/" + cell.getBagsBought() + " bags/" + cell.getPurchaseBrokerage()
+                + " brokerage, sold " + cell.getSaleRecords() + " records/" + cell.getBagsSold() + " bags/" + cell.getSaleBrokerage() + " brokerage]";
+    }
+
+    private static LocalDate toMonthStart(Object year, Object month) {
+        if (year == null || month == null) {
+            return null;
+        }
+        return LocalDate.of(((Number) year).intValue(), ((Number) month).intValue(), 1);
+    }
+
+    private static long longValue(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static long valueOf(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    private record CellKey(Long userId, Long productId, LocalDate monthStart) {
+    }
+}
@@ -4,6 +4,7 @@ import com.brokerhub.brokerageapp.entity.*;
 import com.brokerhub.brokerageapp.repository.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,6 +14,7 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -48,6 +50,13 @@ public class OptimizedBulkOperationService {
     @Autowired
     private ReceivablePaymentRepository receivablePaymentRepository;
 
+    @Autowired
+    private PaymentGenerationService paymentGenerationService;
+
+    @Autowired
+    @Qualifier("bulkOperationTaskExecutor")
+    private Executor bulkOperationTaskExecutor;
+
     /**
      * Bulk create ledger records with optimized batch processing
      */
@@ -117,30 +126,20 @@ public class OptimizedBulkOperationService {
     /**
      * Bulk generate payment data from ledger records for a financial year
      */
-    @CacheEvict(value = {"brokeragePayments", "pendingPayments", "receivablePayments", "paymentDashboard"}, allEntries = true)
     public CompletableFuture<Void> bulkGeneratePaymentDataAsync(Long financialYearId, Long brokerId) {
         return CompletableFuture.runAsync(() -> {
             log.info("Starting bulk payment data generation for financial year: {} and broker: {}", financialYearId, brokerId);
             
             try {
-                // This would contain the logic to generate payment data from ledger records
-                // Implementation would depend on specific business rules
-                
-                // Example: Generate brokerage payments
-                generateBrokeragePayments(financialYearId, brokerId);
-                
-                // Example: Generate pending payments
-                generatePendingPayments(financialYearId, brokerId);
-                
-                // Example: Generate receivable payments
-                generateReceivablePayments(financialYearId, brokerId);
+                // Clears the payment caches once the generated rows are committed
+                paymentGenerationService.generate(brokerId, financialYearId);
                 
                 log.info("Successfully generated payment data for financial year: {}", financialYearId);
             } catch (Exception e) {
                 log.error("Error during bulk payment data generation", e);
                 throw new RuntimeException("Failed to generate payment data", e);
             }
-        });
+        }, bulkOperationTaskExecutor);
     }
 
     /**
@@ -183,22 +182,6 @@ public class OptimizedBulkOperationService {
         }
     }
 
-    // Private helper methods for payment generation
-    private void generateBrokeragePayments(Long financialYearId, Long brokerId) {
-        // Implementation for generating brokerage payments from ledger data
-        log.debug("Generating brokerage payments for financial year: {}", financialYearId);
-    }
-
-    private void generatePendingPayments(Long financialYearId, Long brokerId) {
-        // Implementation for generating pending payments from ledger data
-        log.debug("Generating pending payments for financial year: {}", financialYearId);
-    }
-
-    private void generateReceivablePayments(Long financialYearId, Long brokerId) {
-        // Implementation for generating receivable payments from ledger data
-        log.debug("Generating receivable payments for financial year: {}", financialYearId);
-    }
-
     /**
      * Bulk validation of data integrity
      */
@@ -218,7 +201,7 @@ public class OptimizedBulkOperationService {
                 log.error("Data integrity validation failed", e);
                 return false;
             }
-        });
+        }, bulkOperationTaskExecutor);
     }
 
     /**
@@ -238,6 +221,6 @@ public class OptimizedBulkOperationService {
                 log.error("Error during data export", e);
                 throw new RuntimeException("Failed to export data", e);
             }
-        });
+        }, bulkOperationTaskExecutor);
     }
 }
@@ -0,0 +1,210 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.payments.OverdueSweepResultDTO;
+import com.brokerhub.brokerageapp.entity.PaymentStatus;
+import com.brokerhub.brokerageapp.entity.SweepWatermark;
+import com.brokerhub.brokerageapp.repository.BrokeragePaymentRepository;
+import com.brokerhub.brokerageapp.repository.PendingPaymentRepository;
+import com.brokerhub.brokerageapp.repository.ReceivablePaymentRepository;
+import com.brokerhub.brokerageapp.repository.SweepWatermarkRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Marks brokerage, pending and receivable payments OVERDUE for every broker once they pass their due date.
+ * Payments are written with the right status by updateStatus(), so a payment only needs this when a day goes by;
+ * each run therefore reads just the due dates between the watermark and today, through the (due_date, id) index,
+ * in keyset batches of their own transaction. The watermark moves once all three tables are done, so a failed run
+ * is repeated from the same date; the status check keeps rows from being counted twice. A run first claims the
+ * watermark row in the database, so only one node sweeps at a time.
+ */
+@Service
+@Slf4j
+public class OverdueSweepService {
+
+    static final String SWEEP_NAME = "payment-overdue";
+
+    @Autowired
+    private BrokeragePaymentRepository brokeragePaymentRepository;
+
+    @Autowired
+    private PendingPaymentRepository pendingPaymentRepository;
+
+    @Autowired
+    private ReceivablePaymentRepository receivablePaymentRepository;
+
+    @Autowired
+    private SweepWatermarkRepository watermarkRepository;
+
+    @Autowired
+    private PaymentDashboardService paymentDashboardService;
+
+    @Autowired
+    private PaymentTrendService paymentTrendService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.payments.overdue-sweep.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.payments.overdue-sweep.lease-minutes:60}")
+    private long leaseMinutes;
+
+    /**
+     * @return what the run marked, or null when a run is already in progress on this or another node
+     */
+    public OverdueSweepResultDTO sweep() {
+        // Stored columns keep at least millisecond precision, release compares the claim exactly
+        LocalDateTime claimedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        if (!claim(claimedAt)) {
+            log.info("Overdue sweep already running, skipping");
+            return null;
+        }
+        try {
+            return sweep(LocalDate.now());
+        } catch (RuntimeException e) {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    watermarkRepository.release(SWEEP_NAME, claimedAt));
+            throw e;
+        }
+    }
+
+    private boolean claim(LocalDateTime claimedAt) {
+        try {
+            return Boolean.TRUE.equals(new TransactionTemplate(transactionManager).execute(status -> {
+                if (!watermarkRepository.existsById(SWEEP_NAME)) {
+                    // The first run covers every due date
+                    watermarkRepository.saveAndFlush(SweepWatermark.builder().sweepName(SWEEP_NAME)
+                            .sweptBefore(LocalDate.EPOCH).runningSince(claimedAt).build());
+                    return true;
+                }
+                return watermarkRepository.claim(SWEEP_NAME, claimedAt, claimedAt.minusMinutes(leaseMinutes)) > 0;
+            }));
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the watermark first and is running the first sweep
+            return false;
+        }
+    }
+
+    OverdueSweepResultDTO sweep(LocalDate today) {
+        SweepWatermark watermark = watermarkRepository.findById(SWEEP_NAME)
+                // The first run covers every due date
+                .orElseGet(() -> SweepWatermark.builder().sweepName(SWEEP_NAME).sweptBefore(LocalDate.EPOCH).build());
+        LocalDate dueFrom = watermark.getSweptBefore();
+        Set<Long> affectedBrokers = new HashSet<>();
+
+        int brokerage = 0;
+        int pending = 0;
+        int receivable = 0;
+        if (dueFrom.isBefore(today)) {
+            brokerage = sweepTable(brokeragePaymentRepository::findOverdueCandidates,
+                    ids -> brokeragePaymentRepository.markStatus(ids, PaymentStatus.OVERDUE), dueFrom, today, affectedBrokers);
+            pending = sweepTable(pendingPaymentRepository::findOverdueCandidates,
+                    ids -> pendingPaymentRepository.markStatus(ids, PaymentStatus.OVERDUE), dueFrom, today, affectedBrokers);
+            receivable = sweepTable(receivablePaymentRepository::findOverdueCandidates,
+                    ids -> receivablePaymentRepository.markStatus(ids, PaymentStatus.OVERDUE), dueFrom, today, affectedBrokers);
+        }
+
+        OverdueSweepResultDTO result = OverdueSweepResultDTO.builder()
+                .dueFrom(dueFrom)
+                .dueBefore(today)
+                .brokeragePayments(brokerage)
+                .pendingPayments(pending)
+                .receivablePayments(receivable)
+                .brokersAffected(affectedBrokers.size())
+                .build();
+        watermark.setSweptBefore(today.isAfter(dueFrom) ? today : dueFrom);
+        watermark.setLastRunAt(LocalDateTime.now());
+        watermark.setLastRunCount(result.getTotalPayments());
+        watermark.setRunningSince(null);
+        watermarkRepository.save(watermark);
+        return result;
+    }
+
+    private int sweepTable(CandidateFinder finder, Function<List<Long>, Integer> marker,
+                           LocalDate dueFrom, LocalDate dueBefore, Set<Long> affectedBrokers) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Pageable batch = PageRequest.of(0, batchSize);
+        LocalDate afterDueDate = dueFrom;
+        Long afterId = -1L;
+        int marked = 0;
+        while (true) {
+            LocalDate cursorDueDate = afterDueDate;
+            Long cursorId = afterId;
+            Batch result = transactionTemplate.execute(status -> markBatch(finder.find(dueFrom, dueBefore,
+                    PaymentStatus.OVERDUE, cursorDueDate, cursorId, batch), marker, dueBefore));
+            if (result == null) {
+                break;
+            }
+            // Only the brokers whose payments changed lose their dashboard snapshot
+            result.brokerIds().forEach(paymentDashboardService::evict);
+            affectedBrokers.addAll(result.brokerIds());
+            marked += result.marked();
+            if (result.rows() < batchSize) {
+                break;
+            }
+            afterDueDate = result.lastDueDate();
+            afterId = result.lastId();
+        }
+        return marked;
+    }
+
+    /**
+     * The candidate rows are locked by their query, so the update changes exactly these rows and the trend
+     * deltas taken from them match what was marked. A mismatch fails the run, which is repeated from the watermark.
+     */
+    private Batch markBatch(List<Object[]> rows, Function<List<Long>, Integer> marker, LocalDate today) {
+        if (rows.isEmpty()) {
+            return null;
+        }
+        List<Long> ids = new ArrayList<>(rows.size());
+        Map<Long, long[]> counts = new HashMap<>();
+        Map<Long, BigDecimal> amounts = new HashMap<>();
+        for (Object[] row : rows) {
+            Long brokerId = (Long) row[1];
+            ids.add((Long) row[0]);
+            counts.computeIfAbsent(brokerId, id -> new long[1])[0]++;
+            amounts.merge(brokerId, row[3] != null ? (BigDecimal) row[3] : BigDecimal.ZERO, BigDecimal::add);
+        }
+        int marked = marker.apply(ids);
+        if (marked != ids.size()) {
+            // Not expected while the rows are locked; roll the batch back rather than count what was not marked
+            throw new IllegalStateException("Overdue sweep marked " + marked + " of " + ids.size() + " locked payments");
+        }
+        // Part of this batch's transaction, so the buckets commit with the statuses they count
+        counts.forEach((brokerId, count) ->
+                paymentTrendService.recordOverdueTransitions(brokerId, today, count[0], amounts.get(brokerId)));
+
+        Object[] last = rows.get(rows.size() - 1);
+        return new Batch(rows.size(), marked, counts.keySet(), (LocalDate) last[2], (Long) last[0]);
+    }
+
+    @FunctionalInterface
+    private interface CandidateFinder {
+        List<Object[]> find(LocalDate dueFrom, LocalDate dueBefore, PaymentStatus status,
+                            LocalDate afterDueDate, Long afterId, Pageable pageable);
+    }
+
+    private record Batch(int rows, int marked, Set<Long> brokerIds, LocalDate lastDueDate, Long lastId) {
+    }
+}
@@ -0,0 +1,342 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.payments.PaymentDashboardDTO;
+import com.brokerhub.brokerageapp.dto.payments.PaymentDashboardSnapshot;
+import com.brokerhub.brokerageapp.dto.payments.PaymentDashboardSnapshot.StatusTotals;
+import com.brokerhub.brokerageapp.dto.payments.PaymentSummaryDTO;
+import com.brokerhub.brokerageapp.entity.BrokeragePayment;
+import com.brokerhub.brokerageapp.entity.PartPayment;
+import com.brokerhub.brokerageapp.entity.PaymentStatus;
+import com.brokerhub.brokerageapp.repository.BrokeragePaymentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Serves the payment dashboard and status summary from a per-broker {@link PaymentDashboardSnapshot} in the
+ * paymentDashboard cache. The snapshot is built with one grouped query over the brokerage, pending and receivable
+ * payment tables; after that, part payments adjust it by what they changed, once their transaction commits, and
+ * overdue status updates evict it. When the cache is shared between nodes (spring.cache.type=redis), a part payment
+ * evicts the snapshot too: the read-adjust-put is only serialized within this JVM, so two nodes adjusting it at
+ * once would lose a change. A snapshot from a previous day is rebuilt on the next read.
+ */
+@Service
+@Slf4j
+public class PaymentDashboardService {
+
+    static final String PAYMENT_DASHBOARD_CACHE = "paymentDashboard";
+    static final String BROKERAGE = "BROKERAGE";
+    static final String PENDING = "PENDING";
+    static final String RECEIVABLE = "RECEIVABLE";
+    private static final String PART_PAYMENT = "PART_PAYMENT";
+    private static final List<String> PAYMENT_TYPES = List.of(BROKERAGE, PENDING, RECEIVABLE);
+    // Window of the "due soon" and "recent" figures, as in PaymentStatus and PaymentDashboardDTO
+    private static final int WINDOW_DAYS = 7;
+
+    @Autowired
+    private BrokeragePaymentRepository brokeragePaymentRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${app.payments.dashboard.critical-amount:100000}")
+    private BigDecimal criticalAmount;
+
+    @Value("${spring.cache.type:simple}")
+    private String cacheType;
+
+    private final Map<Long, Object> locks = new ConcurrentHashMap<>();
+
+    public PaymentDashboardDTO getDashboard(Long brokerId) {
+        PaymentDashboardSnapshot snapshot = getSnapshot(brokerId);
+        StatusTotals brokerage = typeTotals(snapshot, BROKERAGE);
+        StatusTotals pending = typeTotals(snapshot, PENDING);
+        StatusTotals receivable = typeTotals(snapshot, RECEIVABLE);
+
+        PaymentDashboardDTO dashboard = PaymentDashboardDTO.builder()
+                .totalBrokerageAmount(brokerage.getAmount())
+                .totalBrokeragePaid(brokerage.getPaid())
+                .totalBrokeragePending(brokerage.getPending())
+                .merchantsWithPendingBrokerage(brokerage.getOutstandingCount())
+                .overdueBrokeragePayments(statusTotals(snapshot, BROKERAGE, PaymentStatus.OVERDUE).getCount())
+                .totalPendingPaymentAmount(pending.getPending())
+                .buyersWithPendingPayments(pending.getOutstandingCount())
+                .overduePendingPayments(statusTotals(snapshot, PENDING, PaymentStatus.OVERDUE).getCount())
+                .averagePendingPaymentAmount(average(pending))
+                .totalReceivablePaymentAmount(receivable.getPending())
+                .sellersWithReceivablePayments(receivable.getOutstandingCount())
+                .overdueReceivablePayments(statusTotals(snapshot, RECEIVABLE, PaymentStatus.OVERDUE).getCount())
+                .averageReceivablePaymentAmount(average(receivable))
+                .totalActivePayments(brokerage.getOutstandingCount() + pending.getOutstandingCount() + receivable.getOutstandingCount())
+                .criticalPaymentsCount(brokerage.getCriticalCount() + pending.getCriticalCount() + receivable.getCriticalCount())
+                .paymentsDueSoonCount(brokerage.getDueSoonCount() + pending.getDueSoonCount() + receivable.getDueSoonCount())
+                .recentPaymentsCount(snapshot.getRecentPaymentsCount())
+                .recentPaymentsAmount(snapshot.getRecentPaymentsAmount())
+                .newPendingPaymentsCount(pending.getRecentCount())
+                .build();
+        dashboard.calculateTotalAmountInCirculation();
+        dashboard.calculateBrokerageCompletionPercentage();
+        return dashboard;
+    }
+
+    public PaymentSummaryDTO getSummary(Long brokerId) {
+        PaymentDashboardSnapshot snapshot = getSnapshot(brokerId);
+        StatusTotals all = StatusTotals.builder().build();
+        PAYMENT_TYPES.forEach(type -> all.apply(typeTotals(snapshot, type), 1));
+        long overdueCount = 0;
+        BigDecimal overdueAmount = BigDecimal.ZERO;
+        long paidCount = 0;
+        for (String type : PAYMENT_TYPES) {
+            StatusTotals overdue = statusTotals(snapshot, type, PaymentStatus.OVERDUE);
+            overdueCount += overdue.getCount();
+            overdueAmount = overdueAmount.add(overdue.getPending());
+            paidCount += statusTotals(snapshot, type, PaymentStatus.PAID).getCount();
+        }
+
+        return PaymentSummaryDTO.builder()
+                .brokeragePaymentSummary(statusSummaries(snapshot, BROKERAGE))
+                .pendingPaymentSummary(statusSummaries(snapshot, PENDING))
+                .receivablePaymentSummary(statusSummaries(snapshot, RECEIVABLE))
+                .overallTotals(PaymentSummaryDTO.PaymentTotalsDTO.builder()
+                        .totalPaymentsCount(all.getCount())
+                        .totalPaymentsAmount(all.getAmount())
+                        .totalOverdueCount(overdueCount)
+                        .totalOverdueAmount(overdueAmount)
+                        .totalDueSoonCount(all.getDueSoonCount())
+                        .totalDueSoonAmount(all.getDueSoonAmount())
+                        .totalPaidCount(paidCount)
+                        .totalPaidAmount(all.getPaid())
+                        .build())
+                .build();
+    }
+
+    /**
+     * The brokerage payment's share of the snapshot, taken before it is changed and passed to
+     * {@link #recordPartPayment}
+     */
+    public PaymentRowState rowState(BrokeragePayment payment) {
+        LocalDate today = LocalDate.now();
+        BigDecimal pending = orZero(payment.getPendingAmount());
+        boolean outstanding = pending.signum() > 0;
+        boolean dueSoon = outstanding && payment.getDueDate() != null
+                && !payment.getDueDate().isBefore(today) && !payment.getDueDate().isAfter(today.plusDays(WINDOW_DAYS));
+        boolean critical = payment.getStatus() == PaymentStatus.OVERDUE && pending.compareTo(criticalAmount) >= 0;
+        boolean recent = payment.getLastPaymentDate() != null && !payment.getLastPaymentDate().isBefore(today.minusDays(WINDOW_DAYS));
+        StatusTotals totals = StatusTotals.builder()
+                .count(1)
+                .amount(orZero(payment.getNetBrokerage()))
+                .paid(orZero(payment.getPaidAmount()))
+                .pending(pending)
+                .outstandingCount(outstanding ? 1 : 0)
+                .dueSoonCount(dueSoon ? 1 : 0)
+                .dueSoonAmount(dueSoon ? pending : BigDecimal.ZERO)
+                .criticalCount(critical ? 1 : 0)
+                .recentCount(recent ? 1 : 0)
+                .build();
+        return new PaymentRowState(PaymentDashboardSnapshot.key(BROKERAGE, String.valueOf(payment.getStatus())), totals);
+    }
+
+    /**
+     * Moves the brokerage payment from its state before the part payment to its current one and counts the
+     * part payment as received, once the transaction commits.
+     */
+    public void recordPartPayment(Long brokerId, PaymentRowState before, BrokeragePayment payment, PartPayment partPayment) {
+        PaymentRowState after = rowState(payment);
+        afterCommit(() -> update(brokerId, snapshot -> {
+            apply(snapshot, before.key(), before.totals(), -1);
+            apply(snapshot, after.key(), after.totals(), 1);
+            if (partPayment.getPaymentDate() != null
+                    && !partPayment.getPaymentDate().isBefore(snapshot.getAsOf().minusDays(WINDOW_DAYS))) {
+                snapshot.setRecentPaymentsCount(snapshot.getRecentPaymentsCount() + 1);
+                snapshot.setRecentPaymentsAmount(snapshot.getRecentPaymentsAmount().add(partPayment.getAmount()));
+            }
+        }));
+    }
+
+    /**
+     * Drops the broker's snapshot once the transaction commits, for changes the snapshot is not adjusted by
+     */
+    public void evictAfterCommit(Long brokerId) {
+        afterCommit(() -> evict(brokerId));
+    }
+
+    public void evict(Long brokerId) {
+        Cache cache = cacheManager.getCache(PAYMENT_DASHBOARD_CACHE);
+        if (cache != null) {
+            cache.evict(brokerId);
+        }
+    }
+
+    PaymentDashboardSnapshot getSnapshot(Long brokerId) {
+        Cache cache = cacheManager.getCache(PAYMENT_DASHBOARD_CACHE);
+        PaymentDashboardSnapshot snapshot = cache != null ? cache.get(brokerId, PaymentDashboardSnapshot.class) : null;
+        if (snapshot != null && LocalDate.now().equals(snapshot.getAsOf())) {
+            return snapshot;
+        }
+        synchronized (lock(brokerId)) {
+            snapshot = build(brokerId);
+            if (cache != null) {
+                cache.put(brokerId, snapshot);
+            }
+            return snapshot;
+        }
+    }
+
+    private PaymentDashboardSnapshot build(Long brokerId) {
+        LocalDate today = LocalDate.now();
+        PaymentDashboardSnapshot snapshot = PaymentDashboardSnapshot.builder().asOf(today).build();
+        for (Object[] row : brokeragePaymentRepository.getPaymentStatusTotals(brokerId, today, today.plusDays(WINDOW_DAYS),
+                today.minusDays(WINDOW_DAYS), criticalAmount)) {
+            if (PART_PAYMENT.equals(row[0])) {
+                snapshot.setRecentPaymentsCount(toLong(row[2]));
+                snapshot.setRecentPaymentsAmount(toBigDecimal(row[3]));
+            } else {
+                snapshot.getTotals().put(PaymentDashboardSnapshot.key((String) row[0], (String) row[1]), toTotals(row));
+            }
+        }
+        log.debug("Built payment dashboard snapshot for broker {}", brokerId);
+        return snapshot;
+    }
+
+    /**
+     * Applies a change to a copy of the cached snapshot and caches the copy; readers holding the previous snapshot
+     * keep a consistent one. Without a current snapshot there is nothing to adjust: the next read builds one from
+     * the tables. A shared cache is only evicted, since other nodes may be updating the same snapshot.
+     */
+    private void update(Long brokerId, Consumer<PaymentDashboardSnapshot> change) {
+        Cache cache = cacheManager.getCache(PAYMENT_DASHBOARD_CACHE);
+        if (cache == null) {
+            return;
+        }
+        if ("redis".equalsIgnoreCase(cacheType)) {
+            cache.evict(brokerId);
+            return;
+        }
+        synchronized (lock(brokerId)) {
+            PaymentDashboardSnapshot cached = cache.get(brokerId, PaymentDashboardSnapshot.class);
+            if (cached == null || !LocalDate.now().equals(cached.getAsOf())) {
+                cache.evict(brokerId);
+                return;
+            }
+            PaymentDashboardSnapshot snapshot = cached.copy();
+            change.accept(snapshot);
+            cache.put(brokerId, snapshot);
+        }
+    }
+
+    private void apply(PaymentDashboardSnapshot snapshot, String key, StatusTotals totals, int sign) {
+        StatusTotals current = snapshot.getTotals().computeIfAbsent(key, k -> StatusTotals.builder().build());
+        current.apply(totals, sign);
+        if (current.getCount() <= 0) {
+            snapshot.getTotals().remove(key);
+        }
+    }
+
+    private List<PaymentSummaryDTO.PaymentStatusSummaryDTO> statusSummaries(PaymentDashboardSnapshot snapshot, String type) {
+        long typeCount = typeTotals(snapshot, type).getCount();
+        List<PaymentSummaryDTO.PaymentStatusSummaryDTO> summaries = new ArrayList<>();
+        for (PaymentStatus status : PaymentStatus.values()) {
+            StatusTotals totals = snapshot.getTotals().get(PaymentDashboardSnapshot.key(type, status.name()));
+            if (totals == null) {
+                continue;
+            }
+            summaries.add(PaymentSummaryDTO.PaymentStatusSummaryDTO.builder()
+                    .status(status.name())
+                    .count(totals.getCount())
+                    .totalAmount(totals.getAmount())
+                    .percentage(BigDecimal.valueOf(totals.getCount() * 100)
+                            .divide(BigDecimal.valueOf(typeCount), 2, RoundingMode.HALF_UP))
+                    .statusDescription(status.getDescription())
+                    .build());
+        }
+        return summaries;
+    }
+
+    private static StatusTotals typeTotals(PaymentDashboardSnapshot snapshot, String type) {
+        StatusTotals totals = StatusTotals.builder().build();
+        snapshot.getTotals().forEach((key, statusTotals) -> {
+            if (key.startsWith(type + ":")) {
+                totals.apply(statusTotals, 1);
+            }
+        });
+        return totals;
+    }
+
+    private static StatusTotals statusTotals(PaymentDashboardSnapshot snapshot, String type, PaymentStatus status) {
+        StatusTotals totals = snapshot.getTotals().get(PaymentDashboardSnapshot.key(type, status.name()));
+        return totals != null ? totals : StatusTotals.builder().build();
+    }
+
+    private static BigDecimal average(StatusTotals totals) {
+        return totals.getOutstandingCount() == 0 ? BigDecimal.ZERO
+                : totals.getPending().divide(BigDecimal.valueOf(totals.getOutstandingCount()), 2, RoundingMode.HALF_UP);
+    }
+
+    // Row: [paymentType, status, count, amount, paid, pending, outstandingCount, dueSoonCount, dueSoonAmount,
+    //       criticalCount, recentCount]
+    private static StatusTotals toTotals(Object[] row) {
+        return StatusTotals.builder()
+                .count(toLong(row[2]))
+                .amount(toBigDecimal(row[3]))
+                .paid(toBigDecimal(row[4]))
+                .pending(toBigDecimal(row[5]))
+                .outstandingCount(toLong(row[6]))
+                .dueSoonCount(toLong(row[7]))
+                .dueSoonAmount(toBigDecimal(row[8]))
+                .criticalCount(toLong(row[9]))
+                .recentCount(toLong(row[10]))
+                .build();
+    }
+
+    private static long toLong(Object value) {
+        return value == null ? 0L : ((Number) value).longValue();
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    private Object lock(Long brokerId) {
+        return locks.computeIfAbsent(brokerId, id -> new Object());
+    }
+
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    /**
+     * A payment's snapshot key and its contribution to the totals under that key
+     */
+    public record PaymentRowState(String key, StatusTotals totals) {
+    }
+}
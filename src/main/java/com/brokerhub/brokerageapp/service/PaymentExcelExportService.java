@@ -0,0 +1,305 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.repository.BrokeragePaymentRepository;
+import com.brokerhub.brokerageapp.repository.PartPaymentRepository;
+import com.brokerhub.brokerageapp.repository.PendingPaymentRepository;
+import com.brokerhub.brokerageapp.repository.ReceivablePaymentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Writes a broker's brokerage, pending and receivable payments, with the part payments of the brokerage payments,
+ * to an Excel workbook on the exportTaskExecutor. Rows are read in id-keyset batches of plain columns, each batch in
+ * its own read-only transaction, and written to an SXSSFWorkbook, so neither the persistence context nor the heap
+ * grows with the number of payments. At most {@code app.payments.export.max-concurrent-per-broker} exports of one
+ * broker run at a time; further requests are rejected rather than queued, as are exports the full executor
+ * rejects. An export still reading after {@code app.payments.export.timeout-ms} stops before its next batch with a
+ * CancellationException and frees its permit; SXSSF only writes the output stream at the end, so a late export
+ * never starts writing it.
+ */
+@Service
+@Slf4j
+public class PaymentExcelExportService {
+
+    static final String ALL = "ALL";
+    static final String BROKERAGE = "BROKERAGE";
+    static final String PENDING = "PENDING";
+    static final String RECEIVABLE = "RECEIVABLE";
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final int COLUMN_WIDTH = 18 * 256;
+
+    private static final List<String> BROKERAGE_HEADERS = List.of("Payment ID", "Firm Name", "Owner Name", "City",
+            "Sold Bags", "Bought Bags", "Total Bags", "Gross Brokerage", "Discount", "TDS", "Net Brokerage",
+            "Paid Amount", "Pending Amount", "Status", "Due Date", "Last Payment Date");
+    private static final List<String> PART_PAYMENT_HEADERS = List.of("Brokerage Payment ID", "Reference", "Amount",
+            "Payment Date", "Method", "Transaction Reference", "Recorded By", "Verified");
+    private static final List<String> PENDING_HEADERS = List.of("Payment ID", "Buyer Firm Name", "Owner Name", "City",
+            "Pending Amount", "Transactions", "Oldest Transaction", "Due Date", "Status");
+    private static final List<String> RECEIVABLE_HEADERS = List.of("Payment ID", "Seller Firm Name", "Owner Name", "City",
+            "Receivable Amount", "Transactions", "Oldest Transaction", "Due Date", "Status");
+
+    @Autowired
+    private BrokeragePaymentRepository brokeragePaymentRepository;
+
+    @Autowired
+    private PendingPaymentRepository pendingPaymentRepository;
+
+    @Autowired
+    private ReceivablePaymentRepository receivablePaymentRepository;
+
+    @Autowired
+    private PartPaymentRepository partPaymentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("exportTaskExecutor")
+    private Executor exportTaskExecutor;
+
+    @Value("${app.excel.stream-row-window:100}")
+    private int rowWindow;
+
+    @Value("${app.payments.export.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.payments.export.max-concurrent-per-broker:2}")
+    private int maxConcurrentPerBroker;
+
+    @Value("${app.payments.export.timeout-ms:300000}")
+    private long timeoutMillis;
+
+    private final Map<Long, Semaphore> brokerPermits = new ConcurrentHashMap<>();
+
+    /**
+     * Starts writing the export to the output stream, which the caller must keep open, and leave to the export,
+     * until the returned future completes. The future fails with a CancellationException when the export timed out.
+     *
+     * @param paymentType BROKERAGE, PENDING, RECEIVABLE, or null/ALL for all three
+     * @throws IllegalArgumentException for an unknown payment type
+     * @throws IllegalStateException when the broker already has the maximum number of exports running
+     * @throws RejectedExecutionException when the export executor is full
+     */
+    public CompletableFuture<Void> export(Long brokerId, String paymentType, OutputStream outputStream) {
+        List<String> types = typesOf(paymentType);
+        Semaphore permits = brokerPermits.computeIfAbsent(brokerId, id -> new Semaphore(Math.max(1, maxConcurrentPerBroker)));
+        if (!permits.tryAcquire()) {
+            throw new IllegalStateException("A payment export is already running for this broker, try again when it finishes");
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    write(brokerId, types, outputStream, deadline);
+                } finally {
+                    permits.release();
+                }
+            }, exportTaskExecutor);
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void write(Long brokerId, List<String> types, OutputStream outputStream, long deadline) {
+        long start = System.currentTimeMillis();
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+        try {
+            Styles styles = new Styles(workbook);
+            int rows = 0;
+            for (String type : types) {
+                rows += switch (type) {
+                    case BROKERAGE -> writeBrokeragePayments(workbook, styles, brokerId, deadline);
+                    case PENDING -> writeRows(newSheet(workbook, styles, "Pending Payments", PENDING_HEADERS), styles,
+                            afterId -> pendingPaymentRepository.findExportRows(brokerId, afterId, batch()), deadline);
+                    default -> writeRows(newSheet(workbook, styles, "Receivable Payments", RECEIVABLE_HEADERS), styles,
+                            afterId -> receivablePaymentRepository.findExportRows(brokerId, afterId, batch()), deadline);
+                };
+            }
+            checkDeadline(deadline);
+            workbook.write(outputStream);
+            outputStream.flush();
+            log.info("Exported {} payment rows of broker {} ({}) in {} ms", rows, brokerId, types,
+                    System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            log.error("Error writing payment export for broker {}", brokerId, e);
+            throw new UncheckedIOException("Failed to generate payment Excel", e);
+        } finally {
+            workbook.dispose();
+            try {
+                workbook.close();
+            } catch (IOException e) {
+                log.warn("Failed to close payment export workbook for broker {}", brokerId, e);
+            }
+        }
+    }
+
+    /**
+     * Brokerage payments and, on a second sheet, the part payments of each batch
+     */
+    private int writeBrokeragePayments(SXSSFWorkbook workbook, Styles styles, Long brokerId, long deadline) {
+        SXSSFSheet payments = newSheet(workbook, styles, "Brokerage Payments", BROKERAGE_HEADERS);
+        SXSSFSheet partPayments = newSheet(workbook, styles, "Part Payments", PART_PAYMENT_HEADERS);
+        TransactionTemplate readOnly = readOnlyTransaction();
+        int rowNum = 1;
+        int partRowNum = 1;
+        Long afterId = 0L;
+        while (true) {
+            checkDeadline(deadline);
+            Long cursor = afterId;
+            BrokerageBatch batch = readOnly.execute(status -> {
+                List<Object[]> rows = brokeragePaymentRepository.findExportRows(brokerId, cursor, batch());
+                List<Long> ids = new ArrayList<>(rows.size());
+                rows.forEach(row -> ids.add((Long) row[0]));
+                return new BrokerageBatch(rows, ids.isEmpty() ? List.of() : partPaymentRepository.findExportRows(ids));
+            });
+            List<Object[]> rows = batch.payments();
+            for (Object[] row : rows) {
+                writeRow(payments.createRow(rowNum++), row, styles);
+            }
+            for (Object[] row : batch.partPayments()) {
+                writeRow(partPayments.createRow(partRowNum++), row, styles);
+            }
+            if (rows.size() < batchSize) {
+                break;
+            }
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+        }
+        return rowNum - 1;
+    }
+
+    private int writeRows(SXSSFSheet sheet, Styles styles, BatchFinder finder, long deadline) {
+        TransactionTemplate readOnly = readOnlyTransaction();
+        int rowNum = 1;
+        Long afterId = 0L;
+        while (true) {
+            checkDeadline(deadline);
+            Long cursor = afterId;
+            List<Object[]> rows = readOnly.execute(status -> finder.find(cursor));
+            for (Object[] row : rows) {
+                writeRow(sheet.createRow(rowNum++), row, styles);
+            }
+            if (rows.size() < batchSize) {
+                break;
+            }
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+        }
+        return rowNum - 1;
+    }
+
+    private void checkDeadline(long deadline) {
+        if (System.currentTimeMillis() >= deadline) {
+            throw new CancellationException("Payment export timed out after " + timeoutMillis + " ms");
+        }
+    }
+
+    private static SXSSFSheet newSheet(SXSSFWorkbook workbook, Styles styles, String name, List<String> headers) {
+        SXSSFSheet sheet = workbook.createSheet(name);
+        Row header = sheet.createRow(0);
+        for (int column = 0; column < headers.size(); column++) {
+            Cell cell = header.createCell(column);
+            cell.setCellValue(headers.get(column));
+            cell.setCellStyle(styles.header);
+            sheet.setColumnWidth(column, COLUMN_WIDTH);
+        }
+        sheet.createFreezePane(0, 1);
+        return sheet;
+    }
+
+    private static void writeRow(Row row, Object[] values, Styles styles) {
+        for (int column = 0; column < values.length; column++) {
+            Cell cell = row.createCell(column);
+            Object value = values[column];
+            if (value instanceof Number number) {
+                cell.setCellValue(number.doubleValue());
+            } else if (value instanceof LocalDate date) {
+                cell.setCellValue(date.format(DATE_FORMAT));
+            } else if (value instanceof Enum<?> constant) {
+                cell.setCellValue(constant.name());
+            } else if (value instanceof Boolean flag) {
+                cell.setCellValue(flag ? "Yes" : "No");
+            } else {
+                cell.setCellValue(value != null ? value.toString() : "");
+            }
+            cell.setCellStyle(styles.data);
+        }
+    }
+
+    private static List<String> typesOf(String paymentType) {
+        String type = paymentType != null ? paymentType.trim().toUpperCase(Locale.ROOT) : ALL;
+        return switch (type) {
+            case ALL, "" -> List.of(BROKERAGE, PENDING, RECEIVABLE);
+            case BROKERAGE, PENDING, RECEIVABLE -> List.of(type);
+            default -> throw new IllegalArgumentException("Payment type must be BROKERAGE, PENDING, RECEIVABLE or ALL");
+        };
+    }
+
+    private Pageable batch() {
+        return PageRequest.of(0, batchSize);
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    @FunctionalInterface
+    private interface BatchFinder {
+        List<Object[]> find(Long afterId);
+    }
+
+    private record BrokerageBatch(List<Object[]> payments, List<Object[]> partPayments) {
+    }
+
+    /**
+     * Created once per workbook, see ExcelGenerationServiceImpl.ExcelStyles
+     */
+    private static final class Styles {
+
+        private final CellStyle header;
+        private final CellStyle data;
+
+        private Styles(Workbook workbook) {
+            header = workbook.createCellStyle();
+            Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            header.setFont(headerFont);
+            header.setFillForegroundColor(IndexedColors.PALE_BLUE.getIndex());
+            header.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            header.setBorderBottom(BorderStyle.THIN);
+
+            data = workbook.createCellStyle();
+            Font dataFont = workbook.createFont();
+            dataFont.setFontHeightInPoints((short) 10);
+            data.setFont(dataFont);
+        }
+    }
+}
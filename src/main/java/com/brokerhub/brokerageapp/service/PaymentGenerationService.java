@@ -0,0 +1,575 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.config.InstrumentedCacheManager;
+import com.brokerhub.brokerageapp.config.ScopedCacheEviction;
+import com.brokerhub.brokerageapp.dto.payments.PaymentGenerationStatusDTO;
+import com.brokerhub.brokerageapp.entity.Broker;
+import com.brokerhub.brokerageapp.entity.BrokeragePayment;
+import com.brokerhub.brokerageapp.entity.FinancialYear;
+import com.brokerhub.brokerageapp.entity.PendingPayment;
+import com.brokerhub.brokerageapp.entity.ReceivablePayment;
+import com.brokerhub.brokerageapp.entity.ReceivableTransaction;
+import com.brokerhub.brokerageapp.repository.BrokerRepository;
+import com.brokerhub.brokerageapp.repository.BrokeragePaymentRepository;
+import com.brokerhub.brokerageapp.repository.BrokerageRepository;
+import com.brokerhub.brokerageapp.repository.FinancialYearRepository;
+import com.brokerhub.brokerageapp.repository.PendingPaymentRepository;
+import com.brokerhub.brokerageapp.repository.ReceivablePaymentRepository;
+import com.brokerhub.brokerageapp.repository.ReceivableTransactionRepository;
+import com.brokerhub.brokerageapp.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Derives a financial year's brokerage, pending and receivable payments from its ledger records.
+ * The ledger is read with three grouped queries (per buyer, per seller and per seller/buyer pair), merged in
+ * memory with the year's existing payment rows and written back with batched saveAll calls in one transaction.
+ * Regenerating a year is idempotent: rows are updated in place, so recorded payments, discounts and TDS survive,
+ * and rows whose merchants no longer trade in the year are removed, unless payments were recorded against them.
+ */
+@Service
+@Slf4j
+public class PaymentGenerationService {
+
+    // Keyed by brokerId_...; the payment dashboard is keyed by brokerId alone
+    private static final String[] PAYMENT_CACHES = {
+            "firmNames", "brokeragePayments", "pendingPayments", "receivablePayments"};
+
+    @Autowired
+    private BrokerageRepository brokerageRepository;
+
+    @Autowired
+    private BrokeragePaymentRepository brokeragePaymentRepository;
+
+    @Autowired
+    private PendingPaymentRepository pendingPaymentRepository;
+
+    @Autowired
+    private ReceivablePaymentRepository receivablePaymentRepository;
+
+    @Autowired
+    private ReceivableTransactionRepository receivableTransactionRepository;
+
+    @Autowired
+    private FinancialYearRepository financialYearRepository;
+
+    @Autowired
+    private BrokerRepository brokerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PaymentDashboardService paymentDashboardService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("bulkOperationTaskExecutor")
+    private Executor bulkOperationTaskExecutor;
+
+    @Value("${app.payments.credit-days:30}")
+    private int creditDays;
+
+    @Value("${app.upload.status-retention-minutes:60}")
+    private long statusRetentionMinutes;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private final Map<String, Job> runningJobs = new ConcurrentHashMap<>();
+
+    /**
+     * Starts generation on the bulk operation executor. A request for a year that is already being generated
+     * returns the running job instead of starting another one.
+     *
+     * @return the job's status, whose jobId is polled with {@link #getStatus}
+     * @throws IllegalArgumentException if the financial year does not exist or belongs to another broker
+     */
+    public PaymentGenerationStatusDTO startGeneration(Long brokerId, Long financialYearId) {
+        findFinancialYear(brokerId, financialYearId);
+        removeExpiredJobs();
+
+        Job job = new Job(UUID.randomUUID().toString(), brokerId, financialYearId);
+        Job running = runningJobs.putIfAbsent(brokerId + "_" + financialYearId, job);
+        if (running != null) {
+            return running.toStatus();
+        }
+        jobs.put(job.jobId, job);
+        bulkOperationTaskExecutor.execute(() -> run(job));
+        log.info("Started payment generation {} for broker {} and financial year {}", job.jobId, brokerId, financialYearId);
+        return job.toStatus();
+    }
+
+    /**
+     * Generates the year's payments on the calling thread.
+     */
+    public PaymentGenerationStatusDTO generate(Long brokerId, Long financialYearId) {
+        Job job = new Job(UUID.randomUUID().toString(), brokerId, financialYearId);
+        generate(job);
+        return job.toStatus();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the job is unknown, expired or belongs to another broker
+     */
+    public PaymentGenerationStatusDTO getStatus(Long brokerId, String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null || !job.brokerId.equals(brokerId)) {
+            throw new IllegalArgumentException("Payment generation not found: " + jobId);
+        }
+        return job.toStatus();
+    }
+
+    private void run(Job job) {
+        try {
+            generate(job);
+        } catch (Exception e) {
+            log.error("Payment generation {} for broker {} failed", job.jobId, job.brokerId, e);
+            job.fail(e.getMessage());
+        } finally {
+            runningJobs.remove(job.brokerId + "_" + job.financialYearId, job);
+        }
+    }
+
+    private void generate(Job job) {
+        long start = System.currentTimeMillis();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            FinancialYear financialYear = findFinancialYear(job.brokerId, job.financialYearId);
+            Broker broker = brokerRepository.getReferenceById(job.brokerId);
+
+            job.phase("AGGREGATING", 10);
+            Map<Long, MerchantTotals> merchants = new HashMap<>();
+            // Row: [userId, brokerageRate, records, bags, amount, brokerage, first trade date, last trade date]
+            for (Object[] row : brokerageRepository.getBuyerPaymentAggregates(job.brokerId, job.financialYearId)) {
+                merchants.computeIfAbsent((Long) row[0], id -> new MerchantTotals()).addPurchases(row);
+            }
+            for (Object[] row : brokerageRepository.getSellerPaymentAggregates(job.brokerId, job.financialYearId)) {
+                merchants.computeIfAbsent((Long) row[0], id -> new MerchantTotals()).addSales(row);
+            }
+            // Row: [sellerId, buyerId, records, amount, first trade date, last trade date]
+            List<Object[]> owed = brokerageRepository.getSellerBuyerPaymentAggregates(job.brokerId, job.financialYearId);
+
+            job.phase("BROKERAGE", 40);
+            writeBrokeragePayments(job, broker, financialYear, merchants);
+            job.phase("PENDING", 65);
+            writePendingPayments(job, broker, financialYear, merchants);
+            job.phase("RECEIVABLE", 85);
+            writeReceivablePayments(job, broker, financialYear, merchants, owed);
+        });
+        evictPaymentCaches(job.brokerId);
+        job.finish();
+        log.info("Generated payments for broker {} and financial year {} in {} ms: {} brokerage, {} pending, {} receivable, {} removed, {} retained",
+                job.brokerId, job.financialYearId, System.currentTimeMillis() - start,
+                job.brokeragePayments, job.pendingPayments, job.receivablePayments, job.removedPayments, job.retainedPayments);
+    }
+
+    /**
+     * One row per merchant who bought or sold in the year. Gross brokerage is what the merchant paid on both
+     * sides; discount, TDS and recorded payments of existing rows are kept.
+     */
+    private void writeBrokeragePayments(Job job, Broker broker, FinancialYear financialYear, Map<Long, MerchantTotals> merchants) {
+        Map<Long, BrokeragePayment> existing = new HashMap<>();
+        List<BrokeragePayment> removed = new ArrayList<>();
+        List<BrokeragePayment> payments = new ArrayList<>();
+        for (BrokeragePayment payment : brokeragePaymentRepository.findByBrokerBrokerIdAndFinancialYearYearId(job.brokerId, job.financialYearId)) {
+            if (existing.putIfAbsent(payment.getMerchant().getUserId(), payment) != null) {
+                removed.add(payment);
+            }
+        }
+
+        for (Map.Entry<Long, MerchantTotals> entry : merchants.entrySet()) {
+            MerchantTotals totals = entry.getValue();
+            BrokeragePayment payment = existing.remove(entry.getKey());
+            if (payment == null) {
+                payment = BrokeragePayment.builder()
+                        .merchant(userRepository.getReferenceById(entry.getKey()))
+                        .broker(broker)
+                        .financialYear(financialYear)
+                        .discount(BigDecimal.ZERO)
+                        .tds(BigDecimal.ZERO)
+                        .build();
+            }
+            payment.setSoldBags(totals.soldBags);
+            payment.setBoughtBags(totals.boughtBags);
+            payment.setTotalBags(totals.soldBags + totals.boughtBags);
+            payment.setBrokerageRate(totals.brokerageRate);
+            payment.setGrossBrokerage(totals.brokerage);
+            payment.setNetBrokerage(netBrokerage(payment));
+            payment.setDueDate(financialYear.getEnd());
+            payment.calculatePendingAmount();
+            payment.updateStatus();
+            payments.add(payment);
+        }
+
+        // Merchants without trades left: rows with recorded payments are zeroed so the payments stay visible
+        for (BrokeragePayment payment : existing.values()) {
+            boolean hasPayments = payment.getPaidAmount() != null && payment.getPaidAmount().signum() > 0;
+            if (!hasPayments) {
+                removed.add(payment);
+                continue;
+            }
+            payment.setSoldBags(0L);
+            payment.setBoughtBags(0L);
+            payment.setTotalBags(0L);
+            payment.setGrossBrokerage(BigDecimal.ZERO);
+            payment.setNetBrokerage(BigDecimal.ZERO);
+            payment.calculatePendingAmount();
+            payment.updateStatus();
+            payments.add(payment);
+            job.retainedPayments++;
+        }
+
+        brokeragePaymentRepository.deleteAll(removed);
+        brokeragePaymentRepository.saveAll(payments);
+        job.brokeragePayments = payments.size();
+        job.removedPayments += removed.size();
+    }
+
+    /**
+     * One row per buyer: the cost of everything they bought in the year, due after the credit period.
+     */
+    private void writePendingPayments(Job job, Broker broker, FinancialYear financialYear, Map<Long, MerchantTotals> merchants) {
+        Map<Long, PendingPayment> existing = new HashMap<>();
+        List<PendingPayment> removed = new ArrayList<>();
+        List<PendingPayment> payments = new ArrayList<>();
+        for (PendingPayment payment : pendingPaymentRepository.findByBrokerBrokerIdAndFinancialYearYearId(job.brokerId, job.financialYearId)) {
+            if (existing.putIfAbsent(payment.getBuyer().getUserId(), payment) != null) {
+                removed.add(payment);
+            }
+        }
+
+        for (Map.Entry<Long, MerchantTotals> entry : merchants.entrySet()) {
+            MerchantTotals totals = entry.getValue();
+            if (totals.purchases == 0) {
+                continue;
+            }
+            PendingPayment payment = existing.remove(entry.getKey());
+            if (payment == null) {
+                payment = PendingPayment.builder()
+                        .buyer(userRepository.getReferenceById(entry.getKey()))
+                        .broker(broker)
+                        .financialYear(financialYear)
+                        .build();
+            }
+            payment.setTotalPendingAmount(totals.purchaseAmount);
+            payment.setTransactionCount(totals.purchases);
+            payment.setOldestTransactionDate(totals.firstPurchase);
+            payment.setDueDate(dueDate(totals.firstPurchase, financialYear));
+            payment.updateStatus();
+            payments.add(payment);
+        }
+        // Buyers without purchases left: deleting a row cascades to its transactions, so rows whose transactions
+        // were paid into are zeroed instead
+        removed.addAll(existing.values());
+        for (PendingPayment payment : retainPaid(job, removed, PendingPayment::getId,
+                pendingPaymentRepository::findIdsWithRecordedPayments)) {
+            payment.setTotalPendingAmount(BigDecimal.ZERO);
+            payment.setTransactionCount(0);
+            payment.updateStatus();
+            payments.add(payment);
+        }
+
+        pendingPaymentRepository.deleteAll(removed);
+        pendingPaymentRepository.saveAll(payments);
+        job.pendingPayments = payments.size();
+        job.removedPayments += removed.size();
+    }
+
+    /**
+     * One row per seller with a breakdown per buyer: what each buyer owes the seller for the year's trades.
+     */
+    private void writeReceivablePayments(Job job, Broker broker, FinancialYear financialYear, Map<Long, MerchantTotals> merchants,
+                                         List<Object[]> owed) {
+        Map<Long, ReceivablePayment> existing = new HashMap<>();
+        List<ReceivablePayment> removed = new ArrayList<>();
+        for (ReceivablePayment payment : receivablePaymentRepository.findByBrokerBrokerIdAndFinancialYearYearId(job.brokerId, job.financialYearId)) {
+            if (existing.putIfAbsent(payment.getSeller().getUserId(), payment) != null) {
+                removed.add(payment);
+            }
+        }
+        Map<String, ReceivableTransaction> existingOwedBy = new HashMap<>();
+        for (ReceivableTransaction transaction : receivableTransactionRepository
+                .findByReceivablePaymentBrokerBrokerIdAndReceivablePaymentFinancialYearYearId(job.brokerId, job.financialYearId)) {
+            existingOwedBy.put(transaction.getReceivablePayment().getId() + "_" + transaction.getBuyer().getUserId(), transaction);
+        }
+
+        Map<Long, ReceivablePayment> payments = new HashMap<>();
+        for (Map.Entry<Long, MerchantTotals> entry : merchants.entrySet()) {
+            MerchantTotals totals = entry.getValue();
+            if (totals.sales == 0) {
+                continue;
+            }
+            ReceivablePayment payment = existing.remove(entry.getKey());
+            if (payment == null) {
+                payment = ReceivablePayment.builder()
+                        .seller(userRepository.getReferenceById(entry.getKey()))
+                        .broker(broker)
+                        .financialYear(financialYear)
+                        .build();
+            }
+            payment.setTotalReceivableAmount(totals.saleAmount);
+            payment.setTransactionCount(totals.sales);
+            payment.setOldestTransactionDate(totals.firstSale);
+            payment.setDueDate(dueDate(totals.firstSale, financialYear));
+            payment.updateStatus();
+            payments.put(entry.getKey(), payment);
+        }
+        // Sellers without sales left, zeroed instead when their buyer transactions were paid into
+        removed.addAll(existing.values());
+        List<ReceivablePayment> retained = retainPaid(job, removed, ReceivablePayment::getId,
+                receivablePaymentRepository::findIdsWithRecordedPayments);
+        for (ReceivablePayment payment : retained) {
+            payment.setTotalReceivableAmount(BigDecimal.ZERO);
+            payment.setTransactionCount(0);
+            payment.updateStatus();
+        }
+        receivablePaymentRepository.deleteAll(removed);
+        receivablePaymentRepository.saveAll(payments.values());
+        receivablePaymentRepository.saveAll(retained);
+
+        List<ReceivableTransaction> owedBy = new ArrayList<>(owed.size());
+        for (Object[] row : owed) {
+            ReceivablePayment payment = payments.get((Long) row[0]);
+            Long buyerId = (Long) row[1];
+            ReceivableTransaction transaction = existingOwedBy.remove(payment.getId() + "_" + buyerId);
+            if (transaction == null) {
+                transaction = ReceivableTransaction.builder()
+                        .buyer(userRepository.getReferenceById(buyerId))
+                        .receivablePayment(payment)
+                        .build();
+            }
+            transaction.setTransactionCount(toInt(row[2]));
+            transaction.setTotalOwed(toBigDecimal(row[3]));
+            transaction.setOldestTransactionDate((LocalDate) row[4]);
+            transaction.setMostRecentTransactionDate((LocalDate) row[5]);
+            owedBy.add(transaction);
+        }
+        // Buyers who no longer owe a kept seller, zeroed when paid into; those of removed sellers went with their payment
+        Set<Long> keptPaymentIds = new HashSet<>();
+        payments.values().forEach(payment -> keptPaymentIds.add(payment.getId()));
+        retained.forEach(payment -> keptPaymentIds.add(payment.getId()));
+        List<ReceivableTransaction> staleOwedBy = new ArrayList<>();
+        existingOwedBy.values().stream()
+                .filter(transaction -> keptPaymentIds.contains(transaction.getReceivablePayment().getId()))
+                .forEach(staleOwedBy::add);
+        for (ReceivableTransaction transaction : retainPaid(job, staleOwedBy, ReceivableTransaction::getId,
+                receivableTransactionRepository::findIdsWithRecordedPayments)) {
+            transaction.setTotalOwed(BigDecimal.ZERO);
+            transaction.setTransactionCount(0);
+            owedBy.add(transaction);
+        }
+        receivableTransactionRepository.deleteAll(staleOwedBy);
+        receivableTransactionRepository.saveAll(owedBy);
+        job.receivablePayments = payments.size();
+        job.removedPayments += removed.size();
+    }
+
+    private FinancialYear findFinancialYear(Long brokerId, Long financialYearId) {
+        FinancialYear financialYear = financialYearRepository.findById(financialYearId)
+                .orElseThrow(() -> new IllegalArgumentException("Financial year not found: " + financialYearId));
+        if (financialYear.getBroker() == null || !brokerId.equals(financialYear.getBroker().getBrokerId())) {
+            throw new IllegalArgumentException("Financial year not found: " + financialYearId);
+        }
+        return financialYear;
+    }
+
+    private LocalDate dueDate(LocalDate firstTrade, FinancialYear financialYear) {
+        return firstTrade != null ? firstTrade.plusDays(creditDays) : financialYear.getEnd();
+    }
+
+    private static BigDecimal netBrokerage(BrokeragePayment payment) {
+        BigDecimal net = payment.getGrossBrokerage();
+        if (payment.getDiscount() != null) {
+            net = net.subtract(payment.getDiscount());
+        }
+        if (payment.getTds() != null) {
+            net = net.subtract(payment.getTds());
+        }
+        return net.signum() < 0 ? BigDecimal.ZERO : net;
+    }
+
+    /**
+     * Takes the rows that have payments recorded against them out of the rows to delete
+     *
+     * @return the rows taken out, which the caller zeroes and keeps
+     */
+    private static <T> List<T> retainPaid(Job job, List<T> removed, Function<T, Long> id,
+                                          Function<List<Long>, List<Long>> findIdsWithRecordedPayments) {
+        List<Long> ids = removed.stream().map(id).filter(Objects::nonNull).toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> paid = new HashSet<>(findIdsWithRecordedPayments.apply(ids));
+        List<T> retained = new ArrayList<>();
+        removed.removeIf(row -> paid.contains(id.apply(row)) && retained.add(row));
+        if (!retained.isEmpty()) {
+            log.warn("Kept {} payment rows with recorded payments for broker {} and financial year {}: {}",
+                    retained.size(), job.brokerId, job.financialYearId, retained.stream().map(id).toList());
+        }
+        job.retainedPayments += retained.size();
+        return retained;
+    }
+
+    /**
+     * Evicts the broker's entries only; other brokers' payment pages and dashboards stay cached
+     */
+    private void evictPaymentCaches(Long brokerId) {
+        for (String cacheName : PAYMENT_CACHES) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null && !ScopedCacheEviction.evictMatching(cache, brokerId + "_*")) {
+                log.warn("Cache {} of type {} does not support scoped eviction, clearing it", cacheName,
+                        InstrumentedCacheManager.unwrap(cache).getClass().getSimpleName());
+                cache.clear();
+            }
+        }
+        paymentDashboardService.evict(brokerId);
+    }
+
+    private void removeExpiredJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(statusRetentionMinutes);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    private static int toInt(Object value) {
+        return value == null ? 0 : ((Number) value).intValue();
+    }
+
+    private static long toLong(Object value) {
+        return value == null ? 0L : ((Number) value).longValue();
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        return value == null ? BigDecimal.ZERO : BigDecimal.valueOf(((Number) value).longValue());
+    }
+
+    private static LocalDate earliest(LocalDate current, LocalDate candidate) {
+        return current == null || (candidate != null && candidate.isBefore(current)) ? candidate : current;
+    }
+
+    /**
+     * A merchant's purchase and sale totals for the year.
+     */
+    private static class MerchantTotals {
+        private BigDecimal brokerageRate = BigDecimal.ZERO;
+        private BigDecimal brokerage = BigDecimal.ZERO;
+        private int purchases;
+        private int sales;
+        private long boughtBags;
+        private long soldBags;
+        private BigDecimal purchaseAmount = BigDecimal.ZERO;
+        private BigDecimal saleAmount = BigDecimal.ZERO;
+        private LocalDate firstPurchase;
+        private LocalDate firstSale;
+
+        void addPurchases(Object[] row) {
+            add(row);
+            purchases += toInt(row[2]);
+            boughtBags += toLong(row[3]);
+            purchaseAmount = purchaseAmount.add(toBigDecimal(row[4]));
+            firstPurchase = earliest(firstPurchase, (LocalDate) row[6]);
+        }
+
+        void addSales(Object[] row) {
+            add(row);
+            sales += toInt(row[2]);
+            soldBags += toLong(row[3]);
+            saleAmount = saleAmount.add(toBigDecimal(row[4]));
+            firstSale = earliest(firstSale, (LocalDate) row[6]);
+        }
+
+        private void add(Object[] row) {
+            if (row[1] != null) {
+                brokerageRate = BigDecimal.valueOf(((Number) row[1]).longValue());
+            }
+            brokerage = brokerage.add(toBigDecimal(row[5]));
+        }
+    }
+
+    /**
+     * State of one generation run. Written by the generating thread only, read by status requests.
+     */
+    private static class Job {
+        private final String jobId;
+        private final Long brokerId;
+        private final Long financialYearId;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private volatile String status = "RUNNING";
+        private volatile String phase = "QUEUED";
+        private volatile int progressPercent;
+        private volatile int brokeragePayments;
+        private volatile int pendingPayments;
+        private volatile int receivablePayments;
+        private volatile int removedPayments;
+        private volatile int retainedPayments;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        Job(String jobId, Long brokerId, Long financialYearId) {
+            this.jobId = jobId;
+            this.brokerId = brokerId;
+            this.financialYearId = financialYearId;
+        }
+
+        void phase(String phase, int progressPercent) {
+            this.phase = phase;
+            this.progressPercent = progressPercent;
+        }
+
+        void finish() {
+            phase("DONE", 100);
+            status = "COMPLETED";
+            finishedAt = LocalDateTime.now();
+        }
+
+        void fail(String message) {
+            error = message;
+            status = "FAILED";
+            finishedAt = LocalDateTime.now();
+        }
+
+        PaymentGenerationStatusDTO toStatus() {
+            return PaymentGenerationStatusDTO.builder()
+                    .jobId(jobId)
+                    .brokerId(brokerId)
+                    .financialYearId(financialYearId)
+                    .status(status)
+                    .phase(phase)
+                    .progressPercent(progressPercent)
+                    .brokeragePayments(brokeragePayments)
+                    .pendingPayments(pendingPayments)
+                    .receivablePayments(receivablePayments)
+                    .removedPayments(removedPayments)
+                    .retainedPayments(retainedPayments)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .error(error)
+                    .build();
+        }
+    }
+}
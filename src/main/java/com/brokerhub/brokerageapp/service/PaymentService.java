@@ -3,7 +3,9 @@ package com.brokerhub.brokerageapp.service;
 import com.brokerhub.brokerageapp.dto.payments.*;
 import org.springframework.http.ResponseEntity;
 
+import java.io.OutputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service interface for payment-related operations.
@@ -37,6 +39,14 @@ public interface PaymentService {
      */
     ResponseEntity<ApiResponseDTO<List<BrokeragePaymentDTO>>> searchBrokeragePaymentsByFirm(Long brokerId, String firmName);
 
+    /**
+     * Get one page of brokerage payments, ordered by due date
+     * @param brokerId Broker ID
+     * @param request Filters, cursor of the previous page and page size
+     * @return Response with the page and the cursor of the next page
+     */
+    ResponseEntity<ApiResponseDTO<PaymentPageDTO<BrokeragePaymentDTO>>> getBrokeragePaymentsPage(Long brokerId, PaymentListRequestDTO request);
+
     /**
      * Add part payment to a brokerage payment
      * @param brokerId Broker ID
@@ -63,6 +73,14 @@ public interface PaymentService {
      */
     ResponseEntity<ApiResponseDTO<List<PendingPaymentDTO>>> searchPendingPaymentsByBuyerFirm(Long brokerId, String buyerFirm);
 
+    /**
+     * Get one page of pending payments, ordered by due date
+     * @param brokerId Broker ID
+     * @param request Filters (firm name matches the buyer), cursor of the previous page and page size
+     * @return Response with the page and the cursor of the next page
+     */
+    ResponseEntity<ApiResponseDTO<PaymentPageDTO<PendingPaymentDTO>>> getPendingPaymentsPage(Long brokerId, PaymentListRequestDTO request);
+
     // ==================== RECEIVABLE PAYMENTS APIs ====================
     
     /**
@@ -80,6 +98,14 @@ public interface PaymentService {
      */
     ResponseEntity<ApiResponseDTO<List<ReceivablePaymentDTO>>> searchReceivablePaymentsBySellerFirm(Long brokerId, String sellerFirm);
 
+    /**
+     * Get one page of receivable payments, ordered by due date
+     * @param brokerId Broker ID
+     * @param request Filters (firm name matches the seller), cursor of the previous page and page size
+     * @return Response with the page and the cursor of the next page
+     */
+    ResponseEntity<ApiResponseDTO<PaymentPageDTO<ReceivablePaymentDTO>>> getReceivablePaymentsPage(Long brokerId, PaymentListRequestDTO request);
+
     // ==================== UTILITY METHODS ====================
     
     /**
@@ -98,11 +124,20 @@ public interface PaymentService {
     /**
      * Generate payment data from ledger records
      * This method should be called periodically to sync payment data with ledger
+     * Generation runs in the background; regenerating a year updates its existing payments
      * @param brokerId Broker ID
      * @param financialYearId Financial year ID
-     * @return Success message
+     * @return Status of the generation job
+     */
+    ResponseEntity<ApiResponseDTO<PaymentGenerationStatusDTO>> generatePaymentDataFromLedger(Long brokerId, Long financialYearId);
+
+    /**
+     * Get progress of a payment generation job
+     * @param brokerId Broker ID
+     * @param jobId Job ID returned by generatePaymentDataFromLedger
+     * @return Status of the generation job
      */
-    ResponseEntity<ApiResponseDTO<String>> generatePaymentDataFromLedger(Long brokerId, Long financialYearId);
+    ResponseEntity<ApiResponseDTO<PaymentGenerationStatusDTO>> getPaymentGenerationStatus(Long brokerId, String jobId);
 
     /**
      * Get payment dashboard statistics
@@ -119,12 +154,13 @@ public interface PaymentService {
     ResponseEntity<ApiResponseDTO<PaymentSummaryDTO>> getPaymentSummaryByStatus(Long brokerId);
 
     /**
-     * Export payment data to Excel
+     * Export payment data to Excel, written to the output stream on the payment executor
      * @param brokerId Broker ID
-     * @param paymentType Type of payment (BROKERAGE, PENDING, RECEIVABLE)
-     * @return Excel file as byte array
+     * @param paymentType Type of payment (BROKERAGE, PENDING, RECEIVABLE), or null for all of them
+     * @param outputStream Stream the workbook is written to; it must stay open until the future completes
+     * @return Completes once the workbook has been written
      */
-    ResponseEntity<byte[]> exportPaymentDataToExcel(Long brokerId, String paymentType);
+    CompletableFuture<Void> exportPaymentDataToExcel(Long brokerId, String paymentType, OutputStream outputStream);
 
     /**
      * Get payment alerts (overdue, due soon, etc.)
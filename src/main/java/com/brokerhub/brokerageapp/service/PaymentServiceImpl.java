@@ -2,20 +2,32 @@ package com.brokerhub.brokerageapp.service;
 
 import com.brokerhub.brokerageapp.dto.payments.*;
 import com.brokerhub.brokerageapp.entity.*;
+import com.brokerhub.brokerageapp.exception.ResourceNotFoundException;
 import com.brokerhub.brokerageapp.repository.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -45,6 +57,24 @@ public class PaymentServiceImpl implements PaymentService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PaymentGenerationService paymentGenerationService;
+
+    @Autowired
+    private PaymentDashboardService paymentDashboardService;
+
+    @Autowired
+    private PaymentTrendService paymentTrendService;
+
+    @Autowired
+    private PaymentExcelExportService paymentExcelExportService;
+
+    @Value("${app.payments.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${app.payments.page.max-size:200}")
+    private int maxPageSize;
+
     // ==================== FIRM NAMES API ====================
 
     @Override
@@ -154,6 +184,35 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ResponseEntity<ApiResponseDTO<PaymentPageDTO<BrokeragePaymentDTO>>> getBrokeragePaymentsPage(Long brokerId, PaymentListRequestDTO request) {
+        try {
+            if (!brokerRepository.existsById(brokerId)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ApiResponseDTO.error("Broker not found"));
+            }
+
+            PaymentFilter filter = PaymentFilter.of(request);
+            PaymentPageDTO<BrokeragePaymentDTO> page = fetchPage(request, filter,
+                    (afterDueDate, afterId, pageable) -> brokeragePaymentRepository.findKeysetPageWithDueDate(brokerId, filter.status(),
+                            request.getDueDateFrom(), request.getDueDateTo(), filter.firmNamePattern(), afterDueDate, afterId, pageable),
+                    (afterId, pageable) -> brokeragePaymentRepository.findKeysetPageWithoutDueDate(brokerId, filter.status(),
+                            filter.firmNamePattern(), afterId, pageable),
+                    BrokeragePayment::getDueDate, BrokeragePayment::getId, this::convertToBrokeragePaymentDTO);
+
+            return ResponseEntity.ok(ApiResponseDTO.success("Brokerage payments retrieved successfully", page));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponseDTO.error("Invalid request", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error retrieving brokerage payments page for broker: {}", brokerId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponseDTO.error("Failed to retrieve brokerage payments", "Database connection failed"));
+        }
+    }
+
     @Override
     public ResponseEntity<ApiResponseDTO<AddPartPaymentResponseDTO>> addPartPayment(Long brokerId, Long paymentId, AddPartPaymentRequestDTO request) {
         try {
@@ -187,6 +246,8 @@ public class PaymentServiceImpl implements PaymentService {
                         .body(ApiResponseDTO.error("Payment amount exceeds pending amount"));
             }
 
+            PaymentDashboardService.PaymentRowState dashboardState = paymentDashboardService.rowState(brokeragePayment);
+
             // Create part payment
             PartPayment partPayment = PartPayment.builder()
                     .brokeragePayment(brokeragePayment)
@@ -206,6 +267,8 @@ public class PaymentServiceImpl implements PaymentService {
             // Update brokerage payment
             brokeragePayment.addPartPayment(partPayment);
             brokeragePayment = brokeragePaymentRepository.save(brokeragePayment);
+            paymentDashboardService.recordPartPayment(brokerId, dashboardState, brokeragePayment, partPayment);
+            paymentTrendService.recordPartPayment(brokerId, partPayment);
 
             // Create response
             AddPartPaymentResponseDTO response = AddPartPaymentResponseDTO.builder()
@@ -296,6 +359,35 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ResponseEntity<ApiResponseDTO<PaymentPageDTO<PendingPaymentDTO>>> getPendingPaymentsPage(Long brokerId, PaymentListRequestDTO request) {
+        try {
+            if (!brokerRepository.existsById(brokerId)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ApiResponseDTO.error("Broker not found"));
+            }
+
+            PaymentFilter filter = PaymentFilter.of(request);
+            PaymentPageDTO<PendingPaymentDTO> page = fetchPage(request, filter,
+                    (afterDueDate, afterId, pageable) -> pendingPaymentRepository.findKeysetPageWithDueDate(brokerId, filter.status(),
+                            request.getDueDateFrom(), request.getDueDateTo(), filter.firmNamePattern(), afterDueDate, afterId, pageable),
+                    (afterId, pageable) -> pendingPaymentRepository.findKeysetPageWithoutDueDate(brokerId, filter.status(),
+                            filter.firmNamePattern(), afterId, pageable),
+                    PendingPayment::getDueDate, PendingPayment::getId, this::convertToPendingPaymentDTO);
+
+            return ResponseEntity.ok(ApiResponseDTO.success("Pending payments retrieved successfully", page));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponseDTO.error("Invalid request", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error retrieving pending payments page for broker: {}", brokerId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponseDTO.error("Failed to retrieve pending payments", "Database connection failed"));
+        }
+    }
+
     // ==================== RECEIVABLE PAYMENTS APIs ====================
 
     @Override
@@ -358,12 +450,42 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ResponseEntity<ApiResponseDTO<PaymentPageDTO<ReceivablePaymentDTO>>> getReceivablePaymentsPage(Long brokerId, PaymentListRequestDTO request) {
+        try {
+            if (!brokerRepository.existsById(brokerId)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ApiResponseDTO.error("Broker not found"));
+            }
+
+            PaymentFilter filter = PaymentFilter.of(request);
+            PaymentPageDTO<ReceivablePaymentDTO> page = fetchPage(request, filter,
+                    (afterDueDate, afterId, pageable) -> receivablePaymentRepository.findKeysetPageWithDueDate(brokerId, filter.status(),
+                            request.getDueDateFrom(), request.getDueDateTo(), filter.firmNamePattern(), afterDueDate, afterId, pageable),
+                    (afterId, pageable) -> receivablePaymentRepository.findKeysetPageWithoutDueDate(brokerId, filter.status(),
+                            filter.firmNamePattern(), afterId, pageable),
+                    ReceivablePayment::getDueDate, ReceivablePayment::getId, this::convertToReceivablePaymentDTO);
+
+            return ResponseEntity.ok(ApiResponseDTO.success("Receivable payments retrieved successfully", page));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponseDTO.error("Invalid request", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error retrieving receivable payments page for broker: {}", brokerId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponseDTO.error("Failed to retrieve receivable payments", "Database connection failed"));
+        }
+    }
+
     // ==================== UTILITY METHODS ====================
 
     @Override
     @CacheEvict(value = {"firmNames", "brokeragePayments", "pendingPayments", "receivablePayments", "paymentDashboard"}, allEntries = true)
     public void refreshPaymentCache(Long brokerId) {
         log.info("Clearing all Redis cache entries for broker: {}", brokerId);
+        paymentDashboardService.evict(brokerId);
     }
 
     @Override
@@ -372,18 +494,31 @@ public class PaymentServiceImpl implements PaymentService {
             log.info("Updating overdue payment statuses for broker: {}", brokerId);
             
             LocalDate currentDate = LocalDate.now();
-            int updatedCount = 0;
+            // Lock the rows first, so the trend counts exactly the payments this update marks
+            List<Object[]> brokerage = brokeragePaymentRepository.findBrokerOverdueCandidates(brokerId, currentDate, PaymentStatus.OVERDUE);
+            List<Object[]> pending = pendingPaymentRepository.findBrokerOverdueCandidates(brokerId, currentDate, PaymentStatus.OVERDUE);
+            List<Object[]> receivable = receivablePaymentRepository.findBrokerOverdueCandidates(brokerId, currentDate, PaymentStatus.OVERDUE);
             
             // Update brokerage payments
-            updatedCount += brokeragePaymentRepository.updateOverduePaymentStatus(brokerId, currentDate, PaymentStatus.OVERDUE);
+            int updatedCount = markOverdue(brokerage, brokeragePaymentRepository::markStatus);
             
             // Update pending payments
-            updatedCount += pendingPaymentRepository.updateOverduePaymentStatus(brokerId, currentDate, PaymentStatus.OVERDUE);
+            updatedCount += markOverdue(pending, pendingPaymentRepository::markStatus);
             
             // Update receivable payments
-            updatedCount += receivablePaymentRepository.updateOverduePaymentStatus(brokerId, currentDate, PaymentStatus.OVERDUE);
+            updatedCount += markOverdue(receivable, receivablePaymentRepository::markStatus);
             
             log.info("Updated {} overdue payment statuses for broker: {}", updatedCount, brokerId);
+            BigDecimal overdueAmount = BigDecimal.ZERO;
+            for (List<Object[]> rows : List.of(brokerage, pending, receivable)) {
+                for (Object[] row : rows) {
+                    overdueAmount = overdueAmount.add(row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO);
+                }
+            }
+            if (updatedCount > 0) {
+                paymentDashboardService.evictAfterCommit(brokerId);
+            }
+            paymentTrendService.recordOverdueTransitions(brokerId, currentDate, updatedCount, overdueAmount);
             
             log.info("Overdue status update completed for broker: {}", brokerId);
             
@@ -395,6 +530,103 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
 
+    private static int markOverdue(List<Object[]> candidates, BiFunction<List<Long>, PaymentStatus, Integer> markStatus) {
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        return markStatus.apply(candidates.stream().map(row -> (Long) row[0]).toList(), PaymentStatus.OVERDUE);
+    }
+
+    // ==================== KEYSET PAGINATION ====================
+
+    /**
+     * Loads one page in (dueDate, id) order. Payments without a due date follow the dated ones, unless a
+     * due date range is requested. One row more than the page size is read to tell whether a next page exists.
+     */
+    private <E, D> PaymentPageDTO<D> fetchPage(PaymentListRequestDTO request, PaymentFilter filter,
+                                               DatedPageQuery<E> datedQuery,
+                                               BiFunction<Long, Pageable, List<E>> undatedQuery,
+                                               Function<E, LocalDate> dueDateOf, Function<E, Long> idOf,
+                                               Function<E, D> converter) {
+        int limit = request.getLimit() == null ? defaultPageSize : Math.max(1, Math.min(request.getLimit(), maxPageSize));
+        PaymentCursor cursor = PaymentCursor.decode(request.getCursor());
+
+        List<E> rows = new ArrayList<>(limit + 1);
+        if (cursor == null || cursor.dueDate() != null) {
+            rows.addAll(datedQuery.find(cursor == null ? null : cursor.dueDate(), cursor == null ? null : cursor.id(),
+                    PageRequest.of(0, limit + 1)));
+        }
+        boolean dueDateRange = request.getDueDateFrom() != null || request.getDueDateTo() != null;
+        if (rows.size() <= limit && !dueDateRange) {
+            long afterId = cursor != null && cursor.dueDate() == null ? cursor.id() : 0L;
+            rows.addAll(undatedQuery.apply(afterId, PageRequest.of(0, limit + 1 - rows.size())));
+        }
+
+        boolean hasMore = rows.size() > limit;
+        if (hasMore) {
+            rows = rows.subList(0, limit);
+        }
+        E last = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+        return PaymentPageDTO.<D>builder()
+                .items(rows.stream().map(converter).collect(Collectors.toList()))
+                .nextCursor(hasMore ? new PaymentCursor(dueDateOf.apply(last), idOf.apply(last)).encode() : null)
+                .hasMore(hasMore)
+                .limit(limit)
+                .build();
+    }
+
+    @FunctionalInterface
+    private interface DatedPageQuery<E> {
+        List<E> find(LocalDate afterDueDate, Long afterId, Pageable pageable);
+    }
+
+    private record PaymentFilter(PaymentStatus status, String firmNamePattern) {
+
+        static PaymentFilter of(PaymentListRequestDTO request) {
+            PaymentStatus status = null;
+            if (request.getStatus() != null && !request.getStatus().trim().isEmpty()) {
+                try {
+                    status = PaymentStatus.valueOf(request.getStatus().trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown payment status: " + request.getStatus());
+                }
+            }
+            if (request.getDueDateFrom() != null && request.getDueDateTo() != null
+                    && request.getDueDateFrom().isAfter(request.getDueDateTo())) {
+                throw new IllegalArgumentException("dueDateFrom must not be after dueDateTo");
+            }
+            String firmNamePattern = request.getFirmName() == null || request.getFirmName().trim().isEmpty()
+                    ? null : "%" + request.getFirmName().trim().toLowerCase(Locale.ROOT) + "%";
+            return new PaymentFilter(status, firmNamePattern);
+        }
+    }
+
+    /**
+     * Position after the last row of a page: its due date (null in the section without due dates) and ID,
+     * sent to clients as URL-safe Base64 of "dueDate:id".
+     */
+    private record PaymentCursor(LocalDate dueDate, Long id) {
+
+        String encode() {
+            String value = (dueDate == null ? "" : dueDate.toString()) + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static PaymentCursor decode(String cursor) {
+            if (cursor == null || cursor.trim().isEmpty()) {
+                return null;
+            }
+            try {
+                String value = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+                int separator = value.indexOf(':');
+                LocalDate dueDate = separator == 0 ? null : LocalDate.parse(value.substring(0, separator));
+                return new PaymentCursor(dueDate, Long.parseLong(value.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+
     // ==================== CONVERSION METHODS ====================
 
     /**
@@ -588,27 +820,77 @@ public class PaymentServiceImpl implements PaymentService {
     // These methods will be implemented in the next part
 
     @Override
-    public ResponseEntity<ApiResponseDTO<String>> generatePaymentDataFromLedger(Long brokerId, Long financialYearId) {
-        // TODO: Implement payment data generation from ledger records
-        return ResponseEntity.ok(ApiResponseDTO.success("Payment data generation not yet implemented"));
+    public ResponseEntity<ApiResponseDTO<PaymentGenerationStatusDTO>> generatePaymentDataFromLedger(Long brokerId, Long financialYearId) {
+        try {
+            PaymentGenerationStatusDTO status = paymentGenerationService.startGeneration(brokerId, financialYearId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(ApiResponseDTO.success("Payment data generation started", status));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponseDTO.error("Financial year not found", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error starting payment data generation for broker: {} and financial year: {}", brokerId, financialYearId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponseDTO.error("Failed to start payment data generation", "Internal server error"));
+        }
+    }
+
+    @Override
+    public ResponseEntity<ApiResponseDTO<PaymentGenerationStatusDTO>> getPaymentGenerationStatus(Long brokerId, String jobId) {
+        try {
+            return ResponseEntity.ok(ApiResponseDTO.success("Payment generation status retrieved successfully",
+                    paymentGenerationService.getStatus(brokerId, jobId)));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponseDTO.error("Payment generation not found", e.getMessage()));
+        }
     }
 
     @Override
     public ResponseEntity<ApiResponseDTO<PaymentDashboardDTO>> getPaymentDashboardStatistics(Long brokerId) {
-        // TODO: Implement dashboard statistics
-        return ResponseEntity.ok(ApiResponseDTO.success("Dashboard statistics not yet implemented", new PaymentDashboardDTO()));
+        try {
+            if (!brokerRepository.existsById(brokerId)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ApiResponseDTO.error("Broker not found"));
+            }
+
+            return ResponseEntity.ok(ApiResponseDTO.success("Dashboard statistics retrieved successfully",
+                    paymentDashboardService.getDashboard(brokerId)));
+
+        } catch (Exception e) {
+            log.error("Error retrieving payment dashboard statistics for broker: {}", brokerId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponseDTO.error("Failed to retrieve dashboard statistics", "Database connection failed"));
+        }
     }
 
     @Override
     public ResponseEntity<ApiResponseDTO<PaymentSummaryDTO>> getPaymentSummaryByStatus(Long brokerId) {
-        // TODO: Implement payment summary by status
-        return ResponseEntity.ok(ApiResponseDTO.success("Payment summary not yet implemented", new PaymentSummaryDTO()));
+        try {
+            if (!brokerRepository.existsById(brokerId)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ApiResponseDTO.error("Broker not found"));
+            }
+
+            return ResponseEntity.ok(ApiResponseDTO.success("Payment summary retrieved successfully",
+                    paymentDashboardService.getSummary(brokerId)));
+
+        } catch (Exception e) {
+            log.error("Error retrieving payment summary for broker: {}", brokerId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponseDTO.error("Failed to retrieve payment summary", "Database connection failed"));
+        }
     }
 
     @Override
-    public ResponseEntity<byte[]> exportPaymentDataToExcel(Long brokerId, String paymentType) {
-        // TODO: Implement Excel export
-        return ResponseEntity.ok(new byte[0]);
+    public CompletableFuture<Void> exportPaymentDataToExcel(Long brokerId, String paymentType, OutputStream outputStream) {
+        if (!brokerRepository.existsById(brokerId)) {
+            throw new ResourceNotFoundException("Broker not found");
+        }
+        log.info("Exporting {} payments of broker: {}", paymentType != null ? paymentType : "all", brokerId);
+        return paymentExcelExportService.export(brokerId, paymentType, outputStream);
     }
 
     @Override
@@ -625,8 +907,23 @@ public class PaymentServiceImpl implements PaymentService {
 
     @Override
     public ResponseEntity<ApiResponseDTO<PaymentTrendsDTO>> getPaymentTrends(Long brokerId, Integer days) {
-        // TODO: Implement payment trends
-        return ResponseEntity.ok(ApiResponseDTO.success("Payment trends not yet implemented", new PaymentTrendsDTO()));
+        try {
+            if (!brokerRepository.existsById(brokerId)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ApiResponseDTO.error("Broker not found"));
+            }
+
+            return ResponseEntity.ok(ApiResponseDTO.success("Payment trends retrieved successfully",
+                    paymentTrendService.getTrends(brokerId, days)));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponseDTO.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error retrieving payment trends for broker: {}", brokerId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponseDTO.error("Failed to retrieve payment trends", "Internal server error"));
+        }
     }
 
     @Override
@@ -0,0 +1,374 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.payments.PaymentTrendsDTO;
+import com.brokerhub.brokerageapp.dto.payments.PaymentTrendsDTO.DailyPaymentTrendDTO;
+import com.brokerhub.brokerageapp.dto.payments.PaymentTrendsDTO.PaymentTrendSummaryDTO;
+import com.brokerhub.brokerageapp.dto.payments.PaymentTrendsDTO.WeeklyPaymentTrendDTO;
+import com.brokerhub.brokerageapp.entity.PartPayment;
+import com.brokerhub.brokerageapp.entity.PaymentDailyTrend;
+import com.brokerhub.brokerageapp.entity.PaymentMethod;
+import com.brokerhub.brokerageapp.repository.PaymentDailyTrendRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Maintains PaymentDailyTrend and answers the payment trends endpoint from it. Part payments and overdue status
+ * updates upsert their deltas through {@link CounterDeltaWriter} in their own transaction, so a bucket commits and
+ * rolls back with the change it counts; overdue transitions are not recorded anywhere else and cannot be rebuilt.
+ * A range query merges at most one row per day and method, however much payment history the broker has. Payment
+ * transactions have no write path in the application, so new dues reach the buckets through the migration backfill
+ * and the nightly reconciliation of recent days.
+ */
+@Service
+@Transactional
+@Slf4j
+public class PaymentTrendService {
+
+    private static final int DEFAULT_DAYS = 30;
+    private static final int DAYS_PER_WEEK = 7;
+    // Changes within this many percent are reported as stable
+    private static final BigDecimal TREND_THRESHOLD_PERCENT = BigDecimal.valueOf(5);
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+    private static final List<String> BUCKET_KEY = List.of("brokerId", "trendDate", "paymentMethod");
+    // New dues are upserted as zero deltas so a new bucket starts them at zero
+    private static final List<String> COUNTERS = List.of("paymentsCount", "paymentsAmount", "newDueCount", "newDueAmount",
+            "overdueCount", "overdueAmount");
+
+    @Autowired
+    private PaymentDailyTrendRepository trendRepository;
+
+    @Autowired
+    private CounterDeltaWriter deltaWriter;
+
+    @Value("${app.payments.trends.max-days:366}")
+    private int maxDays;
+
+    @Value("${app.payments.trends.reconcile-days:7}")
+    private int reconcileDays;
+
+    public void recordPartPayment(Long brokerId, PartPayment partPayment) {
+        applyDelta(brokerId, partPayment.getPaymentDate(), methodOf(partPayment.getMethod()),
+                1, partPayment.getAmount(), 0, BigDecimal.ZERO);
+    }
+
+    /**
+     * Counts payments marked overdue on the given day, with the amount still pending when they were marked
+     */
+    public void recordOverdueTransitions(Long brokerId, LocalDate date, long count, BigDecimal amount) {
+        if (count == 0) {
+            return;
+        }
+        applyDelta(brokerId, date, PaymentDailyTrend.NO_METHOD, 0, BigDecimal.ZERO, count, amount);
+    }
+
+    private void applyDelta(Long brokerId, LocalDate date, String method, long paymentsCount, BigDecimal paymentsAmount,
+                            long overdueCount, BigDecimal overdueAmount) {
+        if (brokerId == null || date == null) {
+            return;
+        }
+        BigDecimal payments = paymentsAmount != null ? paymentsAmount : BigDecimal.ZERO;
+        BigDecimal overdue = overdueAmount != null ? overdueAmount : BigDecimal.ZERO;
+        PaymentDailyTrend delta = newBucket(brokerId, date, method);
+        delta.setPaymentsCount(paymentsCount);
+        delta.setPaymentsAmount(payments);
+        delta.setOverdueCount(overdueCount);
+        delta.setOverdueAmount(overdue);
+        deltaWriter.upsert(delta, BUCKET_KEY, COUNTERS);
+    }
+
+    /**
+     * Daily and weekly payment trends of the last {@code days} days, ending today
+     */
+    @Transactional(readOnly = true)
+    public PaymentTrendsDTO getTrends(Long brokerId, Integer days) {
+        int window = days != null ? days : DEFAULT_DAYS;
+        if (window < 1 || window > maxDays) {
+            throw new IllegalArgumentException("Days must be between 1 and " + maxDays);
+        }
+        LocalDate periodEnd = LocalDate.now();
+        LocalDate periodStart = periodEnd.minusDays(window - 1L);
+
+        Map<LocalDate, DailyPaymentTrendDTO> stored = new HashMap<>();
+        for (Object[] row : trendRepository.getDailyTotals(brokerId, periodStart, periodEnd)) {
+            DailyPaymentTrendDTO day = emptyDay((LocalDate) row[0]);
+            day.setPaymentsCount(intValue(row[1]));
+            day.setTotalPaymentsReceived(decimalValue(row[2]));
+            day.setAveragePaymentAmount(average(day.getTotalPaymentsReceived(), day.getPaymentsCount()));
+            day.setNewPendingCount(intValue(row[3]));
+            day.setNewPendingAmount(decimalValue(row[4]));
+            day.setOverdueCount(intValue(row[5]));
+            day.setOverdueAmount(decimalValue(row[6]));
+            stored.put(day.getDate(), day);
+        }
+        List<DailyPaymentTrendDTO> dailyTrends = new ArrayList<>(window);
+        for (LocalDate date = periodStart; !date.isAfter(periodEnd); date = date.plusDays(1)) {
+            dailyTrends.add(stored.getOrDefault(date, emptyDay(date)));
+        }
+
+        Map<String, BigDecimal> collectionsByMethod = new LinkedHashMap<>();
+        trendRepository.getMethodTotals(brokerId, periodStart, periodEnd).stream()
+                .sorted(Comparator.comparing((Object[] row) -> decimalValue(row[2])).reversed())
+                .forEach(row -> collectionsByMethod.put((String) row[0], decimalValue(row[2])));
+
+        return PaymentTrendsDTO.builder()
+                .periodStart(periodStart)
+                .periodEnd(periodEnd)
+                .daysAnalyzed(window)
+                .dailyTrends(dailyTrends)
+                .weeklyTrends(weeklyTrends(dailyTrends))
+                .trendSummary(summary(dailyTrends, collectionsByMethod))
+                .collectionsByMethod(collectionsByMethod)
+                .build();
+    }
+
+    /**
+     * Recomputes the payments and new dues of the broker's buckets between from and to from part_payment and
+     * payment_transaction. Overdue counts are left as they are, they are only recorded when the status changes.
+     *
+     * @return number of buckets that were corrected
+     */
+    public int rebuild(Long brokerId, LocalDate from, LocalDate to) {
+        Map<BucketKey, PaymentDailyTrend> expected = new HashMap<>();
+        for (Object[] row : trendRepository.getPartPaymentTotals(brokerId, from, to)) {
+            PaymentDailyTrend bucket = expected.computeIfAbsent(new BucketKey((LocalDate) row[0], methodOf((PaymentMethod) row[1])),
+                    key -> newBucket(brokerId, key.date(), key.method()));
+            bucket.setPaymentsCount(bucket.getPaymentsCount() + longValue(row[2]));
+            bucket.setPaymentsAmount(bucket.getPaymentsAmount().add(decimalValue(row[3])));
+        }
+        for (Object[] row : trendRepository.getPaymentTransactionTotals(brokerId, from, to)) {
+            PaymentDailyTrend bucket = expected.computeIfAbsent(new BucketKey((LocalDate) row[0], PaymentDailyTrend.NO_METHOD),
+                    key -> newBucket(brokerId, key.date(), key.method()));
+            bucket.setNewDueCount(longValue(row[1]));
+            bucket.setNewDueAmount(decimalValue(row[2]));
+        }
+
+        Map<BucketKey, PaymentDailyTrend> stored = new HashMap<>();
+        for (PaymentDailyTrend bucket : trendRepository.findByBrokerIdAndTrendDateBetween(brokerId, from, to)) {
+            stored.put(new BucketKey(bucket.getTrendDate(), bucket.getPaymentMethod()), bucket);
+        }
+
+        Set<BucketKey> keys = new LinkedHashSet<>(expected.keySet());
+        keys.addAll(stored.keySet());
+        List<PaymentDailyTrend> toSave = new ArrayList<>();
+        List<PaymentDailyTrend> toDelete = new ArrayList<>();
+        for (BucketKey key : keys) {
+            PaymentDailyTrend want = expected.getOrDefault(key, newBucket(brokerId, key.date(), key.method()));
+            PaymentDailyTrend have = stored.get(key);
+            if (have == null) {
+                toSave.add(want);
+                continue;
+            }
+            if (sameTotals(want, have)) {
+                continue;
+            }
+            have.setPaymentsCount(want.getPaymentsCount());
+            have.setPaymentsAmount(want.getPaymentsAmount());
+            have.setNewDueCount(want.getNewDueCount());
+            have.setNewDueAmount(want.getNewDueAmount());
+            if (have.isEmpty()) {
+                toDelete.add(have);
+            } else {
+                toSave.add(have);
+            }
+        }
+        trendRepository.saveAll(toSave);
+        trendRepository.deleteAll(toDelete);
+        int corrected = toSave.size() + toDelete.size();
+        if (corrected > 0) {
+            log.info("Rebuilt payment trends for broker {} from {} to {}: {} buckets corrected", brokerId, from, to, corrected);
+        }
+        return corrected;
+    }
+
+    /**
+     * Rebuilds the most recent days of the broker, which picks up payment transactions and any part payment
+     * changed outside addPartPayment
+     */
+    public int reconcileRecent(Long brokerId) {
+        LocalDate today = LocalDate.now();
+        return rebuild(brokerId, today.minusDays(reconcileDays), today);
+    }
+
+    /**
+     * Brokers with payments, dues or buckets within the reconciliation window
+     */
+    @Transactional(readOnly = true)
+    public Set<Long> findBrokersToReconcile() {
+        LocalDate from = LocalDate.now().minusDays(reconcileDays);
+        Set<Long> brokerIds = new LinkedHashSet<>(trendRepository.findBrokerIdsWithPartPaymentsSince(from));
+        brokerIds.addAll(trendRepository.findBrokerIdsWithPaymentTransactionsSince(from));
+        brokerIds.addAll(trendRepository.findBrokerIdsWithTrendsSince(from));
+        return brokerIds;
+    }
+
+    private static List<WeeklyPaymentTrendDTO> weeklyTrends(List<DailyPaymentTrendDTO> dailyTrends) {
+        List<WeeklyPaymentTrendDTO> weeks = new ArrayList<>();
+        WeeklyPaymentTrendDTO previous = null;
+        for (int start = 0; start < dailyTrends.size(); start += DAYS_PER_WEEK) {
+            List<DailyPaymentTrendDTO> days = dailyTrends.subList(start, Math.min(start + DAYS_PER_WEEK, dailyTrends.size()));
+            BigDecimal total = totalReceived(days);
+            int count = days.stream().mapToInt(DailyPaymentTrendDTO::getPaymentsCount).sum();
+            BigDecimal change = previous != null ? percentChange(previous.getTotalPaymentsReceived(), total) : null;
+            WeeklyPaymentTrendDTO week = WeeklyPaymentTrendDTO.builder()
+                    .weekStart(days.get(0).getDate())
+                    .weekEnd(days.get(days.size() - 1).getDate())
+                    .totalPaymentsReceived(total)
+                    .paymentsCount(count)
+                    .averagePaymentAmount(average(total, count))
+                    .weekOverWeekChange(change)
+                    .trend(previous != null ? direction(previous.getTotalPaymentsReceived(), total, change,
+                            "INCREASING", "DECREASING") : "STABLE")
+                    .build();
+            weeks.add(week);
+            previous = week;
+        }
+        return weeks;
+    }
+
+    private static PaymentTrendSummaryDTO summary(List<DailyPaymentTrendDTO> dailyTrends, Map<String, BigDecimal> collectionsByMethod) {
+        BigDecimal total = totalReceived(dailyTrends);
+        int count = dailyTrends.stream().mapToInt(DailyPaymentTrendDTO::getPaymentsCount).sum();
+        DailyPaymentTrendDTO peak = dailyTrends.stream()
+                .max(Comparator.comparing(DailyPaymentTrendDTO::getTotalPaymentsReceived))
+                .filter(day -> day.getTotalPaymentsReceived().signum() > 0)
+                .orElse(null);
+
+        // Compare the later half of the period with the earlier half
+        int half = dailyTrends.size() / 2;
+        BigDecimal earlier = totalReceived(dailyTrends.subList(0, half));
+        BigDecimal later = totalReceived(dailyTrends.subList(half, dailyTrends.size()));
+        BigDecimal change = half > 0 ? percentChange(earlier, later) : null;
+        String overallTrend = half > 0 ? direction(earlier, later, change, "IMPROVING", "DECLINING") : "STABLE";
+
+        int overdueCount = dailyTrends.stream().mapToInt(DailyPaymentTrendDTO::getOverdueCount).sum();
+        BigDecimal overdueAmount = dailyTrends.stream().map(DailyPaymentTrendDTO::getOverdueAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        return PaymentTrendSummaryDTO.builder()
+                .totalPaymentsReceived(total)
+                .totalPaymentsCount(count)
+                .averageDailyPayments(total.divide(BigDecimal.valueOf(dailyTrends.size()), 2, RoundingMode.HALF_UP))
+                .peakDayAmount(peak != null ? peak.getTotalPaymentsReceived() : BigDecimal.ZERO)
+                .peakDay(peak != null ? peak.getDate() : null)
+                .overallTrend(overallTrend)
+                .trendPercentage(change != null ? change : BigDecimal.ZERO)
+                .insights(insights(total, overallTrend, change, overdueCount, overdueAmount, collectionsByMethod))
+                .build();
+    }
+
+    private static String insights(BigDecimal total, String overallTrend, BigDecimal change, int overdueCount,
+                                   BigDecimal overdueAmount, Map<String, BigDecimal> collectionsByMethod) {
+        List<String> insights = new ArrayList<>();
+        if (total.signum() == 0) {
+            insights.add("No payments received in this period");
+        } else if (change == null) {
+            insights.add("Collections are " + overallTrend.toLowerCase() + " compared with the first half of the period");
+        } else {
+            insights.add("Collections are " + overallTrend.toLowerCase() + " (" + change.toPlainString()
+                    + "%) compared with the first half of the period");
+        }
+        if (!collectionsByMethod.isEmpty() && total.signum() > 0) {
+            Map.Entry<String, BigDecimal> top = collectionsByMethod.entrySet().iterator().next();
+            insights.add(top.getKey() + " brought in " + top.getValue().multiply(HUNDRED)
+                    .divide(total, 0, RoundingMode.HALF_UP) + "% of collections");
+        }
+        if (overdueCount > 0) {
+            insights.add(overdueCount + " payments with " + overdueAmount.toPlainString() + " pending became overdue");
+        }
+        return String.join(". ", insights);
+    }
+
+    /**
+     * Percentage change from previous to current, or null when there is nothing to compare with
+     */
+    private static BigDecimal percentChange(BigDecimal previous, BigDecimal current) {
+        if (previous.signum() == 0) {
+            return null;
+        }
+        return current.subtract(previous).multiply(HUNDRED).divide(previous, 2, RoundingMode.HALF_UP);
+    }
+
+    private static String direction(BigDecimal previous, BigDecimal current, BigDecimal change, String up, String down) {
+        if (change == null) {
+            return current.compareTo(previous) > 0 ? up : "STABLE";
+        }
+        if (change.compareTo(TREND_THRESHOLD_PERCENT) > 0) {
+            return up;
+        }
+        return change.compareTo(TREND_THRESHOLD_PERCENT.negate()) < 0 ? down : "STABLE";
+    }
+
+    private static BigDecimal totalReceived(List<DailyPaymentTrendDTO> days) {
+        return days.stream().map(DailyPaymentTrendDTO::getTotalPaymentsReceived).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static BigDecimal average(BigDecimal amount, int count) {
+        return count > 0 ? amount.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO;
+    }
+
+    private static DailyPaymentTrendDTO emptyDay(LocalDate date) {
+        return DailyPaymentTrendDTO.builder()
+                .date(date)
+                .totalPaymentsReceived(BigDecimal.ZERO)
+                .paymentsCount(0)
+                .averagePaymentAmount(BigDecimal.ZERO)
+                .newPendingAmount(BigDecimal.ZERO)
+                .newPendingCount(0)
+                .overdueCount(0)
+                .overdueAmount(BigDecimal.ZERO)
+                .build();
+    }
+
+    private static PaymentDailyTrend newBucket(Long brokerId, LocalDate date, String method) {
+        return PaymentDailyTrend.builder()
+                .brokerId(brokerId)
+                .trendDate(date)
+                .paymentMethod(method)
+                .build();
+    }
+
+    private static boolean sameTotals(PaymentDailyTrend want, PaymentDailyTrend have) {
+        return Objects.equals(want.getPaymentsCount(), have.getPaymentsCount())
+                && want.getPaymentsAmount().compareTo(have.getPaymentsAmount()) == 0
+                && Objects.equals(want.getNewDueCount(), have.getNewDueCount())
+                && want.getNewDueAmount().compareTo(have.getNewDueAmount()) == 0;
+    }
+
+    private static String methodOf(PaymentMethod method) {
+        return method != null ? method.name() : PaymentDailyTrend.NO_METHOD;
+    }
+
+    private static int intValue(Object value) {
+        return value != null ? ((Number) value).intValue() : 0;
+    }
+
+    private static long longValue(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static BigDecimal decimalValue(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+
+    private record BucketKey(LocalDate date, String method) {
+    }
+}
@@ -4,6 +4,7 @@ import com.brokerhub.brokerageapp.dto.CityWiseBagDistributionDTO;
 import com.brokerhub.brokerageapp.dto.UserBrokerageDetailDTO;
 import com.brokerhub.brokerageapp.entity.Broker;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.util.List;
 
@@ -17,10 +18,21 @@ public interface PdfGenerationService {
     
     byte[] generateUserBrokerageBill(UserBrokerageDetailDTO userDetail, Broker broker, Long financialYearId, BigDecimal customBrokerage, Long userId);
     
+    /**
+     * Writes the bill HTML straight to the stream without buffering the whole document. The stream is not closed.
+     */
+    void writeUserBrokerageBill(UserBrokerageDetailDTO userDetail, Broker broker, Long financialYearId, BigDecimal customBrokerage, Long userId, OutputStream outputStream);
+    
     byte[] generateUserBrokerageBillPdf(UserBrokerageDetailDTO userDetail, Broker broker, Long financialYearId, BigDecimal customBrokerage);
     
+    byte[] generateUserBrokerageBillPdf(UserBrokerageDetailDTO userDetail, Broker broker, Long financialYearId, BigDecimal customBrokerage, Long userId);
+    
     byte[] generatePrintOptimizedBill(UserBrokerageDetailDTO userDetail, Broker broker, Long financialYearId, BigDecimal customBrokerage, String paperSize, String orientation);
     
+    void writePrintOptimizedBill(UserBrokerageDetailDTO userDetail, Broker broker, Long financialYearId, BigDecimal customBrokerage, String paperSize, String orientation, OutputStream outputStream);
+    
     byte[] generateCityWisePrintBill(UserBrokerageDetailDTO userDetail, Broker broker, Long financialYearId, BigDecimal customBrokerage, String paperSize, String orientation, List<CityWiseBagDistributionDTO> cityDistribution);
     
+    void writeCityWisePrintBill(UserBrokerageDetailDTO userDetail, Broker broker, Long financialYearId, BigDecimal customBrokerage, String paperSize, String orientation, List<CityWiseBagDistributionDTO> cityDistribution, OutputStream outputStream);
+    
 }
\ No newline at end of file
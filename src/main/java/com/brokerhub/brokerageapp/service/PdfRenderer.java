@@ -0,0 +1,129 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.itextpdf.html2pdf.ConverterProperties;
+import com.itextpdf.html2pdf.HtmlConverter;
+import com.itextpdf.html2pdf.resolver.font.DefaultFontProvider;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.WriterProperties;
+import com.itextpdf.kernel.utils.PdfMerger;
+import com.itextpdf.layout.font.FontSet;
+import com.itextpdf.styledxmlparser.resolver.font.BasicFontProvider;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Shared html2pdf rendering for bills.
+ * Loading the shipped and standard fonts is the most expensive part of a cold HtmlConverter call, so the
+ * font set is built once and every conversion gets a lightweight FontProvider over it. FontProvider keeps
+ * per-document PdfFont instances and is not thread-safe, which is why only the FontSet is shared.
+ */
+@Component
+@Slf4j
+public class PdfRenderer {
+
+    /**
+     * Same default family DefaultFontProvider uses, so bills render exactly as before.
+     */
+    private static final String DEFAULT_FONT_FAMILY = "Times";
+
+    private volatile FontSet fontSet;
+
+    @PostConstruct
+    public void init() {
+        getFontSet();
+    }
+
+    public byte[] render(String html) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        HtmlConverter.convertToPdf(html, outputStream, converterProperties());
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Renders UTF-8 encoded HTML, as produced by the bill templates, without decoding it to a String first.
+     */
+    public byte[] render(byte[] html) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        HtmlConverter.convertToPdf(new ByteArrayInputStream(html), outputStream, converterProperties());
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Opens a single PDF on the given stream that rendered bills can be appended to in order.
+     * The caller's stream is not closed.
+     */
+    public MergedPdf openMerged(OutputStream outputStream) {
+        return new MergedPdf(outputStream);
+    }
+
+    ConverterProperties converterProperties() {
+        return new ConverterProperties()
+                .setCharset("UTF-8")
+                .setFontProvider(new BasicFontProvider(getFontSet(), DEFAULT_FONT_FAMILY));
+    }
+
+    private FontSet getFontSet() {
+        FontSet loaded = fontSet;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = fontSet;
+                if (loaded == null) {
+                    long startTime = System.currentTimeMillis();
+                    loaded = new DefaultFontProvider(true, true, false).getFontSet();
+                    fontSet = loaded;
+                    log.info("Loaded {} PDF fonts in {} ms", loaded.size(), System.currentTimeMillis() - startTime);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Merge target for bulk printing. Pages are copied from each rendered bill and flushed straight away,
+     * so memory stays flat however many bills are appended; smart mode writes shared resources such as
+     * the static QR image only once.
+     */
+    public static final class MergedPdf implements Closeable {
+
+        private final PdfDocument target;
+        private final PdfMerger merger;
+
+        private MergedPdf(OutputStream outputStream) {
+            PdfWriter writer = new PdfWriter(outputStream, new WriterProperties().useSmartMode());
+            writer.setCloseStream(false);
+            this.target = new PdfDocument(writer);
+            this.merger = new PdfMerger(target, false, false);
+        }
+
+        public void append(byte[] pdf) throws IOException {
+            try (PdfDocument source = new PdfDocument(new PdfReader(new ByteArrayInputStream(pdf)))) {
+                int firstPage = target.getNumberOfPages() + 1;
+                merger.merge(source, 1, source.getNumberOfPages());
+                for (int page = firstPage; page <= target.getNumberOfPages(); page++) {
+                    target.getPage(page).flush();
+                }
+            }
+        }
+
+        public int getNumberOfPages() {
+            return target.getNumberOfPages();
+        }
+
+        @Override
+        public void close() {
+            if (target.getNumberOfPages() == 0) {
+                target.addNewPage();
+            }
+            target.close();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.BulkUploadResponseDTO;
+import com.brokerhub.brokerageapp.dto.ProductDTO;
+import com.brokerhub.brokerageapp.entity.Broker;
+import com.brokerhub.brokerageapp.entity.Product;
+import com.brokerhub.brokerageapp.repository.BrokerRepository;
+import com.brokerhub.brokerageapp.repository.ProductRepository;
+import com.brokerhub.brokerageapp.utils.ProductExcelUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Imports products from the bulk upload sheet. Rows are streamed from the file and checked against the broker's
+ * (name, quality, quantity) combinations, loaded once up front, then inserted in chunks with one transaction
+ * and one batched saveAll per chunk. The broker's product caches are cleared once when the upload is done.
+ */
+@Service
+@Slf4j
+public class ProductBulkImportService {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private BrokerRepository brokerRepository;
+
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.upload.chunk-size:500}")
+    private int chunkSize;
+
+    public BulkUploadResponseDTO importProducts(Long brokerId, InputStream is) {
+        Set<String> existingKeys = new HashSet<>();
+        // Row: [productId, productName, quality, quantity]
+        for (Object[] row : productRepository.findProductNamesQualitiesAndQuantitiesWithIdsByBrokerId(brokerId)) {
+            existingKeys.add(key((String) row[1], (String) row[2], (Integer) row[3]));
+        }
+
+        List<String> errorMessages = new ArrayList<>();
+        List<ImportRow> chunk = new ArrayList<>();
+        int[] counts = new int[2]; // successful, failed
+
+        ProductExcelUtil.streamProductDTOs(is, (rowNumber, productDTO) -> {
+            if (productDTO.getProductName() == null) {
+                errorMessages.add("Row " + rowNumber + ": Product name is required");
+                counts[1]++;
+                return;
+            }
+            String key = key(productDTO.getProductName(), productDTO.getQuality(), quantity(productDTO));
+            if (!existingKeys.add(key)) {
+                errorMessages.add("Row " + rowNumber + ": Product with the same name, quality, and quantity already exists");
+                counts[1]++;
+                return;
+            }
+            chunk.add(new ImportRow(rowNumber, key, productDTO));
+            if (chunk.size() >= chunkSize) {
+                writeChunk(brokerId, chunk, existingKeys, errorMessages, counts);
+                chunk.clear();
+            }
+        }, (rowNumber, error) -> {
+            errorMessages.add("Row " + rowNumber + ": " + error);
+            counts[1]++;
+        });
+        if (!chunk.isEmpty()) {
+            writeChunk(brokerId, chunk, existingKeys, errorMessages, counts);
+        }
+
+        if (counts[0] > 0) {
+            productCacheService.clearProductCaches(brokerId);
+        }
+        log.info("Bulk product upload for broker {}: {} created, {} failed", brokerId, counts[0], counts[1]);
+        return toResponse(counts[0], counts[1], errorMessages);
+    }
+
+    private void writeChunk(Long brokerId, List<ImportRow> chunk, Set<String> existingKeys,
+                            List<String> errorMessages, int[] counts) {
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                Broker broker = brokerRepository.getReferenceById(brokerId);
+                List<Product> products = new ArrayList<>(chunk.size());
+                for (ImportRow row : chunk) {
+                    ProductDTO productDTO = row.productDTO();
+                    products.add(Product.builder()
+                            .broker(broker)
+                            .productName(productDTO.getProductName())
+                            .productBrokerage(productDTO.getProductBrokerage() != null ? productDTO.getProductBrokerage() : 0.0f)
+                            .quantity(quantity(productDTO))
+                            .price(productDTO.getPrice() != null ? productDTO.getPrice() : 0)
+                            .quality(productDTO.getQuality())
+                            .imgLink(productDTO.getImgLink())
+                            .build());
+                }
+                productRepository.saveAll(products);
+            });
+            counts[0] += chunk.size();
+        } catch (Exception e) {
+            log.error("Failed to write {} uploaded products for broker {}", chunk.size(), brokerId, e);
+            for (ImportRow row : chunk) {
+                existingKeys.remove(row.key());
+                errorMessages.add("Row " + row.rowNumber() + ": Error processing product - " + e.getMessage());
+                counts[1]++;
+            }
+        }
+    }
+
+    private BulkUploadResponseDTO toResponse(int successful, int failed, List<String> errorMessages) {
+        if (successful + failed == 0) {
+            return BulkUploadResponseDTO.builder()
+                    .totalRecords(0)
+                    .successfulRecords(0)
+                    .failedRecords(0)
+                    .errorMessages(List.of("No valid product records found in the Excel file"))
+                    .message("No data to process")
+                    .build();
+        }
+        String message;
+        if (failed == 0) {
+            message = "All products uploaded successfully";
+        } else if (successful == 0) {
+            message = "No products were uploaded";
+        } else {
+            message = "Partial success: " + successful + " products uploaded, " + failed + " failed";
+        }
+        return BulkUploadResponseDTO.builder()
+                .totalRecords(successful + failed)
+                .successfulRecords(successful)
+                .failedRecords(failed)
+                .errorMessages(errorMessages)
+                .message(message)
+                .build();
+    }
+
+    private static Integer quantity(ProductDTO productDTO) {
+        return productDTO.getQuantity() != null ? productDTO.getQuantity() : 0;
+    }
+
+    private static String key(String productName, String quality, Integer quantity) {
+        return (productName == null ? "" : productName.trim().toLowerCase(Locale.ROOT)) + '|'
+                + (quality == null ? "" : quality.trim().toLowerCase(Locale.ROOT)) + '|'
+                + (quantity == null ? 0 : quantity);
+    }
+
+    private record ImportRow(int rowNumber, String key, ProductDTO productDTO) {
+    }
+}
@@ -141,6 +141,16 @@ public class ProductCacheService {
         log.info("Clearing all product caches due to data modification");
     }
 
+    /**
+     * Clear the product caches of one broker, leaving the other brokers' entries in place
+     */
+    @CacheEvict(value = {PRODUCT_NAMES_CACHE, PRODUCT_NAMES_IDS_CACHE, PRODUCT_BASIC_INFO_CACHE,
+                        DISTINCT_PRODUCT_NAMES_CACHE, PRODUCT_NAMES_QUALITIES_CACHE,
+                        PRODUCT_NAMES_QUALITIES_QUANTITIES_IDS_CACHE}, key = "#brokerId")
+    public void clearProductCaches(Long brokerId) {
+        log.info("Clearing product caches of broker {} due to data modification", brokerId);
+    }
+
     /**
      * Clear specific cache
      */
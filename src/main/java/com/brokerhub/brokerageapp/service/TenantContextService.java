@@ -2,6 +2,8 @@ package com.brokerhub.brokerageapp.service;
 
 import com.brokerhub.brokerageapp.entity.Broker;
 import com.brokerhub.brokerageapp.repository.BrokerRepository;
+import com.brokerhub.brokerageapp.security.BrokerContext;
+import com.brokerhub.brokerageapp.security.BrokerContextHolder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
@@ -22,37 +24,61 @@ public class TenantContextService {
     @Autowired
     private BrokerRepository brokerRepository;
 
+    @Autowired
+    private BrokerContextCache brokerContextCache;
+
     /**
-     * Get the current broker from the security context.
-     * This method extracts the authenticated broker's username and fetches the broker entity.
-     * 
-     * @return Current broker entity
+     * Get the current broker context without touching the database.
+     * Uses the context the JWT filter attached to this request, or the broker cache when running outside one.
+     *
+     * @return Current broker context
      * @throws RuntimeException if no broker is authenticated or broker not found
      */
-    public Broker getCurrentBroker() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        
-        if (authentication == null || !authentication.isAuthenticated()) {
-            log.error("No authenticated user found in security context");
-            throw new RuntimeException("No authenticated user found");
-        }
-
-        String username = authentication.getName();
+    public BrokerContext getCurrentBrokerContext() {
+        String username = getCurrentBrokerUsername();
         if (username == null || username.trim().isEmpty()) {
             log.error("Username is null or empty in security context");
             throw new RuntimeException("Invalid authentication context");
         }
 
-        Optional<Broker> broker = brokerRepository.findByUserName(username);
+        BrokerContext context = BrokerContextHolder.get();
+        if (context != null && username.equals(context.getUserName())) {
+            return context;
+        }
+        return brokerContextCache.get(username);
+    }
+
+    /**
+     * Get the current broker from the security context.
+     * Loads the managed entity, so use it only when the broker's state is read or changed;
+     * {@link #getCurrentBrokerId()} and {@link #getCurrentBrokerReference()} need no query.
+     * 
+     * @return Current broker entity
+     * @throws RuntimeException if no broker is authenticated or broker not found
+     */
+    public Broker getCurrentBroker() {
+        Long brokerId = getCurrentBrokerId();
+        Optional<Broker> broker = brokerRepository.findById(brokerId);
         if (broker.isEmpty()) {
-            log.error("Broker not found for username: {}", username);
-            throw new RuntimeException("Broker not found for username: " + username);
+            log.error("Broker not found for ID: {}", brokerId);
+            throw new RuntimeException("Broker not found for ID: " + brokerId);
         }
 
         log.debug("Current broker resolved: {} (ID: {})", broker.get().getBrokerName(), broker.get().getBrokerId());
         return broker.get();
     }
 
+    /**
+     * Get an uninitialized reference to the current broker, for setting the broker association on new entities.
+     * Only the ID may be read from it outside a transaction.
+     *
+     * @return Current broker reference
+     * @throws RuntimeException if no broker is authenticated or broker not found
+     */
+    public Broker getCurrentBrokerReference() {
+        return brokerRepository.getReferenceById(getCurrentBrokerId());
+    }
+
     /**
      * Get the current broker ID from the security context.
      * 
@@ -60,7 +86,7 @@ public class TenantContextService {
      * @throws RuntimeException if no broker is authenticated or broker not found
      */
     public Long getCurrentBrokerId() {
-        return getCurrentBroker().getBrokerId();
+        return getCurrentBrokerContext().getBrokerId();
     }
 
     /**
@@ -135,7 +161,7 @@ public class TenantContextService {
      */
     public boolean hasAuthenticatedBroker() {
         try {
-            getCurrentBroker();
+            getCurrentBrokerContext();
             return true;
         } catch (Exception e) {
             return false;
@@ -0,0 +1,458 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.constants.Constants;
+import com.brokerhub.brokerageapp.dto.BulkUploadResponseDTO;
+import com.brokerhub.brokerageapp.dto.BulkUploadStatusDTO;
+import com.brokerhub.brokerageapp.dto.UserDTO;
+import com.brokerhub.brokerageapp.entity.Address;
+import com.brokerhub.brokerageapp.entity.Broker;
+import com.brokerhub.brokerageapp.entity.MerchantBankDetails;
+import com.brokerhub.brokerageapp.entity.Miller;
+import com.brokerhub.brokerageapp.entity.Trader;
+import com.brokerhub.brokerageapp.entity.User;
+import com.brokerhub.brokerageapp.mapper.UserDTOMapper;
+import com.brokerhub.brokerageapp.repository.AddressRepository;
+import com.brokerhub.brokerageapp.repository.BrokerRepository;
+import com.brokerhub.brokerageapp.repository.MerchantBankDetailsRepository;
+import com.brokerhub.brokerageapp.repository.UserRepository;
+import com.brokerhub.brokerageapp.utils.ExcelUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Imports merchants from the bulk upload sheet. Rows are streamed from the file, checked against the broker's
+ * firm names and GST numbers loaded once up front, and written in chunks: one transaction per chunk with
+ * batched address, user and bank detail inserts. Large files can run in the background, where
+ * {@link #getStatus} reports how far the upload got.
+ */
+@Service
+@Slf4j
+public class UserBulkImportService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private MerchantBankDetailsRepository merchantBankDetailsRepository;
+
+    @Autowired
+    private BrokerRepository brokerRepository;
+
+    @Autowired
+    private UserDTOMapper userDTOMapper;
+
+    @Autowired
+    private UserCacheService userCacheService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("bulkOperationTaskExecutor")
+    private Executor bulkOperationTaskExecutor;
+
+    @Value("${app.upload.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.upload.status-retention-minutes:60}")
+    private long statusRetentionMinutes;
+
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+
+    /**
+     * Imports the sheet on the calling thread.
+     */
+    public BulkUploadResponseDTO importUsers(Long brokerId, InputStream is) {
+        return importUsers(brokerId, is, new Upload(brokerId));
+    }
+
+    /**
+     * Copies the upload to a temporary file and imports it on the bulk operation executor.
+     *
+     * @return the initial status, whose uploadId is polled with {@link #getStatus}
+     */
+    public BulkUploadStatusDTO startImport(Long brokerId, MultipartFile file) throws IOException {
+        removeExpiredUploads();
+        Path copy = Files.createTempFile("user-upload-", ".xlsx");
+        try (InputStream is = file.getInputStream()) {
+            Files.copy(is, copy, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        Upload upload = new Upload(brokerId);
+        uploads.put(uploadId, upload);
+        bulkOperationTaskExecutor.execute(() -> {
+            try (InputStream is = Files.newInputStream(copy)) {
+                upload.finish(importUsers(brokerId, is, upload));
+            } catch (Exception e) {
+                log.error("Bulk user upload {} for broker {} failed", uploadId, brokerId, e);
+                upload.fail("Bulk upload failed: " + e.getMessage());
+            } finally {
+                try {
+                    Files.deleteIfExists(copy);
+                } catch (IOException e) {
+                    log.warn("Could not delete upload copy {}", copy, e);
+                }
+            }
+        });
+        log.info("Started bulk user upload {} for broker {}", uploadId, brokerId);
+        return upload.toStatus(uploadId);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the upload is unknown, expired or belongs to another broker
+     */
+    public BulkUploadStatusDTO getStatus(Long brokerId, String uploadId) {
+        Upload upload = uploads.get(uploadId);
+        if (upload == null || !upload.brokerId.equals(brokerId)) {
+            throw new IllegalArgumentException("Bulk upload not found: " + uploadId);
+        }
+        return upload.toStatus(uploadId);
+    }
+
+    private BulkUploadResponseDTO importUsers(Long brokerId, InputStream is, Upload upload) {
+        Lookups lookups = prefetch(brokerId);
+        List<ImportRow> chunk = new ArrayList<>();
+
+        ExcelUtil.streamUserDTOs(is, (rowNumber, userDTO) -> {
+            String error = validate(userDTO);
+            if (error == null) {
+                error = lookups.claim(userDTO);
+            }
+            if (error != null) {
+                upload.rowFailed("Row " + rowNumber + ": " + error);
+                return;
+            }
+            chunk.add(new ImportRow(rowNumber, userDTO));
+            if (chunk.size() >= chunkSize) {
+                writeChunk(brokerId, chunk, lookups, upload);
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty()) {
+            writeChunk(brokerId, chunk, lookups, upload);
+        }
+
+        if (upload.successful > 0) {
+            userCacheService.clearUserCaches();
+        }
+        log.info("Bulk user upload for broker {}: {} rows, {} created, {} failed", brokerId,
+                upload.processed, upload.successful, upload.failed);
+        return upload.toResponse();
+    }
+
+    private Lookups prefetch(Long brokerId) {
+        Lookups lookups = new Lookups();
+        // Row: [userId, firmName, userType, gstNumber, ownerName]
+        for (Object[] row : userRepository.findBasicUserInfoByBrokerId(brokerId)) {
+            lookups.firmNames.add(key((String) row[1]));
+            if (row[3] != null) {
+                lookups.gstNumbers.add(key((String) row[3]));
+            }
+        }
+        for (Address address : addressRepository.findByBrokerBrokerId(brokerId)) {
+            if (address.getPincode() != null && !address.getPincode().trim().isEmpty()) {
+                lookups.addressesByPincode.putIfAbsent(address.getPincode().trim(), address);
+            }
+        }
+        for (MerchantBankDetails bankDetails : merchantBankDetailsRepository.findByBrokerBrokerId(brokerId)) {
+            if (bankDetails.getAccountNumber() != null) {
+                lookups.bankDetailsByAccount.putIfAbsent(bankDetails.getAccountNumber(), bankDetails);
+            }
+        }
+        return lookups;
+    }
+
+    private String validate(UserDTO userDTO) {
+        List<String> missingFields = new ArrayList<>();
+        if (isBlank(userDTO.getUserType())) {
+            missingFields.add("userType (value: '" + userDTO.getUserType() + "')");
+        }
+        if (isBlank(userDTO.getGstNumber())) {
+            missingFields.add("gstNumber (value: '" + userDTO.getGstNumber() + "')");
+        }
+        if (isBlank(userDTO.getFirmName())) {
+            missingFields.add("firmName (value: '" + userDTO.getFirmName() + "')");
+        }
+        if (isBlank(userDTO.getCity())) {
+            missingFields.add("city (value: '" + userDTO.getCity() + "')");
+        }
+        if (userDTO.getBrokerageRate() == null) {
+            missingFields.add("brokerageRate (value: " + userDTO.getBrokerageRate() + ")");
+        }
+        if (!missingFields.isEmpty()) {
+            return "Missing mandatory fields: " + String.join(", ", missingFields);
+        }
+        if (!isBlank(userDTO.getEmail()) && !userDTO.getEmail().matches("^[A-Za-z0-9+_.-]+@(.+)$")) {
+            return "Invalid email format";
+        }
+        String userType = userDTO.getUserType().trim().toUpperCase(Locale.ROOT);
+        userDTO.setUserType(Constants.USER_TYPE_MILLER.equals(userType) ? Constants.USER_TYPE_MILLER : "TRADER");
+        return null;
+    }
+
+    private void writeChunk(Long brokerId, List<ImportRow> chunk, Lookups lookups, Upload upload) {
+        ChunkLookups created = new ChunkLookups();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> persist(brokerId, chunk, lookups, created));
+            lookups.addressesByPincode.putAll(created.addressesByPincode);
+            lookups.bankDetailsByAccount.putAll(created.bankDetailsByAccount);
+            upload.rowsSucceeded(chunk.size());
+        } catch (Exception e) {
+            log.error("Failed to write {} uploaded users for broker {}", chunk.size(), brokerId, e);
+            for (ImportRow row : chunk) {
+                lookups.release(row.userDTO());
+                upload.rowFailed("Row " + row.rowNumber() + ": Error processing user - " + e.getMessage());
+            }
+        }
+    }
+
+    private void persist(Long brokerId, List<ImportRow> chunk, Lookups lookups, ChunkLookups created) {
+        Broker broker = brokerRepository.getReferenceById(brokerId);
+        List<Address> newAddresses = new ArrayList<>();
+        List<User> users = new ArrayList<>();
+        for (ImportRow row : chunk) {
+            UserDTO userDTO = row.userDTO();
+            User user = Constants.USER_TYPE_MILLER.equals(userDTO.getUserType())
+                    ? userDTOMapper.convertUserDTOtoUser(userDTO, Miller.class)
+                    : userDTOMapper.convertUserDTOtoUser(userDTO, Trader.class);
+            user.setUserId(null);
+            user.setBroker(broker);
+            user.setPayableAmount(0L);
+            user.setReceivableAmount(0L);
+            user.setTotalBagsBought(0L);
+            user.setTotalBagsSold(0L);
+            user.setTotalPayableBrokerage(BigDecimal.ZERO);
+            user.setBankDetails(null);
+            user.setAddress(resolveAddress(broker, userDTO, lookups, created, newAddresses));
+            users.add(user);
+        }
+        addressRepository.saveAll(newAddresses);
+        userRepository.saveAll(users);
+        // Bank details reference their user, so the users have to be inserted first
+        userRepository.flush();
+
+        List<MerchantBankDetails> newBankDetails = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            UserDTO userDTO = chunk.get(i).userDTO();
+            if (isBlank(userDTO.getAccountNumber())) {
+                continue;
+            }
+            String accountNumber = userDTO.getAccountNumber();
+            MerchantBankDetails bankDetails = lookups.bankDetailsByAccount.get(accountNumber);
+            if (bankDetails == null) {
+                bankDetails = created.bankDetailsByAccount.get(accountNumber);
+            }
+            if (bankDetails == null) {
+                bankDetails = new MerchantBankDetails();
+                bankDetails.setAccountNumber(accountNumber);
+                bankDetails.setBankName(userDTO.getBankName());
+                bankDetails.setIfscCode(userDTO.getIfscCode());
+                bankDetails.setBranch(userDTO.getBranch());
+                bankDetails.setBroker(broker);
+                bankDetails.setUser(users.get(i));
+                created.bankDetailsByAccount.put(accountNumber, bankDetails);
+                newBankDetails.add(bankDetails);
+            }
+            users.get(i).setBankDetails(bankDetails);
+        }
+        merchantBankDetailsRepository.saveAll(newBankDetails);
+    }
+
+    /**
+     * Reuses the broker's address with the same pincode, otherwise creates one; rows of the same upload that
+     * share a new pincode share the new address.
+     */
+    private Address resolveAddress(Broker broker, UserDTO userDTO, Lookups lookups, ChunkLookups created,
+                                   List<Address> newAddresses) {
+        String pincode = isBlank(userDTO.getPincode()) ? null : userDTO.getPincode().trim();
+        if (pincode != null) {
+            Address address = lookups.addressesByPincode.get(pincode);
+            if (address == null) {
+                address = created.addressesByPincode.get(pincode);
+            }
+            if (address != null) {
+                return address;
+            }
+        }
+        Address address = new Address();
+        address.setBroker(broker);
+        address.setCity(userDTO.getCity().trim());
+        if (!isBlank(userDTO.getArea())) {
+            address.setArea(userDTO.getArea().trim());
+        }
+        address.setPincode(pincode);
+        if (pincode != null) {
+            created.addressesByPincode.put(pincode, address);
+        }
+        newAddresses.add(address);
+        return address;
+    }
+
+    private void removeExpiredUploads() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(statusRetentionMinutes);
+        uploads.values().removeIf(upload -> upload.finishedAt != null && upload.finishedAt.isBefore(cutoff));
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static String key(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record ImportRow(int rowNumber, UserDTO userDTO) {
+    }
+
+    /**
+     * Firm names and GST numbers already taken, by the broker's merchants or by earlier rows of the upload,
+     * and the addresses and bank details rows can reuse.
+     */
+    private static class Lookups {
+        private final Set<String> firmNames = new HashSet<>();
+        private final Set<String> gstNumbers = new HashSet<>();
+        private final Map<String, Address> addressesByPincode = new HashMap<>();
+        private final Map<String, MerchantBankDetails> bankDetailsByAccount = new HashMap<>();
+
+        String claim(UserDTO userDTO) {
+            String firmName = key(userDTO.getFirmName());
+            String gstNumber = key(userDTO.getGstNumber());
+            if (firmNames.contains(firmName) || gstNumbers.contains(gstNumber)) {
+                return "User with firm name '" + userDTO.getFirmName() + "' or GST number already exists";
+            }
+            firmNames.add(firmName);
+            gstNumbers.add(gstNumber);
+            return null;
+        }
+
+        void release(UserDTO userDTO) {
+            firmNames.remove(key(userDTO.getFirmName()));
+            gstNumbers.remove(key(userDTO.getGstNumber()));
+        }
+    }
+
+    /**
+     * Addresses and bank details created by the chunk being written; kept apart until its transaction commits.
+     */
+    private static class ChunkLookups {
+        private final Map<String, Address> addressesByPincode = new HashMap<>();
+        private final Map<String, MerchantBankDetails> bankDetailsByAccount = new HashMap<>();
+    }
+
+    /**
+     * Counters of one upload. Written by the importing thread only, read by status requests.
+     */
+    private static class Upload {
+        private final Long brokerId;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final List<String> errorMessages = Collections.synchronizedList(new ArrayList<>());
+        private volatile int processed;
+        private volatile int successful;
+        private volatile int failed;
+        private volatile LocalDateTime finishedAt;
+        private volatile String status = "RUNNING";
+        private volatile BulkUploadResponseDTO result;
+
+        Upload(Long brokerId) {
+            this.brokerId = brokerId;
+        }
+
+        void rowFailed(String message) {
+            errorMessages.add(message);
+            failed++;
+            processed++;
+        }
+
+        void rowsSucceeded(int rows) {
+            successful += rows;
+            processed += rows;
+        }
+
+        void finish(BulkUploadResponseDTO response) {
+            result = response;
+            status = "COMPLETED";
+            finishedAt = LocalDateTime.now();
+        }
+
+        void fail(String message) {
+            result = BulkUploadResponseDTO.builder()
+                    .totalRecords(processed)
+                    .successfulRecords(successful)
+                    .failedRecords(failed)
+                    .errorMessages(List.of(message))
+                    .message("Bulk upload failed")
+                    .build();
+            status = "FAILED";
+            finishedAt = LocalDateTime.now();
+        }
+
+        BulkUploadResponseDTO toResponse() {
+            if (processed == 0) {
+                return BulkUploadResponseDTO.builder()
+                        .totalRecords(0)
+                        .successfulRecords(0)
+                        .failedRecords(0)
+                        .errorMessages(List.of("No valid user records found in the Excel file"))
+                        .message("No data to process")
+                        .build();
+            }
+            String message;
+            if (failed == 0) {
+                message = "All users uploaded successfully";
+            } else if (successful == 0) {
+                message = "No users were uploaded";
+            } else {
+                message = "Partial success: " + successful + " users uploaded, " + failed + " failed";
+            }
+            return BulkUploadResponseDTO.builder()
+                    .totalRecords(processed)
+                    .successfulRecords(successful)
+                    .failedRecords(failed)
+                    .errorMessages(new ArrayList<>(errorMessages))
+                    .message(message)
+                    .build();
+        }
+
+        BulkUploadStatusDTO toStatus(String uploadId) {
+            return BulkUploadStatusDTO.builder()
+                    .uploadId(uploadId)
+                    .status(status)
+                    .processedRecords(processed)
+                    .successfulRecords(successful)
+                    .failedRecords(failed)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .result(result)
+                    .build();
+        }
+    }
+}
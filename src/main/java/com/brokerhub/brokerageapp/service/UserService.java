@@ -1,6 +1,7 @@
 package com.brokerhub.brokerageapp.service;
 
 import com.brokerhub.brokerageapp.dto.BulkUploadResponseDTO;
+import com.brokerhub.brokerageapp.dto.BulkUploadStatusDTO;
 import com.brokerhub.brokerageapp.dto.UserDTO;
 import com.brokerhub.brokerageapp.dto.UserSummaryDTO;
 import com.brokerhub.brokerageapp.entity.Address;
@@ -10,6 +11,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
@@ -43,6 +45,10 @@ public interface UserService {
 
     BulkUploadResponseDTO bulkUploadUsers(MultipartFile file);
 
+    BulkUploadStatusDTO startBulkUpload(MultipartFile file) throws IOException;
+
+    BulkUploadStatusDTO getBulkUploadStatus(String uploadId);
+
     Page<UserSummaryDTO> getUserSummary(Pageable pageable);
     
     Page<UserSummaryDTO> getUserSummaryByFinancialYear(Long financialYearId, Pageable pageable);
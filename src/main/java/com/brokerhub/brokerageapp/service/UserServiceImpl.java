@@ -1,14 +1,14 @@
 package com.brokerhub.brokerageapp.service;
 
 import com.brokerhub.brokerageapp.dto.BulkUploadResponseDTO;
+import com.brokerhub.brokerageapp.dto.BulkUploadStatusDTO;
+import com.brokerhub.brokerageapp.dto.UserBrokerageDetailDTO;
 import com.brokerhub.brokerageapp.dto.UserDTO;
 import com.brokerhub.brokerageapp.dto.UserSummaryDTO;
 import com.brokerhub.brokerageapp.entity.*;
 import com.brokerhub.brokerageapp.mapper.UserDTOMapper;
 import com.brokerhub.brokerageapp.repository.AddressRepository;
 import com.brokerhub.brokerageapp.repository.UserRepository;
-import com.brokerhub.brokerageapp.repository.UserBrokerageRepository;
-import com.brokerhub.brokerageapp.repository.BrokerageRepository;
 import com.brokerhub.brokerageapp.constants.Constants;
 import com.brokerhub.brokerageapp.utils.ExcelUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,6 +22,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.*;
 import java.util.Objects;
@@ -55,17 +56,17 @@ public class UserServiceImpl implements UserService {
     TenantContextService tenantContextService;
     
     @Autowired
-    UserBrokerageRepository userBrokerageRepository;
-    
+    BrokerageService brokerageService;
+
     @Autowired
-    BrokerageRepository brokerageRepository;
+    UserBulkImportService userBulkImportService;
 
     public ResponseEntity createUser(UserDTO userDTO) {
         String firmName = userDTO.getFirmName();
         String GSTNumber = userDTO.getGstNumber();
 
         // Get current broker for multi-tenant isolation
-        Broker currentBroker = tenantContextService.getCurrentBroker();
+        Broker currentBroker = tenantContextService.getCurrentBrokerReference();
 
         if(!checkUserFirmExists(firmName) && !checkUserGSTNumberExists(GSTNumber)) {
             User user = userDTOMapper.convertUserDTOtoUser(userDTO);
@@ -344,117 +345,13 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public BulkUploadResponseDTO bulkUploadUsers(MultipartFile file) {
-        List<String> errorMessages = new ArrayList<>();
-        int totalRecords = 0;
-        int successfulRecords = 0;
-        int failedRecords = 0;
-
-        try {
-            // Validate file format
-            if (!ExcelUtil.hasExcelFormat(file)) {
-                return BulkUploadResponseDTO.builder()
-                        .totalRecords(0)
-                        .successfulRecords(0)
-                        .failedRecords(0)
-                        .errorMessages(Arrays.asList("Please upload a valid Excel file (.xlsx)"))
-                        .message("Invalid file format")
-                        .build();
-            }
-
-            // Parse Excel file
-            List<UserDTO> userDTOs = ExcelUtil.excelToUserDTOs(file.getInputStream());
-            totalRecords = userDTOs.size();
-
-            if (totalRecords == 0) {
-                return BulkUploadResponseDTO.builder()
-                        .totalRecords(0)
-                        .successfulRecords(0)
-                        .failedRecords(0)
-                        .errorMessages(Arrays.asList("No valid user records found in the Excel file"))
-                        .message("No data to process")
-                        .build();
-            }
-
-            // Process each user
-            for (int i = 0; i < userDTOs.size(); i++) {
-                UserDTO userDTO = userDTOs.get(i);
-                int rowNumber = i + 2; // +2 because Excel rows start from 1 and we skip header
-
-                try {
-                    // Validate mandatory fields with detailed logging
-                    List<String> missingFields = new ArrayList<>();
-                    if (userDTO.getUserType() == null || userDTO.getUserType().trim().isEmpty()) {
-                        missingFields.add("userType (value: '" + userDTO.getUserType() + "')");
-                    }
-                    if (userDTO.getGstNumber() == null || userDTO.getGstNumber().trim().isEmpty()) {
-                        missingFields.add("gstNumber (value: '" + userDTO.getGstNumber() + "')");
-                    }
-                    if (userDTO.getFirmName() == null || userDTO.getFirmName().trim().isEmpty()) {
-                        missingFields.add("firmName (value: '" + userDTO.getFirmName() + "')");
-                    }
-                    if (userDTO.getCity() == null || userDTO.getCity().trim().isEmpty()) {
-                        missingFields.add("city (value: '" + userDTO.getCity() + "')");
-                    }
-                    // Phone numbers are now optional - removed from mandatory validation
-                    if (userDTO.getBrokerageRate() == null) {
-                        missingFields.add("brokerageRate (value: " + userDTO.getBrokerageRate() + ")");
-                    }
-                    
-                    if (!missingFields.isEmpty()) {
-                        errorMessages.add("Row " + rowNumber + ": Missing mandatory fields: " + String.join(", ", missingFields));
-                        failedRecords++;
-                        continue;
-                    }
-                    
-                    // Validate email format if provided (optional)
-                    if (userDTO.getEmail() != null && !userDTO.getEmail().trim().isEmpty()) {
-                        if (!userDTO.getEmail().matches("^[A-Za-z0-9+_.-]+@(.+)$")) {
-                            errorMessages.add("Row " + rowNumber + ": Invalid email format");
-                            failedRecords++;
-                            continue;
-                        }
-                    }
-                    
-                    // Validate and normalize user type if provided
-                    if (userDTO.getUserType() != null && !userDTO.getUserType().trim().isEmpty()) {
-                        String userType = userDTO.getUserType().trim().toUpperCase();
-                        if (!userType.equals("TRADER") && !userType.equals("MILLER")) {
-                            // Set to default instead of failing
-                            userDTO.setUserType("TRADER");
-                        } else {
-                            userDTO.setUserType(userType);
-                        }
-                    }
-
-                    // Check if user already exists
-                    if (checkUserFirmExists(userDTO.getFirmName()) ||
-                        (userDTO.getGstNumber() != null && checkUserGSTNumberExists(userDTO.getGstNumber()))) {
-                        errorMessages.add("Row " + rowNumber + ": User with firm name '" +
-                                        userDTO.getFirmName() + "' or GST number already exists");
-                        failedRecords++;
-                        continue;
-                    }
-
-                    // Set default values if not provided
-                    if (userDTO.getUserType() == null || userDTO.getUserType().trim().isEmpty()) {
-                        userDTO.setUserType("TRADER");
-                    }
-
-                    // Create user
-                    ResponseEntity response = createUser(userDTO);
-                    if (response.getStatusCode() == HttpStatus.CREATED) {
-                        successfulRecords++;
-                    } else {
-                        errorMessages.add("Row " + rowNumber + ": " + response.getBody());
-                        failedRecords++;
-                    }
-
-                } catch (Exception e) {
-                    errorMessages.add("Row " + rowNumber + ": Error processing user - " + e.getMessage());
-                    failedRecords++;
-                }
-            }
+        // Validate file format
+        if (!ExcelUtil.hasExcelFormat(file)) {
+            return invalidFormatResponse();
+        }
 
+        try (InputStream is = file.getInputStream()) {
+            return userBulkImportService.importUsers(tenantContextService.getCurrentBrokerId(), is);
         } catch (IOException e) {
             return BulkUploadResponseDTO.builder()
                     .totalRecords(0)
@@ -465,35 +362,38 @@ public class UserServiceImpl implements UserService {
                     .build();
         } catch (Exception e) {
             return BulkUploadResponseDTO.builder()
-                    .totalRecords(totalRecords)
-                    .successfulRecords(successfulRecords)
-                    .failedRecords(failedRecords)
+                    .totalRecords(0)
+                    .successfulRecords(0)
+                    .failedRecords(0)
                     .errorMessages(Arrays.asList("Unexpected error: " + e.getMessage()))
                     .message("Bulk upload failed")
                     .build();
         }
+    }
 
-        // Clear user caches if any users were successfully created
-        if (successfulRecords > 0) {
-            userCacheService.clearUserCaches();
+    @Override
+    public BulkUploadStatusDTO startBulkUpload(MultipartFile file) throws IOException {
+        if (!ExcelUtil.hasExcelFormat(file)) {
+            return BulkUploadStatusDTO.builder()
+                    .status("FAILED")
+                    .result(invalidFormatResponse())
+                    .build();
         }
+        return userBulkImportService.startImport(tenantContextService.getCurrentBrokerId(), file);
+    }
 
-        // Prepare response message
-        String message;
-        if (failedRecords == 0) {
-            message = "All users uploaded successfully";
-        } else if (successfulRecords == 0) {
-            message = "No users were uploaded";
-        } else {
-            message = "Partial success: " + successfulRecords + " users uploaded, " + failedRecords + " failed";
-        }
+    @Override
+    public BulkUploadStatusDTO getBulkUploadStatus(String uploadId) {
+        return userBulkImportService.getStatus(tenantContextService.getCurrentBrokerId(), uploadId);
+    }
 
+    private BulkUploadResponseDTO invalidFormatResponse() {
         return BulkUploadResponseDTO.builder()
-                .totalRecords(totalRecords)
-                .successfulRecords(successfulRecords)
-                .failedRecords(failedRecords)
-                .errorMessages(errorMessages)
-                .message(message)
+                .totalRecords(0)
+                .successfulRecords(0)
+                .failedRecords(0)
+                .errorMessages(Arrays.asList("Please upload a valid Excel file (.xlsx)"))
+                .message("Invalid file format")
                 .build();
     }
 
@@ -531,13 +431,15 @@ public class UserServiceImpl implements UserService {
         Pageable unsortedPageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
         Page<User> users = userRepository.findUsersByBrokerIdAndFinancialYearSorted(currentBrokerId, financialYearId, unsortedPageable);
         
+        Set<Long> pageUserIds = users.getContent().stream()
+                .map(User::getUserId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<Long, UserBrokerageDetailDTO> details = brokerageService.getUserBrokerageDetailsInFinancialYear(pageUserIds, currentBrokerId, financialYearId);
+        
         List<UserSummaryDTO> userSummaries = users.getContent().stream()
                 .map(user -> {
-                    // Use the same logic as BrokerageService.getUserBrokerageDetailInFinancialYear
-                    Long bagsSold = userBrokerageRepository.getUserTotalBagsSold(currentBrokerId, financialYearId, user.getUserId());
-                    Long bagsBought = userBrokerageRepository.getUserTotalBagsBought(currentBrokerId, financialYearId, user.getUserId());
-                    Number totalBrokerageAmount = brokerageRepository.getUserTotalBrokerage(currentBrokerId, financialYearId, user.getUserId());
-                    BigDecimal actualBrokerage = BigDecimal.valueOf(totalBrokerageAmount != null ? totalBrokerageAmount.longValue() : 0L);
+                    UserBrokerageDetailDTO detail = details.get(user.getUserId());
+                    UserBrokerageDetailDTO.BrokerageSummary summary = detail != null ? detail.getBrokerageSummary() : null;
                     
                     BigDecimal brokerageRate = user.getBrokerageRate() != null ? BigDecimal.valueOf(user.getBrokerageRate()) : BigDecimal.ZERO;
                     
@@ -545,10 +447,10 @@ public class UserServiceImpl implements UserService {
                             .userId(user.getUserId())
                             .firmName(user.getFirmName())
                             .city(user.getAddress() != null ? user.getAddress().getCity() : null)
-                            .totalBagsSold(bagsSold != null ? bagsSold : 0L)
-                            .totalBagsBought(bagsBought != null ? bagsBought : 0L)
+                            .totalBagsSold(summary != null ? summary.getTotalBagsSold() : 0L)
+                            .totalBagsBought(summary != null ? summary.getTotalBagsBought() : 0L)
                             .brokeragePerBag(brokerageRate)
-                            .totalPayableBrokerage(actualBrokerage)
+                            .totalPayableBrokerage(summary != null ? summary.getTotalBrokeragePayable() : BigDecimal.ZERO)
                             .build();
                 })
                 .collect(Collectors.toList());
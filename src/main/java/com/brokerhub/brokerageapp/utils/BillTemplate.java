@@ -0,0 +1,148 @@
+package com.brokerhub.brokerageapp.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Precompiled bill template. The source is split once into static segments, encoded to UTF-8 up front,
+ * and named {{slot}} placeholders. Rendering writes the static bytes straight to the output and calls back
+ * for each slot in document order, so a bill is never assembled as an intermediate String.
+ */
+public final class BillTemplate {
+
+    private static final Pattern SLOT = Pattern.compile("\\{\\{\\s*([A-Za-z0-9_]+)\\s*}}");
+    private static final Pattern SECTION = Pattern.compile("<!--\\s*section:\\s*([A-Za-z0-9_-]+)\\s*-->");
+
+    private final byte[][] segments;
+    private final String[] slots;
+    private final int staticLength;
+
+    private BillTemplate(byte[][] segments, String[] slots) {
+        this.segments = segments;
+        this.slots = slots;
+        int length = 0;
+        for (byte[] segment : segments) {
+            length += segment.length;
+        }
+        this.staticLength = length;
+    }
+
+    public static BillTemplate compile(String source) {
+        return compile(source, Map.of());
+    }
+
+    /**
+     * Slots named in constants are resolved at compile time and become part of the static bytes.
+     */
+    public static BillTemplate compile(String source, Map<String, String> constants) {
+        List<byte[]> segments = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        StringBuilder pending = new StringBuilder();
+        Matcher matcher = SLOT.matcher(source);
+        int position = 0;
+        while (matcher.find()) {
+            pending.append(source, position, matcher.start());
+            String slot = matcher.group(1);
+            if (constants.containsKey(slot)) {
+                pending.append(constants.get(slot));
+            } else {
+                segments.add(pending.toString().getBytes(StandardCharsets.UTF_8));
+                slots.add(slot);
+                pending.setLength(0);
+            }
+            position = matcher.end();
+        }
+        pending.append(source, position, source.length());
+        segments.add(pending.toString().getBytes(StandardCharsets.UTF_8));
+        return new BillTemplate(segments.toArray(new byte[0][]), slots.toArray(new String[0]));
+    }
+
+    /**
+     * Reads a classpath resource made of sections, each introduced by a {@code <!-- section: name -->} line.
+     * Section bodies are trimmed; a resource without markers is returned as a single "main" section.
+     */
+    public static Map<String, String> loadSections(String resourcePath) {
+        String source = loadResource(resourcePath);
+        Map<String, String> sections = new LinkedHashMap<>();
+        Matcher matcher = SECTION.matcher(source);
+        String name = "main";
+        int start = 0;
+        while (matcher.find()) {
+            if (matcher.start() > start && !source.substring(start, matcher.start()).isBlank()) {
+                sections.put(name, source.substring(start, matcher.start()).trim());
+            }
+            name = matcher.group(1);
+            start = matcher.end();
+        }
+        sections.put(name, source.substring(start).trim());
+        return sections;
+    }
+
+    public static String loadResource(String resourcePath) {
+        try (InputStream inputStream = BillTemplate.class.getResourceAsStream(resourcePath)) {
+            if (inputStream == null) {
+                throw new IllegalStateException("Bill template not found: " + resourcePath);
+            }
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read bill template: " + resourcePath, e);
+        }
+    }
+
+    /**
+     * Total size of the static bytes, used to size output buffers.
+     */
+    public int getStaticLength() {
+        return staticLength;
+    }
+
+    public void render(Output output, SlotWriter slotWriter) throws IOException {
+        for (int i = 0; i < slots.length; i++) {
+            output.bytes(segments[i]);
+            slotWriter.write(slots[i], output);
+        }
+        output.bytes(segments[slots.length]);
+    }
+
+    @FunctionalInterface
+    public interface SlotWriter {
+        void write(String slot, Output output) throws IOException;
+    }
+
+    /**
+     * Thin wrapper over the destination stream. Text is encoded as UTF-8 and null is written as "null",
+     * exactly like StringBuilder.append.
+     */
+    public static final class Output {
+
+        private final OutputStream outputStream;
+
+        public Output(OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        public Output bytes(byte[] bytes) throws IOException {
+            outputStream.write(bytes);
+            return this;
+        }
+
+        public Output text(Object value) throws IOException {
+            outputStream.write(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            return this;
+        }
+
+        public Output template(BillTemplate template, SlotWriter slotWriter) throws IOException {
+            template.render(this, slotWriter);
+            return this;
+        }
+    }
+}
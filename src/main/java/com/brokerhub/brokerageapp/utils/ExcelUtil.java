@@ -1,16 +1,12 @@
 package com.brokerhub.brokerageapp.utils;
 
 import com.brokerhub.brokerageapp.dto.UserDTO;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
-import java.util.List;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 public class ExcelUtil {
@@ -28,162 +24,66 @@ public class ExcelUtil {
                file.getOriginalFilename() != null && file.getOriginalFilename().endsWith(".xlsx");
     }
 
-    public static List<UserDTO> excelToUserDTOs(InputStream is) {
-        try {
-            Workbook workbook = new XSSFWorkbook(is);
-            Sheet sheet = workbook.getSheet(SHEET);
-
-            if (sheet == null) {
-                sheet = workbook.getSheetAt(0); // Use first sheet if "Users" sheet not found
-            }
-
-            Iterator<Row> rows = sheet.iterator();
-            List<UserDTO> userDTOs = new ArrayList<>();
-
-            int rowNumber = 0;
-            while (rows.hasNext()) {
-                Row currentRow = rows.next();
-
-                // Skip header row
-                if (rowNumber == 0) {
-                    rowNumber++;
-                    continue;
-                }
-
-                UserDTO userDTO = new UserDTO();
-
-                // Read cells by index instead of iterator to handle missing cells
-                for (int cellIdx = 0; cellIdx < HEADERS.length; cellIdx++) {
-                    Cell currentCell = currentRow.getCell(cellIdx);
-
-                    switch (cellIdx) {
-                        case 0: // userType
-                            userDTO.setUserType(getCellValueAsString(currentCell));
-                            break;
-                        case 1: // gstNumber
-                            userDTO.setGstNumber(getCellValueAsString(currentCell));
-                            break;
-                        case 2: // firmName
-                            userDTO.setFirmName(getCellValueAsString(currentCell));
-                            break;
-                        case 3: // ownerName
-                            userDTO.setOwnerName(getCellValueAsString(currentCell));
-                            break;
-                        case 4: // city
-                            userDTO.setCity(getCellValueAsString(currentCell));
-                            break;
-                        case 5: // area
-                            userDTO.setArea(getCellValueAsString(currentCell));
-                            break;
-                        case 6: // pincode
-                            userDTO.setPincode(getCellValueAsString(currentCell));
-                            break;
-                        case 7: // email
-                            userDTO.setEmail(getCellValueAsString(currentCell));
-                            break;
-                        case 8: // bankName
-                            userDTO.setBankName(getCellValueAsString(currentCell));
-                            break;
-                        case 9: // accountNumber
-                            userDTO.setAccountNumber(getCellValueAsString(currentCell));
-                            break;
-                        case 10: // ifscCode
-                            userDTO.setIfscCode(getCellValueAsString(currentCell));
-                            break;
-                        case 11: // branch
-                            userDTO.setBranch(getCellValueAsString(currentCell));
-                            break;
-                        case 12: // phoneNumbers (comma-separated)
-                            String phoneNumbersStr = getCellValueAsString(currentCell);
-                            if (phoneNumbersStr != null && !phoneNumbersStr.trim().isEmpty()) {
-                                List<String> phoneNumbers = Arrays.asList(phoneNumbersStr.split(","));
-                                List<String> cleanPhoneNumbers = phoneNumbers.stream()
-                                    .map(String::trim)
-                                    .filter(s -> !s.isEmpty())
-                                    .collect(Collectors.toList());
-                                userDTO.setPhoneNumbers(cleanPhoneNumbers);
-                            } else {
-                                userDTO.setPhoneNumbers(new ArrayList<>());
-                            }
-                            break;
-                        case 13: // brokerageRate
-                            String brokerageRateStr = getCellValueAsString(currentCell);
-                            if (brokerageRateStr != null && !brokerageRateStr.trim().isEmpty()) {
-                                try {
-                                    userDTO.setBrokerageRate(Integer.parseInt(brokerageRateStr.trim()));
-                                } catch (NumberFormatException e) {
-                                    // Set default or skip
-                                    userDTO.setBrokerageRate(0);
-                                }
-                            }
-                            break;
-                        case 14: // shopNumber
-                            userDTO.setShopNumber(getCellValueAsString(currentCell));
-                            break;
-                        case 15: // byProduct (for MILLER type)
-                            userDTO.setByProduct(getCellValueAsString(currentCell));
-                            break;
-                        case 16: // addressHint
-                            userDTO.setAddressHint(getCellValueAsString(currentCell));
-                            break;
-                        case 17: // collectionRote
-                            userDTO.setCollectionRote(getCellValueAsString(currentCell));
-                            break;
-                        default:
-                            break;
-                    }
-                }
-
-                // Only add if firmName is present (required field) and row is not completely empty
-                if (userDTO.getFirmName() != null && !userDTO.getFirmName().trim().isEmpty()) {
-                    // Trim all string fields
-                    trimUserDTOFields(userDTO);
-                    userDTOs.add(userDTO);
-                }
-
-                rowNumber++;
+    /**
+     * Streams the users of the "Users" sheet (or the first sheet) row by row, see {@link StreamingSheetReader}.
+     * Rows without a firm name are skipped.
+     *
+     * @param rowConsumer receives the 1-based Excel row number and the parsed user
+     */
+    public static void streamUserDTOs(InputStream is, BiConsumer<Integer, UserDTO> rowConsumer) {
+        StreamingSheetReader.readRows(is, SHEET, HEADERS.length, (rowNumber, values) -> {
+            UserDTO userDTO = toUserDTO(values);
+            // Only pass on rows with a firm name (required field), which also skips completely empty rows
+            if (userDTO.getFirmName() != null && !userDTO.getFirmName().trim().isEmpty()) {
+                trimUserDTOFields(userDTO);
+                rowConsumer.accept(rowNumber, userDTO);
             }
-
-            workbook.close();
-            return userDTOs;
-
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to parse Excel file: " + e.getMessage());
-        }
+        });
     }
 
-    private static String getCellValueAsString(Cell cell) {
-        if (cell == null) {
-            return null;
+    private static UserDTO toUserDTO(String[] values) {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setUserType(values[0]);
+        userDTO.setGstNumber(values[1]);
+        userDTO.setFirmName(values[2]);
+        userDTO.setOwnerName(values[3]);
+        userDTO.setCity(values[4]);
+        userDTO.setArea(values[5]);
+        userDTO.setPincode(values[6]);
+        userDTO.setEmail(values[7]);
+        userDTO.setBankName(values[8]);
+        userDTO.setAccountNumber(values[9]);
+        userDTO.setIfscCode(values[10]);
+        userDTO.setBranch(values[11]);
+
+        // phoneNumbers (comma-separated)
+        String phoneNumbersStr = values[12];
+        if (phoneNumbersStr != null && !phoneNumbersStr.trim().isEmpty()) {
+            userDTO.setPhoneNumbers(Arrays.stream(phoneNumbersStr.split(","))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .collect(Collectors.toList()));
+        } else {
+            userDTO.setPhoneNumbers(new ArrayList<>());
         }
 
-        switch (cell.getCellType()) {
-            case STRING:
-                String stringValue = cell.getStringCellValue();
-                return stringValue != null ? stringValue.trim() : null;
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getDateCellValue().toString();
-                } else {
-                    // Convert numeric to string, removing decimal if it's a whole number
-                    double numericValue = cell.getNumericCellValue();
-                    if (numericValue == (long) numericValue) {
-                        return String.valueOf((long) numericValue);
-                    } else {
-                        return String.valueOf(numericValue);
-                    }
-                }
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                return cell.getCellFormula();
-            case BLANK:
-                return null;
-            default:
-                return null;
+        String brokerageRateStr = values[13];
+        if (brokerageRateStr != null && !brokerageRateStr.trim().isEmpty()) {
+            try {
+                userDTO.setBrokerageRate(Integer.parseInt(brokerageRateStr.trim()));
+            } catch (NumberFormatException e) {
+                // Set default or skip
+                userDTO.setBrokerageRate(0);
+            }
         }
+
+        userDTO.setShopNumber(values[14]);
+        userDTO.setByProduct(values[15]); // for MILLER type
+        userDTO.setAddressHint(values[16]);
+        userDTO.setCollectionRote(values[17]);
+        return userDTO;
     }
-    
+
     private static void trimUserDTOFields(UserDTO userDTO) {
         if (userDTO.getUserType() != null) userDTO.setUserType(userDTO.getUserType().trim());
         if (userDTO.getGstNumber() != null) userDTO.setGstNumber(userDTO.getGstNumber().trim());
@@ -0,0 +1,119 @@
+package com.brokerhub.brokerageapp.utils;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.InputStream;
+import java.text.DecimalFormat;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads the rows of an .xlsx sheet with the SAX event model, so only the current row is held in memory
+ * instead of the whole workbook. Cells come back as the text Excel would show, except that numbers in the
+ * General format are written out in full (phone and account numbers would otherwise turn into 9.87654E+11).
+ */
+public final class StreamingSheetReader {
+
+    private StreamingSheetReader() {
+    }
+
+    /**
+     * Calls the consumer for every row after the header with the 1-based Excel row number and the first
+     * {@code columns} cell values; missing cells are null.
+     *
+     * @param sheetName sheet to read, falls back to the first sheet when the workbook has no sheet of that name
+     * @throws RuntimeException if the file is not a readable .xlsx workbook
+     */
+    public static void readRows(InputStream is, String sheetName, int columns, BiConsumer<Integer, String[]> rowConsumer) {
+        try (OPCPackage pkg = OPCPackage.open(is)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+
+            DataFormatter formatter = new DataFormatter();
+            formatter.addFormat("General", new DecimalFormat("0.##########"));
+
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), strings,
+                    new RowHandler(columns, rowConsumer), formatter, false));
+            try (InputStream sheet = openSheet(reader, sheetName)) {
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse Excel file: " + e.getMessage(), e);
+        }
+    }
+
+    private static InputStream openSheet(XSSFReader reader, String sheetName) throws Exception {
+        XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+        InputStream first = null;
+        while (sheets.hasNext()) {
+            InputStream sheet = sheets.next();
+            if (sheetName.equals(sheets.getSheetName())) {
+                if (first != null) {
+                    first.close();
+                }
+                return sheet;
+            }
+            if (first == null) {
+                first = sheet;
+            } else {
+                sheet.close();
+            }
+        }
+        if (first == null) {
+            throw new IllegalArgumentException("Excel file has no sheets");
+        }
+        return first;
+    }
+
+    private static class RowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final int columns;
+        private final BiConsumer<Integer, String[]> rowConsumer;
+        private String[] values;
+        private int nextColumn;
+
+        RowHandler(int columns, BiConsumer<Integer, String[]> rowConsumer) {
+            this.columns = columns;
+            this.rowConsumer = rowConsumer;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            values = new String[columns];
+            nextColumn = 0;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            // Row 0 is the header
+            if (rowNum > 0) {
+                rowConsumer.accept(rowNum + 1, values);
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            // Some writers leave out the cell reference, the cell then follows the previous one
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            nextColumn = column + 1;
+            if (column < columns) {
+                values[column] = formattedValue;
+            }
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+        }
+    }
+}
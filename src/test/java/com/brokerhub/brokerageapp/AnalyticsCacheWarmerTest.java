@@ -0,0 +1,142 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.entity.CurrentFinancialYear;
+import com.brokerhub.brokerageapp.repository.CurrentFinancialYearRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AnalyticsCacheWarmerTest {
+
+    @Mock
+    private DashboardService dashboardService;
+
+    @Mock
+    private BrokerageService brokerageService;
+
+    @Mock
+    private CurrentFinancialYearRepository currentFinancialYearRepository;
+
+    @InjectMocks
+    private AnalyticsCacheWarmer warmer;
+
+    private final List<Runnable> queuedTasks = new ArrayList<>();
+    private ConcurrentMapCacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cacheManager = new ConcurrentMapCacheManager("financialYearAnalytics", "topPerformers", "brokerageSummary",
+                "topBuyers", "topSellers", "topMerchants");
+        ReflectionTestUtils.setField(warmer, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(warmer, "cacheTaskExecutor", (Executor) queuedTasks::add);
+        ReflectionTestUtils.setField(warmer, "enabled", true);
+        ReflectionTestUtils.setField(warmer, "maxConcurrent", 2);
+        warmer.init();
+    }
+
+    @Test
+    void testWarmAll_RecomputesEachBrokersCurrentFinancialYear() {
+        when(currentFinancialYearRepository.findAll()).thenReturn(List.of(
+                current(1L, 3L), current(2L, 4L), current(5L, null)));
+        cacheManager.getCache("topBuyers").put("1_3", "stale");
+
+        assertEquals(2, warmer.warmAll());
+        runQueuedTasks();
+
+        verify(dashboardService).recomputeFinancialYearAnalytics(1L, 3L);
+        verify(dashboardService).recomputeTopPerformers(1L, 3L);
+        verify(brokerageService).refreshBrokerageSummary(1L, 3L);
+        verify(dashboardService).recomputeFinancialYearAnalytics(2L, 4L);
+        verify(brokerageService).refreshBrokerageSummary(2L, 4L);
+        verify(dashboardService, never()).recomputeFinancialYearAnalytics(eq(5L), any());
+        verify(dashboardService, never()).refreshAnalyticsCache(any(), any());
+        assertNull(cacheManager.getCache("topBuyers").get("1_3"));
+    }
+
+    @Test
+    void testRefreshAhead_CoalescesRequestsUntilTheQueuedRefreshStarts() {
+        assertTrue(warmer.refreshAhead(1L, 3L));
+        assertFalse(warmer.refreshAhead(1L, 3L));
+        assertTrue(warmer.refreshAhead(2L, 3L));
+        assertEquals(2, queuedTasks.size());
+
+        runQueuedTasks();
+        assertTrue(warmer.refreshAhead(1L, 3L));
+
+        verify(dashboardService, times(1)).recomputeFinancialYearAnalytics(1L, 3L);
+        verify(dashboardService, times(1)).recomputeFinancialYearAnalytics(2L, 3L);
+    }
+
+    @Test
+    void testRefreshAhead_KeepsPreviousEntriesWhenRecomputeFails() {
+        Cache analytics = cacheManager.getCache("financialYearAnalytics");
+        analytics.put("1_3", "previous");
+        when(dashboardService.recomputeFinancialYearAnalytics(1L, 3L)).thenThrow(new RuntimeException("Failed to generate analytics"));
+
+        warmer.refreshAhead(1L, 3L);
+        runQueuedTasks();
+
+        assertEquals("previous", analytics.get("1_3").get());
+        // The permit is released, so the next refresh still runs
+        reset(dashboardService);
+        warmer.refreshAhead(1L, 3L);
+        runQueuedTasks();
+        verify(dashboardService).recomputeFinancialYearAnalytics(1L, 3L);
+    }
+
+    @Test
+    void testWarmAll_EvictsOnlyCurrentYearEntriesWhenWarmingIsDisabled() {
+        ReflectionTestUtils.setField(warmer, "enabled", false);
+        when(currentFinancialYearRepository.findAll()).thenReturn(List.of(current(1L, 3L)));
+        cacheManager.getCache("financialYearAnalytics").put("1_3", "stale");
+        cacheManager.getCache("topSellers").put("1_3", "stale");
+        cacheManager.getCache("financialYearAnalytics").put("1_2", "previous year");
+        cacheManager.getCache("financialYearAnalytics").put("2_3", "other broker");
+
+        assertEquals(0, warmer.warmAll());
+
+        assertTrue(queuedTasks.isEmpty());
+        assertNull(cacheManager.getCache("financialYearAnalytics").get("1_3"));
+        assertNull(cacheManager.getCache("topSellers").get("1_3"));
+        assertNotNull(cacheManager.getCache("financialYearAnalytics").get("1_2"));
+        assertNotNull(cacheManager.getCache("financialYearAnalytics").get("2_3"));
+        verifyNoInteractions(dashboardService, brokerageService);
+    }
+
+    @Test
+    void testRefreshAhead_EvictsWhenWarmingIsDisabled() {
+        ReflectionTestUtils.setField(warmer, "enabled", false);
+        cacheManager.getCache("brokerageSummary").put("1_3", "stale");
+        cacheManager.getCache("brokerageSummary").put("2_3", "other broker");
+
+        assertFalse(warmer.refreshAhead(1L, 3L));
+
+        assertTrue(queuedTasks.isEmpty());
+        assertNull(cacheManager.getCache("brokerageSummary").get("1_3"));
+        assertNotNull(cacheManager.getCache("brokerageSummary").get("2_3"));
+        verifyNoInteractions(dashboardService, brokerageService);
+    }
+
+    private void runQueuedTasks() {
+        List<Runnable> tasks = new ArrayList<>(queuedTasks);
+        queuedTasks.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    private CurrentFinancialYear current(Long brokerId, Long financialYearId) {
+        return CurrentFinancialYear.builder().brokerId(brokerId).financialYearId(financialYearId).build();
+    }
+}
@@ -0,0 +1,44 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.utils.BillTemplate;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BillTemplateTest {
+
+    @Test
+    void testRender_WritesStaticSegmentsAndSlotsInDocumentOrder() throws IOException {
+        BillTemplate template = BillTemplate.compile("<h1>{{firm}}</h1><style>{{css}}</style><td>₹{{ amount }}</td>",
+                Map.of("css", "body { color: #000; }"));
+        List<String> slots = new ArrayList<>();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        template.render(new BillTemplate.Output(outputStream), (slot, out) -> {
+            slots.add(slot);
+            out.text("firm".equals(slot) ? "Sri Traders" : "1,250.00");
+        });
+
+        assertEquals(List.of("firm", "amount"), slots);
+        assertEquals("<h1>Sri Traders</h1><style>body { color: #000; }</style><td>₹1,250.00</td>",
+                outputStream.toString(StandardCharsets.UTF_8));
+        assertEquals("<h1></h1><style>body { color: #000; }</style><td>₹</td>".getBytes(StandardCharsets.UTF_8).length,
+                template.getStaticLength());
+    }
+
+    @Test
+    void testLoadSections_SplitsBillResourcesByMarker() {
+        Map<String, String> sections = BillTemplate.loadSections("/templates/bills/print-bill.html");
+
+        assertTrue(sections.keySet().containsAll(List.of("document", "row", "bank", "qr", "city-document", "city-row")));
+        assertTrue(sections.get("row").startsWith("<tr>"));
+        assertFalse(sections.get("document").contains("section:"));
+    }
+}
@@ -6,6 +6,7 @@ import com.brokerhub.brokerageapp.entity.Broker;
 import com.brokerhub.brokerageapp.mapper.BrokerDTOMapper;
 import com.brokerhub.brokerageapp.repository.BrokerRepository;
 import com.brokerhub.brokerageapp.repository.UserRepository;
+import com.brokerhub.brokerageapp.security.TokenRevocationList;
 import com.brokerhub.brokerageapp.utils.OtpUtil;
 import com.brokerhub.brokerageapp.utils.EmailUtil;
 import org.junit.jupiter.api.BeforeEach;
@@ -51,6 +52,12 @@ class BrokerServiceImplTest {
     @Mock
     private EmailUtil emailUtil;
 
+    @Mock
+    private BrokerContextCache brokerContextCache;
+
+    @Mock
+    private TokenRevocationList tokenRevocationList;
+
     @InjectMocks
     private BrokerServiceImpl brokerServiceImpl;
 
@@ -0,0 +1,128 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.config.CacheStatistics;
+import com.brokerhub.brokerageapp.config.InstrumentedCacheManager;
+import com.brokerhub.brokerageapp.entity.Address;
+import com.brokerhub.brokerageapp.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BrokerageCacheServiceTest {
+
+    @Mock
+    private TenantContextService tenantContextService;
+
+    @Mock
+    private CurrentFinancialYearService currentFinancialYearService;
+
+    @InjectMocks
+    private BrokerageCacheService brokerageCacheService;
+
+    private CacheStatistics cacheStatistics;
+    private InstrumentedCacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cacheStatistics = new CacheStatistics();
+        cacheManager = new InstrumentedCacheManager(new ConcurrentMapCacheManager(
+                "totalBrokerage", "brokerageSummary", "userBrokerage", "cityBrokerage", "userBrokerageDetail", "brokerageQuery"),
+                cacheStatistics);
+        ReflectionTestUtils.setField(brokerageCacheService, "cacheManager", cacheManager);
+        when(tenantContextService.getCurrentBrokerId()).thenReturn(1L);
+        when(currentFinancialYearService.getCurrentFinancialYearId(1L)).thenReturn(3L);
+    }
+
+    @Test
+    void testKeys_ResolveCurrentBrokerAndFinancialYear() {
+        assertEquals("1_3", brokerageCacheService.scopeKey(null));
+        assertEquals("1_4_user_10", brokerageCacheService.userKey(10L, 4L));
+        assertEquals("1_3_city_guntur", brokerageCacheService.cityKey(" Guntur ", null));
+    }
+
+    @Test
+    void testEvictLedgerChange_EvictsOnlyTouchedKeysOfThatBrokerAndYear() {
+        put("totalBrokerage", "1_3", "2_3", "1_4");
+        put("brokerageSummary", "1_3");
+        put("brokerageQuery", "citywise_1_3", "citywise_2_3");
+        put("userBrokerage", "1_3_user_10", "1_3_user_11", "2_3_user_10");
+        put("cityBrokerage", "1_3_city_guntur", "1_3_city_tenali");
+
+        User buyer = User.builder().userId(10L).address(Address.builder().city("Guntur").build()).build();
+        brokerageCacheService.evictLedgerChange(1L, 3L, List.of(buyer));
+
+        assertCached("totalBrokerage", "2_3", "1_4");
+        assertEvicted("totalBrokerage", "1_3");
+        // Replaced in place by AnalyticsCacheWarmer rather than evicted
+        assertCached("brokerageSummary", "1_3");
+        assertCached("brokerageQuery", "citywise_2_3");
+        assertEvicted("brokerageQuery", "citywise_1_3");
+        assertCached("userBrokerage", "1_3_user_11", "2_3_user_10");
+        assertEvicted("userBrokerage", "1_3_user_10");
+        assertCached("cityBrokerage", "1_3_city_tenali");
+        assertEvicted("cityBrokerage", "1_3_city_guntur");
+        assertEquals(1, cacheStatistics.snapshot().get("userBrokerage").getEvictions());
+    }
+
+    @Test
+    void testEvictAllBrokerageCache_LeavesOtherBrokersWarm() {
+        put("brokerageSummary", "1_3", "1_4", "2_3", "12_3");
+        put("userBrokerageDetail", "1_3_user_10", "2_3_user_10");
+        put("brokerageQuery", "total_1_3", "total_12_3");
+
+        brokerageCacheService.evictAllBrokerageCache();
+
+        assertEvicted("brokerageSummary", "1_3", "1_4");
+        assertCached("brokerageSummary", "2_3", "12_3");
+        assertEvicted("userBrokerageDetail", "1_3_user_10");
+        assertCached("userBrokerageDetail", "2_3_user_10");
+        assertEvicted("brokerageQuery", "total_1_3");
+        assertCached("brokerageQuery", "total_12_3");
+    }
+
+    @Test
+    void testInstrumentedCache_CountsHitsAndMissesPerRegion() {
+        Cache cache = cacheManager.getCache("totalBrokerage");
+        cache.get("1_3");
+        cache.put("1_3", 100L);
+        cache.get("1_3");
+        cache.get("1_3");
+
+        assertEquals(2, cacheStatistics.snapshot().get("totalBrokerage").getHits());
+        assertEquals(1, cacheStatistics.snapshot().get("totalBrokerage").getMisses());
+        assertEquals(1, cacheStatistics.snapshot().get("totalBrokerage").getPuts());
+        assertEquals(2d / 3, cacheStatistics.snapshot().get("totalBrokerage").getHitRatio(), 0.0001);
+    }
+
+    private void put(String cacheName, String... keys) {
+        Cache cache = InstrumentedCacheManager.unwrap(cacheManager.getCache(cacheName));
+        for (String key : keys) {
+            cache.put(key, key);
+        }
+    }
+
+    private void assertCached(String cacheName, String... keys) {
+        Cache cache = InstrumentedCacheManager.unwrap(cacheManager.getCache(cacheName));
+        for (String key : keys) {
+            assertNotNull(cache.get(key), cacheName + " should still hold " + key);
+        }
+    }
+
+    private void assertEvicted(String cacheName, String... keys) {
+        Cache cache = InstrumentedCacheManager.unwrap(cacheManager.getCache(cacheName));
+        for (String key : keys) {
+            assertNull(cache.get(key), cacheName + " should no longer hold " + key);
+        }
+    }
+}
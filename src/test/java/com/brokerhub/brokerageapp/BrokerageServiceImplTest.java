@@ -0,0 +1,116 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.UserBrokerageDetailDTO;
+import com.brokerhub.brokerageapp.repository.UserBrokerageRepository;
+import com.brokerhub.brokerageapp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BrokerageServiceImplTest {
+
+    @Mock
+    private UserBrokerageRepository userBrokerageRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TenantContextService tenantContextService;
+
+    @InjectMocks
+    private BrokerageServiceImpl brokerageService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testGetUserBrokerageDetailsInFinancialYear_FoldsRowsPerUser() {
+        Set<Long> userIds = new LinkedHashSet<>(List.of(1L, 2L, 3L));
+        List<Object[]> users = new ArrayList<>();
+        users.add(new Object[]{1L, "Sri Traders", "Ramesh", "Guntur"});
+        users.add(new Object[]{2L, "Ravi Mills", "Ravi", "Tenali"});
+        when(userRepository.findBasicInfoByBrokerIdAndUserIds(eq(9L), anyCollection())).thenReturn(users);
+
+        LocalDate date = LocalDate.of(2024, 5, 1);
+        List<Object[]> rows = new ArrayList<>();
+        // seller 1 -> buyer 2
+        rows.add(new Object[]{1L, date, 1L, "Sri Traders", "Guntur", 2L, "Ravi Mills", "Tenali", "Rice", 1200L, 10L, 100L, 12000L});
+        // seller 1 -> buyer 5 (outside the batch)
+        rows.add(new Object[]{2L, date, 1L, "Sri Traders", "Guntur", 5L, "Other Firm", "Vijayawada", "Wheat", 900L, 4L, 40L, 3600L});
+        when(userBrokerageRepository.getTransactionRowsForUsers(eq(9L), eq(3L), anyCollection())).thenReturn(rows);
+
+        Map<Long, UserBrokerageDetailDTO> details = brokerageService.getUserBrokerageDetailsInFinancialYear(userIds, 9L, 3L);
+
+        assertEquals(2, details.size());
+        assertFalse(details.containsKey(3L));
+
+        UserBrokerageDetailDTO seller = details.get(1L);
+        assertEquals("Sri Traders", seller.getUserBasicInfo().getFirmName());
+        assertEquals(14L, seller.getBrokerageSummary().getTotalBagsSold());
+        assertEquals(0L, seller.getBrokerageSummary().getTotalBagsBought());
+        assertEquals(15600L, seller.getBrokerageSummary().getTotalAmountEarned());
+        assertEquals(BigDecimal.valueOf(140), seller.getBrokerageSummary().getTotalBrokeragePayable());
+        assertEquals(2, seller.getBrokerageSummary().getProductsSold().size());
+        assertEquals(2, seller.getBrokerageSummary().getCitiesSoldTo().size());
+        assertEquals(2, seller.getTransactionDetails().size());
+        assertEquals("SOLD", seller.getTransactionDetails().get(0).getTransactionType());
+        assertEquals("Ravi Mills", seller.getTransactionDetails().get(0).getCounterPartyFirmName());
+
+        UserBrokerageDetailDTO buyer = details.get(2L);
+        assertEquals(10L, buyer.getBrokerageSummary().getTotalBagsBought());
+        assertEquals(12000L, buyer.getBrokerageSummary().getTotalAmountPaid());
+        assertEquals(BigDecimal.valueOf(100), buyer.getBrokerageSummary().getTotalBrokeragePayable());
+        assertEquals("Guntur", buyer.getBrokerageSummary().getCitiesBoughtFrom().get(0).getCity());
+        assertEquals(1, buyer.getTransactionDetails().size());
+        assertEquals("BOUGHT", buyer.getTransactionDetails().get(0).getTransactionType());
+
+        verify(userBrokerageRepository, times(1)).getTransactionRowsForUsers(eq(9L), eq(3L), anyCollection());
+        verifyNoInteractions(tenantContextService);
+    }
+
+    @Test
+    void testGetUserBrokerageDetailsInFinancialYear_KeepsRecordsOfCounterpartiesWithoutAddress() {
+        List<Object[]> users = new ArrayList<>();
+        users.add(new Object[]{2L, "Ravi Mills", "Ravi", "Tenali"});
+        when(userRepository.findBasicInfoByBrokerIdAndUserIds(eq(9L), anyCollection())).thenReturn(users);
+        LocalDate date = LocalDate.of(2024, 4, 10);
+        List<Object[]> rows = new ArrayList<>();
+        // seller 6 has no address
+        rows.add(new Object[]{1L, date, 6L, "Nomad Traders", null, 2L, "Ravi Mills", "Tenali", "Rice", 1200L, 10L, 100L, 12000L});
+        rows.add(new Object[]{2L, date, 1L, "Sri Traders", "Guntur", 2L, "Ravi Mills", "Tenali", "Rice", 1200L, 5L, 50L, 6000L});
+        when(userBrokerageRepository.getTransactionRowsForUsers(eq(9L), eq(3L), anyCollection())).thenReturn(rows);
+
+        UserBrokerageDetailDTO buyer = brokerageService.getUserBrokerageDetailsInFinancialYear(Set.of(2L), 9L, 3L).get(2L);
+
+        assertEquals(15L, buyer.getBrokerageSummary().getTotalBagsBought());
+        assertEquals(BigDecimal.valueOf(150), buyer.getBrokerageSummary().getTotalBrokeragePayable());
+        assertEquals(1, buyer.getBrokerageSummary().getCitiesBoughtFrom().size());
+        assertEquals("Guntur", buyer.getBrokerageSummary().getCitiesBoughtFrom().get(0).getCity());
+        assertEquals(2, buyer.getTransactionDetails().size());
+        assertEquals("Nomad Traders", buyer.getTransactionDetails().get(0).getCounterPartyFirmName());
+        assertNull(buyer.getTransactionDetails().get(0).getCounterPartyCity());
+    }
+
+    @Test
+    void testGetUserBrokerageDetailsInFinancialYear_EmptyInput() {
+        assertTrue(brokerageService.getUserBrokerageDetailsInFinancialYear(Set.of(), 9L, 3L).isEmpty());
+        verifyNoInteractions(userRepository, userBrokerageRepository);
+    }
+}
@@ -0,0 +1,126 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.BulkBillGenerationResultDTO;
+import com.brokerhub.brokerageapp.dto.UserBrokerageDetailDTO;
+import com.brokerhub.brokerageapp.entity.Broker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BulkBillGenerationServiceImplTest {
+
+    @Mock
+    private BrokerageService brokerageService;
+
+    @Mock
+    private PdfGenerationService pdfGenerationService;
+
+    @Mock
+    private ExcelGenerationService excelGenerationService;
+
+    @InjectMocks
+    private BulkBillGenerationServiceImpl bulkBillGenerationService;
+
+    private Broker broker;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        Executor executor = Executors.newFixedThreadPool(4);
+        ReflectionTestUtils.setField(bulkBillGenerationService, "bulkOperationTaskExecutor", executor);
+        broker = Broker.builder().brokerId(1L).build();
+    }
+
+    @Test
+    void testStreamBulkBills_WritesBillsAndReportsFailures() throws IOException {
+        UserBrokerageDetailDTO first = detailFor("Sri Traders");
+        UserBrokerageDetailDTO second = detailFor("Ravi Mills");
+        UserBrokerageDetailDTO broken = detailFor("Broken Firm");
+        Map<Long, UserBrokerageDetailDTO> details = new LinkedHashMap<>();
+        details.put(1L, first);
+        details.put(2L, second);
+        details.put(3L, broken);
+        when(brokerageService.getUserBrokerageDetailsInFinancialYear(anySet(), eq(1L), eq(5L))).thenReturn(details);
+
+        when(pdfGenerationService.generateUserBrokerageBill(any(UserBrokerageDetailDTO.class), eq(broker), eq(5L), anyLong()))
+                .thenReturn("<html></html>".getBytes());
+        when(pdfGenerationService.generateUserBrokerageBill(eq(broken), eq(broker), eq(5L), eq(3L)))
+                .thenThrow(new RuntimeException("No ledger data"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BulkBillGenerationResultDTO result = bulkBillGenerationService.streamBulkBills(
+                BulkBillGenerationService.BillFormat.HTML, Arrays.asList(1L, 2L, 3L, 4L), broker, 5L, null, out);
+
+        assertEquals(4, result.getTotalUsers());
+        assertEquals(2, result.getSuccessfulBills());
+        assertEquals(2, result.getFailedBills());
+        assertEquals("No ledger data", result.getFailures().get(3L));
+        assertEquals("User not found", result.getFailures().get(4L));
+
+        List<String> entries = readEntryNames(out.toByteArray());
+        assertEquals(3, entries.size());
+        assertTrue(entries.contains("bill_1_Sri-Traders.html"));
+        assertTrue(entries.contains("bill_2_Ravi-Mills.html"));
+        assertTrue(entries.contains("bulk-bill-report.txt"));
+        verify(brokerageService, times(1)).getUserBrokerageDetailsInFinancialYear(anySet(), eq(1L), eq(5L));
+    }
+
+    @Test
+    void testGenerateBulkBillsExcelSync_UsesCustomBrokerageAndUserIdInEntryNames() throws IOException {
+        UserBrokerageDetailDTO detail = detailFor("Lakshmi & Co");
+        // Same firm name as user 7, the entry names must still differ
+        UserBrokerageDetailDTO namesake = detailFor("Lakshmi & Co");
+        BigDecimal customBrokerage = BigDecimal.valueOf(8);
+        when(brokerageService.getUserBrokerageDetailsInFinancialYear(Set.of(7L, 9L), 1L, 5L))
+                .thenReturn(Map.of(7L, detail, 9L, namesake));
+        when(excelGenerationService.generateUserBrokerageExcel(any(UserBrokerageDetailDTO.class), eq(broker), eq(5L), eq(customBrokerage)))
+                .thenReturn(new byte[]{1, 2, 3});
+
+        byte[] zip = bulkBillGenerationService.generateBulkBillsExcelSync(List.of(7L, 9L), broker, 5L, customBrokerage);
+
+        List<String> entries = readEntryNames(zip);
+        assertEquals(2, entries.size());
+        assertTrue(entries.contains("brokerage-bill_7_Lakshmi-Co-FY5.xlsx"));
+        assertTrue(entries.contains("brokerage-bill_9_Lakshmi-Co-FY5.xlsx"));
+        verify(excelGenerationService, never()).generateUserBrokerageExcel(any(), any(), anyLong());
+    }
+
+    private UserBrokerageDetailDTO detailFor(String firmName) {
+        return UserBrokerageDetailDTO.builder()
+                .userBasicInfo(UserBrokerageDetailDTO.UserBasicInfo.builder().firmName(firmName).build())
+                .build();
+    }
+
+    private List<String> readEntryNames(byte[] zip) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,24 @@
+package com.brokerhub.brokerageapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CounterDeltaWriterTest {
+
+    @Test
+    void testUpsertSql_AddsTheDeltasToTheRowWithTheSameKey() {
+        assertEquals("INSERT INTO payment_daily_trend (trend_id, broker_id, trend_date, payments_count, payments_amount, version) "
+                        + "VALUES (?, ?, ?, ?, ?, 0) ON DUPLICATE KEY UPDATE payments_count = payments_count + ?, "
+                        + "payments_amount = payments_amount + ?, version = version + 1",
+                CounterDeltaWriter.upsertSql(false, "payment_daily_trend", "trend_id", List.of("broker_id", "trend_date"),
+                        List.of("payments_count", "payments_amount"), "version"));
+        assertEquals("INSERT INTO payment_daily_trend (trend_id, broker_id, trend_date, payments_count) "
+                        + "VALUES (?, ?, ?, ?) ON CONFLICT (broker_id, trend_date) DO UPDATE SET "
+                        + "payments_count = payment_daily_trend.payments_count + EXCLUDED.payments_count",
+                CounterDeltaWriter.upsertSql(true, "payment_daily_trend", "trend_id", List.of("broker_id", "trend_date"),
+                        List.of("payments_count"), null));
+    }
+}
@@ -0,0 +1,203 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.BrokerageAggregateVerificationDTO;
+import com.brokerhub.brokerageapp.entity.Address;
+import com.brokerhub.brokerageapp.entity.Broker;
+import com.brokerhub.brokerageapp.entity.DailyLedger;
+import com.brokerhub.brokerageapp.entity.DashboardCitySeller;
+import com.brokerhub.brokerageapp.entity.DashboardDailyRollup;
+import com.brokerhub.brokerageapp.entity.LedgerDetails;
+import com.brokerhub.brokerageapp.entity.LedgerRecord;
+import com.brokerhub.brokerageapp.entity.Product;
+import com.brokerhub.brokerageapp.entity.User;
+import com.brokerhub.brokerageapp.repository.BrokerageRepository;
+import com.brokerhub.brokerageapp.repository.DashboardCitySellerRepository;
+import com.brokerhub.brokerageapp.repository.DashboardDailyRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DashboardRollupServiceTest {
+
+    private static final LocalDate LEDGER_DATE = LocalDate.of(2024, 6, 18);
+
+    @Mock
+    private DashboardDailyRollupRepository rollupRepository;
+
+    @Mock
+    private DashboardCitySellerRepository citySellerRepository;
+
+    @Mock
+    private BrokerageRepository brokerageRepository;
+
+    @Mock
+    private CounterDeltaWriter deltaWriter;
+
+    @InjectMocks
+    private DashboardRollupService rollupService;
+
+    private LedgerDetails ledgerDetails;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ledgerDetails = new LedgerDetails();
+        ledgerDetails.setBroker(Broker.builder().brokerId(1L).build());
+        ledgerDetails.setFinancialYearId(5L);
+        ledgerDetails.setFromSeller(user(10L, "Tenali", "MILLER"));
+        ledgerDetails.setDailyLedger(DailyLedger.builder().date(LEDGER_DATE).build());
+    }
+
+    @Test
+    void testAddRecords_IncrementsExistingCellsAndUpsertsMissingOnes() {
+        // The Guntur cell exists, the Ongole one does not
+        when(rollupRepository.addToCell(eq(1L), eq(5L), eq(LEDGER_DATE), eq(100L), eq("Tenali"), eq("Guntur"),
+                eq("MILLER"), eq("TRADER"), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong())).thenReturn(1);
+        User gunturBuyer = user(20L, "Guntur", "TRADER");
+
+        rollupService.addRecords(ledgerDetails, List.of(
+                record(gunturBuyer, 10L, 2L),
+                record(user(21L, "Guntur", "TRADER"), 5L, 2L),
+                record(user(22L, "Ongole", "TRADER"), 4L, 3L)));
+
+        verify(rollupRepository).addToCell(1L, 5L, LEDGER_DATE, 100L, "Tenali", "Guntur", "MILLER", "TRADER",
+                2L, 15L, 15000L, 30L, 2000L, 4L);
+        ArgumentCaptor<Object> upserted = ArgumentCaptor.forClass(Object.class);
+        verify(deltaWriter, times(3)).upsert(upserted.capture(), anyList(), anyList());
+        List<DashboardDailyRollup> rollups = upserted.getAllValues().stream()
+                .filter(DashboardDailyRollup.class::isInstance).map(DashboardDailyRollup.class::cast).toList();
+        assertEquals(1, rollups.size());
+        DashboardDailyRollup ongole = rollups.get(0);
+        assertEquals(LEDGER_DATE, ongole.getLedgerDate());
+        assertEquals("Ongole", ongole.getBuyerCity());
+        assertEquals("Tenali", ongole.getSellerCity());
+        assertEquals("MILLER", ongole.getSellerType());
+        assertEquals("TRADER", ongole.getBuyerType());
+        assertEquals(1L, ongole.getRecords());
+        assertEquals(4L, ongole.getQuantity());
+        assertEquals(12L, ongole.getBrokerage());
+        assertEquals(1000L, ongole.getProductCostSum());
+        assertEquals(3L, ongole.getBrokeragePerUnitSum());
+
+        List<DashboardCitySeller> citySellers = upserted.getAllValues().stream()
+                .filter(DashboardCitySeller.class::isInstance).map(DashboardCitySeller.class::cast).toList();
+        assertEquals(2, citySellers.size());
+        DashboardCitySeller gunturSeller = citySellers.stream()
+                .filter(c -> "Guntur".equals(c.getBuyerCity())).findFirst().orElseThrow();
+        assertEquals(LEDGER_DATE.withDayOfMonth(1), gunturSeller.getMonthStart());
+        assertEquals(10L, gunturSeller.getSellerId());
+        assertEquals(2L, gunturSeller.getRecords());
+        verify(rollupRepository, never()).deleteEmptyCells(any(), any(), any());
+    }
+
+    @Test
+    void testRemoveRecords_SubtractsAndDeletesCellsThatDropToZero() {
+        when(rollupRepository.addToCell(any(), any(), any(), any(), any(), any(), any(), any(),
+                anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong())).thenReturn(1);
+        when(citySellerRepository.addToCell(any(), any(), any(), any(), any(), anyLong())).thenReturn(1);
+
+        rollupService.removeRecords(ledgerDetails, List.of(
+                record(user(20L, "Guntur", "TRADER"), 10L, 2L),
+                record(user(22L, "Ongole", "TRADER"), 4L, 3L)));
+
+        verify(rollupRepository).addToCell(1L, 5L, LEDGER_DATE, 100L, "Tenali", "Guntur", "MILLER", "TRADER",
+                -1L, -10L, -10000L, -20L, -1000L, -2L);
+        verify(citySellerRepository).addToCell(1L, 5L, LEDGER_DATE.withDayOfMonth(1), "Ongole", 10L, -1L);
+        verifyNoInteractions(deltaWriter);
+        verify(rollupRepository).deleteEmptyCells(1L, 5L, LEDGER_DATE);
+        verify(citySellerRepository).deleteEmptyCells(1L, 5L, Set.of(10L));
+    }
+
+    @Test
+    void testRemoveRecords_UsesTheCityAndTypeTheRecordWasCountedUnder() {
+        when(rollupRepository.addToCell(any(), any(), any(), any(), any(), any(), any(), any(),
+                anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong())).thenReturn(1);
+        when(citySellerRepository.addToCell(any(), any(), any(), any(), any(), anyLong())).thenReturn(1);
+        LedgerRecord record = record(user(20L, "Guntur", "TRADER"), 10L, 2L);
+        record.setSellerCity("Tenali");
+        record.setSellerType("MILLER");
+        record.setBuyerCity("Guntur");
+        record.setBuyerType("TRADER");
+        // Both users changed after the record was written
+        record.getToBuyer().getAddress().setCity("Vijayawada");
+        ledgerDetails.getFromSeller().setUserType("TRADER");
+
+        rollupService.removeRecords(ledgerDetails, List.of(record));
+
+        verify(rollupRepository).addToCell(1L, 5L, LEDGER_DATE, 100L, "Tenali", "Guntur", "MILLER", "TRADER",
+                -1L, -10L, -10000L, -20L, -1000L, -2L);
+        verify(citySellerRepository).addToCell(1L, 5L, LEDGER_DATE.withDayOfMonth(1), "Guntur", 10L, -1L);
+    }
+
+    @Test
+    void testVerify_RebuildsWhenRollupDriftsFromLedger() {
+        List<Object[]> cells = new ArrayList<>();
+        cells.add(new Object[]{LEDGER_DATE, 100L, "Tenali", "Guntur", "MILLER", "TRADER", 1L, 10L, 10000L, 20L, 1000L, 2L});
+        cells.add(new Object[]{LEDGER_DATE, 100L, "Tenali", "Ongole", "MILLER", "TRADER", 1L, 4L, 4000L, 12L, 1000L, 3L});
+        when(rollupRepository.getLedgerRollupCells(1L, 5L)).thenReturn(cells);
+        // A cell the ledger no longer has records for
+        DashboardDailyRollup stale = cell("Vijayawada").records(1L).quantity(10L).transactionValue(10000L).brokerage(20L)
+                .productCostSum(1000L).brokeragePerUnitSum(2L).build();
+        DashboardDailyRollup current = cell("Ongole").records(1L).quantity(4L).transactionValue(4000L).brokerage(12L)
+                .productCostSum(1000L).brokeragePerUnitSum(3L).build();
+        when(rollupRepository.findByBrokerIdAndFinancialYearId(1L, 5L)).thenReturn(List.of(stale, current));
+        List<Object[]> citySellerCells = new ArrayList<>();
+        citySellerCells.add(new Object[]{2024, 6, "Guntur", 10L, 1L});
+        citySellerCells.add(new Object[]{2024, 6, "Ongole", 10L, 1L});
+        when(citySellerRepository.getLedgerCitySellerCells(1L, 5L)).thenReturn(citySellerCells);
+        when(citySellerRepository.findByBrokerIdAndFinancialYearId(1L, 5L)).thenReturn(List.of(
+                DashboardCitySeller.builder().monthStart(LEDGER_DATE.withDayOfMonth(1)).buyerCity("Ongole").sellerId(10L)
+                        .records(1L).build()));
+
+        BrokerageAggregateVerificationDTO result = rollupService.verify(1L, 5L, true);
+
+        assertFalse(result.isConsistent());
+        assertTrue(result.isRebuilt());
+        assertEquals(4, result.getExpectedRows());
+        assertEquals(3, result.getMismatchedRows());
+        verify(rollupRepository).deleteByBrokerIdAndFinancialYearId(1L, 5L);
+        verify(rollupRepository).saveAll(argThat(rows -> ((java.util.Collection<?>) rows).size() == 2));
+        verify(citySellerRepository).deleteByBrokerIdAndFinancialYearId(1L, 5L);
+        verify(citySellerRepository).saveAll(argThat(rows -> ((java.util.Collection<?>) rows).size() == 2));
+    }
+
+    private DashboardDailyRollup.DashboardDailyRollupBuilder cell(String buyerCity) {
+        return DashboardDailyRollup.builder()
+                .brokerId(1L)
+                .financialYearId(5L)
+                .ledgerDate(LEDGER_DATE)
+                .productId(100L)
+                .sellerCity("Tenali")
+                .buyerCity(buyerCity)
+                .sellerType("MILLER")
+                .buyerType("TRADER");
+    }
+
+    private User user(Long userId, String city, String userType) {
+        return User.builder().userId(userId).userType(userType).address(Address.builder().city(city).build()).build();
+    }
+
+    private LedgerRecord record(User buyer, Long quantity, Long brokerage) {
+        return LedgerRecord.builder()
+                .toBuyer(buyer)
+                .product(Product.builder().productId(100L).build())
+                .quantity(quantity)
+                .brokerage(brokerage)
+                .productCost(1000L)
+                .totalProductsCost(quantity * 1000L)
+                .totalBrokerage(quantity * brokerage)
+                .build();
+    }
+}
@@ -0,0 +1,230 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.config.ExecutorMetrics;
+import com.brokerhub.brokerageapp.config.JdbcConcurrencyLimiter;
+import com.brokerhub.brokerageapp.dto.analytics.CityAnalyticsDTO;
+import com.brokerhub.brokerageapp.dto.analytics.FinancialYearAnalyticsDTO;
+import com.brokerhub.brokerageapp.dto.analytics.MerchantTypeAnalyticsDTO;
+import com.brokerhub.brokerageapp.dto.analytics.MonthlyAnalyticsDTO;
+import com.brokerhub.brokerageapp.dto.analytics.ProductAnalyticsDTO;
+import com.brokerhub.brokerageapp.entity.FinancialYear;
+import com.brokerhub.brokerageapp.repository.DashboardRepository;
+import com.brokerhub.brokerageapp.repository.FinancialYearRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DashboardServiceImplTest {
+
+    @Mock
+    private DashboardRepository dashboardRepository;
+
+    @Mock
+    private FinancialYearRepository financialYearRepository;
+
+    @InjectMocks
+    private DashboardServiceImpl dashboardService;
+
+    private final AtomicInteger submittedTasks = new AtomicInteger();
+    private ExecutorMetrics executorMetrics;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        executorMetrics = new ExecutorMetrics();
+        Executor countingExecutor = task -> {
+            submittedTasks.incrementAndGet();
+            task.run();
+        };
+        ReflectionTestUtils.setField(dashboardService, "analyticsTaskExecutor", countingExecutor);
+        ReflectionTestUtils.setField(dashboardService, "jdbcConcurrencyLimiter", new JdbcConcurrencyLimiter(2, 1000, executorMetrics));
+    }
+
+    @Test
+    void testGetFinancialYearAnalytics_FansOutEachQueryOnceOnTheAnalyticsExecutor() {
+        stubFinancialYear();
+        when(dashboardRepository.getRollupCube(1L, 3L)).thenReturn(rows(
+                cell(4, "Guntur", 1L, "Paddy", "MILLER", "TRADER", 10L, "10", "1000", 1L, 100L, 1L),
+                cell(5, "Guntur", 1L, "Paddy", "MILLER", "TRADER", 20L, "20", "2000", 1L, 100L, 1L)));
+        when(dashboardRepository.getMerchantCountsByMonth(1L, 3L)).thenReturn(rows(
+                new Object[]{2024, 4, "Guntur", "TRADER", 0L, 1L},
+                new Object[]{2024, 4, "Tenali", "MILLER", 1L, 0L}));
+        when(dashboardRepository.getCitySellerCountsByMonth(1L, 3L)).thenReturn(rows(
+                new Object[]{2024, 4, "Guntur", 1L}));
+
+        FinancialYearAnalyticsDTO analytics = dashboardService.getFinancialYearAnalytics(1L, 3L);
+
+        assertEquals(2, analytics.getMonthlyAnalytics().size());
+        assertEquals(1, analytics.getMonthlyAnalytics().get(0).getProductAnalytics().size());
+        assertEquals(1, analytics.getOverallProductTotals().size());
+        assertEquals(30L, analytics.getOverallProductTotals().get(0).getTotalQuantity());
+        assertEquals(0, new BigDecimal("30").compareTo(analytics.getTotalBrokerage()));
+        assertEquals(2, analytics.getTotalTransactions());
+        List<MerchantTypeAnalyticsDTO> aprilTypes = analytics.getMonthlyAnalytics().get(0).getMerchantTypeAnalytics();
+        assertEquals(List.of("MILLER", "TRADER"), aprilTypes.stream().map(MerchantTypeAnalyticsDTO::getMerchantType).toList());
+        assertEquals(10L, aprilTypes.get(0).getTotalQuantitySold());
+        assertEquals(10L, aprilTypes.get(1).getTotalQuantityBought());
+        assertEquals(1, aprilTypes.get(1).getTotalMerchants());
+        CityAnalyticsDTO guntur = analytics.getMonthlyAnalytics().get(0).getCityAnalytics().get(0);
+        assertEquals(1, guntur.getTotalBuyers());
+        // The Tenali seller sold to the Guntur buyer
+        assertEquals(1, guntur.getTotalSellers());
+        verify(dashboardRepository, times(1)).getRollupCube(1L, 3L);
+        verify(dashboardRepository, times(1)).getMerchantCountsByMonth(1L, 3L);
+        verify(dashboardRepository, times(1)).getCitySellerCountsByMonth(1L, 3L);
+        assertEquals(3, submittedTasks.get());
+        assertEquals(3, executorMetrics.snapshot().get("jdbc").getCompleted());
+    }
+
+    @Test
+    void testGetFinancialYearAnalytics_QueryCountDoesNotGrowWithCitiesAndMonths() {
+        stubFinancialYear();
+        List<Object[]> cubeRows = new ArrayList<>();
+        for (int month = 1; month <= 12; month++) {
+            for (int city = 0; city < 40; city++) {
+                cubeRows.add(cell(month, "City" + city, 1L, "Paddy", "MILLER", "TRADER", 1L, "1", "100", 1L, 100L, 1L));
+                cubeRows.add(cell(month, "City" + city, 2L, "Maize", "MILLER", "TRADER", 1L, "1", "100", 1L, 60L, 2L));
+            }
+        }
+        // A buyer without an address counts for the month and the product but belongs to no city
+        cubeRows.add(cell(1, null, 1L, "Paddy", "MILLER", "TRADER", 5L, "5", "500", 1L, 100L, 1L));
+        when(dashboardRepository.getRollupCube(1L, 3L)).thenReturn(cubeRows);
+        when(dashboardRepository.getMerchantCountsByMonth(1L, 3L)).thenReturn(new ArrayList<>());
+
+        FinancialYearAnalyticsDTO analytics = dashboardService.getFinancialYearAnalytics(1L, 3L);
+
+        assertEquals(3, mockingDetails(dashboardRepository).getInvocations().size());
+        assertEquals(12, analytics.getMonthlyAnalytics().size());
+        MonthlyAnalyticsDTO january = analytics.getMonthlyAnalytics().get(0);
+        assertEquals(85L, january.getTotalQuantity());
+        assertEquals(40, january.getCityAnalytics().size());
+        CityAnalyticsDTO city = january.getCityAnalytics().get(0);
+        assertEquals(List.of("Maize", "Paddy"), city.getProductBreakdown().stream().map(ProductAnalyticsDTO::getProductName).toList());
+        ProductAnalyticsDTO paddy = january.getProductAnalytics().get(1);
+        assertEquals(45L, paddy.getTotalQuantity());
+        assertEquals(41, paddy.getTotalTransactions());
+        assertEquals(0, new BigDecimal("100.00").compareTo(paddy.getAveragePrice()));
+        ProductAnalyticsDTO maizeForYear = analytics.getOverallProductTotals().get(0);
+        assertEquals(480L, maizeForYear.getTotalQuantity());
+        assertEquals(0, new BigDecimal("2.00").compareTo(maizeForYear.getAverageBrokeragePerUnit()));
+        assertEquals(40, analytics.getOverallCityTotals().size());
+        assertEquals(24L, analytics.getOverallCityTotals().get(0).getTotalQuantity());
+    }
+
+    @Test
+    void testGetTop5SellersAndMerchants_CountSalesByLedgerEntry() {
+        when(dashboardRepository.getTopSellersByQuantity(eq(1L), eq(3L), any())).thenReturn(rows(
+                new Object[]{10L, "Ravi", "Ravi Mills", "Tenali", "MILLER", 30L, new BigDecimal("3000"), new BigDecimal("60"), 3L, ""}));
+        when(dashboardRepository.getTopMerchantsByBrokerage(eq(1L), eq(3L), any())).thenReturn(rows(
+                new Object[]{10L, "Ravi", "Ravi Mills", "Tenali", "MILLER", new BigDecimal("80"), 40L, 10L, 30L,
+                        new BigDecimal("4000"), 2L, ""}));
+        // Three records sold in one ledger entry
+        when(dashboardRepository.getSaleEntryCounts(eq(1L), eq(3L), eq(List.of(10L)))).thenReturn(rows(
+                new Object[]{10L, 1L}));
+
+        assertEquals(1, dashboardService.getTop5SellersByQuantity(1L, 3L).get(0).getTotalTransactions());
+        assertEquals(0, new BigDecimal("3000.00").compareTo(
+                dashboardService.getTop5SellersByQuantity(1L, 3L).get(0).getAverageTransactionSize()));
+        // Two purchase records and one sale entry
+        assertEquals(3, dashboardService.getTop5MerchantsByBrokerage(1L, 3L).get(0).getTotalTransactions());
+    }
+
+    @Test
+    void testJdbcConcurrencyLimiter_QueuesBeyondPermitsAndTimesOut() throws Exception {
+        JdbcConcurrencyLimiter limiter = new JdbcConcurrencyLimiter(1, 200, executorMetrics);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> holder = pool.submit(() -> limiter.call(() -> {
+                running.countDown();
+                await(release);
+                return "done";
+            }));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+
+            assertThrows(IllegalStateException.class, () -> limiter.call(() -> "too late"));
+
+            release.countDown();
+            assertEquals("done", holder.get(5, TimeUnit.SECONDS));
+            assertEquals("now", limiter.call(() -> "now"));
+            assertEquals(1, executorMetrics.snapshot().get("jdbc").getFailed());
+            assertTrue(executorMetrics.snapshot().get("jdbc").getMaxWaitMillis() >= 200);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRefreshAnalyticsCache_EvictsOnlyTheBrokersEntries() {
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(
+                DashboardServiceImpl.ANALYTICS_CACHES.toArray(String[]::new));
+        ReflectionTestUtils.setField(dashboardService, "cacheManager", cacheManager);
+        Cache analytics = cacheManager.getCache("financialYearAnalytics");
+        Cache topBuyers = cacheManager.getCache("topBuyers");
+        analytics.put("1_3", "year 3");
+        analytics.put("1_4", "year 4");
+        analytics.put("11_3", "other broker");
+        topBuyers.put("1_3", "year 3");
+
+        dashboardService.refreshAnalyticsCache(1L, 3L);
+
+        assertNull(analytics.get("1_3"));
+        assertNull(topBuyers.get("1_3"));
+        assertNotNull(analytics.get("1_4"));
+
+        dashboardService.refreshAllAnalyticsCache(1L);
+
+        assertNull(analytics.get("1_4"));
+        assertNotNull(analytics.get("11_3"));
+    }
+
+    private void stubFinancialYear() {
+        FinancialYear financialYear = new FinancialYear();
+        financialYear.setYearId(3L);
+        financialYear.setFinancialYearName("2024-25");
+        financialYear.setStart(LocalDate.of(2024, 4, 1));
+        financialYear.setEnd(LocalDate.of(2025, 3, 31));
+        when(financialYearRepository.findById(3L)).thenReturn(Optional.of(financialYear));
+    }
+
+    private static Object[] cell(int month, String buyerCity, Long productId, String productName, String sellerType,
+                                 String buyerType, long quantity, String brokerage, String value, long transactions,
+                                 long productCostSum, long brokeragePerUnitSum) {
+        return new Object[]{2024, month, buyerCity, productId, productName, sellerType, buyerType, quantity,
+                new BigDecimal(brokerage), new BigDecimal(value), transactions, productCostSum, brokeragePerUnitSum};
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
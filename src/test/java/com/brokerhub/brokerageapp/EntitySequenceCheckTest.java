@@ -0,0 +1,65 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.config.EntitySequenceCheck;
+import com.brokerhub.brokerageapp.config.EntitySequenceCheck.EntitySequence;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EntitySequenceCheckTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private EntitySequenceCheck entitySequenceCheck;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testVerify_FailsForSequencesBehindTheirTables() {
+        when(jdbcTemplate.queryForObject("SELECT MAX(ledger_details_id) FROM ledger_details", Long.class)).thenReturn(700L);
+        when(jdbcTemplate.queryForObject("SELECT last_value FROM ledger_details_seq", Long.class)).thenReturn(1L);
+        when(jdbcTemplate.queryForObject("SELECT MAX(product_id) FROM product", Long.class)).thenReturn(700L);
+        when(jdbcTemplate.queryForObject("SELECT next_val FROM product_seq", Long.class)).thenReturn(720L);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> entitySequenceCheck.verify(List.of(
+                new EntitySequence("ledger_details_seq", true, 50, "ledger_details", "ledger_details_id"),
+                new EntitySequence("product_seq", false, 50, "product", "product_id"))));
+
+        assertTrue(e.getMessage().contains("ledger_details_seq at 1 below ledger_details.ledger_details_id 700"));
+        // next_val 720 still hands out 671-720
+        assertTrue(e.getMessage().contains("product_seq at 720"));
+    }
+
+    @Test
+    void testVerify_PassesForMigratedEmptyAndUnreadableSequences() {
+        when(jdbcTemplate.queryForObject("SELECT MAX(ledger_details_id) FROM ledger_details", Long.class)).thenReturn(700L);
+        when(jdbcTemplate.queryForObject("SELECT last_value FROM ledger_details_seq", Long.class)).thenReturn(750L);
+        when(jdbcTemplate.queryForObject("SELECT MAX(product_id) FROM product", Long.class)).thenReturn(700L);
+        when(jdbcTemplate.queryForObject("SELECT next_val FROM product_seq", Long.class)).thenReturn(750L);
+        when(jdbcTemplate.queryForObject("SELECT MAX(address_id) FROM address", Long.class)).thenReturn(null);
+        when(jdbcTemplate.queryForObject(eq("SELECT MAX(id) FROM part_payment"), eq(Long.class)))
+                .thenThrow(new BadSqlGrammarException("verify", "SELECT", new SQLException("no table")));
+
+        assertDoesNotThrow(() -> entitySequenceCheck.verify(List.of(
+                new EntitySequence("ledger_details_seq", true, 50, "ledger_details", "ledger_details_id"),
+                new EntitySequence("product_seq", false, 50, "product", "product_id"),
+                new EntitySequence("address_seq", true, 50, "address", "address_id"),
+                new EntitySequence("part_payment_seq", true, 50, "part_payment", "id"))));
+    }
+}
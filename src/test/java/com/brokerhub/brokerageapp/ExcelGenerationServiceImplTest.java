@@ -0,0 +1,98 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.UserBrokerageDetailDTO;
+import com.brokerhub.brokerageapp.entity.Broker;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExcelGenerationServiceImplTest {
+
+    private ExcelGenerationServiceImpl excelGenerationService;
+    private Broker broker;
+
+    @BeforeEach
+    void setUp() {
+        excelGenerationService = new ExcelGenerationServiceImpl();
+        ReflectionTestUtils.setField(excelGenerationService, "rowWindow", 50);
+        broker = Broker.builder().brokerId(1L).brokerageFirmName("Siri Brokers").brokerName("Ravi").build();
+    }
+
+    @Test
+    void testWriteUserBrokerageExcel_StreamsRowsBeyondWindowWithSharedStyles() throws IOException {
+        List<UserBrokerageDetailDTO.TransactionDetail> transactions = IntStream.rangeClosed(1, 2000)
+                .mapToObj(i -> UserBrokerageDetailDTO.TransactionDetail.builder()
+                        .transactionNumber((long) i)
+                        .transactionDate(LocalDate.of(2024, 6, 1))
+                        .counterPartyFirmName("Buyer " + i)
+                        .productName("Rice")
+                        .productCost(1200L)
+                        .quantity(2L)
+                        .brokerage(BigDecimal.TEN)
+                        .build())
+                .collect(Collectors.toList());
+        UserBrokerageDetailDTO userDetail = userDetail("Sri Traders", transactions);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        excelGenerationService.writeUserBrokerageExcel(userDetail, broker, 2024L, BigDecimal.ONE, outputStream);
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            Sheet sheet = workbook.getSheet("Brokerage Bill");
+            // Title, broker, merchant and header rows precede the first transaction at row 18
+            assertEquals("Buyer 1", sheet.getRow(18).getCell(2).getStringCellValue());
+            assertEquals("Buyer 2000", sheet.getRow(2017).getCell(2).getStringCellValue());
+            assertEquals(4000d, sheet.getRow(2018).getCell(4).getNumericCellValue());
+            assertEquals(4000d, sheet.getRow(2018).getCell(6).getNumericCellValue());
+            // default style plus one per kind, however many rows were written
+            assertTrue(workbook.getNumCellStyles() <= 7);
+        }
+    }
+
+    @Test
+    void testWriteCityBrokerageExcel_ConsumesUsersLazilyInOrder() throws IOException {
+        AtomicInteger consumed = new AtomicInteger();
+        List<UserBrokerageDetailDTO> users = new ArrayList<>();
+        for (int i = 1; i <= 300; i++) {
+            users.add(userDetail("Firm " + i, List.of()));
+        }
+        Iterable<UserBrokerageDetailDTO> cityUsers = () -> users.stream().peek(user -> consumed.incrementAndGet()).iterator();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        excelGenerationService.writeCityBrokerageExcel("Guntur", cityUsers, broker, 2024L, outputStream);
+
+        assertEquals(300, consumed.get());
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            assertEquals("Firm 1", sheet.getRow(4).getCell(0).getStringCellValue());
+            assertEquals("Firm 300", sheet.getRow(303).getCell(0).getStringCellValue());
+            assertEquals("₹25", sheet.getRow(303).getCell(4).getStringCellValue());
+        }
+    }
+
+    private UserBrokerageDetailDTO userDetail(String firmName, List<UserBrokerageDetailDTO.TransactionDetail> transactions) {
+        return UserBrokerageDetailDTO.builder()
+                .userBasicInfo(UserBrokerageDetailDTO.UserBasicInfo.builder().firmName(firmName).ownerName("Owner").city("Guntur").build())
+                .brokerageSummary(UserBrokerageDetailDTO.BrokerageSummary.builder()
+                        .totalBagsSold(0L)
+                        .totalBagsBought(4000L)
+                        .totalBrokeragePayable(BigDecimal.valueOf(25))
+                        .build())
+                .transactionDetails(transactions)
+                .build();
+    }
+}
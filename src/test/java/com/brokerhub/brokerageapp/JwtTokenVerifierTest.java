@@ -0,0 +1,112 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.entity.RevokedToken;
+import com.brokerhub.brokerageapp.repository.RevokedTokenRepository;
+import com.brokerhub.brokerageapp.security.BrokerContext;
+import com.brokerhub.brokerageapp.security.JwtTokenVerifier;
+import com.brokerhub.brokerageapp.security.JwtUtil;
+import com.brokerhub.brokerageapp.security.TokenRevocationList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtTokenVerifierTest {
+
+    private JwtUtil jwtUtil;
+    private BrokerContextCache brokerContextCache;
+    private RevokedTokenRepository revokedTokenRepository;
+    private TokenRevocationList tokenRevocationList;
+    private JwtTokenVerifier jwtTokenVerifier;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = spy(new JwtUtil());
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecret", "testSecretKey12345678901234567890123456789012345678901234567890");
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpiration", 3_600_000L);
+        ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+        brokerContextCache = mock(BrokerContextCache.class);
+        revokedTokenRepository = mock(RevokedTokenRepository.class);
+        tokenRevocationList = new TokenRevocationList(jwtUtil, revokedTokenRepository);
+
+        jwtTokenVerifier = new JwtTokenVerifier(100);
+        ReflectionTestUtils.setField(jwtTokenVerifier, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(jwtTokenVerifier, "tokenRevocationList", tokenRevocationList);
+        ReflectionTestUtils.setField(jwtTokenVerifier, "brokerContextCache", brokerContextCache);
+    }
+
+    @Test
+    void testVerify_BuildsBrokerFromClaimsAndChecksSignatureOnce() {
+        String token = jwtUtil.generateToken(broker(), List.of("ROLE_BROKER"));
+
+        JwtTokenVerifier.VerifiedToken first = jwtTokenVerifier.verify(token);
+        JwtTokenVerifier.VerifiedToken second = jwtTokenVerifier.verify(token);
+
+        assertNotNull(first);
+        assertSame(first, second);
+        assertEquals(7L, first.getContext().getBrokerId());
+        assertEquals("Ravi Traders", first.getContext().getBrokerageFirmName());
+        assertEquals("ROLE_BROKER", first.getAuthorities().get(0).getAuthority());
+        verify(jwtUtil, times(1)).parseClaims(token);
+        verifyNoInteractions(brokerContextCache);
+    }
+
+    @Test
+    void testVerify_RejectsTamperedToken() {
+        String token = jwtUtil.generateToken(broker(), List.of());
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertNull(jwtTokenVerifier.verify(tampered));
+        assertNull(jwtTokenVerifier.verify("not-a-jwt"));
+    }
+
+    @Test
+    void testVerify_RejectsRevokedTokens() {
+        String loggedOut = jwtUtil.generateToken(broker(), List.of());
+        assertNotNull(jwtTokenVerifier.verify(loggedOut));
+
+        jwtTokenVerifier.revoke(loggedOut);
+        assertNull(jwtTokenVerifier.verify(loggedOut));
+
+        String other = jwtUtil.generateToken(broker(), List.of());
+        assertNotNull(jwtTokenVerifier.verify(other));
+        tokenRevocationList.revokeAllFor("ravi");
+        assertNull(jwtTokenVerifier.verify(other));
+        verify(revokedTokenRepository, times(2)).save(any(RevokedToken.class));
+    }
+
+    @Test
+    void testVerify_RejectsTokensRevokedOnAnotherNodeAfterSync() {
+        String token = jwtUtil.generateToken(broker(), List.of());
+        JwtTokenVerifier.VerifiedToken verified = jwtTokenVerifier.verify(token);
+        String other = jwtUtil.generateToken(BrokerContext.builder()
+                .brokerId(8L).userName("sita").brokerName("Sita").brokerageFirmName("Sita Agencies").build(), List.of());
+        assertNotNull(jwtTokenVerifier.verify(other));
+        Instant now = Instant.now();
+        when(revokedTokenRepository.findByRevokedAtGreaterThanEqualAndExpiresAtAfter(any(), any())).thenReturn(List.of(
+                RevokedToken.builder().tokenId(verified.getTokenId()).revokedAt(now)
+                        .expiresAt(verified.getExpiresAt().toInstant()).build(),
+                RevokedToken.builder().userName("sita").revokedAt(now.plusSeconds(1))
+                        .expiresAt(now.plusSeconds(3600)).build()));
+
+        assertEquals(2, tokenRevocationList.sync());
+
+        assertNull(jwtTokenVerifier.verify(token));
+        assertNull(jwtTokenVerifier.verify(other));
+        assertNotNull(jwtTokenVerifier.verify(jwtUtil.generateToken(broker(), List.of())));
+    }
+
+    private BrokerContext broker() {
+        return BrokerContext.builder()
+                .brokerId(7L)
+                .userName("ravi")
+                .brokerName("Ravi")
+                .brokerageFirmName("Ravi Traders")
+                .build();
+    }
+}
@@ -1,24 +1,36 @@
 package com.brokerhub.brokerageapp.service;
 
+import com.brokerhub.brokerageapp.dto.DayLedgerRecordView;
+import com.brokerhub.brokerageapp.dto.DisplayLedgerDetailDTO;
 import com.brokerhub.brokerageapp.dto.LedgerDetailsDTO;
+import com.brokerhub.brokerageapp.dto.LedgerRecordDTO;
+import com.brokerhub.brokerageapp.entity.Broker;
 import com.brokerhub.brokerageapp.entity.LedgerDetails;
+import com.brokerhub.brokerageapp.entity.LedgerRecord;
+import com.brokerhub.brokerageapp.entity.Product;
+import com.brokerhub.brokerageapp.entity.User;
 import com.brokerhub.brokerageapp.repository.BrokerRepository;
 import com.brokerhub.brokerageapp.repository.LedgerDetailsRepository;
 import com.brokerhub.brokerageapp.repository.LedgerRecordRepository;
+import com.brokerhub.brokerageapp.repository.ProductRepository;
 import com.brokerhub.brokerageapp.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 class LedgerDetailsServiceImplTest {
@@ -38,6 +50,24 @@ class LedgerDetailsServiceImplTest {
     @Mock
     private BrokerRepository brokerRepository;
 
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private TenantContextService tenantContextService;
+
+    @Mock
+    private BrokerageCacheService brokerageCacheService;
+
+    @Mock
+    private AnalyticsCacheWarmer analyticsCacheWarmer;
+
+    @Mock
+    private MerchantBrokerageAggregateService merchantBrokerageAggregateService;
+
+    @Mock
+    private DashboardRollupService dashboardRollupService;
+
     @InjectMocks
     private LedgerDetailsServiceImpl ledgerDetailsServiceImpl;
 
@@ -90,4 +120,111 @@ class LedgerDetailsServiceImplTest {
 
         assertNull(result);
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCreateLedgerDetails_ResolvesProductsAndBuyersInOneQueryEach() {
+        Broker broker = Broker.builder().brokerId(1L).totalBrokerage(BigDecimal.ZERO).build();
+        User seller = user(10L, "Ravi Mills");
+        User firstBuyer = user(20L, "Sri Traders");
+        User secondBuyer = user(30L, "Lakshmi & Co");
+        when(tenantContextService.getCurrentBroker()).thenReturn(broker);
+        when(userRepository.findById(10L)).thenReturn(java.util.Optional.of(seller));
+        when(productRepository.findAllById(any())).thenReturn(List.of(Product.builder().productId(100L).build()));
+        when(userRepository.findByBrokerIdAndFirmNamesIgnoreCase(eq(1L), anyCollection())).thenReturn(List.of(firstBuyer, secondBuyer));
+
+        LedgerDetailsDTO ledgerDetailsDTO = LedgerDetailsDTO.builder()
+                .financialYearId(5L)
+                .fromSeller(10L)
+                .sellerBrokerage("1")
+                .date(LocalDate.of(2024, 6, 18))
+                .ledgerRecordDTOList(List.of(
+                        record("Sri Traders", 10L),
+                        record("lakshmi & co", 5L),
+                        record("Sri Traders", 3L)))
+                .build();
+
+        ResponseEntity<Long> response = ledgerDetailsServiceImpl.createLedgerDetails(ledgerDetailsDTO);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        verify(productRepository, times(1)).findAllById(any());
+        verify(userRepository, times(1)).findByBrokerIdAndFirmNamesIgnoreCase(eq(1L), anyCollection());
+        verify(userRepository, never()).findByFirmName(anyString());
+        verify(ledgerRecordRepository, never()).save(any());
+        ArgumentCaptor<List<LedgerRecord>> records = ArgumentCaptor.forClass(List.class);
+        verify(ledgerRecordRepository, times(1)).saveAll(records.capture());
+        assertEquals(3, records.getValue().size());
+        ArgumentCaptor<Collection<User>> users = ArgumentCaptor.forClass(Collection.class);
+        verify(userRepository, times(1)).saveAll(users.capture());
+        assertEquals(3, users.getValue().size());
+
+        assertEquals(13L, firstBuyer.getTotalBagsBought());
+        assertEquals(5L, secondBuyer.getTotalBagsBought());
+        assertEquals(18L, seller.getTotalBagsSold());
+        assertEquals(18000L, seller.getReceivableAmount());
+        assertEquals(0, BigDecimal.valueOf(26).compareTo(firstBuyer.getTotalPayableBrokerage()));
+        assertEquals(0, BigDecimal.valueOf(18).compareTo(seller.getTotalPayableBrokerage()));
+        // 2 per bag from buyers (36) plus 1 per bag from the seller (18)
+        assertEquals(0, BigDecimal.valueOf(54).compareTo(broker.getTotalBrokerage()));
+    }
+
+    @Test
+    void testGetAllLedgerDetailsOnDate_BuildsDayViewFromSingleQuery() {
+        LocalDate date = LocalDate.of(2024, 6, 18);
+        when(tenantContextService.getCurrentBrokerId()).thenReturn(1L);
+        List<DayLedgerRecordView> rows = List.of(
+                dayRow(7L, 3L, "Ravi Mills", "Sri Traders", 10L),
+                dayRow(7L, 3L, "Ravi Mills", "Lakshmi & Co", 5L),
+                dayRow(8L, 4L, "Ravi Mills", "Sri Traders", 2L));
+        when(ledgerDetailsRepository.findDayLedgerViewByBrokerIdAndDate(1L, date)).thenReturn(rows);
+
+        List<DisplayLedgerDetailDTO> result = ledgerDetailsServiceImpl.getAllLedgerDetailsOnDate(date, null, 5L);
+
+        assertEquals(2, result.size());
+        assertEquals(3L, result.get(0).getTransactionNumber());
+        assertEquals("Ravi Mills", result.get(0).getSellerName());
+        assertEquals("Guntur", result.get(0).getSellerLocation());
+        assertEquals(2, result.get(0).getDisplayLedgerRecordDTOList().size());
+        assertEquals("Lakshmi & Co", result.get(0).getDisplayLedgerRecordDTOList().get(1).getBuyerName());
+        assertEquals(5000L, result.get(0).getDisplayLedgerRecordDTOList().get(1).getTotal());
+        assertEquals(1, result.get(1).getDisplayLedgerRecordDTOList().size());
+        verifyNoInteractions(userRepository, productRepository);
+    }
+
+    private DayLedgerRecordView dayRow(Long ledgerDetailsId, Long transactionNumber, String sellerName, String buyerName, Long quantity) {
+        DayLedgerRecordView row = mock(DayLedgerRecordView.class);
+        when(row.getLedgerDetailsId()).thenReturn(ledgerDetailsId);
+        when(row.getTransactionNumber()).thenReturn(transactionNumber);
+        when(row.getSellerName()).thenReturn(sellerName);
+        when(row.getSellerCity()).thenReturn("Guntur");
+        when(row.getBuyerName()).thenReturn(buyerName);
+        when(row.getBuyerCity()).thenReturn("Tenali");
+        when(row.getProductName()).thenReturn("Chilli");
+        when(row.getQuantity()).thenReturn(quantity);
+        when(row.getBrokerage()).thenReturn(2L);
+        when(row.getProductCost()).thenReturn(1000L);
+        return row;
+    }
+
+    private User user(Long userId, String firmName) {
+        return User.builder()
+                .userId(userId)
+                .firmName(firmName)
+                .totalBagsBought(0L)
+                .totalBagsSold(0L)
+                .payableAmount(0L)
+                .receivableAmount(0L)
+                .totalPayableBrokerage(BigDecimal.ZERO)
+                .build();
+    }
+
+    private LedgerRecordDTO record(String buyerName, Long quantity) {
+        return LedgerRecordDTO.builder()
+                .buyerName(buyerName)
+                .productId(100L)
+                .quantity(quantity)
+                .brokerage(2L)
+                .productCost(1000L)
+                .build();
+    }
 }
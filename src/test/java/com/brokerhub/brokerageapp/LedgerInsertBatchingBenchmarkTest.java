@@ -0,0 +1,123 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.entity.Broker;
+import com.brokerhub.brokerageapp.entity.DailyLedger;
+import com.brokerhub.brokerageapp.entity.LedgerDetails;
+import com.brokerhub.brokerageapp.entity.LedgerRecord;
+import com.brokerhub.brokerageapp.entity.Product;
+import com.brokerhub.brokerageapp.entity.User;
+import com.brokerhub.brokerageapp.repository.BrokerRepository;
+import com.brokerhub.brokerageapp.repository.DailyLedgerRepository;
+import com.brokerhub.brokerageapp.repository.LedgerDetailsRepository;
+import com.brokerhub.brokerageapp.repository.LedgerRecordRepository;
+import com.brokerhub.brokerageapp.repository.ProductRepository;
+import com.brokerhub.brokerageapp.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Counts the JDBC statements needed to insert 1,000 ledger records (100 entries of 10 records) against the
+ * configured database. Runs only with -Dbenchmark.insert-batching=true and rolls everything back.
+ * With IDENTITY keys every row is one INSERT; with pooled sequences the rows go out in batches of
+ * hibernate.jdbc.batch_size plus one sequence call per 50 IDs.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@EnabledIfSystemProperty(named = "benchmark.insert-batching", matches = "true")
+@Transactional
+@Slf4j
+class LedgerInsertBatchingBenchmarkTest {
+
+    private static final int RECORDS = 1000;
+    private static final int RECORDS_PER_ENTRY = 10;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private BrokerRepository brokerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private DailyLedgerRepository dailyLedgerRepository;
+
+    @Autowired
+    private LedgerDetailsRepository ledgerDetailsRepository;
+
+    @Autowired
+    private LedgerRecordRepository ledgerRecordRepository;
+
+    @Test
+    void testInsertThousandLedgerRecords_UsesBatchedStatements() {
+        Broker broker = brokerRepository.findAll(PageRequest.of(0, 1)).stream().findFirst().orElse(null);
+        assumeTrue(broker != null, "Benchmark needs a broker with merchants and a product");
+        List<User> merchants = userRepository.findByBrokerBrokerId(broker.getBrokerId(), PageRequest.of(0, 2)).getContent();
+        List<Product> products = productRepository.findByBrokerBrokerId(broker.getBrokerId());
+        assumeTrue(merchants.size() == 2 && !products.isEmpty(), "Benchmark needs a broker with merchants and a product");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long start = System.nanoTime();
+
+        DailyLedger dailyLedger = dailyLedgerRepository.save(DailyLedger.builder()
+                .broker(broker)
+                .date(LocalDate.of(2099, 12, 31))
+                .build());
+        List<LedgerDetails> entries = new ArrayList<>();
+        List<LedgerRecord> records = new ArrayList<>();
+        for (int i = 0; i < RECORDS / RECORDS_PER_ENTRY; i++) {
+            LedgerDetails entry = LedgerDetails.builder()
+                    .broker(broker)
+                    .brokerTransactionNumber(Long.MAX_VALUE - i)
+                    .financialYearId(0L)
+                    .fromSeller(merchants.get(0))
+                    .dailyLedger(dailyLedger)
+                    .build();
+            entries.add(entry);
+            for (int j = 0; j < RECORDS_PER_ENTRY; j++) {
+                records.add(LedgerRecord.builder()
+                        .broker(broker)
+                        .ledgerDetails(entry)
+                        .toBuyer(merchants.get(1))
+                        .product(products.get(0))
+                        .quantity(10L)
+                        .brokerage(1L)
+                        .productCost(1000L)
+                        .totalProductsCost(10000L)
+                        .totalBrokerage(10L)
+                        .build());
+            }
+        }
+        ledgerDetailsRepository.saveAll(entries);
+        ledgerRecordRepository.saveAll(records);
+        ledgerRecordRepository.flush();
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Inserted {} ledger records and {} entries: {} statements prepared, {} entity inserts, {} ms",
+                RECORDS, entries.size(), statistics.getPrepareStatementCount(), statistics.getEntityInsertCount(), elapsedMillis);
+
+        assertEquals(RECORDS + entries.size() + 1, statistics.getEntityInsertCount());
+        // IDENTITY keys would need at least one statement per row
+        assertTrue(statistics.getPrepareStatementCount() < RECORDS / 5,
+                "Expected batched inserts but " + statistics.getPrepareStatementCount() + " statements were prepared");
+    }
+}
@@ -0,0 +1,140 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.BrokerageAggregateVerificationDTO;
+import com.brokerhub.brokerageapp.entity.Broker;
+import com.brokerhub.brokerageapp.entity.DailyLedger;
+import com.brokerhub.brokerageapp.entity.LedgerDetails;
+import com.brokerhub.brokerageapp.entity.LedgerRecord;
+import com.brokerhub.brokerageapp.entity.MerchantBrokerageAggregate;
+import com.brokerhub.brokerageapp.entity.Product;
+import com.brokerhub.brokerageapp.entity.User;
+import com.brokerhub.brokerageapp.repository.BrokerageRepository;
+import com.brokerhub.brokerageapp.repository.MerchantBrokerageAggregateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MerchantBrokerageAggregateServiceTest {
+
+    @Mock
+    private MerchantBrokerageAggregateRepository aggregateRepository;
+
+    @Mock
+    private BrokerageRepository brokerageRepository;
+
+    @Mock
+    private CounterDeltaWriter deltaWriter;
+
+    @InjectMocks
+    private MerchantBrokerageAggregateService aggregateService;
+
+    private LedgerDetails ledgerDetails;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ledgerDetails = new LedgerDetails();
+        ledgerDetails.setBroker(Broker.builder().brokerId(1L).build());
+        ledgerDetails.setFinancialYearId(5L);
+        ledgerDetails.setFromSeller(User.builder().userId(10L).build());
+        ledgerDetails.setDailyLedger(DailyLedger.builder().date(LocalDate.of(2024, 6, 18)).build());
+    }
+
+    @Test
+    void testAddRecords_IncrementsExistingCellsAndUpsertsMissingOnes() {
+        LocalDate month = LocalDate.of(2024, 6, 1);
+        // The seller's cell exists, the buyer's does not
+        when(aggregateRepository.addToCell(eq(1L), eq(5L), eq(10L), eq(100L), eq(month),
+                anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong())).thenReturn(1);
+
+        aggregateService.addRecords(ledgerDetails, List.of(record(20L, 100L, 10L, 2L), record(20L, 100L, 5L, 2L)));
+
+        verify(aggregateRepository).addToCell(1L, 5L, 10L, 100L, month, 0L, 0L, 0L, 0L, 2L, 15L, 15000L, 30L);
+        verify(aggregateRepository).addToCell(1L, 5L, 20L, 100L, month, 2L, 15L, 15000L, 30L, 0L, 0L, 0L, 0L);
+        ArgumentCaptor<MerchantBrokerageAggregate> upserted = ArgumentCaptor.forClass(MerchantBrokerageAggregate.class);
+        verify(deltaWriter).upsert(upserted.capture(), anyList(), anyList());
+        MerchantBrokerageAggregate buyer = upserted.getValue();
+        assertEquals(20L, buyer.getUserId());
+        assertEquals(month, buyer.getMonthStart());
+        assertEquals(100L, buyer.getProductId());
+        assertEquals(2L, buyer.getPurchaseRecords());
+        assertEquals(15L, buyer.getBagsBought());
+        assertEquals(30L, buyer.getPurchaseBrokerage());
+        assertEquals(0L, buyer.getSaleRecords());
+        assertNull(buyer.getAggregateId());
+        verify(aggregateRepository, never()).deleteEmptyCells(any(), any(), anyCollection());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRemoveRecords_SubtractsAndDeletesCellsThatDropToZero() {
+        LocalDate month = LocalDate.of(2024, 6, 1);
+        when(aggregateRepository.addToCell(eq(1L), eq(5L), eq(20L), eq(100L), eq(month),
+                anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong())).thenReturn(1);
+
+        aggregateService.removeRecords(ledgerDetails, List.of(record(20L, 100L, 10L, 2L)));
+
+        verify(aggregateRepository).addToCell(1L, 5L, 20L, 100L, month, -1L, -10L, -10000L, -20L, 0L, 0L, 0L, 0L);
+        // The seller's cell is missing: nothing is inserted for a reversal
+        verifyNoInteractions(deltaWriter);
+        ArgumentCaptor<Collection<Long>> emptied = ArgumentCaptor.forClass(Collection.class);
+        verify(aggregateRepository).deleteEmptyCells(eq(1L), eq(5L), emptied.capture());
+        assertEquals(Set.of(20L), Set.copyOf(emptied.getValue()));
+    }
+
+    @Test
+    void testVerify_RebuildsWhenAggregateDriftsFromLedger() {
+        List<Object[]> purchases = new ArrayList<>();
+        purchases.add(new Object[]{20L, 100L, 2024, 6, 1L, 10L, 10000L, 20L});
+        List<Object[]> sales = new ArrayList<>();
+        sales.add(new Object[]{10L, 100L, 2024, 6, 1L, 10L, 10000L, 20L});
+        when(brokerageRepository.getPurchaseAggregates(1L, 5L)).thenReturn(purchases);
+        when(brokerageRepository.getSaleAggregates(1L, 5L)).thenReturn(sales);
+        MerchantBrokerageAggregate stale = cell(20L).purchaseRecords(1L).bagsBought(10L).purchaseAmount(10000L).purchaseBrokerage(15L).build();
+        when(aggregateRepository.findByBrokerIdAndFinancialYearId(1L, 5L)).thenReturn(List.of(stale));
+
+        BrokerageAggregateVerificationDTO result = aggregateService.verify(1L, 5L, true);
+
+        assertFalse(result.isConsistent());
+        assertTrue(result.isRebuilt());
+        assertEquals(2, result.getExpectedRows());
+        assertEquals(1, result.getStoredRows());
+        assertEquals(2, result.getMismatchedRows());
+        verify(aggregateRepository).deleteByBrokerIdAndFinancialYearId(1L, 5L);
+        verify(aggregateRepository).saveAll(argThat(rows -> ((java.util.Collection<?>) rows).size() == 2));
+    }
+
+    private MerchantBrokerageAggregate.MerchantBrokerageAggregateBuilder cell(Long userId) {
+        return MerchantBrokerageAggregate.builder()
+                .brokerId(1L)
+                .financialYearId(5L)
+                .userId(userId)
+                .productId(100L)
+                .monthStart(LocalDate.of(2024, 6, 1));
+    }
+
+    private LedgerRecord record(Long buyerId, Long productId, Long quantity, Long brokerage) {
+        return LedgerRecord.builder()
+                .toBuyer(User.builder().userId(buyerId).build())
+                .product(Product.builder().productId(productId).build())
+                .quantity(quantity)
+                .brokerage(brokerage)
+                .productCost(1000L)
+                .totalProductsCost(quantity * 1000L)
+                .totalBrokerage(quantity * brokerage)
+                .build();
+    }
+}
@@ -0,0 +1,152 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.payments.OverdueSweepResultDTO;
+import com.brokerhub.brokerageapp.entity.PaymentStatus;
+import com.brokerhub.brokerageapp.entity.SweepWatermark;
+import com.brokerhub.brokerageapp.repository.BrokeragePaymentRepository;
+import com.brokerhub.brokerageapp.repository.PendingPaymentRepository;
+import com.brokerhub.brokerageapp.repository.ReceivablePaymentRepository;
+import com.brokerhub.brokerageapp.repository.SweepWatermarkRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OverdueSweepServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 6, 10);
+    private static final LocalDate LAST_RUN = LocalDate.of(2026, 6, 8);
+
+    @Mock
+    private BrokeragePaymentRepository brokeragePaymentRepository;
+
+    @Mock
+    private PendingPaymentRepository pendingPaymentRepository;
+
+    @Mock
+    private ReceivablePaymentRepository receivablePaymentRepository;
+
+    @Mock
+    private SweepWatermarkRepository watermarkRepository;
+
+    @Mock
+    private PaymentDashboardService paymentDashboardService;
+
+    @Mock
+    private PaymentTrendService paymentTrendService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private OverdueSweepService overdueSweepService;
+
+    private final SweepWatermark watermark = SweepWatermark.builder()
+            .sweepName(OverdueSweepService.SWEEP_NAME).sweptBefore(LAST_RUN).build();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(overdueSweepService, "batchSize", 2);
+        ReflectionTestUtils.setField(overdueSweepService, "leaseMinutes", 60L);
+        when(watermarkRepository.findById(OverdueSweepService.SWEEP_NAME)).thenReturn(Optional.of(watermark));
+        when(brokeragePaymentRepository.markStatus(anyList(), eq(PaymentStatus.OVERDUE)))
+                .thenAnswer(invocation -> invocation.<List<Long>>getArgument(0).size());
+    }
+
+    @Test
+    void testSweep_MarksOnlyPaymentsDueSinceTheWatermarkInBatches() {
+        when(brokeragePaymentRepository.findOverdueCandidates(eq(LAST_RUN), eq(TODAY), eq(PaymentStatus.OVERDUE),
+                eq(LAST_RUN), eq(-1L), any())).thenReturn(List.<Object[]>of(
+                new Object[]{11L, 1L, LAST_RUN, BigDecimal.valueOf(100)},
+                new Object[]{12L, 2L, LAST_RUN, BigDecimal.valueOf(40)}));
+        when(brokeragePaymentRepository.findOverdueCandidates(eq(LAST_RUN), eq(TODAY), eq(PaymentStatus.OVERDUE),
+                eq(LAST_RUN), eq(12L), any())).thenReturn(List.<Object[]>of(
+                new Object[]{15L, 1L, LAST_RUN.plusDays(1), BigDecimal.valueOf(60)}));
+        when(pendingPaymentRepository.findOverdueCandidates(any(), any(), any(), any(), any(), any())).thenReturn(List.of());
+        when(receivablePaymentRepository.findOverdueCandidates(any(), any(), any(), any(), any(), any())).thenReturn(List.of());
+
+        OverdueSweepResultDTO result = overdueSweepService.sweep(TODAY);
+
+        assertEquals(3, result.getBrokeragePayments());
+        assertEquals(3, result.getTotalPayments());
+        assertEquals(2, result.getBrokersAffected());
+        verify(brokeragePaymentRepository).markStatus(List.of(11L, 12L), PaymentStatus.OVERDUE);
+        verify(brokeragePaymentRepository).markStatus(List.of(15L), PaymentStatus.OVERDUE);
+        verify(paymentTrendService).recordOverdueTransitions(1L, TODAY, 1, BigDecimal.valueOf(100));
+        verify(paymentTrendService).recordOverdueTransitions(1L, TODAY, 1, BigDecimal.valueOf(60));
+        verify(paymentTrendService).recordOverdueTransitions(2L, TODAY, 1, BigDecimal.valueOf(40));
+        verify(paymentDashboardService, times(2)).evict(1L);
+        verify(paymentDashboardService).evict(2L);
+        verify(paymentDashboardService, never()).evict(3L);
+
+        assertEquals(TODAY, watermark.getSweptBefore());
+        assertEquals(3, watermark.getLastRunCount());
+        assertNull(watermark.getRunningSince());
+        verify(watermarkRepository).save(watermark);
+    }
+
+    @Test
+    void testSweep_DoesNothingWhenAlreadySweptToday() {
+        watermark.setSweptBefore(TODAY);
+
+        OverdueSweepResultDTO result = overdueSweepService.sweep(TODAY);
+
+        assertEquals(0, result.getTotalPayments());
+        verify(brokeragePaymentRepository, never()).findOverdueCandidates(any(), any(), any(), any(), any(), any());
+        verify(paymentDashboardService, never()).evict(anyLong());
+        assertEquals(TODAY, watermark.getSweptBefore());
+    }
+
+    @Test
+    void testSweep_SkipsWhileAnotherNodeHoldsTheClaim() {
+        when(watermarkRepository.existsById(OverdueSweepService.SWEEP_NAME)).thenReturn(true);
+        when(watermarkRepository.claim(eq(OverdueSweepService.SWEEP_NAME), any(), any())).thenReturn(0);
+
+        assertNull(overdueSweepService.sweep());
+
+        verify(brokeragePaymentRepository, never()).findOverdueCandidates(any(), any(), any(), any(), any(), any());
+        verify(watermarkRepository, never()).save(any());
+    }
+
+    @Test
+    void testSweep_ReleasesItsClaimWhenTheRunFails() {
+        when(watermarkRepository.existsById(OverdueSweepService.SWEEP_NAME)).thenReturn(true);
+        when(watermarkRepository.claim(eq(OverdueSweepService.SWEEP_NAME), any(), any())).thenReturn(1);
+        when(brokeragePaymentRepository.findOverdueCandidates(any(), any(), any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("database down"));
+
+        assertThrows(IllegalStateException.class, () -> overdueSweepService.sweep());
+
+        verify(watermarkRepository).release(eq(OverdueSweepService.SWEEP_NAME), any());
+        verify(watermarkRepository, never()).save(any());
+    }
+
+    @Test
+    void testSweep_RollsTheBatchBackWhenTheUpdateChangedOtherRowsThanSelected() {
+        when(brokeragePaymentRepository.findOverdueCandidates(any(), any(), any(), any(), any(), any())).thenReturn(List.<Object[]>of(
+                new Object[]{11L, 1L, LAST_RUN, BigDecimal.valueOf(100)}));
+        when(brokeragePaymentRepository.markStatus(anyList(), eq(PaymentStatus.OVERDUE))).thenReturn(0);
+        when(pendingPaymentRepository.findOverdueCandidates(any(), any(), any(), any(), any(), any())).thenReturn(List.of());
+        when(receivablePaymentRepository.findOverdueCandidates(any(), any(), any(), any(), any(), any())).thenReturn(List.of());
+
+        assertThrows(IllegalStateException.class, () -> overdueSweepService.sweep(TODAY));
+
+        verify(transactionManager).rollback(any());
+        verify(paymentTrendService, never()).recordOverdueTransitions(any(), any(), anyLong(), any());
+        verify(paymentDashboardService, never()).evict(anyLong());
+        verify(watermarkRepository, never()).save(any());
+    }
+}
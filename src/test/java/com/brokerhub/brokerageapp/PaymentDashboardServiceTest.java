@@ -0,0 +1,133 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.payments.PaymentDashboardDTO;
+import com.brokerhub.brokerageapp.dto.payments.PaymentDashboardSnapshot;
+import com.brokerhub.brokerageapp.dto.payments.PaymentSummaryDTO;
+import com.brokerhub.brokerageapp.entity.BrokeragePayment;
+import com.brokerhub.brokerageapp.entity.PartPayment;
+import com.brokerhub.brokerageapp.entity.PaymentStatus;
+import com.brokerhub.brokerageapp.repository.BrokeragePaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PaymentDashboardServiceTest {
+
+    private static final Long BROKER_ID = 1L;
+
+    @Mock
+    private BrokeragePaymentRepository brokeragePaymentRepository;
+
+    @InjectMocks
+    private PaymentDashboardService paymentDashboardService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(paymentDashboardService, "cacheManager", new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(paymentDashboardService, "criticalAmount", BigDecimal.valueOf(1000));
+        // Row: [paymentType, status, count, amount, paid, pending, outstanding, dueSoon, dueSoonAmount, critical, recent]
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{"BROKERAGE", "PENDING", 2L, new BigDecimal("300"), BigDecimal.ZERO, new BigDecimal("300"), 2L, 1L, new BigDecimal("100"), 0L, 0L});
+        rows.add(new Object[]{"BROKERAGE", "PAID", 1L, new BigDecimal("100"), new BigDecimal("100"), BigDecimal.ZERO, 0L, 0L, BigDecimal.ZERO, 0L, 1L});
+        rows.add(new Object[]{"PENDING", "OVERDUE", 1L, new BigDecimal("5000"), BigDecimal.ZERO, new BigDecimal("5000"), 1L, 0L, BigDecimal.ZERO, 1L, 1L});
+        rows.add(new Object[]{"PART_PAYMENT", null, 1L, new BigDecimal("100"), 0, 0, 0, 0, 0, 0, 0});
+        when(brokeragePaymentRepository.getPaymentStatusTotals(eq(BROKER_ID), any(), any(), any(), any())).thenReturn(rows);
+    }
+
+    @Test
+    void testGetDashboard_BuildsSnapshotOnceAndDerivesDashboardAndSummary() {
+        PaymentDashboardDTO dashboard = paymentDashboardService.getDashboard(BROKER_ID);
+        PaymentSummaryDTO summary = paymentDashboardService.getSummary(BROKER_ID);
+
+        assertEquals(new BigDecimal("400"), dashboard.getTotalBrokerageAmount());
+        assertEquals(new BigDecimal("300"), dashboard.getTotalBrokeragePending());
+        assertEquals(2L, dashboard.getMerchantsWithPendingBrokerage());
+        assertEquals(1L, dashboard.getOverduePendingPayments());
+        assertEquals(new BigDecimal("5000.00"), dashboard.getAveragePendingPaymentAmount());
+        assertEquals(1L, dashboard.getCriticalPaymentsCount());
+        assertEquals(1L, dashboard.getPaymentsDueSoonCount());
+        assertEquals(new BigDecimal("100"), dashboard.getRecentPaymentsAmount());
+        assertEquals(new BigDecimal("25.00"), dashboard.getBrokerageCompletionPercentage());
+
+        assertEquals(List.of("PENDING", "PAID"), summary.getBrokeragePaymentSummary().stream()
+                .map(PaymentSummaryDTO.PaymentStatusSummaryDTO::getStatus).toList());
+        assertEquals(new BigDecimal("66.67"), summary.getBrokeragePaymentSummary().get(0).getPercentage());
+        assertEquals(4L, summary.getOverallTotals().getTotalPaymentsCount());
+        assertEquals(new BigDecimal("5000"), summary.getOverallTotals().getTotalOverdueAmount());
+        verify(brokeragePaymentRepository, times(1)).getPaymentStatusTotals(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testRecordPartPayment_MovesPaymentBetweenStatusesWithoutRequerying() {
+        paymentDashboardService.getDashboard(BROKER_ID);
+        BrokeragePayment payment = BrokeragePayment.builder()
+                .netBrokerage(new BigDecimal("200")).paidAmount(BigDecimal.ZERO).pendingAmount(new BigDecimal("200"))
+                .dueDate(LocalDate.now().plusDays(30)).status(PaymentStatus.PENDING).build();
+        PaymentDashboardService.PaymentRowState before = paymentDashboardService.rowState(payment);
+        PartPayment partPayment = PartPayment.builder().amount(new BigDecimal("200")).paymentDate(LocalDate.now()).build();
+        payment.addPartPayment(partPayment);
+
+        paymentDashboardService.recordPartPayment(BROKER_ID, before, payment, partPayment);
+        PaymentDashboardDTO dashboard = paymentDashboardService.getDashboard(BROKER_ID);
+
+        assertEquals(PaymentStatus.PAID, payment.getStatus());
+        assertEquals(0, new BigDecimal("300").compareTo(dashboard.getTotalBrokeragePaid()));
+        assertEquals(0, new BigDecimal("100").compareTo(dashboard.getTotalBrokeragePending()));
+        assertEquals(1L, dashboard.getMerchantsWithPendingBrokerage());
+        assertEquals(2L, dashboard.getRecentPaymentsCount());
+        assertEquals(new BigDecimal("300"), dashboard.getRecentPaymentsAmount());
+        verify(brokeragePaymentRepository, times(1)).getPaymentStatusTotals(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testRecordPartPayment_ReplacesTheCachedSnapshotInsteadOfChangingIt() {
+        PaymentDashboardSnapshot read = paymentDashboardService.getSnapshot(BROKER_ID);
+        BigDecimal paidBefore = read.getTotals().get("BROKERAGE:PENDING").getPaid();
+        BrokeragePayment payment = BrokeragePayment.builder()
+                .netBrokerage(new BigDecimal("200")).paidAmount(BigDecimal.ZERO).pendingAmount(new BigDecimal("200"))
+                .dueDate(LocalDate.now().plusDays(30)).status(PaymentStatus.PENDING).build();
+        PaymentDashboardService.PaymentRowState before = paymentDashboardService.rowState(payment);
+        PartPayment partPayment = PartPayment.builder().amount(new BigDecimal("50")).paymentDate(LocalDate.now()).build();
+        payment.addPartPayment(partPayment);
+
+        paymentDashboardService.recordPartPayment(BROKER_ID, before, payment, partPayment);
+
+        assertEquals(paidBefore, read.getTotals().get("BROKERAGE:PENDING").getPaid());
+        assertEquals(1L, read.getRecentPaymentsCount());
+        PaymentDashboardSnapshot current = paymentDashboardService.getSnapshot(BROKER_ID);
+        assertNotSame(read, current);
+        assertEquals(2L, current.getRecentPaymentsCount());
+        assertEquals(0, new BigDecimal("150").compareTo(paymentDashboardService.getDashboard(BROKER_ID).getTotalBrokeragePaid()));
+    }
+
+    @Test
+    void testRecordPartPayment_EvictsTheSnapshotWhenTheCacheIsShared() {
+        ReflectionTestUtils.setField(paymentDashboardService, "cacheType", "redis");
+        paymentDashboardService.getDashboard(BROKER_ID);
+        BrokeragePayment payment = BrokeragePayment.builder()
+                .netBrokerage(new BigDecimal("200")).paidAmount(BigDecimal.ZERO).pendingAmount(new BigDecimal("200"))
+                .dueDate(LocalDate.now().plusDays(30)).status(PaymentStatus.PENDING).build();
+        PaymentDashboardService.PaymentRowState before = paymentDashboardService.rowState(payment);
+        PartPayment partPayment = PartPayment.builder().amount(new BigDecimal("50")).paymentDate(LocalDate.now()).build();
+        payment.addPartPayment(partPayment);
+
+        paymentDashboardService.recordPartPayment(BROKER_ID, before, payment, partPayment);
+        paymentDashboardService.getDashboard(BROKER_ID);
+
+        verify(brokeragePaymentRepository, times(2)).getPaymentStatusTotals(any(), any(), any(), any(), any());
+    }
+}
@@ -0,0 +1,152 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.entity.PaymentMethod;
+import com.brokerhub.brokerageapp.entity.PaymentStatus;
+import com.brokerhub.brokerageapp.repository.BrokeragePaymentRepository;
+import com.brokerhub.brokerageapp.repository.PartPaymentRepository;
+import com.brokerhub.brokerageapp.repository.PendingPaymentRepository;
+import com.brokerhub.brokerageapp.repository.ReceivablePaymentRepository;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PaymentExcelExportServiceTest {
+
+    private static final Long BROKER_ID = 1L;
+    private static final LocalDate DUE = LocalDate.of(2026, 3, 31);
+
+    @Mock
+    private BrokeragePaymentRepository brokeragePaymentRepository;
+
+    @Mock
+    private PendingPaymentRepository pendingPaymentRepository;
+
+    @Mock
+    private ReceivablePaymentRepository receivablePaymentRepository;
+
+    @Mock
+    private PartPaymentRepository partPaymentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private Executor exportTaskExecutor;
+
+    @InjectMocks
+    private PaymentExcelExportService paymentExcelExportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(paymentExcelExportService, "rowWindow", 10);
+        ReflectionTestUtils.setField(paymentExcelExportService, "batchSize", 2);
+        ReflectionTestUtils.setField(paymentExcelExportService, "maxConcurrentPerBroker", 1);
+        ReflectionTestUtils.setField(paymentExcelExportService, "timeoutMillis", 60_000L);
+    }
+
+    @Test
+    void testExport_WritesBrokeragePaymentsAndTheirPartPaymentsInKeysetBatches() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(exportTaskExecutor).execute(any());
+        when(brokeragePaymentRepository.findExportRows(eq(BROKER_ID), eq(0L), any())).thenReturn(List.of(
+                brokerageRow(5L, "Alpha Traders"), brokerageRow(8L, "Beta Agencies")));
+        when(brokeragePaymentRepository.findExportRows(eq(BROKER_ID), eq(8L), any())).thenReturn(List.<Object[]>of(
+                brokerageRow(9L, "Gamma Foods")));
+        when(partPaymentRepository.findExportRows(List.of(5L, 8L))).thenReturn(List.<Object[]>of(
+                new Object[]{5L, "PP-1", BigDecimal.valueOf(250), DUE, PaymentMethod.UPI, "UTR1", "admin", true}));
+        when(partPaymentRepository.findExportRows(List.of(9L))).thenReturn(List.of());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        paymentExcelExportService.export(BROKER_ID, "brokerage", out).join();
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(2, workbook.getNumberOfSheets());
+            Sheet payments = workbook.getSheet("Brokerage Payments");
+            assertEquals(3, payments.getLastRowNum());
+            assertEquals("Gamma Foods", payments.getRow(3).getCell(1).getStringCellValue());
+            assertEquals(1000.0, payments.getRow(1).getCell(12).getNumericCellValue());
+            assertEquals("PENDING", payments.getRow(1).getCell(13).getStringCellValue());
+            assertEquals("31-03-2026", payments.getRow(1).getCell(14).getStringCellValue());
+            Sheet partPayments = workbook.getSheet("Part Payments");
+            assertEquals(1, partPayments.getLastRowNum());
+            assertEquals("UPI", partPayments.getRow(1).getCell(4).getStringCellValue());
+            assertEquals("Yes", partPayments.getRow(1).getCell(7).getStringCellValue());
+        }
+        verifyNoInteractions(pendingPaymentRepository, receivablePaymentRepository);
+    }
+
+    @Test
+    void testExport_CapsConcurrentExportsPerBrokerAndRejectsUnknownTypes() {
+        // The executor never runs the task, so the first export keeps its permit
+        paymentExcelExportService.export(BROKER_ID, null, new ByteArrayOutputStream());
+
+        assertThrows(IllegalStateException.class,
+                () -> paymentExcelExportService.export(BROKER_ID, "PENDING", new ByteArrayOutputStream()));
+        assertDoesNotThrow(() -> paymentExcelExportService.export(2L, "PENDING", new ByteArrayOutputStream()));
+        assertThrows(IllegalArgumentException.class,
+                () -> paymentExcelExportService.export(3L, "LEDGER", new ByteArrayOutputStream()));
+        verify(exportTaskExecutor, times(2)).execute(any());
+    }
+
+    @Test
+    void testExport_ReleasesThePermitWhenTheExecutorIsFull() {
+        doThrow(new RejectedExecutionException("full")).doNothing().when(exportTaskExecutor).execute(any());
+
+        assertThrows(RejectedExecutionException.class,
+                () -> paymentExcelExportService.export(BROKER_ID, null, new ByteArrayOutputStream()));
+        assertDoesNotThrow(() -> paymentExcelExportService.export(BROKER_ID, null, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void testExport_StopsBetweenBatchesAfterTheTimeoutAndReleasesThePermit() {
+        ReflectionTestUtils.setField(paymentExcelExportService, "timeoutMillis", 20L);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(exportTaskExecutor).execute(any());
+        when(pendingPaymentRepository.findExportRows(eq(BROKER_ID), eq(0L), any())).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return List.<Object[]>of(new Object[]{1L}, new Object[]{2L});
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> paymentExcelExportService.export(BROKER_ID, "PENDING", out).join());
+
+        assertInstanceOf(CancellationException.class, e.getCause());
+        verify(pendingPaymentRepository, never()).findExportRows(any(), eq(2L), any());
+        assertEquals(0, out.size());
+        ReflectionTestUtils.setField(paymentExcelExportService, "timeoutMillis", 60_000L);
+        when(pendingPaymentRepository.findExportRows(eq(BROKER_ID), eq(0L), any())).thenReturn(List.of());
+        assertDoesNotThrow(() -> paymentExcelExportService.export(BROKER_ID, "PENDING", out).join());
+    }
+
+    private static Object[] brokerageRow(Long id, String firmName) {
+        return new Object[]{id, firmName, "Owner", "Guntur", 10L, 20L, 30L, BigDecimal.valueOf(1200),
+                BigDecimal.valueOf(120), BigDecimal.valueOf(80), BigDecimal.valueOf(1000), BigDecimal.ZERO,
+                BigDecimal.valueOf(1000), PaymentStatus.PENDING, DUE, null};
+    }
+}
@@ -0,0 +1,236 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.payments.PaymentGenerationStatusDTO;
+import com.brokerhub.brokerageapp.entity.Broker;
+import com.brokerhub.brokerageapp.entity.BrokeragePayment;
+import com.brokerhub.brokerageapp.entity.FinancialYear;
+import com.brokerhub.brokerageapp.entity.PaymentStatus;
+import com.brokerhub.brokerageapp.entity.PendingPayment;
+import com.brokerhub.brokerageapp.entity.ReceivablePayment;
+import com.brokerhub.brokerageapp.entity.ReceivableTransaction;
+import com.brokerhub.brokerageapp.entity.Trader;
+import com.brokerhub.brokerageapp.entity.User;
+import com.brokerhub.brokerageapp.repository.BrokerRepository;
+import com.brokerhub.brokerageapp.repository.BrokeragePaymentRepository;
+import com.brokerhub.brokerageapp.repository.BrokerageRepository;
+import com.brokerhub.brokerageapp.repository.FinancialYearRepository;
+import com.brokerhub.brokerageapp.repository.PendingPaymentRepository;
+import com.brokerhub.brokerageapp.repository.ReceivablePaymentRepository;
+import com.brokerhub.brokerageapp.repository.ReceivableTransactionRepository;
+import com.brokerhub.brokerageapp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PaymentGenerationServiceTest {
+
+    private static final Long BROKER_ID = 1L;
+    private static final Long FY_ID = 5L;
+    private static final LocalDate FY_END = LocalDate.of(2026, 3, 31);
+    private static final LocalDate FIRST_TRADE = LocalDate.of(2025, 6, 1);
+
+    @Mock
+    private BrokerageRepository brokerageRepository;
+
+    @Mock
+    private BrokeragePaymentRepository brokeragePaymentRepository;
+
+    @Mock
+    private PendingPaymentRepository pendingPaymentRepository;
+
+    @Mock
+    private ReceivablePaymentRepository receivablePaymentRepository;
+
+    @Mock
+    private ReceivableTransactionRepository receivableTransactionRepository;
+
+    @Mock
+    private FinancialYearRepository financialYearRepository;
+
+    @Mock
+    private BrokerRepository brokerRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PaymentDashboardService paymentDashboardService;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private Executor bulkOperationTaskExecutor;
+
+    @InjectMocks
+    private PaymentGenerationService paymentGenerationService;
+
+    private final ConcurrentMapCache brokeragePaymentsCache = new ConcurrentMapCache("brokeragePayments");
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(paymentGenerationService, "creditDays", 30);
+        ReflectionTestUtils.setField(paymentGenerationService, "statusRetentionMinutes", 60L);
+        Broker broker = Broker.builder().brokerId(BROKER_ID).build();
+        FinancialYear financialYear = new FinancialYear();
+        financialYear.setYearId(FY_ID);
+        financialYear.setBroker(broker);
+        financialYear.setEnd(FY_END);
+        when(financialYearRepository.findById(FY_ID)).thenReturn(Optional.of(financialYear));
+        when(brokerRepository.getReferenceById(BROKER_ID)).thenReturn(broker);
+        when(userRepository.getReferenceById(anyLong())).thenAnswer(invocation -> merchant(invocation.getArgument(0)));
+        when(cacheManager.getCache("brokeragePayments")).thenReturn(brokeragePaymentsCache);
+        when(receivablePaymentRepository.saveAll(anyCollection())).thenAnswer(invocation -> {
+            long id = 900;
+            for (ReceivablePayment payment : invocation.<Collection<ReceivablePayment>>getArgument(0)) {
+                payment.setId(id++);
+            }
+            return new ArrayList<>(invocation.<Collection<ReceivablePayment>>getArgument(0));
+        });
+    }
+
+    @Test
+    void testGenerate_UpdatesExistingRowsInPlaceAndRemovesStaleOnes() {
+        // Merchant 10 sold to merchant 20 in two trades
+        when(brokerageRepository.getBuyerPaymentAggregates(BROKER_ID, FY_ID)).thenReturn(List.<Object[]>of(
+                new Object[]{20L, 2, 2L, 30L, 60000L, 60L, FIRST_TRADE, FIRST_TRADE.plusDays(3)}));
+        when(brokerageRepository.getSellerPaymentAggregates(BROKER_ID, FY_ID)).thenReturn(List.<Object[]>of(
+                new Object[]{10L, 1, 2L, 30L, 60000L, 30L, FIRST_TRADE, FIRST_TRADE.plusDays(3)}));
+        when(brokerageRepository.getSellerBuyerPaymentAggregates(BROKER_ID, FY_ID)).thenReturn(List.<Object[]>of(
+                new Object[]{10L, 20L, 2L, 60000L, FIRST_TRADE, FIRST_TRADE.plusDays(3)}));
+
+        // Merchant 20 already paid 50 with a discount of 5; merchant 30 no longer trades this year
+        BrokeragePayment existing = BrokeragePayment.builder().id(1L).merchant(merchant(20L))
+                .grossBrokerage(BigDecimal.valueOf(40)).discount(BigDecimal.valueOf(5)).tds(BigDecimal.ZERO)
+                .paidAmount(BigDecimal.valueOf(50)).build();
+        BrokeragePayment stale = BrokeragePayment.builder().id(2L).merchant(merchant(30L)).paidAmount(BigDecimal.ZERO).build();
+        when(brokeragePaymentRepository.findByBrokerBrokerIdAndFinancialYearYearId(BROKER_ID, FY_ID)).thenReturn(List.of(existing, stale));
+        PendingPayment stalePending = PendingPayment.builder().id(3L).buyer(merchant(30L)).build();
+        when(pendingPaymentRepository.findByBrokerBrokerIdAndFinancialYearYearId(BROKER_ID, FY_ID)).thenReturn(List.of(stalePending));
+        brokeragePaymentsCache.put(BROKER_ID + "_" + FY_ID, "value");
+        brokeragePaymentsCache.put("2_" + FY_ID, "other broker");
+
+        PaymentGenerationStatusDTO status = paymentGenerationService.generate(BROKER_ID, FY_ID);
+
+        assertEquals("COMPLETED", status.getStatus());
+        assertEquals(100, status.getProgressPercent());
+        assertEquals(2, status.getBrokeragePayments());
+        assertEquals(1, status.getPendingPayments());
+        assertEquals(1, status.getReceivablePayments());
+        assertEquals(2, status.getRemovedPayments());
+
+        assertEquals(BigDecimal.valueOf(60), existing.getGrossBrokerage());
+        assertEquals(BigDecimal.valueOf(55), existing.getNetBrokerage());
+        assertEquals(BigDecimal.valueOf(5), existing.getPendingAmount());
+        assertEquals(30L, existing.getBoughtBags());
+        assertEquals(FY_END, existing.getDueDate());
+        verify(brokeragePaymentRepository).deleteAll(List.of(stale));
+        verify(pendingPaymentRepository).deleteAll(List.of(stalePending));
+
+        ArgumentCaptor<Collection<PendingPayment>> pending = ArgumentCaptor.forClass(Collection.class);
+        verify(pendingPaymentRepository).saveAll(pending.capture());
+        PendingPayment buyerPayment = pending.getValue().iterator().next();
+        assertEquals(BigDecimal.valueOf(60000), buyerPayment.getTotalPendingAmount());
+        assertEquals(FIRST_TRADE.plusDays(30), buyerPayment.getDueDate());
+
+        ArgumentCaptor<Collection<ReceivableTransaction>> owedBy = ArgumentCaptor.forClass(Collection.class);
+        verify(receivableTransactionRepository).saveAll(owedBy.capture());
+        ReceivableTransaction owed = owedBy.getValue().iterator().next();
+        assertEquals(BigDecimal.valueOf(60000), owed.getTotalOwed());
+        assertEquals(2, owed.getTransactionCount());
+        assertEquals(900L, owed.getReceivablePayment().getId());
+        assertNull(brokeragePaymentsCache.get(BROKER_ID + "_" + FY_ID));
+        assertNotNull(brokeragePaymentsCache.get("2_" + FY_ID));
+        verify(paymentDashboardService).evict(BROKER_ID);
+    }
+
+    @Test
+    void testGenerate_KeepsPaidRowsOfMerchantsWithoutTrades() {
+        BrokeragePayment paid = BrokeragePayment.builder().id(2L).merchant(merchant(30L))
+                .grossBrokerage(BigDecimal.TEN).netBrokerage(BigDecimal.TEN).paidAmount(BigDecimal.TEN).build();
+        when(brokeragePaymentRepository.findByBrokerBrokerIdAndFinancialYearYearId(BROKER_ID, FY_ID)).thenReturn(List.of(paid));
+
+        paymentGenerationService.generate(BROKER_ID, FY_ID);
+
+        assertEquals(BigDecimal.ZERO, paid.getNetBrokerage());
+        assertEquals(BigDecimal.ZERO, paid.getPendingAmount());
+        assertEquals(PaymentStatus.PAID, paid.getStatus());
+        verify(brokeragePaymentRepository).deleteAll(List.of());
+        verify(brokeragePaymentRepository).saveAll(List.of(paid));
+    }
+
+    @Test
+    void testGenerate_KeepsPendingAndReceivableRowsWithRecordedPayments() {
+        PendingPayment paidPending = PendingPayment.builder().id(3L).buyer(merchant(30L))
+                .totalPendingAmount(BigDecimal.TEN).transactionCount(1).build();
+        PendingPayment unpaidPending = PendingPayment.builder().id(4L).buyer(merchant(40L)).build();
+        when(pendingPaymentRepository.findByBrokerBrokerIdAndFinancialYearYearId(BROKER_ID, FY_ID))
+                .thenReturn(List.of(paidPending, unpaidPending));
+        when(pendingPaymentRepository.findIdsWithRecordedPayments(anyCollection())).thenReturn(List.of(3L));
+        ReceivablePayment paidReceivable = ReceivablePayment.builder().id(6L).seller(merchant(30L))
+                .totalReceivableAmount(BigDecimal.TEN).transactionCount(1).build();
+        when(receivablePaymentRepository.findByBrokerBrokerIdAndFinancialYearYearId(BROKER_ID, FY_ID))
+                .thenReturn(List.of(paidReceivable));
+        when(receivablePaymentRepository.findIdsWithRecordedPayments(List.of(6L))).thenReturn(List.of(6L));
+        ReceivableTransaction paidOwedBy = ReceivableTransaction.builder().id(7L).buyer(merchant(20L))
+                .receivablePayment(paidReceivable).totalOwed(BigDecimal.TEN).transactionCount(1).build();
+        when(receivableTransactionRepository.findByReceivablePaymentBrokerBrokerIdAndReceivablePaymentFinancialYearYearId(BROKER_ID, FY_ID))
+                .thenReturn(List.of(paidOwedBy));
+        when(receivableTransactionRepository.findIdsWithRecordedPayments(List.of(7L))).thenReturn(List.of(7L));
+
+        PaymentGenerationStatusDTO status = paymentGenerationService.generate(BROKER_ID, FY_ID);
+
+        assertEquals(1, status.getRemovedPayments());
+        assertEquals(3, status.getRetainedPayments());
+        verify(pendingPaymentRepository).deleteAll(List.of(unpaidPending));
+        verify(pendingPaymentRepository).saveAll(List.of(paidPending));
+        assertEquals(BigDecimal.ZERO, paidPending.getTotalPendingAmount());
+        assertEquals(PaymentStatus.PAID, paidPending.getStatus());
+        verify(receivablePaymentRepository).deleteAll(List.of());
+        assertEquals(BigDecimal.ZERO, paidReceivable.getTotalReceivableAmount());
+        verify(receivableTransactionRepository).deleteAll(List.of());
+        verify(receivableTransactionRepository).saveAll(List.of(paidOwedBy));
+        assertEquals(BigDecimal.ZERO, paidOwedBy.getTotalOwed());
+    }
+
+    @Test
+    void testStartGeneration_ReturnsRunningJobAndRejectsOtherBrokersYear() {
+        PaymentGenerationStatusDTO first = paymentGenerationService.startGeneration(BROKER_ID, FY_ID);
+        PaymentGenerationStatusDTO second = paymentGenerationService.startGeneration(BROKER_ID, FY_ID);
+
+        assertEquals(first.getJobId(), second.getJobId());
+        assertEquals("QUEUED", paymentGenerationService.getStatus(BROKER_ID, first.getJobId()).getPhase());
+        verify(bulkOperationTaskExecutor, times(1)).execute(any());
+        assertThrows(IllegalArgumentException.class, () -> paymentGenerationService.startGeneration(2L, FY_ID));
+        assertThrows(IllegalArgumentException.class, () -> paymentGenerationService.getStatus(2L, first.getJobId()));
+    }
+
+    private static User merchant(Long userId) {
+        Trader merchant = new Trader();
+        merchant.setUserId(userId);
+        return merchant;
+    }
+}
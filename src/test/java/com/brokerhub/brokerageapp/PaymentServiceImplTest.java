@@ -0,0 +1,131 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.payments.ApiResponseDTO;
+import com.brokerhub.brokerageapp.dto.payments.BrokeragePaymentDTO;
+import com.brokerhub.brokerageapp.dto.payments.PaymentListRequestDTO;
+import com.brokerhub.brokerageapp.dto.payments.PaymentPageDTO;
+import com.brokerhub.brokerageapp.entity.BrokeragePayment;
+import com.brokerhub.brokerageapp.entity.PaymentStatus;
+import com.brokerhub.brokerageapp.entity.Trader;
+import com.brokerhub.brokerageapp.repository.BrokeragePaymentRepository;
+import com.brokerhub.brokerageapp.repository.BrokerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PaymentServiceImplTest {
+
+    private static final Long BROKER_ID = 1L;
+    private static final LocalDate DUE = LocalDate.of(2025, 4, 30);
+
+    @Mock
+    private BrokeragePaymentRepository brokeragePaymentRepository;
+
+    @Mock
+    private BrokerRepository brokerRepository;
+
+    @InjectMocks
+    private PaymentServiceImpl paymentService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(paymentService, "defaultPageSize", 2);
+        ReflectionTestUtils.setField(paymentService, "maxPageSize", 200);
+        when(brokerRepository.existsById(BROKER_ID)).thenReturn(true);
+    }
+
+    @Test
+    void testGetBrokeragePaymentsPage_ReadsOneRowAheadAndReturnsCursor() {
+        when(brokeragePaymentRepository.findKeysetPageWithDueDate(eq(BROKER_ID), eq(PaymentStatus.OVERDUE), isNull(), isNull(),
+                eq("%ram%"), isNull(), isNull(), eq(PageRequest.of(0, 3))))
+                .thenReturn(List.of(payment(11L, DUE), payment(12L, DUE), payment(13L, DUE.plusDays(1))));
+
+        PaymentPageDTO<BrokeragePaymentDTO> page = page(PaymentListRequestDTO.builder()
+                .status("overdue").firmName(" Ram ").build());
+
+        assertEquals(List.of(11L, 12L), page.getItems().stream().map(BrokeragePaymentDTO::getId).toList());
+        assertTrue(page.isHasMore());
+        assertNotNull(page.getNextCursor());
+        verify(brokeragePaymentRepository, never()).findKeysetPageWithoutDueDate(any(), any(), any(), any(), any());
+
+        // The cursor continues after (due date, id) of the last row
+        when(brokeragePaymentRepository.findKeysetPageWithDueDate(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(payment(13L, DUE.plusDays(1))));
+        page(PaymentListRequestDTO.builder().cursor(page.getNextCursor()).build());
+        verify(brokeragePaymentRepository).findKeysetPageWithDueDate(eq(BROKER_ID), isNull(), isNull(), isNull(), isNull(),
+                eq(DUE), eq(12L), eq(PageRequest.of(0, 3)));
+    }
+
+    @Test
+    void testGetBrokeragePaymentsPage_ContinuesWithPaymentsWithoutDueDate() {
+        when(brokeragePaymentRepository.findKeysetPageWithDueDate(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(payment(11L, DUE)));
+        when(brokeragePaymentRepository.findKeysetPageWithoutDueDate(BROKER_ID, null, null, 0L, PageRequest.of(0, 2)))
+                .thenReturn(List.of(payment(5L, null), payment(8L, null)));
+
+        PaymentPageDTO<BrokeragePaymentDTO> first = page(new PaymentListRequestDTO());
+
+        assertEquals(List.of(11L, 5L), first.getItems().stream().map(BrokeragePaymentDTO::getId).toList());
+        assertTrue(first.isHasMore());
+
+        reset(brokeragePaymentRepository);
+        when(brokeragePaymentRepository.findKeysetPageWithoutDueDate(BROKER_ID, null, null, 5L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(payment(8L, null)));
+
+        PaymentPageDTO<BrokeragePaymentDTO> second = page(PaymentListRequestDTO.builder().cursor(first.getNextCursor()).build());
+
+        assertEquals(List.of(8L), second.getItems().stream().map(BrokeragePaymentDTO::getId).toList());
+        assertFalse(second.isHasMore());
+        assertNull(second.getNextCursor());
+        verify(brokeragePaymentRepository, never()).findKeysetPageWithDueDate(any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testGetBrokeragePaymentsPage_RejectsUnknownStatusAndCursor() {
+        ResponseEntity<ApiResponseDTO<PaymentPageDTO<BrokeragePaymentDTO>>> badStatus = paymentService.getBrokeragePaymentsPage(
+                BROKER_ID, PaymentListRequestDTO.builder().status("LATE").build());
+        ResponseEntity<ApiResponseDTO<PaymentPageDTO<BrokeragePaymentDTO>>> badCursor = paymentService.getBrokeragePaymentsPage(
+                BROKER_ID, PaymentListRequestDTO.builder().cursor("not a cursor").build());
+
+        assertEquals(HttpStatus.BAD_REQUEST, badStatus.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, badCursor.getStatusCode());
+        verifyNoInteractions(brokeragePaymentRepository);
+    }
+
+    private PaymentPageDTO<BrokeragePaymentDTO> page(PaymentListRequestDTO request) {
+        ResponseEntity<ApiResponseDTO<PaymentPageDTO<BrokeragePaymentDTO>>> response =
+                paymentService.getBrokeragePaymentsPage(BROKER_ID, request);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        return response.getBody().getData();
+    }
+
+    private BrokeragePayment payment(Long id, LocalDate dueDate) {
+        Trader merchant = new Trader();
+        merchant.setUserId(100L + id);
+        merchant.setFirmName("Ram Traders");
+        return BrokeragePayment.builder()
+                .id(id)
+                .merchant(merchant)
+                .netBrokerage(BigDecimal.TEN)
+                .paidAmount(BigDecimal.ZERO)
+                .pendingAmount(BigDecimal.TEN)
+                .dueDate(dueDate)
+                .status(PaymentStatus.PENDING)
+                .build();
+    }
+}
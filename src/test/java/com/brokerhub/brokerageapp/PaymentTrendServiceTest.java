@@ -0,0 +1,130 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.payments.PaymentTrendsDTO;
+import com.brokerhub.brokerageapp.entity.PartPayment;
+import com.brokerhub.brokerageapp.entity.PaymentDailyTrend;
+import com.brokerhub.brokerageapp.entity.PaymentMethod;
+import com.brokerhub.brokerageapp.repository.PaymentDailyTrendRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PaymentTrendServiceTest {
+
+    private static final Long BROKER_ID = 1L;
+
+    @Mock
+    private PaymentDailyTrendRepository trendRepository;
+
+    @Mock
+    private CounterDeltaWriter deltaWriter;
+
+    @InjectMocks
+    private PaymentTrendService paymentTrendService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(paymentTrendService, "maxDays", 366);
+        ReflectionTestUtils.setField(paymentTrendService, "reconcileDays", 7);
+    }
+
+    @Test
+    void testGetTrends_MergesBucketsAndFillsEmptyDays() {
+        LocalDate today = LocalDate.now();
+        when(trendRepository.getDailyTotals(BROKER_ID, today.minusDays(13), today)).thenReturn(List.<Object[]>of(
+                new Object[]{today.minusDays(12), 1L, BigDecimal.valueOf(100), 0L, BigDecimal.ZERO, 0L, BigDecimal.ZERO},
+                new Object[]{today.minusDays(2), 2L, BigDecimal.valueOf(300), 1L, BigDecimal.valueOf(50), 1L, BigDecimal.valueOf(70)}));
+        when(trendRepository.getMethodTotals(BROKER_ID, today.minusDays(13), today)).thenReturn(List.<Object[]>of(
+                new Object[]{"CASH", 1L, BigDecimal.valueOf(100)},
+                new Object[]{"UPI", 2L, BigDecimal.valueOf(300)}));
+
+        PaymentTrendsDTO trends = paymentTrendService.getTrends(BROKER_ID, 14);
+
+        assertEquals(14, trends.getDailyTrends().size());
+        assertEquals(today.minusDays(13), trends.getPeriodStart());
+        assertEquals(0, trends.getDailyTrends().get(0).getPaymentsCount());
+        PaymentTrendsDTO.DailyPaymentTrendDTO busyDay = trends.getDailyTrends().get(11);
+        assertEquals(0, BigDecimal.valueOf(150).compareTo(busyDay.getAveragePaymentAmount()));
+        assertEquals(1, busyDay.getOverdueCount());
+
+        assertEquals(2, trends.getWeeklyTrends().size());
+        assertEquals(0, BigDecimal.valueOf(200).compareTo(trends.getWeeklyTrends().get(1).getWeekOverWeekChange()));
+        assertEquals("INCREASING", trends.getWeeklyTrends().get(1).getTrend());
+
+        PaymentTrendsDTO.PaymentTrendSummaryDTO summary = trends.getTrendSummary();
+        assertEquals(0, BigDecimal.valueOf(400).compareTo(summary.getTotalPaymentsReceived()));
+        assertEquals(today.minusDays(2), summary.getPeakDay());
+        assertEquals("IMPROVING", summary.getOverallTrend());
+        assertEquals(List.of("UPI", "CASH"), List.copyOf(trends.getCollectionsByMethod().keySet()));
+
+        assertThrows(IllegalArgumentException.class, () -> paymentTrendService.getTrends(BROKER_ID, 367));
+    }
+
+    @Test
+    void testRecordPartPayment_UpsertsTheBucketOfItsDayAndMethod() {
+        LocalDate date = LocalDate.of(2026, 5, 4);
+
+        paymentTrendService.recordPartPayment(BROKER_ID, PartPayment.builder()
+                .amount(BigDecimal.valueOf(250)).paymentDate(date).method(PaymentMethod.UPI).build());
+        paymentTrendService.recordOverdueTransitions(BROKER_ID, date, 3, BigDecimal.valueOf(900));
+        paymentTrendService.recordOverdueTransitions(BROKER_ID, date, 0, BigDecimal.ZERO);
+
+        ArgumentCaptor<PaymentDailyTrend> deltas = ArgumentCaptor.forClass(PaymentDailyTrend.class);
+        verify(deltaWriter, times(2)).upsert(deltas.capture(), eq(List.of("brokerId", "trendDate", "paymentMethod")),
+                argThat(counters -> counters.containsAll(List.of("paymentsCount", "paymentsAmount", "overdueCount", "overdueAmount"))));
+        PaymentDailyTrend payment = deltas.getAllValues().get(0);
+        assertEquals("UPI", payment.getPaymentMethod());
+        assertEquals(1L, payment.getPaymentsCount());
+        assertEquals(BigDecimal.valueOf(250), payment.getPaymentsAmount());
+        PaymentDailyTrend overdue = deltas.getAllValues().get(1);
+        assertEquals(PaymentDailyTrend.NO_METHOD, overdue.getPaymentMethod());
+        assertEquals(3L, overdue.getOverdueCount());
+        assertEquals(BigDecimal.valueOf(900), overdue.getOverdueAmount());
+        assertEquals(0L, overdue.getPaymentsCount());
+        verify(trendRepository, never()).save(any());
+    }
+
+    @Test
+    void testRebuild_CorrectsPaymentsAndDuesButKeepsOverdueCounts() {
+        LocalDate from = LocalDate.of(2026, 5, 1);
+        LocalDate to = LocalDate.of(2026, 5, 7);
+        LocalDate day = LocalDate.of(2026, 5, 3);
+        when(trendRepository.getPartPaymentTotals(BROKER_ID, from, to)).thenReturn(List.<Object[]>of(
+                new Object[]{day, PaymentMethod.CASH, 1L, BigDecimal.valueOf(100)}));
+        when(trendRepository.getPaymentTransactionTotals(BROKER_ID, from, to)).thenReturn(List.<Object[]>of(
+                new Object[]{day, 2L, BigDecimal.valueOf(800)}));
+        PaymentDailyTrend drifted = PaymentDailyTrend.builder().brokerId(BROKER_ID).trendDate(day)
+                .paymentMethod("CASH").paymentsCount(2L).paymentsAmount(BigDecimal.valueOf(300)).build();
+        PaymentDailyTrend overdueOnly = PaymentDailyTrend.builder().brokerId(BROKER_ID).trendDate(day)
+                .paymentMethod(PaymentDailyTrend.NO_METHOD).overdueCount(1L).overdueAmount(BigDecimal.TEN).build();
+        PaymentDailyTrend stale = PaymentDailyTrend.builder().brokerId(BROKER_ID).trendDate(from)
+                .paymentMethod("UPI").paymentsCount(1L).paymentsAmount(BigDecimal.ONE).build();
+        when(trendRepository.findByBrokerIdAndTrendDateBetween(BROKER_ID, from, to)).thenReturn(List.of(drifted, overdueOnly, stale));
+
+        int corrected = paymentTrendService.rebuild(BROKER_ID, from, to);
+
+        assertEquals(3, corrected);
+        assertEquals(1L, drifted.getPaymentsCount());
+        assertEquals(BigDecimal.valueOf(100), drifted.getPaymentsAmount());
+        assertEquals(2L, overdueOnly.getNewDueCount());
+        assertEquals(1L, overdueOnly.getOverdueCount());
+        verify(trendRepository).deleteAll(List.of(stale));
+        ArgumentCaptor<Collection<PaymentDailyTrend>> saved = ArgumentCaptor.forClass(Collection.class);
+        verify(trendRepository).saveAll(saved.capture());
+        assertTrue(saved.getValue().containsAll(List.of(drifted, overdueOnly)));
+    }
+}
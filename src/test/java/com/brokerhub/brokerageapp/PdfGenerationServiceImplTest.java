@@ -0,0 +1,138 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.CityWiseBagDistributionDTO;
+import com.brokerhub.brokerageapp.dto.UserBrokerageDetailDTO;
+import com.brokerhub.brokerageapp.entity.Broker;
+import com.brokerhub.brokerageapp.entity.BrokerBankDetails;
+import com.brokerhub.brokerageapp.entity.FinancialYear;
+import com.brokerhub.brokerageapp.entity.User;
+import com.brokerhub.brokerageapp.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PdfGenerationServiceImplTest {
+
+    @Mock
+    private FinancialYearService financialYearService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UpiQrPayloadService upiQrPayloadService;
+
+    @Mock
+    private PdfRenderer pdfRenderer;
+
+    @InjectMocks
+    private PdfGenerationServiceImpl pdfGenerationService;
+
+    private Broker broker;
+    private UserBrokerageDetailDTO userDetail;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        FinancialYear financialYear = new FinancialYear();
+        financialYear.setStart(LocalDate.of(2024, 4, 1));
+        financialYear.setEnd(LocalDate.of(2025, 3, 31));
+        when(financialYearService.getFinancialYear(7L)).thenReturn(Optional.of(financialYear));
+        when(upiQrPayloadService.getQrDisplaySize()).thenReturn(120);
+        when(upiQrPayloadService.getDynamicQRCodeBase64(any(), any())).thenReturn("UVJEQVRB");
+        when(userRepository.findById(20L)).thenReturn(Optional.of(User.builder().userId(20L).brokerageRate(2).build()));
+
+        broker = Broker.builder()
+                .brokerId(1L)
+                .brokerageFirmName("Siri Brokers")
+                .brokerName("Ravi")
+                .phoneNumber("9876543210")
+                .bankDetails(BrokerBankDetails.builder().bankName("SBI").accountNumber("1234").ifscCode("SBIN0001").build())
+                .build();
+        userDetail = UserBrokerageDetailDTO.builder()
+                .userBasicInfo(UserBrokerageDetailDTO.UserBasicInfo.builder().firmName("Lakshmi Traders").city("Guntur").build())
+                .brokerageSummary(UserBrokerageDetailDTO.BrokerageSummary.builder()
+                        .totalBagsSold(10L)
+                        .totalBagsBought(5L)
+                        .productsBought(List.of(UserBrokerageDetailDTO.ProductSummary.builder().productName("Chilli").totalBags(5L).build()))
+                        .productsSold(List.of())
+                        .citiesSoldTo(List.of())
+                        .citiesBoughtFrom(List.of(UserBrokerageDetailDTO.CitySummary.builder().city("Tenali").totalBags(5L).build()))
+                        .build())
+                .transactionDetails(List.of(
+                        transaction("SOLD", LocalDate.of(2024, 5, 2), 10L),
+                        transaction("BOUGHT", LocalDate.of(2024, 7, 9), 5L)))
+                .build();
+    }
+
+    @Test
+    void testWriteUserBrokerageBill_FillsEverySlotFromCompiledTemplate() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        pdfGenerationService.writeUserBrokerageBill(userDetail, broker, 7L, null, 20L, outputStream);
+
+        String html = outputStream.toString(StandardCharsets.UTF_8);
+        assertFalse(html.contains("{{"));
+        assertTrue(html.contains("<h1 class='firm-name'> 🏢 Siri Brokers</h1>"));
+        assertTrue(html.contains("Financial Year: 2024-2025"));
+        assertTrue(html.contains(".qr-code, .qr-placeholder { width: 120px; height: 120px; }"));
+        assertTrue(html.contains("<td class='sno'>2</td>"));
+        assertTrue(html.contains("<span class='type-bought'>↙️ Bought</span>"));
+        assertTrue(html.contains("<div class='amount-value'>₹30.00</div>"));
+        assertTrue(html.contains("monthly: {'MAY 2024':10,'JUN 2024':0,'JUL 2024':5,}"));
+        assertTrue(html.contains("<span class='bank-value'>SBIN0001</span>"));
+        assertTrue(html.contains("data:image/png;base64,UVJEQVRB"));
+    }
+
+    @Test
+    void testGenerateUserBrokerageBill_ReusesCachedBrokerHeader() {
+        byte[] first = pdfGenerationService.generateUserBrokerageBill(userDetail, broker, 7L, BigDecimal.ONE, 20L);
+        byte[] second = pdfGenerationService.generateUserBrokerageBill(userDetail, broker, 7L, BigDecimal.ONE, 20L);
+
+        assertTrue(first.length > 0);
+        assertTrue(second.length > 0);
+        verify(financialYearService, times(1)).getFinancialYear(7L);
+    }
+
+    @Test
+    void testPrintAndCityWiseBills_RenderWithPageSizeSpecificCss() {
+        String print = new String(pdfGenerationService.generatePrintOptimizedBill(userDetail, broker, 7L, null, "a5", "landscape"),
+                StandardCharsets.UTF_8);
+        String cityWise = new String(pdfGenerationService.generateCityWisePrintBill(userDetail, broker, 7L, null, "a4", "portrait",
+                List.of(new CityWiseBagDistributionDTO("Tenali", 5L))), StandardCharsets.UTF_8);
+
+        assertFalse(print.contains("{{"));
+        assertTrue(print.contains("@page { size: A5 landscape; margin: 0.4in; }"));
+        assertTrue(print.contains("APRIL 2024 TO MARCH 2025"));
+        assertTrue(print.contains("<td><strong>15 × ₹0.00 = ₹0.00</strong></td>"));
+        assertFalse(cityWise.contains("{{"));
+        assertTrue(cityWise.contains("@page { size: A4 portrait; margin: 0.4in; }"));
+        assertTrue(cityWise.contains("<tr><td>1</td><td>Tenali</td><td>5</td></tr>"));
+    }
+
+    private UserBrokerageDetailDTO.TransactionDetail transaction(String type, LocalDate date, Long quantity) {
+        return UserBrokerageDetailDTO.TransactionDetail.builder()
+                .transactionDate(date)
+                .counterPartyFirmName("Counter Party")
+                .counterPartyCity("Tenali")
+                .productName("Chilli")
+                .productCost(12000L)
+                .quantity(quantity)
+                .brokerage(BigDecimal.ZERO)
+                .transactionType(type)
+                .build();
+    }
+}
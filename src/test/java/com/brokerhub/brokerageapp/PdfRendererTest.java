@@ -0,0 +1,53 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfRendererTest {
+
+    private PdfRenderer pdfRenderer;
+
+    @BeforeEach
+    void setUp() {
+        pdfRenderer = new PdfRenderer();
+        pdfRenderer.init();
+    }
+
+    @Test
+    void testConverterProperties_ShareFontSetButNotFontProvider() {
+        assertNotSame(pdfRenderer.converterProperties().getFontProvider(), pdfRenderer.converterProperties().getFontProvider());
+        assertSame(pdfRenderer.converterProperties().getFontProvider().getFontSet(),
+                pdfRenderer.converterProperties().getFontProvider().getFontSet());
+    }
+
+    @Test
+    void testOpenMerged_AppendsBillsInOrderIntoOnePdf() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (PdfRenderer.MergedPdf mergedPdf = pdfRenderer.openMerged(outputStream)) {
+            mergedPdf.append(pdfRenderer.render(bill("First Traders", 1)));
+            mergedPdf.append(pdfRenderer.render(bill("Second Traders", 2)));
+            assertEquals(3, mergedPdf.getNumberOfPages());
+        }
+
+        try (PdfDocument merged = new PdfDocument(new PdfReader(new ByteArrayInputStream(outputStream.toByteArray())))) {
+            assertEquals(3, merged.getNumberOfPages());
+        }
+    }
+
+    private String bill(String firmName, int pages) {
+        StringBuilder html = new StringBuilder("<html><head><style>h1 { color: #333; }</style></head><body>");
+        for (int page = 0; page < pages; page++) {
+            html.append("<h1 style='page-break-before: always'>").append(firmName).append("</h1>");
+        }
+        return html.append("</body></html>").toString();
+    }
+}
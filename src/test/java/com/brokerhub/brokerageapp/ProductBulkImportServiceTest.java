@@ -0,0 +1,130 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.BulkUploadResponseDTO;
+import com.brokerhub.brokerageapp.entity.Broker;
+import com.brokerhub.brokerageapp.entity.Product;
+import com.brokerhub.brokerageapp.repository.BrokerRepository;
+import com.brokerhub.brokerageapp.repository.ProductRepository;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductBulkImportServiceTest {
+
+    private static final Long BROKER_ID = 1L;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private BrokerRepository brokerRepository;
+
+    @Mock
+    private ProductCacheService productCacheService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private ProductBulkImportService productBulkImportService;
+
+    private final List<List<Product>> savedChunks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(productBulkImportService, "chunkSize", 2);
+        when(brokerRepository.getReferenceById(BROKER_ID)).thenReturn(Broker.builder().brokerId(BROKER_ID).build());
+        when(productRepository.findProductNamesQualitiesAndQuantitiesWithIdsByBrokerId(BROKER_ID)).thenReturn(List.<Object[]>of(
+                new Object[]{7L, "Rice", "A1", 50}));
+        when(productRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Product> products = new ArrayList<>(invocation.<Collection<Product>>getArgument(0));
+            savedChunks.add(products);
+            return products;
+        });
+    }
+
+    @Test
+    void testImportProducts_ChecksDuplicatesInMemoryAndSavesInChunks() throws IOException {
+        InputStream sheet = sheet(
+                new Object[]{"rice", 1.5d, 50d, 2000d, "a1"},
+                new Object[]{"Rice", 1.5d, 25d, 1100d, "A1"},
+                new Object[]{"Wheat", 1d, 50d, 1800d, null},
+                new Object[]{null, null, null, null, null},
+                new Object[]{"Wheat", 1d, 50d, 1900d, null},
+                new Object[]{null, 2d, null, null, "B"},
+                new Object[]{"Dal", 2d, "ten", null, null},
+                new Object[]{"Dal", 2d, 10d, 5000d, null});
+
+        BulkUploadResponseDTO response = productBulkImportService.importProducts(BROKER_ID, sheet);
+
+        assertEquals(3, response.getSuccessfulRecords());
+        assertEquals(4, response.getFailedRecords());
+        assertEquals(List.of(
+                "Row 2: Product with the same name, quality, and quantity already exists",
+                "Row 6: Product with the same name, quality, and quantity already exists",
+                "Row 7: Product name is required",
+                "Row 8: Invalid quantity 'ten'"), response.getErrorMessages());
+        assertEquals(2, savedChunks.size());
+        assertEquals(25, savedChunks.get(0).get(0).getQuantity());
+        assertEquals(1.5f, savedChunks.get(0).get(0).getProductBrokerage());
+        verify(productRepository, never()).findByBrokerBrokerIdAndProductNameAndQualityAndQuantity(any(), any(), any(), any());
+        verify(productRepository, never()).save(any());
+        verify(productCacheService, times(1)).clearProductCaches(BROKER_ID);
+        verify(productCacheService, never()).clearProductCaches();
+    }
+
+    @Test
+    void testImportProducts_FailedChunkReportsItsRowsAndSkipsCacheRefresh() throws IOException {
+        when(productRepository.saveAll(anyList())).thenThrow(new RuntimeException("connection reset"));
+
+        BulkUploadResponseDTO response = productBulkImportService.importProducts(BROKER_ID,
+                sheet(new Object[]{"Wheat", 1d, 50d, 1800d, null}));
+
+        assertEquals("No products were uploaded", response.getMessage());
+        assertEquals(List.of("Row 2: Error processing product - connection reset"), response.getErrorMessages());
+        verify(transactionManager).rollback(any());
+        verifyNoInteractions(productCacheService);
+    }
+
+    /**
+     * Builds an upload sheet with the template columns productName, productBrokerage, quantity, price, quality.
+     */
+    private InputStream sheet(Object[]... rows) throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            XSSFSheet sheet = workbook.createSheet("Products");
+            sheet.createRow(0).createCell(0).setCellValue("productName");
+            for (int i = 0; i < rows.length; i++) {
+                XSSFRow row = sheet.createRow(i + 1);
+                for (int c = 0; c < rows[i].length; c++) {
+                    if (rows[i][c] instanceof String text) {
+                        row.createCell(c).setCellValue(text);
+                    } else if (rows[i][c] instanceof Double number) {
+                        row.createCell(c).setCellValue(number);
+                    }
+                }
+            }
+            workbook.write(out);
+            return new ByteArrayInputStream(out.toByteArray());
+        }
+    }
+}
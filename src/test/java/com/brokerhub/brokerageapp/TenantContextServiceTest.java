@@ -0,0 +1,78 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.entity.Broker;
+import com.brokerhub.brokerageapp.repository.BrokerRepository;
+import com.brokerhub.brokerageapp.security.BrokerContext;
+import com.brokerhub.brokerageapp.security.BrokerContextHolder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TenantContextServiceTest {
+
+    @Mock
+    private BrokerRepository brokerRepository;
+
+    @InjectMocks
+    private TenantContextService tenantContextService;
+
+    private BrokerContextCache brokerContextCache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        brokerContextCache = new BrokerContextCache(100, Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(brokerContextCache, "brokerRepository", brokerRepository);
+        ReflectionTestUtils.setField(tenantContextService, "brokerContextCache", brokerContextCache);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("ravi", null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        BrokerContextHolder.clear();
+    }
+
+    @Test
+    void testGetCurrentBrokerId_UsesRequestContextWithoutQuery() {
+        BrokerContextHolder.set(BrokerContext.builder().brokerId(7L).userName("ravi").build());
+
+        assertEquals(7L, tenantContextService.getCurrentBrokerId());
+        assertEquals(7L, tenantContextService.getCurrentBrokerId());
+        verifyNoInteractions(brokerRepository);
+    }
+
+    @Test
+    void testGetCurrentBrokerId_OutsideRequestLoadsBrokerOnce() {
+        when(brokerRepository.findByUserName("ravi"))
+                .thenReturn(Optional.of(Broker.builder().brokerId(7L).userName("ravi").build()));
+
+        assertEquals(7L, tenantContextService.getCurrentBrokerId());
+        assertEquals(7L, tenantContextService.getCurrentBrokerId());
+        assertTrue(tenantContextService.isCurrentBroker(7L));
+        verify(brokerRepository, times(1)).findByUserName("ravi");
+    }
+
+    @Test
+    void testGetCurrentBrokerId_IgnoresContextOfAnotherUser() {
+        BrokerContextHolder.set(BrokerContext.builder().brokerId(9L).userName("someone-else").build());
+        when(brokerRepository.findByUserName("ravi"))
+                .thenReturn(Optional.of(Broker.builder().brokerId(7L).userName("ravi").build()));
+
+        assertEquals(7L, tenantContextService.getCurrentBrokerId());
+    }
+}
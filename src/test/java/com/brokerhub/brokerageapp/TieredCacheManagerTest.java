@@ -0,0 +1,110 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.config.CacheStatistics;
+import com.brokerhub.brokerageapp.config.ScopedCacheEviction;
+import com.brokerhub.brokerageapp.config.TieredCacheManager;
+import com.brokerhub.brokerageapp.config.TieredCacheProperties;
+import com.brokerhub.brokerageapp.dto.CacheRegionStatsDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TieredCacheManagerTest {
+
+    private static final String CHANNEL = "brokerhub:cache-invalidation";
+
+    private ConcurrentMapCacheManager remote;
+    private StringRedisTemplate redisTemplate;
+    private CacheStatistics cacheStatistics;
+    private TieredCacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        remote = new ConcurrentMapCacheManager("userNamesAndIds");
+        redisTemplate = mock(StringRedisTemplate.class);
+        cacheStatistics = new CacheStatistics();
+        cacheManager = new TieredCacheManager(remote, new TieredCacheProperties(), cacheStatistics, redisTemplate);
+    }
+
+    @Test
+    void testGet_RepeatedLookupIsServedLocally() {
+        ConcurrentMapCache remoteCache = (ConcurrentMapCache) remote.getCache("userNamesAndIds");
+        remoteCache.put("1", "names");
+        Cache cache = cacheManager.getCache("userNamesAndIds");
+
+        assertEquals("names", cache.get("1", String.class));
+        // Gone from Redis but still held locally until an invalidation or the local TTL
+        remoteCache.getNativeCache().clear();
+        assertEquals("names", cache.get("1", String.class));
+
+        CacheRegionStatsDTO stats = cacheStatistics.snapshot().get("userNamesAndIds");
+        assertEquals(1, stats.getLocalHits());
+        assertEquals(1, stats.getLocalMisses());
+        assertEquals(1, stats.getLocalSize());
+    }
+
+    @Test
+    void testPutAndEvict_WriteThroughAndPublishInvalidation() {
+        Cache cache = cacheManager.getCache("userNamesAndIds");
+
+        cache.put("1", "names");
+        assertEquals("names", remote.getCache("userNamesAndIds").get("1").get());
+        cache.evict("1");
+
+        assertNull(remote.getCache("userNamesAndIds").get("1"));
+        assertNull(cache.get("1"));
+        verify(redisTemplate, times(2)).convertAndSend(eq(CHANNEL), endsWith("|userNamesAndIds|evict|1"));
+    }
+
+    @Test
+    void testOnMessage_InvalidationFromOtherNodeDropsLocalEntryOnly() {
+        Cache cache = cacheManager.getCache("userNamesAndIds");
+        cache.put("1_3_user_10", "a");
+        cache.put("1_3_user_11", "b");
+        cache.put("2_3_user_10", "c");
+
+        cacheManager.onMessage(message("other-node|userNamesAndIds|evict|1_3_user_10"), null);
+        cacheManager.onMessage(message("other-node|userNamesAndIds|pattern|2_*"), null);
+
+        assertNull(local(cache).getIfPresent("1_3_user_10"));
+        assertNull(local(cache).getIfPresent("2_3_user_10"));
+        assertEquals("b", local(cache).getIfPresent("1_3_user_11").get());
+        // Redis is the shared tier and was already updated by the publishing node
+        assertNotNull(remote.getCache("userNamesAndIds").get("1_3_user_10"));
+    }
+
+    @Test
+    void testEvictMatching_EvictsBothTiers() {
+        Cache cache = cacheManager.getCache("userNamesAndIds");
+        cache.put("1_3_user_10", "a");
+        cache.put("1_4_user_10", "b");
+        cache.put("2_3_user_10", "c");
+
+        assertTrue(ScopedCacheEviction.evictMatching(cache, "1_*_user_10"));
+
+        assertNull(cache.get("1_3_user_10"));
+        assertNull(cache.get("1_4_user_10"));
+        assertEquals("c", cache.get("2_3_user_10").get());
+        verify(redisTemplate).convertAndSend(eq(CHANNEL), endsWith("|userNamesAndIds|pattern|1_*_user_10"));
+    }
+
+    private DefaultMessage message(String body) {
+        return new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Reads the local tier directly so assertions do not fall through to the remote cache
+    @SuppressWarnings("unchecked")
+    private com.github.benmanes.caffeine.cache.Cache<String, Cache.ValueWrapper> local(Cache cache) {
+        return (com.github.benmanes.caffeine.cache.Cache<String, Cache.ValueWrapper>) cache.getNativeCache();
+    }
+}
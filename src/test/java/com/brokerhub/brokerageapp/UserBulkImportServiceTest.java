@@ -0,0 +1,184 @@
+package com.brokerhub.brokerageapp.service;
+
+import com.brokerhub.brokerageapp.dto.BulkUploadResponseDTO;
+import com.brokerhub.brokerageapp.entity.Address;
+import com.brokerhub.brokerageapp.entity.Broker;
+import com.brokerhub.brokerageapp.entity.Miller;
+import com.brokerhub.brokerageapp.entity.Trader;
+import com.brokerhub.brokerageapp.entity.User;
+import com.brokerhub.brokerageapp.mapper.UserDTOMapper;
+import com.brokerhub.brokerageapp.repository.AddressRepository;
+import com.brokerhub.brokerageapp.repository.BrokerRepository;
+import com.brokerhub.brokerageapp.repository.MerchantBankDetailsRepository;
+import com.brokerhub.brokerageapp.repository.UserRepository;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.modelmapper.ModelMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class UserBulkImportServiceTest {
+
+    private static final Long BROKER_ID = 1L;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private AddressRepository addressRepository;
+
+    @Mock
+    private MerchantBankDetailsRepository merchantBankDetailsRepository;
+
+    @Mock
+    private BrokerRepository brokerRepository;
+
+    @Mock
+    private UserCacheService userCacheService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private UserBulkImportService userBulkImportService;
+
+    private final List<List<User>> savedChunks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        UserDTOMapper userDTOMapper = new UserDTOMapper();
+        ReflectionTestUtils.setField(userDTOMapper, "modelMapper", new ModelMapper());
+        ReflectionTestUtils.setField(userBulkImportService, "userDTOMapper", userDTOMapper);
+        ReflectionTestUtils.setField(userBulkImportService, "chunkSize", 2);
+
+        when(brokerRepository.getReferenceById(BROKER_ID)).thenReturn(Broker.builder().brokerId(BROKER_ID).build());
+        when(userRepository.findBasicUserInfoByBrokerId(BROKER_ID)).thenReturn(new ArrayList<>());
+        when(addressRepository.findByBrokerBrokerId(BROKER_ID)).thenReturn(new ArrayList<>());
+        when(merchantBankDetailsRepository.findByBrokerBrokerId(BROKER_ID)).thenReturn(new ArrayList<>());
+        when(userRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<User> users = new ArrayList<>(invocation.<Collection<User>>getArgument(0));
+            savedChunks.add(users);
+            return users;
+        });
+    }
+
+    @Test
+    void testImportUsers_WritesChunksWithSaveAllAndKeepsLongNumbersIntact() throws IOException {
+        InputStream sheet = sheet(
+                row("TRADER", "GST1", "Firm One", "Bengaluru", "560001", 919876543210d, 2d),
+                row("miller", "GST2", "Firm Two", "Bengaluru", "560001", null, 3d),
+                row(null, null, null, null, null, null, null),
+                row("TRADER", "GST3", "Firm Three", "Mysuru", "570001", null, 1d));
+
+        BulkUploadResponseDTO response = userBulkImportService.importUsers(BROKER_ID, sheet);
+
+        assertEquals(3, response.getTotalRecords());
+        assertEquals(3, response.getSuccessfulRecords());
+        assertEquals("All users uploaded successfully", response.getMessage());
+        assertEquals(2, savedChunks.size());
+        verify(userRepository, never()).save(any());
+
+        User first = savedChunks.get(0).get(0);
+        User second = savedChunks.get(0).get(1);
+        assertInstanceOf(Trader.class, first);
+        assertInstanceOf(Miller.class, second);
+        assertEquals(List.of("919876543210"), first.getPhoneNumbers());
+        // Both rows share one new address for pincode 560001
+        assertSame(first.getAddress(), second.getAddress());
+        ArgumentCaptor<List<Address>> addresses = ArgumentCaptor.forClass(List.class);
+        verify(addressRepository, times(2)).saveAll(addresses.capture());
+        assertEquals(1, addresses.getAllValues().get(0).size());
+        verify(userCacheService).clearUserCaches();
+    }
+
+    @Test
+    void testImportUsers_ReportsDuplicatesAgainstDatabaseAndFileWithRowNumbers() throws IOException {
+        when(userRepository.findBasicUserInfoByBrokerId(BROKER_ID)).thenReturn(List.<Object[]>of(
+                new Object[]{10L, "Existing Firm", "TRADER", "GSTX", "Owner"}));
+        InputStream sheet = sheet(
+                row("TRADER", "GST1", "existing firm", "Bengaluru", null, null, 2d),
+                row("TRADER", "gstx", "New Firm", "Bengaluru", null, null, 2d),
+                row("TRADER", "GST2", "Fresh Firm", "Bengaluru", null, null, 2d),
+                row("TRADER", "GST2", "Fresh Firm Again", "Bengaluru", null, null, 2d),
+                row("TRADER", "GST3", "No City", null, null, null, 2d));
+
+        BulkUploadResponseDTO response = userBulkImportService.importUsers(BROKER_ID, sheet);
+
+        assertEquals(5, response.getTotalRecords());
+        assertEquals(1, response.getSuccessfulRecords());
+        assertEquals(4, response.getFailedRecords());
+        List<String> errors = response.getErrorMessages();
+        assertTrue(errors.get(0).startsWith("Row 2: User with firm name 'existing firm'"));
+        assertTrue(errors.get(1).startsWith("Row 3: "));
+        assertTrue(errors.get(2).startsWith("Row 5: User with firm name 'Fresh Firm Again'"));
+        assertTrue(errors.get(3).startsWith("Row 6: Missing mandatory fields: city"));
+        verify(userRepository, never()).findByFirmName(any());
+    }
+
+    @Test
+    void testImportUsers_FailedChunkReportsEveryRowAndReleasesItsFirmNames() throws IOException {
+        ReflectionTestUtils.setField(userBulkImportService, "chunkSize", 1);
+        when(userRepository.saveAll(anyList()))
+                .thenThrow(new RuntimeException("constraint violation"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        InputStream sheet = sheet(
+                row("TRADER", "GST1", "Firm One", "Bengaluru", null, null, 2d),
+                row("TRADER", "GST1", "Firm One", "Bengaluru", null, null, 2d));
+
+        BulkUploadResponseDTO response = userBulkImportService.importUsers(BROKER_ID, sheet);
+
+        assertEquals(1, response.getSuccessfulRecords());
+        assertEquals(List.of("Row 2: Error processing user - constraint violation"), response.getErrorMessages());
+        verify(transactionManager).rollback(any());
+    }
+
+    private Object[] row(String userType, String gstNumber, String firmName, String city, String pincode,
+                         Double phoneNumber, Double brokerageRate) {
+        return new Object[]{userType, gstNumber, firmName, city, pincode, phoneNumber, brokerageRate};
+    }
+
+    /**
+     * Builds an upload sheet with the template columns; only the columns the tests use are filled.
+     */
+    private InputStream sheet(Object[]... rows) throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            XSSFSheet sheet = workbook.createSheet("Users");
+            sheet.createRow(0).createCell(0).setCellValue("userType");
+            for (int i = 0; i < rows.length; i++) {
+                XSSFRow row = sheet.createRow(i + 1);
+                Object[] values = rows[i];
+                int[] columns = {0, 1, 2, 4, 6, 12, 13};
+                for (int c = 0; c < columns.length; c++) {
+                    if (values[c] instanceof String text) {
+                        row.createCell(columns[c]).setCellValue(text);
+                    } else if (values[c] instanceof Double number) {
+                        row.createCell(columns[c]).setCellValue(number);
+                    }
+                }
+            }
+            workbook.write(out);
+            return new ByteArrayInputStream(out.toByteArray());
+        }
+    }
+}